@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for {@link BeanWrapperImpl}.
+ *
+ * @author Agent Local
+ */
+@BenchmarkMode(Mode.Throughput)
+public class BeanWrapperBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		public Person person;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.person = new Person();
+			this.person.setSpouse(new Person());
+		}
+	}
+
+
+	@Benchmark
+	public Object getPropertyValue(BenchmarkData data) {
+		return new BeanWrapperImpl(data.person).getPropertyValue("name");
+	}
+
+	@Benchmark
+	public Object getNestedPropertyValue(BenchmarkData data) {
+		return new BeanWrapperImpl(data.person).getPropertyValue("spouse.name");
+	}
+
+	@Benchmark
+	public Person setPropertyValue(BenchmarkData data) {
+		BeanWrapper wrapper = new BeanWrapperImpl(data.person);
+		wrapper.setPropertyValue("name", "Juergen");
+		return data.person;
+	}
+
+	@Benchmark
+	public Person setPropertyValueWithConversion(BenchmarkData data) {
+		BeanWrapper wrapper = new BeanWrapperImpl(data.person);
+		wrapper.setPropertyValue("age", "42");
+		return data.person;
+	}
+
+	@Benchmark
+	public Person setPropertyValues(BenchmarkData data) {
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		pvs.add("name", "Rod");
+		pvs.add("age", "41");
+		pvs.add("spouse.name", "Kerry");
+		new BeanWrapperImpl(data.person).setPropertyValues(pvs);
+		return data.person;
+	}
+
+
+	public static class Person {
+
+		private String name;
+
+		private int age;
+
+		private Person spouse;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public Person getSpouse() {
+			return this.spouse;
+		}
+
+		public void setSpouse(Person spouse) {
+			this.spouse = spouse;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -42,6 +42,7 @@ import org.springframework.core.convert.ConverterNotFoundException;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
@@ -76,6 +77,13 @@ public abstract class AbstractNestablePropertyAccessor extends AbstractPropertyA
 	 */
 	private static final Log logger = LogFactory.getLog(AbstractNestablePropertyAccessor.class);
 
+	/**
+	 * Cache for parsed property names, shared across accessor instances
+	 * since the parsing result only depends on the property name.
+	 */
+	private static final Map<String, ParsedPropertyName> propertyNameTokensCache =
+			new ConcurrentReferenceHashMap<>(256, 0.75f, 16, ConcurrentReferenceHashMap.ReferenceType.SOFT, 4096);
+
 	private int autoGrowCollectionLimit = Integer.MAX_VALUE;
 
 	@Nullable
@@ -926,6 +934,15 @@ public abstract class AbstractNestablePropertyAccessor extends AbstractPropertyA
 	 * @return representation of the parsed property tokens
 	 */
 	private PropertyTokenHolder getPropertyNameTokens(String propertyName) {
+		ParsedPropertyName parsed = propertyNameTokensCache.get(propertyName);
+		if (parsed == null) {
+			parsed = parsePropertyName(propertyName);
+			propertyNameTokensCache.put(propertyName, parsed);
+		}
+		return parsed.toTokenHolder();
+	}
+
+	private static ParsedPropertyName parsePropertyName(String propertyName) {
 		String actualName = null;
 		List<String> keys = new ArrayList<>(2);
 		int searchIndex = 0;
@@ -948,14 +965,14 @@ public abstract class AbstractNestablePropertyAccessor extends AbstractPropertyA
 				}
 			}
 		}
-		PropertyTokenHolder tokens = new PropertyTokenHolder(actualName != null ? actualName : propertyName);
-		if (!keys.isEmpty()) {
-			tokens.canonicalName += PROPERTY_KEY_PREFIX +
-					StringUtils.collectionToDelimitedString(keys, PROPERTY_KEY_SUFFIX + PROPERTY_KEY_PREFIX) +
-					PROPERTY_KEY_SUFFIX;
-			tokens.keys = StringUtils.toStringArray(keys);
+		String name = (actualName != null ? actualName : propertyName);
+		if (keys.isEmpty()) {
+			return new ParsedPropertyName(name, name, null);
 		}
-		return tokens;
+		String canonicalName = name + PROPERTY_KEY_PREFIX +
+				StringUtils.collectionToDelimitedString(keys, PROPERTY_KEY_SUFFIX + PROPERTY_KEY_PREFIX) +
+				PROPERTY_KEY_SUFFIX;
+		return new ParsedPropertyName(name, canonicalName, StringUtils.toStringArray(keys));
 	}
 
 	@Override
@@ -1047,4 +1064,32 @@ public abstract class AbstractNestablePropertyAccessor extends AbstractPropertyA
 		public String[] keys;
 	}
 
+
+	/**
+	 * Immutable result of parsing a property name, shared through the cache
+	 * and turned into a fresh {@link PropertyTokenHolder} for every use.
+	 */
+	private static final class ParsedPropertyName {
+
+		private final String actualName;
+
+		private final String canonicalName;
+
+		@Nullable
+		private final String[] keys;
+
+		ParsedPropertyName(String actualName, String canonicalName, @Nullable String[] keys) {
+			this.actualName = actualName;
+			this.canonicalName = canonicalName;
+			this.keys = keys;
+		}
+
+		PropertyTokenHolder toTokenHolder() {
+			PropertyTokenHolder tokens = new PropertyTokenHolder(this.actualName);
+			tokens.canonicalName = this.canonicalName;
+			tokens.keys = (this.keys != null ? this.keys.clone() : null);
+			return tokens;
+		}
+	}
+
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Invoker for the read and write methods of a bean property, switching from
+ * reflective invocation to functions generated via {@link LambdaMetafactory}
+ * once a method has been invoked repeatedly, analogous to the inflation of
+ * reflective method accessors in the JDK.
+ *
+ * <p>Functions are only generated for public methods of public classes which
+ * are visible to the ClassLoader of this class; other methods keep being invoked
+ * via reflection. Exceptions thrown by the methods themselves are wrapped in an
+ * {@link InvocationTargetException} either way, as with {@link Method#invoke}.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see CachedIntrospectionResults#getPropertyInvoker
+ */
+final class BeanPropertyInvoker {
+
+	/**
+	 * The number of reflective invocations of a method before a function is generated for it.
+	 */
+	private static final int GENERATION_THRESHOLD = 16;
+
+	private static final Log logger = LogFactory.getLog(BeanPropertyInvoker.class);
+
+
+	private final PropertyDescriptor pd;
+
+	@Nullable
+	private volatile Function<Object, Object> getter;
+
+	@Nullable
+	private volatile BiConsumer<Object, Object> setter;
+
+	private int readInvocations;
+
+	private int writeInvocations;
+
+
+	BeanPropertyInvoker(PropertyDescriptor pd) {
+		this.pd = pd;
+	}
+
+
+	/**
+	 * Invoke the read method of the property on the given target.
+	 * @param target the bean instance
+	 * @return the property value
+	 * @throws InvocationTargetException if the read method threw an exception
+	 * @throws Exception if the read method could not be invoked
+	 */
+	@Nullable
+	public Object invokeReadMethod(Object target) throws Exception {
+		Method readMethod = this.pd.getReadMethod();
+		Assert.state(readMethod != null, "No read method available");
+		Function<Object, Object> getter = this.getter;
+		if (getter == null && this.readInvocations++ == GENERATION_THRESHOLD) {
+			getter = generateGetter(readMethod);
+			this.getter = getter;
+		}
+		if (getter != null) {
+			try {
+				return getter.apply(target);
+			}
+			catch (Throwable ex) {
+				throw new InvocationTargetException(ex);
+			}
+		}
+		ReflectionUtils.makeAccessible(readMethod);
+		return readMethod.invoke(target, (Object[]) null);
+	}
+
+	/**
+	 * Invoke the write method of the property on the given target.
+	 * @param target the bean instance
+	 * @param value the new property value
+	 * @throws InvocationTargetException if the write method threw an exception
+	 * @throws Exception if the write method could not be invoked
+	 */
+	public void invokeWriteMethod(Object target, @Nullable Object value) throws Exception {
+		Method writeMethod = (this.pd instanceof GenericTypeAwarePropertyDescriptor ?
+				((GenericTypeAwarePropertyDescriptor) this.pd).getWriteMethodForActualAccess() :
+				this.pd.getWriteMethod());
+		Assert.state(writeMethod != null, "No write method available");
+		BiConsumer<Object, Object> setter = this.setter;
+		if (setter == null && this.writeInvocations++ == GENERATION_THRESHOLD) {
+			setter = generateSetter(writeMethod);
+			this.setter = setter;
+		}
+		// Values not accepted by the method go through reflection for the usual exception
+		if (setter != null && ClassUtils.isAssignableValue(writeMethod.getParameterTypes()[0], value)) {
+			try {
+				setter.accept(target, value);
+				return;
+			}
+			catch (Throwable ex) {
+				throw new InvocationTargetException(ex);
+			}
+		}
+		ReflectionUtils.makeAccessible(writeMethod);
+		writeMethod.invoke(target, value);
+	}
+
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	private static Function<Object, Object> generateGetter(Method readMethod) {
+		if (!isGenerationPossible(readMethod)) {
+			return null;
+		}
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle handle = lookup.unreflect(readMethod);
+			CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply",
+					MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class), handle,
+					MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(readMethod.getReturnType()),
+							readMethod.getDeclaringClass()));
+			return (Function<Object, Object>) callSite.getTarget().invoke();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to generate function for read method [" + readMethod + "]", ex);
+			}
+			return null;
+		}
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	private static BiConsumer<Object, Object> generateSetter(Method writeMethod) {
+		if (!isGenerationPossible(writeMethod)) {
+			return null;
+		}
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle handle = lookup.unreflect(writeMethod);
+			CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept",
+					MethodType.methodType(BiConsumer.class), MethodType.methodType(void.class, Object.class, Object.class),
+					handle, MethodType.methodType(void.class, writeMethod.getDeclaringClass(),
+							ClassUtils.resolvePrimitiveIfNecessary(writeMethod.getParameterTypes()[0])));
+			return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to generate function for write method [" + writeMethod + "]", ex);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Determine whether a function can be generated for the given method,
+	 * i.e. whether generated code can link against the method and its types.
+	 */
+	private static boolean isGenerationPossible(Method method) {
+		if (System.getSecurityManager() != null || !Modifier.isPublic(method.getModifiers()) ||
+				!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+			return false;
+		}
+		ClassLoader classLoader = BeanPropertyInvoker.class.getClassLoader();
+		if (!isVisible(method.getDeclaringClass(), classLoader) || !isVisible(method.getReturnType(), classLoader)) {
+			return false;
+		}
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (!isVisible(parameterType, classLoader)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isVisible(Class<?> type, @Nullable ClassLoader classLoader) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		return (type.isPrimitive() || ClassUtils.isVisible(type, classLoader));
+	}
+
+}
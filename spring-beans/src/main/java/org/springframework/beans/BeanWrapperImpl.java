@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -289,8 +289,8 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 		@Override
 		@Nullable
 		public Object getValue() throws Exception {
-			final Method readMethod = this.pd.getReadMethod();
 			if (System.getSecurityManager() != null) {
+				final Method readMethod = this.pd.getReadMethod();
 				AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
 					ReflectionUtils.makeAccessible(readMethod);
 					return null;
@@ -304,17 +304,16 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 				}
 			}
 			else {
-				ReflectionUtils.makeAccessible(readMethod);
-				return readMethod.invoke(getWrappedInstance(), (Object[]) null);
+				return getCachedIntrospectionResults().getPropertyInvoker(this.pd).invokeReadMethod(getWrappedInstance());
 			}
 		}
 
 		@Override
 		public void setValue(final @Nullable Object value) throws Exception {
-			final Method writeMethod = (this.pd instanceof GenericTypeAwarePropertyDescriptor ?
-					((GenericTypeAwarePropertyDescriptor) this.pd).getWriteMethodForActualAccess() :
-					this.pd.getWriteMethod());
 			if (System.getSecurityManager() != null) {
+				final Method writeMethod = (this.pd instanceof GenericTypeAwarePropertyDescriptor ?
+						((GenericTypeAwarePropertyDescriptor) this.pd).getWriteMethodForActualAccess() :
+						this.pd.getWriteMethod());
 				AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
 					ReflectionUtils.makeAccessible(writeMethod);
 					return null;
@@ -328,8 +327,7 @@ public class BeanWrapperImpl extends AbstractNestablePropertyAccessor implements
 				}
 			}
 			else {
-				ReflectionUtils.makeAccessible(writeMethod);
-				writeMethod.invoke(getWrappedInstance(), value);
+				getCachedIntrospectionResults().getPropertyInvoker(this.pd).invokeWriteMethod(getWrappedInstance(), value);
 			}
 		}
 	}
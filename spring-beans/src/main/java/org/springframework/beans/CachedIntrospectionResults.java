@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -259,6 +259,9 @@ public final class CachedIntrospectionResults {
 	/** TypeDescriptor objects keyed by PropertyDescriptor. */
 	private final ConcurrentMap<PropertyDescriptor, TypeDescriptor> typeDescriptorCache;
 
+	/** BeanPropertyInvoker objects keyed by PropertyDescriptor. */
+	private final ConcurrentMap<PropertyDescriptor, BeanPropertyInvoker> propertyInvokerCache;
+
 
 	/**
 	 * Create a new CachedIntrospectionResults instance for the given class.
@@ -304,6 +307,7 @@ public final class CachedIntrospectionResults {
 			}
 
 			this.typeDescriptorCache = new ConcurrentReferenceHashMap<>();
+			this.propertyInvokerCache = new ConcurrentReferenceHashMap<>();
 		}
 		catch (IntrospectionException ex) {
 			throw new FatalBeanException("Failed to obtain BeanInfo for class [" + beanClass.getName() + "]", ex);
@@ -382,4 +386,8 @@ public final class CachedIntrospectionResults {
 		return this.typeDescriptorCache.get(pd);
 	}
 
+	BeanPropertyInvoker getPropertyInvoker(PropertyDescriptor pd) {
+		return this.propertyInvokerCache.computeIfAbsent(pd, BeanPropertyInvoker::new);
+	}
+
 }
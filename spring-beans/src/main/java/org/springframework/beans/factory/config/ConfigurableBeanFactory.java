@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.beans.factory.config;
 
 import java.beans.PropertyEditor;
 import java.security.AccessControlContext;
+import java.util.concurrent.Executor;
 
 import org.springframework.beans.PropertyEditorRegistrar;
 import org.springframework.beans.PropertyEditorRegistry;
@@ -168,6 +169,33 @@ public interface ConfigurableBeanFactory extends HierarchicalBeanFactory, Single
 	@Nullable
 	ConversionService getConversionService();
 
+	/**
+	 * Set an {@link Executor} for parallel pre-instantiation of non-lazy
+	 * singleton beans on bootstrap.
+	 * <p>Beans with dependencies that can be determined ahead of creation,
+	 * including autowired constructor and factory method arguments as well as
+	 * annotation-driven injection points, are going to be created concurrently
+	 * on the given executor, with all other beans being created sequentially
+	 * on the bootstrap thread afterwards.
+	 * Setting an executor implies per-bean singleton creation locking.
+	 * <p>The default implementation ignores the given executor, leaving
+	 * pre-instantiation sequential.
+	 * @since 5.2
+	 * @see ConfigurableListableBeanFactory#preInstantiateSingletons()
+	 */
+	default void setBootstrapExecutor(@Nullable Executor bootstrapExecutor) {
+	}
+
+	/**
+	 * Return the {@link Executor} for parallel bean pre-instantiation, if any.
+	 * <p>The default implementation returns {@code null}.
+	 * @since 5.2
+	 */
+	@Nullable
+	default Executor getBootstrapExecutor() {
+		return null;
+	}
+
 	/**
 	 * Add a PropertyEditorRegistrar to be applied to all bean creation processes.
 	 * <p>Such a registrar creates new PropertyEditor instances and registers them
@@ -26,6 +26,7 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -312,6 +313,33 @@ class ConstructorResolver {
 	 * @param mbd the bean definition to check
 	 */
 	public void resolveFactoryMethodIfPossible(RootBeanDefinition mbd) {
+		Method uniqueCandidate = null;
+		for (Method candidate : getCandidateFactoryMethods(mbd)) {
+			if (uniqueCandidate == null) {
+				uniqueCandidate = candidate;
+			}
+			else if (!Arrays.equals(uniqueCandidate.getParameterTypes(), candidate.getParameterTypes())) {
+				uniqueCandidate = null;
+				break;
+			}
+		}
+		mbd.factoryMethodToIntrospect = uniqueCandidate;
+	}
+
+	/**
+	 * Determine all methods that may serve as factory method for the specified
+	 * bean definition, i.e. the factory method if resolved already, or otherwise
+	 * all overloaded methods with its name on the factory class.
+	 * @param mbd the bean definition to check
+	 * @return the candidate factory methods (potentially empty)
+	 * @since 5.2
+	 */
+	public List<Method> getCandidateFactoryMethods(RootBeanDefinition mbd) {
+		Method factoryMethodToUse = mbd.getResolvedFactoryMethod();
+		if (factoryMethodToUse != null) {
+			return Collections.singletonList(factoryMethodToUse);
+		}
+
 		Class<?> factoryClass;
 		boolean isStatic;
 		if (mbd.getFactoryBeanName() != null) {
@@ -325,20 +353,13 @@ class ConstructorResolver {
 		Assert.state(factoryClass != null, "Unresolvable factory class");
 		factoryClass = ClassUtils.getUserClass(factoryClass);
 
-		Method[] candidates = getCandidateMethods(factoryClass, mbd);
-		Method uniqueCandidate = null;
-		for (Method candidate : candidates) {
+		List<Method> candidates = new ArrayList<>();
+		for (Method candidate : getCandidateMethods(factoryClass, mbd)) {
 			if (Modifier.isStatic(candidate.getModifiers()) == isStatic && mbd.isFactoryMethod(candidate)) {
-				if (uniqueCandidate == null) {
-					uniqueCandidate = candidate;
-				}
-				else if (!Arrays.equals(uniqueCandidate.getParameterTypes(), candidate.getParameterTypes())) {
-					uniqueCandidate = null;
-					break;
-				}
+				candidates.add(candidate);
 			}
 		}
-		mbd.factoryMethodToIntrospect = uniqueCandidate;
+		return candidates;
 	}
 
 	/**
@@ -16,6 +16,7 @@
 
 package org.springframework.beans.factory.support;
 
+import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
@@ -24,6 +25,10 @@ import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -31,20 +36,25 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 import javax.inject.Provider;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -66,10 +76,14 @@ import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.BeanReference;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.NamedBeanHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.core.MethodParameter;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotationUtils;
@@ -825,8 +839,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		// While this may not be part of the regular factory bootstrap, it does otherwise work fine.
 		List<String> beanNames = new ArrayList<>(this.beanDefinitionNames);
 
+		// Create independent singletons concurrently first, if a bootstrap executor is set...
+		Executor bootstrapExecutor = getBootstrapExecutor();
+		List<String> remainingBeanNames = (bootstrapExecutor != null ?
+				preInstantiateSingletonsInParallel(beanNames, bootstrapExecutor) : beanNames);
+
 		// Trigger initialization of all non-lazy singleton beans...
-		for (String beanName : beanNames) {
+		for (String beanName : remainingBeanNames) {
 			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
 			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
 				if (isFactoryBean(beanName)) {
@@ -872,6 +891,371 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+	/**
+	 * Create all non-lazy singletons with determinable dependencies on the given
+	 * executor, each one as soon as its dependencies are available.
+	 * <p>Dependencies are determined ahead of creation: explicit references in the
+	 * bean definition, plus the candidate beans for all autowired constructor and
+	 * factory method arguments, autowired bean properties, and injection points
+	 * registered by merged bean definition post-processors (e.g. {@code @Autowired},
+	 * {@code @Resource} or {@code @Inject} fields and methods). Beans whose
+	 * dependencies cannot be determined ahead of time (instance suppliers, bean
+	 * expressions in {@code @Value}, untyped injection points, FactoryBean objects)
+	 * are deterministically left for sequential creation after the parallel wave,
+	 * as are beans depending on those, beans within a cycle, and beans whose
+	 * concurrent creation ran into a circular reference across threads.
+	 * @param beanNames the names of all registered beans, in registration order
+	 * @param executor the executor to create beans on
+	 * @return the names of the beans remaining for sequential pre-instantiation,
+	 * in registration order
+	 */
+	private List<String> preInstantiateSingletonsInParallel(List<String> beanNames, Executor executor) {
+		Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+		Map<Class<?>, String[]> beanNamesByType = new HashMap<>();
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit() && !isFactoryBean(beanName)) {
+				Set<String> beanDependencies = new LinkedHashSet<>();
+				if (collectStaticDependencies(bd, beanDependencies) &&
+						collectAutowiredDependencies(beanName, bd, beanDependencies, beanNamesByType)) {
+					beanDependencies.remove(beanName);
+					dependencies.put(beanName, beanDependencies);
+				}
+			}
+		}
+
+		// Leave beans depending on local beans that are not created in parallel to the sequential phase,
+		// unless already created (e.g. post-processors).
+		boolean removed = true;
+		while (removed) {
+			removed = dependencies.values().removeIf(beanDependencies -> beanDependencies.stream().anyMatch(
+					dependency -> !dependencies.containsKey(dependency) && containsBeanDefinition(dependency) &&
+							(!containsSingleton(dependency) || isFactoryBean(dependency))));
+		}
+
+		// Schedule in topological order; beans within a cycle never become ready.
+		Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+		Map<String, Throwable> failures = new ConcurrentHashMap<>();
+		boolean progress = true;
+		while (progress) {
+			progress = false;
+			for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+				String beanName = entry.getKey();
+				if (!futures.containsKey(beanName) && isReadyForScheduling(entry.getValue(), dependencies, futures)) {
+					CompletableFuture<?>[] dependencyFutures = entry.getValue().stream()
+							.map(futures::get).filter(Objects::nonNull).toArray(CompletableFuture[]::new);
+					futures.put(beanName, CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> {
+						try {
+							getBean(beanName);
+						}
+						catch (RuntimeException | Error ex) {
+							failures.put(beanName, ex);
+							throw ex;
+						}
+					}, executor));
+					progress = true;
+				}
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Pre-instantiating " + futures.size() + " of " + beanNames.size() +
+					" singletons in parallel in " + this);
+		}
+
+		for (CompletableFuture<Void> future : futures.values()) {
+			try {
+				future.join();
+			}
+			catch (RuntimeException ex) {
+				// Failure to be inspected below, after all tasks have completed
+			}
+		}
+
+		List<String> remainingBeanNames = new ArrayList<>(beanNames.size() - futures.size());
+		Throwable failure = null;
+		for (String beanName : beanNames) {
+			Throwable ex = failures.get(beanName);
+			if (ex != null && !(ex instanceof BeansException &&
+					((BeansException) ex).contains(BeanCurrentlyInCreationException.class))) {
+				// Report the first failure in registration order, keeping all others with it
+				if (failure == null) {
+					failure = ex;
+				}
+				else if (failure instanceof BeanCreationException) {
+					((BeanCreationException) failure).addRelatedCause(ex);
+				}
+				else {
+					failure.addSuppressed(ex);
+				}
+			}
+			CompletableFuture<Void> future = futures.get(beanName);
+			if (future == null || future.isCompletedExceptionally()) {
+				remainingBeanNames.add(beanName);
+			}
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw (RuntimeException) failure;
+		}
+		return remainingBeanNames;
+	}
+
+	/**
+	 * Determine whether all dependencies within the parallel candidates are scheduled.
+	 */
+	private static boolean isReadyForScheduling(Set<String> beanDependencies,
+			Map<String, Set<String>> candidates, Map<String, CompletableFuture<Void>> futures) {
+
+		for (String dependency : beanDependencies) {
+			if (candidates.containsKey(dependency) && !futures.containsKey(dependency)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Collect the names of all beans that the given bean may get autowired with:
+	 * the candidates for its autowired constructor or factory method arguments,
+	 * for its autowired bean properties, and for the injection points registered
+	 * by merged bean definition post-processors, e.g. annotated fields and methods.
+	 * <p>Candidates are determined by type, without considering qualifiers or
+	 * primary beans, i.e. a superset of the beans actually injected.
+	 * @return {@code false} if the dependencies cannot be determined ahead of creation
+	 */
+	private boolean collectAutowiredDependencies(String beanName, RootBeanDefinition mbd,
+			Set<String> dependencies, Map<Class<?>, String[]> beanNamesByType) {
+
+		if (mbd.getInstanceSupplier() != null) {
+			// Arbitrary instantiation code, possibly obtaining further beans
+			return false;
+		}
+		try {
+			Class<?> beanType;
+			List<Executable> autowiredExecutables = new ArrayList<>();
+			if (mbd.getFactoryMethodName() != null) {
+				if (mbd.getFactoryBeanName() == null) {
+					resolveBeanClass(mbd, beanName);
+				}
+				if (mbd.getResolvedAutowireMode() == AUTOWIRE_CONSTRUCTOR) {
+					autowiredExecutables.addAll(new ConstructorResolver(this).getCandidateFactoryMethods(mbd));
+				}
+				beanType = predictBeanType(beanName, mbd);
+			}
+			else {
+				beanType = resolveBeanClass(mbd, beanName);
+				if (beanType == null) {
+					return false;
+				}
+				// Same constructor choice as in createBeanInstance
+				Constructor<?>[] ctors = determineConstructorsFromBeanPostProcessors(beanType, beanName);
+				if (ctors == null && mbd.getResolvedAutowireMode() == AUTOWIRE_CONSTRUCTOR) {
+					ctors = (mbd.isNonPublicAccessAllowed() ?
+							beanType.getDeclaredConstructors() : beanType.getConstructors());
+				}
+				else if (ctors == null && !mbd.hasConstructorArgumentValues()) {
+					ctors = mbd.getPreferredConstructors();
+				}
+				if (ctors != null) {
+					autowiredExecutables.addAll(Arrays.asList(ctors));
+				}
+			}
+			if (beanType == null) {
+				return false;
+			}
+			for (Executable executable : autowiredExecutables) {
+				for (int i = 0; i < executable.getParameterCount(); i++) {
+					DependencyDescriptor descriptor =
+							new DependencyDescriptor(MethodParameter.forExecutable(executable, i), false);
+					if (!collectAutowiredDependencies(descriptor, dependencies, beanNamesByType)) {
+						return false;
+					}
+				}
+			}
+
+			// Injection points as registered on a copy of the merged bean definition,
+			// leaving the actual post-processing to the creation of the bean.
+			RootBeanDefinition postProcessedBd = mbd.cloneBeanDefinition();
+			applyMergedBeanDefinitionPostProcessors(postProcessedBd, beanType, beanName);
+			for (Member member : postProcessedBd.getExternallyManagedConfigMembers()) {
+				if (member instanceof Field) {
+					if (!collectAutowiredDependencies(
+							new DependencyDescriptor((Field) member, false), dependencies, beanNamesByType)) {
+						return false;
+					}
+				}
+				else if (member instanceof Method) {
+					Method method = (Method) member;
+					for (int i = 0; i < method.getParameterCount(); i++) {
+						if (!collectAutowiredDependencies(new DependencyDescriptor(new MethodParameter(method, i), false),
+								dependencies, beanNamesByType)) {
+							return false;
+						}
+					}
+				}
+			}
+
+			// Same properties as in autowireByName/autowireByType
+			int autowireMode = mbd.getResolvedAutowireMode();
+			if (autowireMode == AUTOWIRE_BY_NAME || autowireMode == AUTOWIRE_BY_TYPE) {
+				for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(beanType)) {
+					if (pd.getWriteMethod() != null && !isExcludedFromDependencyCheck(pd) &&
+							!mbd.getPropertyValues().contains(pd.getName()) &&
+							!BeanUtils.isSimpleProperty(pd.getPropertyType())) {
+						if (autowireMode == AUTOWIRE_BY_NAME) {
+							if (containsBean(pd.getName())) {
+								dependencies.add(transformedBeanName(pd.getName()));
+							}
+						}
+						else if (Object.class != pd.getPropertyType() && !collectAutowiredDependencies(
+								new DependencyDescriptor(new MethodParameter(pd.getWriteMethod(), 0), false),
+								dependencies, beanNamesByType)) {
+							return false;
+						}
+					}
+				}
+			}
+			return true;
+		}
+		catch (RuntimeException | LinkageError ex) {
+			// To be reported by sequential creation
+			return false;
+		}
+	}
+
+	/**
+	 * Collect the names of all candidate beans for the given injection point,
+	 * as resolved by {@link #resolveDependency}: for the dependency type itself,
+	 * for its element type in case of an array, collection or map, and for the
+	 * nested type of an {@code Optional}, {@code ObjectFactory} or {@code Provider}.
+	 * @return {@code false} if the candidates cannot be determined by type
+	 */
+	private boolean collectAutowiredDependencies(DependencyDescriptor descriptor,
+			Set<String> dependencies, Map<Class<?>, String[]> beanNamesByType) {
+
+		descriptor.initParameterNameDiscovery(getParameterNameDiscoverer());
+		Object value = getAutowireCandidateResolver().getSuggestedValue(descriptor);
+		if (value != null) {
+			// A @Value expression may refer to arbitrary beans; placeholders are fine.
+			if (value instanceof String) {
+				String strVal = resolveEmbeddedValue((String) value);
+				return (strVal == null || !strVal.contains("#{"));
+			}
+			return true;
+		}
+
+		Class<?> type = descriptor.getDependencyType();
+		if (Optional.class == type || ObjectFactory.class == type || ObjectProvider.class == type ||
+				javaxInjectProviderClass == type) {
+			descriptor.increaseNestingLevel();
+			type = descriptor.getDependencyType();
+		}
+		Class<?> elementType = null;
+		if (type.isArray()) {
+			elementType = type.getComponentType();
+		}
+		else if (Collection.class.isAssignableFrom(type) && type.isInterface()) {
+			elementType = descriptor.getResolvableType().asCollection().resolveGeneric();
+		}
+		else if (Map.class == type) {
+			elementType = descriptor.getResolvableType().asMap().resolveGeneric(1);
+		}
+		if (Object.class == type || Object.class == elementType) {
+			return false;
+		}
+		collectBeanNamesForType(type, dependencies, beanNamesByType);
+		if (elementType != null) {
+			collectBeanNamesForType(elementType, dependencies, beanNamesByType);
+		}
+		return true;
+	}
+
+	private void collectBeanNamesForType(Class<?> type, Set<String> dependencies,
+			Map<Class<?>, String[]> beanNamesByType) {
+
+		String[] beanNames = beanNamesByType.computeIfAbsent(type, key -> getBeanNamesForType(key, true, false));
+		dependencies.addAll(Arrays.asList(beanNames));
+	}
+
+	/**
+	 * Collect the names of all beans that the given bean definition refers to
+	 * via depends-on, its factory bean, or explicit bean references in its
+	 * constructor arguments and property values (including inner beans).
+	 * @return {@code false} if further dependencies may only be determined
+	 * at creation time (i.e. in case of autowiring within an inner bean)
+	 */
+	private boolean collectStaticDependencies(BeanDefinition bd, Set<String> dependencies) {
+		String[] dependsOn = bd.getDependsOn();
+		if (dependsOn != null) {
+			for (String dependency : dependsOn) {
+				dependencies.add(transformedBeanName(dependency));
+			}
+		}
+		if (bd.getFactoryBeanName() != null) {
+			dependencies.add(transformedBeanName(bd.getFactoryBeanName()));
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getIndexedArgumentValues().values()) {
+			if (!collectStaticDependencies(valueHolder.getValue(), dependencies)) {
+				return false;
+			}
+		}
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+			if (!collectStaticDependencies(valueHolder.getValue(), dependencies)) {
+				return false;
+			}
+		}
+		for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+			if (!collectStaticDependencies(pv.getValue(), dependencies)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean collectStaticDependencies(@Nullable Object value, Set<String> dependencies) {
+		if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			if (!ref.isToParent()) {
+				dependencies.add(transformedBeanName(ref.getBeanName()));
+			}
+		}
+		else if (value instanceof BeanReference) {
+			// A RuntimeBeanNameReference: the bean name only, no actual dependency.
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			return collectInnerBeanDependencies(((BeanDefinitionHolder) value).getBeanDefinition(), dependencies);
+		}
+		else if (value instanceof BeanDefinition) {
+			return collectInnerBeanDependencies((BeanDefinition) value, dependencies);
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				if (!collectStaticDependencies(element, dependencies)) {
+					return false;
+				}
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!collectStaticDependencies(entry.getKey(), dependencies) ||
+						!collectStaticDependencies(entry.getValue(), dependencies)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean collectInnerBeanDependencies(BeanDefinition innerBd, Set<String> dependencies) {
+		if (innerBd instanceof AbstractBeanDefinition &&
+				((AbstractBeanDefinition) innerBd).getResolvedAutowireMode() != AUTOWIRE_NO) {
+			return false;
+		}
+		return collectStaticDependencies(innerBd, dependencies);
+	}
 
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
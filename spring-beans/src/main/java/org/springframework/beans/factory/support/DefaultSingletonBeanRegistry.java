@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCreationNotAllowedException;
@@ -32,6 +33,7 @@ import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.SimpleAliasRegistry;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -61,6 +63,11 @@ import org.springframework.util.StringUtils;
  * (which inherit from it). Can alternatively also be used as a nested
  * helper to delegate to.
  *
+ * <p>Singleton creation is guarded by the {@link #getSingletonMutex() singleton
+ * mutex} by default. As of 5.2, it may alternatively be guarded by a lock per
+ * bean name, allowing for independent singletons to be created concurrently:
+ * see {@link #setPerBeanCreationLocking}.
+ *
  *
  *
  * 对接口SingletonBeanRegistry各函数的实现
@@ -75,6 +82,10 @@ import org.springframework.util.StringUtils;
  */
 public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements SingletonBeanRegistry {
 
+	/** Interval for re-checking a busy creation lock while holding the singleton mutex. */
+	private static final long CREATION_LOCK_RECHECK_INTERVAL = 10;
+
+
 	/** Cache of singleton objects: bean name to bean instance. */
 	private final Map<String, Object> singletonObjects = new ConcurrentHashMap<>(256);
 
@@ -82,7 +93,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Map<String, ObjectFactory<?>> singletonFactories = new HashMap<>(16);
 
 	/** Cache of early singleton objects: bean name to bean instance. */
-	private final Map<String, Object> earlySingletonObjects = new HashMap<>(16);
+	private final Map<String, Object> earlySingletonObjects = new ConcurrentHashMap<>(16);
 
 	/** Set of registered singletons, containing the bean names in registration order. */
 	private final Set<String> registeredSingletons = new LinkedHashSet<>(256);
@@ -99,8 +110,21 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	@Nullable
 	private Set<Exception> suppressedExceptions;
 
+	/** List of suppressed Exceptions per thread, in case of per-bean creation locking. */
+	private final ThreadLocal<Set<Exception>> suppressedExceptionsPerThread =
+			new NamedThreadLocal<>("Suppressed exceptions during singleton creation");
+
 	/** Flag that indicates whether we're currently within destroySingletons. */
-	private boolean singletonsCurrentlyInDestruction = false;
+	private volatile boolean singletonsCurrentlyInDestruction = false;
+
+	/** Whether to guard singleton creation with a lock per bean name. */
+	private boolean perBeanCreationLocking = false;
+
+	/** Singleton creation locks: bean name to lock, in case of per-bean creation locking. */
+	private final Map<String, SingletonCreationLock> singletonCreationLocks = new ConcurrentHashMap<>(16);
+
+	/** Threads waiting for a singleton creation lock: thread to bean name. */
+	private final Map<Thread, String> threadsAwaitingCreationLock = new HashMap<>(16);
 
 	/** Disposable bean instances: bean name to disposable instance. */
 	private final Map<String, Object> disposableBeans = new LinkedHashMap<>();
@@ -115,6 +139,37 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Map<String, Set<String>> dependenciesForBeanMap = new ConcurrentHashMap<>(64);
 
 
+	/**
+	 * Set whether singleton creation should be guarded by a lock per bean name
+	 * instead of the {@link #getSingletonMutex() singleton mutex}.
+	 * <p>Default is "false", creating singletons one at a time: a thread that
+	 * creates a singleton holds the singleton mutex until creation has completed,
+	 * including the creation of dependencies. Switch this flag on in order to
+	 * allow different threads to create independent singletons concurrently,
+	 * e.g. for parallel bootstrapping or for lazily created singletons that are
+	 * requested at a high rate from scoped beans. Fully initialized singletons
+	 * are retrieved without locking in either mode.
+	 * <p>In this mode, early references to a singleton in creation are only
+	 * exposed to the creating thread; other threads wait for the singleton to
+	 * be fully initialized. A circular reference between singletons in creation
+	 * on different threads is resolved through an early reference as well, or
+	 * leads to a {@link BeanCurrentlyInCreationException} if none is available
+	 * (for example, in case of constructor injection).
+	 * @since 5.2
+	 */
+	public void setPerBeanCreationLocking(boolean perBeanCreationLocking) {
+		this.perBeanCreationLocking = perBeanCreationLocking;
+	}
+
+	/**
+	 * Return whether singleton creation is guarded by a lock per bean name.
+	 * @since 5.2
+	 */
+	public boolean isPerBeanCreationLocking() {
+		return this.perBeanCreationLocking;
+	}
+
+
 	@Override
 	public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
 		Assert.notNull(beanName, "Bean name must not be null");
@@ -181,9 +236,42 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	protected Object getSingleton(String beanName, boolean allowEarlyReference) {
 		Object singletonObject = this.singletonObjects.get(beanName);
 		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
-			synchronized (this.singletonObjects) {
+			if (this.perBeanCreationLocking) {
+				if (!isCreationLockHeldByCurrentThread(beanName)) {
+					// In creation on another thread: to be awaited in getSingleton(String, ObjectFactory)
+					return null;
+				}
 				singletonObject = this.earlySingletonObjects.get(beanName);
 				if (singletonObject == null && allowEarlyReference) {
+					singletonObject = getEarlySingletonReference(beanName);
+				}
+			}
+			else {
+				synchronized (this.singletonObjects) {
+					singletonObject = this.earlySingletonObjects.get(beanName);
+					if (singletonObject == null && allowEarlyReference) {
+						singletonObject = getEarlySingletonReference(beanName);
+					}
+				}
+			}
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Obtain an early reference to the specified singleton, creating it through
+	 * the registered singleton factory if necessary.
+	 * @param beanName the name of the bean
+	 * @return the early singleton reference, or {@code null} if none available
+	 */
+	@Nullable
+	private Object getEarlySingletonReference(String beanName) {
+		synchronized (this.singletonObjects) {
+			// Consistent creation of early reference within singleton mutex
+			Object singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				singletonObject = this.earlySingletonObjects.get(beanName);
+				if (singletonObject == null) {
 					ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
 					if (singletonFactory != null) {
 						singletonObject = singletonFactory.getObject();
@@ -192,8 +280,8 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 					}
 				}
 			}
+			return singletonObject;
 		}
-		return singletonObject;
 	}
 
 	/**
@@ -206,55 +294,199 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "Bean name must not be null");
+		if (this.perBeanCreationLocking) {
+			return getSingletonWithCreationLock(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			Object singletonObject = this.singletonObjects.get(beanName);
 			if (singletonObject == null) {
-				if (this.singletonsCurrentlyInDestruction) {
-					throw new BeanCreationNotAllowedException(beanName,
-							"Singleton bean creation not allowed while singletons of this factory are in destruction " +
-							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
-				}
-				if (logger.isDebugEnabled()) {
-					logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
-				}
-				beforeSingletonCreation(beanName);
-				boolean newSingleton = false;
 				boolean recordSuppressedExceptions = (this.suppressedExceptions == null);
 				if (recordSuppressedExceptions) {
 					this.suppressedExceptions = new LinkedHashSet<>();
 				}
 				try {
-					singletonObject = singletonFactory.getObject();
-					newSingleton = true;
+					singletonObject = createSingleton(beanName, singletonFactory, this.suppressedExceptions);
 				}
-				catch (IllegalStateException ex) {
-					// Has the singleton object implicitly appeared in the meantime ->
-					// if yes, proceed with it since the exception indicates that state.
-					singletonObject = this.singletonObjects.get(beanName);
-					if (singletonObject == null) {
-						throw ex;
-					}
-				}
-				catch (BeanCreationException ex) {
+				finally {
 					if (recordSuppressedExceptions) {
-						for (Exception suppressedException : this.suppressedExceptions) {
-							ex.addRelatedCause(suppressedException);
-						}
+						this.suppressedExceptions = null;
 					}
-					throw ex;
+				}
+			}
+			return singletonObject;
+		}
+	}
+
+	/**
+	 * Variant of {@link #getSingleton(String, ObjectFactory)} for per-bean
+	 * creation locking, only guarding the creation of the given singleton.
+	 */
+	private Object getSingletonWithCreationLock(String beanName, ObjectFactory<?> singletonFactory) {
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if (singletonObject != null) {
+			return singletonObject;
+		}
+		SingletonCreationLock lock =
+				this.singletonCreationLocks.computeIfAbsent(beanName, key -> new SingletonCreationLock());
+		if (!acquireCreationLock(beanName, lock)) {
+			// Circular reference with a singleton in creation on this thread,
+			// which the creating thread is waiting for...
+			singletonObject = getEarlySingletonReference(beanName);
+			if (singletonObject == null) {
+				throw new BeanCurrentlyInCreationException(beanName, "Requested bean is currently in creation " +
+						"on another thread, which is waiting for a bean in creation on this thread: " +
+						"Is there an unresolvable circular reference?");
+			}
+			return singletonObject;
+		}
+		try {
+			singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				Set<Exception> suppressedExceptions = this.suppressedExceptionsPerThread.get();
+				boolean recordSuppressedExceptions = (suppressedExceptions == null);
+				if (recordSuppressedExceptions) {
+					suppressedExceptions = new LinkedHashSet<>();
+					this.suppressedExceptionsPerThread.set(suppressedExceptions);
+				}
+				try {
+					singletonObject = createSingleton(beanName, singletonFactory, suppressedExceptions);
 				}
 				finally {
 					if (recordSuppressedExceptions) {
-						this.suppressedExceptions = null;
+						this.suppressedExceptionsPerThread.remove();
 					}
-					afterSingletonCreation(beanName);
-				}
-				if (newSingleton) {
-					addSingleton(beanName, singletonObject);
 				}
+				// Fully initialized singleton: no further need for a creation lock
+				this.singletonCreationLocks.remove(beanName, lock);
 			}
 			return singletonObject;
 		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Acquire the given creation lock, unless it is held by a thread that is
+	 * (directly or indirectly) waiting for a creation lock held by the current
+	 * thread, in which case waiting would lead to a deadlock.
+	 * <p>If the current thread holds the singleton mutex (e.g. while obtaining
+	 * an object from a FactoryBean), the mutex is released while waiting,
+	 * allowing the creating thread to complete the singleton's registration.
+	 * @param beanName the name of the bean
+	 * @param lock the creation lock for the bean
+	 * @return {@code true} if the lock has been acquired, or {@code false}
+	 * in case of a circular wait
+	 */
+	private boolean acquireCreationLock(String beanName, SingletonCreationLock lock) {
+		if (lock.tryLock()) {
+			return true;
+		}
+		Thread currentThread = Thread.currentThread();
+		synchronized (this.threadsAwaitingCreationLock) {
+			Set<Thread> visitedThreads = new HashSet<>();
+			Thread owner = lock.getOwnerThread();
+			while (owner != null && visitedThreads.add(owner)) {
+				if (owner == currentThread) {
+					return false;
+				}
+				String awaitedBeanName = this.threadsAwaitingCreationLock.get(owner);
+				SingletonCreationLock awaitedLock =
+						(awaitedBeanName != null ? this.singletonCreationLocks.get(awaitedBeanName) : null);
+				owner = (awaitedLock != null ? awaitedLock.getOwnerThread() : null);
+			}
+			this.threadsAwaitingCreationLock.put(currentThread, beanName);
+		}
+		try {
+			if (Thread.holdsLock(this.singletonObjects)) {
+				boolean interrupted = false;
+				while (!lock.tryLock()) {
+					try {
+						this.singletonObjects.wait(CREATION_LOCK_RECHECK_INTERVAL);
+					}
+					catch (InterruptedException ex) {
+						interrupted = true;
+					}
+				}
+				if (interrupted) {
+					currentThread.interrupt();
+				}
+			}
+			else {
+				lock.lock();
+			}
+			return true;
+		}
+		finally {
+			synchronized (this.threadsAwaitingCreationLock) {
+				this.threadsAwaitingCreationLock.remove(currentThread);
+			}
+		}
+	}
+
+	/**
+	 * Determine whether the creation lock for the given bean is held by the
+	 * current thread, in case of per-bean creation locking. Also returns
+	 * {@code true} if there is no such lock (i.e. the singleton is marked as
+	 * in creation outside of {@link #getSingleton(String, ObjectFactory)}).
+	 * @param beanName the name of the bean
+	 */
+	private boolean isCreationLockHeldByCurrentThread(String beanName) {
+		SingletonCreationLock lock = this.singletonCreationLocks.get(beanName);
+		return (lock == null || lock.isHeldByCurrentThread());
+	}
+
+	/**
+	 * Create and register the specified singleton, with the corresponding
+	 * in-creation bookkeeping. To be called while holding the singleton mutex
+	 * or the creation lock for the given bean.
+	 * @param beanName the name of the bean
+	 * @param singletonFactory the ObjectFactory to create the singleton with
+	 * @param suppressedExceptions the exceptions suppressed during creation
+	 * (to associate as related causes in case of a creation failure)
+	 * @return the registered singleton object
+	 */
+	private Object createSingleton(String beanName, ObjectFactory<?> singletonFactory,
+			@Nullable Set<Exception> suppressedExceptions) {
+
+		if (this.singletonsCurrentlyInDestruction) {
+			throw new BeanCreationNotAllowedException(beanName,
+					"Singleton bean creation not allowed while singletons of this factory are in destruction " +
+					"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+		}
+		beforeSingletonCreation(beanName);
+		Object singletonObject;
+		boolean newSingleton = false;
+		try {
+			singletonObject = singletonFactory.getObject();
+			newSingleton = true;
+		}
+		catch (IllegalStateException ex) {
+			// Has the singleton object implicitly appeared in the meantime ->
+			// if yes, proceed with it since the exception indicates that state.
+			singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				throw ex;
+			}
+		}
+		catch (BeanCreationException ex) {
+			if (suppressedExceptions != null) {
+				for (Exception suppressedException : suppressedExceptions) {
+					ex.addRelatedCause(suppressedException);
+				}
+			}
+			throw ex;
+		}
+		finally {
+			afterSingletonCreation(beanName);
+		}
+		if (newSingleton) {
+			addSingleton(beanName, singletonObject);
+		}
+		return singletonObject;
 	}
 
 	/**
@@ -263,6 +495,13 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @param ex the Exception to register
 	 */
 	protected void onSuppressedException(Exception ex) {
+		if (this.perBeanCreationLocking) {
+			Set<Exception> suppressedExceptions = this.suppressedExceptionsPerThread.get();
+			if (suppressedExceptions != null) {
+				suppressedExceptions.add(ex);
+			}
+			return;
+		}
 		synchronized (this.singletonObjects) {
 			if (this.suppressedExceptions != null) {
 				this.suppressedExceptions.add(ex);
@@ -616,9 +855,26 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * any sort of extended singleton creation phase. In particular, subclasses
 	 * should <i>not</i> have their own mutexes involved in singleton creation,
 	 * to avoid the potential for deadlocks in lazy-init situations.
+	 * <p>Note that in case of {@link #setPerBeanCreationLocking per-bean creation
+	 * locking}, the mutex is not held during singleton creation but just while
+	 * updating the registry's state.
 	 */
 	public final Object getSingletonMutex() {
 		return this.singletonObjects;
 	}
 
+
+	/**
+	 * Lock for the creation of a specific singleton, exposing its owner thread
+	 * for the detection of circular waits.
+	 */
+	@SuppressWarnings("serial")
+	private static class SingletonCreationLock extends ReentrantLock {
+
+		@Nullable
+		public Thread getOwnerThread() {
+			return getOwner();
+		}
+	}
+
 }
@@ -21,7 +21,9 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -393,6 +395,17 @@ public class RootBeanDefinition extends AbstractBeanDefinition {
 		}
 	}
 
+	/**
+	 * Return all externally managed configuration methods and fields, as registered
+	 * so far via {@link #registerExternallyManagedConfigMember}.
+	 */
+	Set<Member> getExternallyManagedConfigMembers() {
+		synchronized (this.postProcessingLock) {
+			return (this.externallyManagedConfigMembers != null ?
+					new LinkedHashSet<>(this.externallyManagedConfigMembers) : Collections.emptySet());
+		}
+	}
+
 	public void registerExternallyManagedInitMethod(String initMethod) {
 		synchronized (this.postProcessingLock) {
 			if (this.externallyManagedInitMethods == null) {
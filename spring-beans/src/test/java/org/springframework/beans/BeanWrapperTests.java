@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -218,6 +218,74 @@ public class BeanWrapperTests extends AbstractPropertyAccessorTests {
 		}
 	}
 
+	@Test
+	public void repeatedPropertyAccess() {
+		TestBean target = new TestBean();
+		BeanWrapper accessor = createAccessor(target);
+		for (int i = 0; i < 50; i++) {
+			accessor.setPropertyValue("age", i);
+			accessor.setPropertyValue("spouse", new TestBean());
+			accessor.setPropertyValue("spouse.name", "name" + i);
+			assertEquals(i, accessor.getPropertyValue("age"));
+			assertEquals("name" + i, accessor.getPropertyValue("spouse.name"));
+		}
+		assertEquals(49, target.getAge());
+		assertEquals("name49", target.getSpouse().getName());
+	}
+
+	@Test
+	public void repeatedPropertyAccessWithExceptionsFromMethods() {
+		ThrowingBean target = new ThrowingBean();
+		BeanWrapper accessor = createAccessor(target);
+		for (int i = 0; i < 50; i++) {
+			accessor.setPropertyValue("value", "value" + i);
+			assertEquals("value" + i, accessor.getPropertyValue("value"));
+		}
+		try {
+			accessor.setPropertyValue("value", null);
+			fail("Should have thrown MethodInvocationException");
+		}
+		catch (MethodInvocationException ex) {
+			assertTrue(ex.getCause() instanceof IllegalArgumentException);
+		}
+		accessor.setPropertyValue("value", "");
+		try {
+			accessor.getPropertyValue("value");
+			fail("Should have thrown InvalidPropertyException");
+		}
+		catch (InvalidPropertyException ex) {
+			assertTrue(ex.getCause().getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void modifiedPropertyTokensNotShared() {
+		TestBean target = new TestBean();
+		target.setAge(42);
+		BeanWrapper modifyingAccessor = new BeanWrapperImpl(target) {
+			@Override
+			protected Object getPropertyValue(PropertyTokenHolder tokens) {
+				Object value = super.getPropertyValue(tokens);
+				tokens.actualName = "name";
+				tokens.canonicalName = "name";
+				return value;
+			}
+		};
+		assertEquals(42, modifyingAccessor.getPropertyValue("age"));
+		assertEquals(42, modifyingAccessor.getPropertyValue("age"));
+		assertEquals(42, createAccessor(target).getPropertyValue("age"));
+	}
+
+	@Test
+	public void repeatedPropertyAccessOnNonPublicClass() {
+		GetterBean target = new GetterBean();
+		BeanWrapper accessor = createAccessor(target);
+		for (int i = 0; i < 50; i++) {
+			accessor.setPropertyValue("aliasedName", "name" + i);
+			assertEquals("name" + i, accessor.getPropertyValue("aliasedName"));
+		}
+	}
+
 
 	private interface BaseProperty {
 
@@ -311,6 +379,26 @@ public class BeanWrapperTests extends AbstractPropertyAccessorTests {
 	}
 
 
+	public static class ThrowingBean {
+
+		private String value;
+
+		public void setValue(String value) {
+			if (value == null) {
+				throw new IllegalArgumentException("value must not be null");
+			}
+			this.value = value;
+		}
+
+		public String getValue() {
+			if (this.value.isEmpty()) {
+				throw new IllegalStateException("value must not be empty");
+			}
+			return this.value;
+		}
+	}
+
+
 	public static class GetterWithOptional {
 
 		public TestBean value;
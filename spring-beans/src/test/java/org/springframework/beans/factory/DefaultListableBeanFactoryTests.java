@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,8 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import javax.annotation.Priority;
 import javax.security.auth.Subject;
@@ -57,6 +59,8 @@ import org.springframework.beans.PropertyEditorRegistry;
 import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanExpressionContext;
@@ -177,6 +181,179 @@ public class DefaultListableBeanFactoryTests {
 		assertTrue("prototype was instantiated", DummyFactory.wasPrototypeCreated());
 	}
 
+	@Test
+	public void testParallelPreInstantiation() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+			lbf.setBootstrapExecutor(executor);
+			for (int i = 0; i < 20; i++) {
+				RootBeanDefinition bd = new RootBeanDefinition(ThreadRecordingBean.class);
+				if (i % 4 != 3) {
+					bd.getPropertyValues().add("dependency", new RuntimeBeanReference("bean" + (i + 1)));
+				}
+				lbf.registerBeanDefinition("bean" + i, bd);
+			}
+			lbf.registerBeanDefinition("dependency", new RootBeanDefinition(ThreadRecordingBean.class));
+			lbf.registerBeanDefinition("autowired",
+					new RootBeanDefinition(ThreadRecordingBean.class, RootBeanDefinition.AUTOWIRE_BY_NAME, false));
+			lbf.preInstantiateSingletons();
+
+			for (int i = 0; i < 20; i++) {
+				assertTrue(lbf.containsSingleton("bean" + i));
+				ThreadRecordingBean bean = lbf.getBean("bean" + i, ThreadRecordingBean.class);
+				assertNotSame(Thread.currentThread(), bean.creationThread);
+				if (i % 4 != 3) {
+					assertSame(lbf.getBean("bean" + (i + 1)), bean.getDependency());
+				}
+			}
+			ThreadRecordingBean autowired = lbf.getBean("autowired", ThreadRecordingBean.class);
+			assertNotSame(Thread.currentThread(), autowired.creationThread);
+			assertSame(lbf.getBean("dependency"), autowired.getDependency());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithStaticCycle() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+			lbf.setBootstrapExecutor(executor);
+			RootBeanDefinition bd1 = new RootBeanDefinition(ThreadRecordingBean.class);
+			bd1.getPropertyValues().add("dependency", new RuntimeBeanReference("bean2"));
+			RootBeanDefinition bd2 = new RootBeanDefinition(ThreadRecordingBean.class);
+			bd2.getPropertyValues().add("dependency", new RuntimeBeanReference("bean1"));
+			lbf.registerBeanDefinition("bean1", bd1);
+			lbf.registerBeanDefinition("bean2", bd2);
+			lbf.preInstantiateSingletons();
+
+			ThreadRecordingBean bean1 = lbf.getBean("bean1", ThreadRecordingBean.class);
+			ThreadRecordingBean bean2 = lbf.getBean("bean2", ThreadRecordingBean.class);
+			assertSame(Thread.currentThread(), bean1.creationThread);
+			assertSame(Thread.currentThread(), bean2.creationThread);
+			assertSame(bean2, bean1.getDependency());
+			assertSame(bean1, bean2.getDependency());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithAnnotationDrivenInjection() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+			lbf.setBootstrapExecutor(executor);
+			AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+			bpp.setBeanFactory(lbf);
+			lbf.addBeanPostProcessor(bpp);
+			lbf.registerBeanDefinition("annotated", new RootBeanDefinition(AnnotatedThreadRecordingBean.class));
+			lbf.registerBeanDefinition("dependency", new RootBeanDefinition(ThreadRecordingBean.class));
+			lbf.preInstantiateSingletons();
+
+			AnnotatedThreadRecordingBean annotated = lbf.getBean("annotated", AnnotatedThreadRecordingBean.class);
+			assertNotSame(Thread.currentThread(), annotated.creationThread);
+			assertNotSame(Thread.currentThread(), lbf.getBean("dependency", ThreadRecordingBean.class).creationThread);
+			assertSame(lbf.getBean("dependency"), annotated.injected);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithAnnotationDrivenCycle() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 10; i++) {
+				DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+				lbf.setBootstrapExecutor(executor);
+				AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+				bpp.setBeanFactory(lbf);
+				lbf.addBeanPostProcessor(bpp);
+				lbf.registerBeanDefinition("cyclic1", new RootBeanDefinition(AnnotatedCyclicBean1.class));
+				lbf.registerBeanDefinition("cyclic2", new RootBeanDefinition(AnnotatedCyclicBean2.class));
+				lbf.preInstantiateSingletons();
+
+				AnnotatedCyclicBean1 cyclic1 = lbf.getBean(AnnotatedCyclicBean1.class);
+				AnnotatedCyclicBean2 cyclic2 = lbf.getBean(AnnotatedCyclicBean2.class);
+				assertSame(Thread.currentThread(), cyclic1.creationThread);
+				assertSame(Thread.currentThread(), cyclic2.creationThread);
+				assertSame(cyclic2, cyclic1.cyclic2);
+				assertSame(cyclic1, cyclic2.cyclic1);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithDependencyOnSequentialBean() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+			lbf.setBootstrapExecutor(executor);
+			RootBeanDefinition bd = new RootBeanDefinition(ThreadRecordingBean.class);
+			bd.getPropertyValues().add("dependency", new RuntimeBeanReference("supplied"));
+			lbf.registerBeanDefinition("dependent", bd);
+			lbf.registerBeanDefinition("supplied",
+					new RootBeanDefinition(ThreadRecordingBean.class, ThreadRecordingBean::new));
+			lbf.preInstantiateSingletons();
+
+			ThreadRecordingBean dependent = lbf.getBean("dependent", ThreadRecordingBean.class);
+			assertSame(Thread.currentThread(), dependent.creationThread);
+			assertSame(Thread.currentThread(), lbf.getBean("supplied", ThreadRecordingBean.class).creationThread);
+			assertSame(lbf.getBean("supplied"), dependent.getDependency());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testBootstrapExecutorResetRestoresGlobalCreationLock() {
+		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+		assertFalse(lbf.isPerBeanCreationLocking());
+		lbf.setBootstrapExecutor(Runnable::run);
+		assertTrue(lbf.isPerBeanCreationLocking());
+		lbf.setBootstrapExecutor(null);
+		assertFalse(lbf.isPerBeanCreationLocking());
+	}
+
+	@Test
+	public void testParallelPreInstantiationWithFailure() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+			lbf.setBootstrapExecutor(executor);
+			lbf.registerBeanDefinition("bean1", new RootBeanDefinition(ThreadRecordingBean.class));
+			RootBeanDefinition bd2 = new RootBeanDefinition(ThreadRecordingBean.class);
+			bd2.setInitMethodName("fail");
+			lbf.registerBeanDefinition("bean2", bd2);
+			RootBeanDefinition bd3 = new RootBeanDefinition(ThreadRecordingBean.class);
+			bd3.setInitMethodName("fail");
+			lbf.registerBeanDefinition("bean3", bd3);
+			try {
+				lbf.preInstantiateSingletons();
+				fail("Should have thrown BeanCreationException");
+			}
+			catch (BeanCreationException ex) {
+				assertEquals("bean2", ex.getBeanName());
+				assertTrue(ex.getCause() instanceof IllegalStateException);
+				assertEquals(1, ex.getRelatedCauses().length);
+				assertEquals("bean3", ((BeanCreationException) ex.getRelatedCauses()[0]).getBeanName());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 	@Test
 	public void testPrototypeFactoryBeanIgnoredByNonEagerTypeMatching() {
 		DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
@@ -3009,6 +3186,51 @@ public class DefaultListableBeanFactoryTests {
 	}
 
 
+	public static class ThreadRecordingBean {
+
+		public final Thread creationThread = Thread.currentThread();
+
+		private ThreadRecordingBean dependency;
+
+		public ThreadRecordingBean getDependency() {
+			return this.dependency;
+		}
+
+		public void setDependency(ThreadRecordingBean dependency) {
+			this.dependency = dependency;
+		}
+
+		public void fail() {
+			throw new IllegalStateException("Initialization failed");
+		}
+	}
+
+
+	public static class AnnotatedThreadRecordingBean extends ThreadRecordingBean {
+
+		@Autowired
+		public ThreadRecordingBean injected;
+	}
+
+
+	public static class AnnotatedCyclicBean1 {
+
+		public final Thread creationThread = Thread.currentThread();
+
+		@Autowired
+		public AnnotatedCyclicBean2 cyclic2;
+	}
+
+
+	public static class AnnotatedCyclicBean2 {
+
+		public final Thread creationThread = Thread.currentThread();
+
+		@Autowired
+		public AnnotatedCyclicBean1 cyclic1;
+	}
+
+
 	static class A { }
 
 	static class B { }
@@ -16,9 +16,17 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.tests.sample.beans.DerivedTestBean;
 import org.springframework.tests.sample.beans.TestBean;
@@ -101,4 +109,142 @@ public class DefaultSingletonBeanRegistryTests {
 		assertTrue(beanRegistry.isDependent("c", "c"));
 	}
 
+	@Test(timeout = 10000)
+	public void testConcurrentCreationWithPerBeanCreationLocking() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setPerBeanCreationLocking(true);
+		CountDownLatch tb2Created = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Object tb = beanRegistry.getSingleton("tb", () -> {
+				// Would wait forever if the creation of tb2 was blocked by the creation of tb
+				Future<?> tb2 = executor.submit(() -> beanRegistry.getSingleton("tb2", TestBean::new));
+				try {
+					tb2.get();
+					tb2Created.countDown();
+				}
+				catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+				return new TestBean();
+			});
+			assertTrue(tb2Created.await(0, TimeUnit.SECONDS));
+			assertSame(tb, beanRegistry.getSingleton("tb"));
+			assertNotNull(beanRegistry.getSingleton("tb2"));
+			assertEquals(2, beanRegistry.getSingletonCount());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testEarlyReferenceNotExposedToOtherThreadsWithPerBeanCreationLocking() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setPerBeanCreationLocking(true);
+		TestBean earlyReference = new TestBean();
+		CountDownLatch inCreation = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Object> creation = executor.submit(() -> beanRegistry.getSingleton("tb", () -> {
+				beanRegistry.addSingletonFactory("tb", () -> earlyReference);
+				assertSame(earlyReference, beanRegistry.getSingleton("tb"));
+				inCreation.countDown();
+				try {
+					proceed.await();
+				}
+				catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+				return earlyReference;
+			}));
+			inCreation.await();
+			assertTrue(beanRegistry.isSingletonCurrentlyInCreation("tb"));
+			assertNull(beanRegistry.getSingleton("tb"));
+			proceed.countDown();
+			assertSame(earlyReference, beanRegistry.getSingleton("tb", TestBean::new));
+			assertSame(earlyReference, creation.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testCircularReferenceAcrossThreadsWithPerBeanCreationLocking() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setPerBeanCreationLocking(true);
+		TestBean tb1 = new TestBean("tb1");
+		TestBean tb2 = new TestBean("tb2");
+		CountDownLatch bothInCreation = new CountDownLatch(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> creation1 = executor.submit(() -> beanRegistry.getSingleton("tb1", () -> {
+				beanRegistry.addSingletonFactory("tb1", () -> tb1);
+				awaitQuietly(bothInCreation);
+				tb1.setSpouse((TestBean) beanRegistry.getSingleton("tb2", TestBean::new));
+				return tb1;
+			}));
+			Future<Object> creation2 = executor.submit(() -> beanRegistry.getSingleton("tb2", () -> {
+				beanRegistry.addSingletonFactory("tb2", () -> tb2);
+				awaitQuietly(bothInCreation);
+				tb2.setSpouse((TestBean) beanRegistry.getSingleton("tb1", TestBean::new));
+				return tb2;
+			}));
+			assertSame(tb1, creation1.get());
+			assertSame(tb2, creation2.get());
+			assertSame(tb2, tb1.getSpouse());
+			assertSame(tb1, tb2.getSpouse());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testUnresolvableCircularReferenceAcrossThreadsWithPerBeanCreationLocking() throws Exception {
+		DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		beanRegistry.setPerBeanCreationLocking(true);
+		CountDownLatch bothInCreation = new CountDownLatch(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> creation1 = executor.submit(() -> beanRegistry.getSingleton("tb1", () -> {
+				awaitQuietly(bothInCreation);
+				return new TestBean((TestBean) beanRegistry.getSingleton("tb2", TestBean::new), null);
+			}));
+			Future<Object> creation2 = executor.submit(() -> beanRegistry.getSingleton("tb2", () -> {
+				awaitQuietly(bothInCreation);
+				return new TestBean((TestBean) beanRegistry.getSingleton("tb1", TestBean::new), null);
+			}));
+			// The thread detecting the circular wait fails, the other one proceeds
+			// (creating the failed singleton through its own factory)
+			int failures = 0;
+			for (Future<?> creation : new Future<?>[] {creation1, creation2}) {
+				try {
+					creation.get();
+				}
+				catch (ExecutionException ex) {
+					assertTrue(ex.getCause() instanceof BeanCurrentlyInCreationException);
+					failures++;
+				}
+			}
+			assertEquals(1, failures);
+			assertEquals(2, beanRegistry.getSingletonCount());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		latch.countDown();
+		try {
+			latch.await();
+		}
+		catch (InterruptedException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
 }
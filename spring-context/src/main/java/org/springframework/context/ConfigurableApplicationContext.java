@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -68,6 +68,16 @@ public interface ConfigurableApplicationContext extends ApplicationContext, Life
 	 */
 	String LOAD_TIME_WEAVER_BEAN_NAME = "loadTimeWeaver";
 
+	/**
+	 * Name of the bootstrap Executor bean in the factory. If such a bean is
+	 * supplied, non-lazy singletons with dependencies that can be determined
+	 * ahead of creation are pre-instantiated in parallel on that executor.
+	 * @since 5.2
+	 * @see java.util.concurrent.Executor
+	 * @see org.springframework.beans.factory.config.ConfigurableBeanFactory#setBootstrapExecutor
+	 */
+	String BOOTSTRAP_EXECUTOR_BEAN_NAME = "bootstrapExecutor";
+
 	/**
 	 * Name of the {@link Environment} bean in the factory.
 	 * @since 3.1
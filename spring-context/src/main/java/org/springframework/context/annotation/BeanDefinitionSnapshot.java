@@ -0,0 +1,1004 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.ConfigurationClassBeanDefinitionReader.ConfigurationClassBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.Conventions;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+import org.springframework.core.type.StandardMethodMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+/**
+ * A compact binary snapshot of the bean definitions in a registry after
+ * configuration class processing, allowing for the registration of the very
+ * same definitions on startup without classpath scanning and configuration
+ * class parsing. This extends the idea behind the candidate components index
+ * from component names to complete bean definitions.
+ *
+ * <p>A snapshot is {@linkplain #capture captured} ahead of time, e.g. by a step
+ * in the application's own build which {@linkplain #write writes} it to
+ * {@value #SNAPSHOT_RESOURCE_LOCATION} (the framework does not provide such a
+ * step itself), from where it is {@linkplain #loadSnapshot loaded} at runtime:
+ *
+ * <pre class="code">
+ * GenericApplicationContext context = new GenericApplicationContext();
+ * BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.loadSnapshot(context.getClassLoader());
+ * if (snapshot != null &amp;&amp; snapshot.matches(context.getEnvironment())) {
+ *     snapshot.registerBeanDefinitions(context);
+ * }
+ * else {
+ *     new AnnotatedBeanDefinitionReader(context).register(AppConfig.class);
+ * }
+ * context.refresh();</pre>
+ *
+ * <p>Profile conditions are evaluated against the environment at capture time,
+ * so the snapshot records the active and default profiles at that point. Any other
+ * {@link Conditional @Conditional} on a captured class or on a {@code @Bean}
+ * method of a captured configuration class is rejected on capture since it
+ * might match differently at runtime; classes skipped entirely by a condition
+ * at capture time are not visible to the snapshot, though. Bean definitions
+ * with state that cannot be represented statically (instance suppliers,
+ * qualifiers, method overrides, inner beans or other non-trivial values) are
+ * rejected on capture as well. Definitions for {@code @Bean} methods retain
+ * their configuration class and factory method metadata, resolved via
+ * reflection on registration by method name and parameter types.
+ *
+ * <p>Note that {@link #matches} only covers the profiles: any other environment
+ * state that configuration class processing depends on is not re-evaluated at
+ * runtime. This includes placeholders in {@link ComponentScan @ComponentScan}
+ * or {@link ImportResource @ImportResource} locations, environment-dependent
+ * {@link ImportSelector ImportSelectors} and {@link ImportBeanDefinitionRegistrar
+ * ImportBeanDefinitionRegistrars}, as well as {@link PropertySource @PropertySource}
+ * declarations, which are not added to the runtime environment at all; those
+ * need to be registered with the environment by the application itself.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see AnnotationConfigApplicationContext
+ * @see org.springframework.context.index.CandidateComponentsIndexLoader
+ */
+public final class BeanDefinitionSnapshot {
+
+	/**
+	 * The location to look for a snapshot of the application's bean definitions.
+	 */
+	public static final String SNAPSHOT_RESOURCE_LOCATION = "META-INF/spring.beans.snapshot";
+
+	/**
+	 * System property that instructs Spring to ignore the snapshot, i.e.
+	 * to always return {@code null} from {@link #loadSnapshot(ClassLoader)}.
+	 */
+	public static final String IGNORE_SNAPSHOT = "spring.snapshot.ignore";
+
+	private static final String RESTORED_ATTRIBUTE =
+			Conventions.getQualifiedAttributeName(BeanDefinitionSnapshot.class, "restored");
+
+	private static final int MAGIC = 0x53424453;
+
+	private static final int VERSION = 3;
+
+	private static final int FLAG_ABSTRACT = 1;
+
+	private static final int FLAG_LAZY_INIT = 1 << 1;
+
+	private static final int FLAG_PRIMARY = 1 << 2;
+
+	private static final int FLAG_AUTOWIRE_CANDIDATE = 1 << 3;
+
+	private static final int FLAG_NON_PUBLIC_ACCESS_ALLOWED = 1 << 4;
+
+	private static final int FLAG_LENIENT_CONSTRUCTOR_RESOLUTION = 1 << 5;
+
+	private static final int FLAG_ENFORCE_INIT_METHOD = 1 << 6;
+
+	private static final int FLAG_ENFORCE_DESTROY_METHOD = 1 << 7;
+
+	private static final int FLAG_SYNTHETIC = 1 << 8;
+
+	private static final int FLAG_BEAN_METHOD = 1 << 9;
+
+	private static final int FLAG_FACTORY_METHOD_UNIQUE = 1 << 10;
+
+	private static final byte VALUE_NULL = 0;
+
+	private static final byte VALUE_STRING = 1;
+
+	private static final byte VALUE_TYPED_STRING = 2;
+
+	private static final byte VALUE_BEAN_REFERENCE = 3;
+
+	private static final byte VALUE_BEAN_NAME_REFERENCE = 4;
+
+	private static final byte VALUE_BOOLEAN = 5;
+
+	private static final byte VALUE_INTEGER = 6;
+
+	private static final byte VALUE_LONG = 7;
+
+	private static final boolean shouldIgnoreSnapshot = SpringProperties.getFlag(IGNORE_SNAPSHOT);
+
+	private static final Log logger = LogFactory.getLog(BeanDefinitionSnapshot.class);
+
+	private static final ConcurrentMap<ClassLoader, BeanDefinitionSnapshot> cache =
+			new ConcurrentReferenceHashMap<>();
+
+
+	private final List<String> activeProfiles;
+
+	private final List<String> defaultProfiles;
+
+	private final List<BeanDefinitionHolder> beanDefinitions;
+
+	private final Map<String, String> importingClasses;
+
+
+	private BeanDefinitionSnapshot(List<String> activeProfiles, List<String> defaultProfiles,
+			List<BeanDefinitionHolder> beanDefinitions, Map<String, String> importingClasses) {
+
+		this.activeProfiles = activeProfiles;
+		this.defaultProfiles = defaultProfiles;
+		this.beanDefinitions = beanDefinitions;
+		this.importingClasses = importingClasses;
+	}
+
+
+	/**
+	 * Return the profiles that were active when this snapshot was captured.
+	 */
+	public List<String> getActiveProfiles() {
+		return Collections.unmodifiableList(this.activeProfiles);
+	}
+
+	/**
+	 * Return the default profiles that were set when this snapshot was captured.
+	 */
+	public List<String> getDefaultProfiles() {
+		return Collections.unmodifiableList(this.defaultProfiles);
+	}
+
+	/**
+	 * Return the names of all bean definitions in this snapshot, in registration order.
+	 */
+	public List<String> getBeanNames() {
+		List<String> beanNames = new ArrayList<>(this.beanDefinitions.size());
+		for (BeanDefinitionHolder holder : this.beanDefinitions) {
+			beanNames.add(holder.getBeanName());
+		}
+		return beanNames;
+	}
+
+	/**
+	 * Determine whether this snapshot has been captured with the same active
+	 * and default profiles as the given runtime environment, i.e. whether
+	 * profile-specific conditions are going to match the same way.
+	 * <p>Other environment state is not taken into account: see the
+	 * {@linkplain BeanDefinitionSnapshot class-level javadoc} for details.
+	 */
+	public boolean matches(Environment environment) {
+		return (new HashSet<>(this.activeProfiles).equals(
+						new HashSet<>(Arrays.asList(environment.getActiveProfiles()))) &&
+				new HashSet<>(this.defaultProfiles).equals(
+						new HashSet<>(Arrays.asList(environment.getDefaultProfiles()))));
+	}
+
+	/**
+	 * Register the bean definitions of this snapshot with the given registry,
+	 * along with their aliases and the import metadata for
+	 * {@link ImportAware} configuration classes.
+	 * @param registry the registry to populate (typically an application
+	 * context or bean factory which has not been refreshed yet)
+	 */
+	public void registerBeanDefinitions(BeanDefinitionRegistry registry) {
+		ClassLoader classLoader = null;
+		Object singletonRegistry = registry;
+		if (registry instanceof GenericApplicationContext) {
+			classLoader = ((GenericApplicationContext) registry).getClassLoader();
+			singletonRegistry = ((GenericApplicationContext) registry).getDefaultListableBeanFactory();
+		}
+		if (singletonRegistry instanceof DefaultListableBeanFactory && classLoader == null) {
+			classLoader = ((DefaultListableBeanFactory) singletonRegistry).getBeanClassLoader();
+		}
+
+		for (BeanDefinitionHolder holder : this.beanDefinitions) {
+			BeanDefinition bd = holder.getBeanDefinition();
+			if (bd instanceof BeanMethodDefinition) {
+				bd = ((BeanMethodDefinition) bd).resolve(classLoader);
+			}
+			else {
+				bd = ((AbstractBeanDefinition) bd).cloneBeanDefinition();
+			}
+			registry.registerBeanDefinition(holder.getBeanName(), bd);
+			for (String alias : holder.getAliases()) {
+				registry.registerAlias(holder.getBeanName(), alias);
+			}
+		}
+
+		if (singletonRegistry instanceof SingletonBeanRegistry) {
+			SingletonBeanRegistry sbr = (SingletonBeanRegistry) singletonRegistry;
+			if (!sbr.containsSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME)) {
+				sbr.registerSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME,
+						new SnapshotImportRegistry(this.importingClasses, classLoader));
+			}
+		}
+	}
+
+	/**
+	 * Write this snapshot in its binary format to the given stream.
+	 * @param out the stream to write to (remains open)
+	 * @throws IOException in case of I/O errors
+	 */
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(this.activeProfiles.size());
+		for (String profile : this.activeProfiles) {
+			data.writeUTF(profile);
+		}
+		writeStrings(data, StringUtils.toStringArray(this.defaultProfiles));
+		data.writeInt(this.importingClasses.size());
+		for (Map.Entry<String, String> entry : this.importingClasses.entrySet()) {
+			data.writeUTF(entry.getKey());
+			data.writeUTF(entry.getValue());
+		}
+		data.writeInt(this.beanDefinitions.size());
+		for (BeanDefinitionHolder holder : this.beanDefinitions) {
+			writeBeanDefinitionHolder(data, holder);
+		}
+		data.flush();
+	}
+
+
+	/**
+	 * Capture a snapshot of the bean definitions in the given application context,
+	 * after processing its configuration classes against the context's environment.
+	 * <p>The given context is expected not to be refreshed yet; none of its
+	 * application beans are going to be instantiated.
+	 * @param context the context to capture, with configuration classes registered
+	 * @return the captured snapshot
+	 * @throws IllegalStateException if any bean definition cannot be represented
+	 * in a snapshot or is subject to a condition other than a profile
+	 */
+	public static BeanDefinitionSnapshot capture(GenericApplicationContext context) {
+		DefaultListableBeanFactory beanFactory = context.getDefaultListableBeanFactory();
+		ConfigurationClassPostProcessor postProcessor = new ConfigurationClassPostProcessor();
+		postProcessor.setEnvironment(context.getEnvironment());
+		postProcessor.setResourceLoader(context);
+		ClassLoader classLoader = context.getClassLoader();
+		if (classLoader != null) {
+			postProcessor.setBeanClassLoader(classLoader);
+		}
+		postProcessor.postProcessBeanDefinitionRegistry(beanFactory);
+
+		ImportRegistry importRegistry = null;
+		if (beanFactory.containsSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME)) {
+			importRegistry = (ImportRegistry) beanFactory.getSingleton(
+					ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME);
+		}
+		List<BeanDefinitionHolder> beanDefinitions = new ArrayList<>();
+		Map<String, String> importingClasses = new LinkedHashMap<>();
+		for (String beanName : beanFactory.getBeanDefinitionNames()) {
+			BeanDefinition bd = beanFactory.getBeanDefinition(beanName);
+			checkConditions(beanName, bd);
+			if (bd instanceof ConfigurationClassBeanDefinition &&
+					((ConfigurationClassBeanDefinition) bd).getFactoryMethodMetadata() != null) {
+				bd = BeanMethodDefinition.forBeanMethod(beanName, (ConfigurationClassBeanDefinition) bd, classLoader);
+			}
+			beanDefinitions.add(new BeanDefinitionHolder(bd, beanName, beanFactory.getAliases(beanName)));
+			String className = bd.getBeanClassName();
+			if (importRegistry != null && className != null && bd.getFactoryMethodName() == null) {
+				AnnotationMetadata importingClass = importRegistry.getImportingClassFor(className);
+				if (importingClass != null) {
+					importingClasses.put(className, importingClass.getClassName());
+				}
+			}
+		}
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot(
+				Arrays.asList(context.getEnvironment().getActiveProfiles()),
+				Arrays.asList(context.getEnvironment().getDefaultProfiles()), beanDefinitions, importingClasses);
+
+		// Round trip through the binary format: validating all definitions and
+		// decoupling the snapshot from the definition instances in the context.
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			snapshot.write(out);
+			return read(new ByteArrayInputStream(out.toByteArray()));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Failed to capture bean definition snapshot", ex);
+		}
+	}
+
+	/**
+	 * Read a snapshot in its binary format from the given stream.
+	 * @param in the stream to read from (remains open)
+	 * @return the snapshot
+	 * @throws IOException in case of I/O errors or an invalid format
+	 */
+	public static BeanDefinitionSnapshot read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Not a bean definition snapshot");
+		}
+		int version = data.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported bean definition snapshot version " + version);
+		}
+		int profileCount = data.readInt();
+		List<String> activeProfiles = new ArrayList<>(profileCount);
+		for (int i = 0; i < profileCount; i++) {
+			activeProfiles.add(data.readUTF());
+		}
+		List<String> defaultProfiles = Arrays.asList(readStrings(data));
+		int importCount = data.readInt();
+		Map<String, String> importingClasses = new LinkedHashMap<>(importCount);
+		for (int i = 0; i < importCount; i++) {
+			importingClasses.put(data.readUTF(), data.readUTF());
+		}
+		int beanDefinitionCount = data.readInt();
+		List<BeanDefinitionHolder> beanDefinitions = new ArrayList<>(beanDefinitionCount);
+		for (int i = 0; i < beanDefinitionCount; i++) {
+			beanDefinitions.add(readBeanDefinitionHolder(data));
+		}
+		return new BeanDefinitionSnapshot(activeProfiles, defaultProfiles, beanDefinitions, importingClasses);
+	}
+
+	/**
+	 * Load the {@link BeanDefinitionSnapshot} from {@value #SNAPSHOT_RESOURCE_LOCATION},
+	 * using the given class loader. If no snapshot is available, return {@code null}.
+	 * @param classLoader the ClassLoader to use for loading (can be {@code null} to use the default)
+	 * @return the snapshot to use or {@code null} if no snapshot was found
+	 * @throws IllegalStateException if the snapshot cannot be read
+	 */
+	@Nullable
+	public static BeanDefinitionSnapshot loadSnapshot(@Nullable ClassLoader classLoader) {
+		ClassLoader classLoaderToUse = classLoader;
+		if (classLoaderToUse == null) {
+			classLoaderToUse = BeanDefinitionSnapshot.class.getClassLoader();
+		}
+		return cache.computeIfAbsent(classLoaderToUse, BeanDefinitionSnapshot::doLoadSnapshot);
+	}
+
+	@Nullable
+	private static BeanDefinitionSnapshot doLoadSnapshot(ClassLoader classLoader) {
+		if (shouldIgnoreSnapshot) {
+			return null;
+		}
+		URL url = classLoader.getResource(SNAPSHOT_RESOURCE_LOCATION);
+		if (url == null) {
+			return null;
+		}
+		try (InputStream in = new UrlResource(url).getInputStream()) {
+			BeanDefinitionSnapshot snapshot = read(in);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded snapshot with " + snapshot.beanDefinitions.size() +
+						" bean definitions from " + url);
+			}
+			return snapshot;
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to load bean definition snapshot from location [" +
+					SNAPSHOT_RESOURCE_LOCATION + "]", ex);
+		}
+	}
+
+	/**
+	 * Determine whether the given bean definition has been restored from a
+	 * snapshot, i.e. has been processed at capture time already.
+	 */
+	static boolean isRestored(BeanDefinition bd) {
+		return Boolean.TRUE.equals(bd.getAttribute(RESTORED_ATTRIBUTE));
+	}
+
+
+	private static void checkConditions(String beanName, BeanDefinition bd) {
+		if (!(bd instanceof AnnotatedBeanDefinition)) {
+			return;
+		}
+		AnnotatedBeanDefinition abd = (AnnotatedBeanDefinition) bd;
+		checkConditions(beanName, abd.getMetadata());
+		MethodMetadata factoryMethodMetadata = abd.getFactoryMethodMetadata();
+		if (factoryMethodMetadata != null) {
+			checkConditions(beanName, factoryMethodMetadata);
+		}
+		else {
+			// Also covers @Bean methods that have been skipped at capture time
+			for (MethodMetadata beanMethod : abd.getMetadata().getAnnotatedMethods(Bean.class.getName())) {
+				checkConditions(beanName, beanMethod);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void checkConditions(String beanName, AnnotatedTypeMetadata metadata) {
+		MultiValueMap<String, Object> attributes = metadata.getAllAnnotationAttributes(Conditional.class.getName(), true);
+		Object values = (attributes != null ? attributes.get("value") : null);
+		if (values == null) {
+			return;
+		}
+		for (String[] conditionClassNames : (List<String[]>) values) {
+			for (String conditionClassName : conditionClassNames) {
+				if (!ProfileCondition.class.getName().equals(conditionClassName)) {
+					throw unsupported(beanName, "condition [" + conditionClassName + "]");
+				}
+			}
+		}
+	}
+
+	private static void writeBeanDefinitionHolder(DataOutputStream data, BeanDefinitionHolder holder)
+			throws IOException {
+
+		data.writeUTF(holder.getBeanName());
+		writeStrings(data, holder.getAliases());
+		writeBeanDefinition(data, holder.getBeanName(), holder.getBeanDefinition());
+	}
+
+	private static BeanDefinitionHolder readBeanDefinitionHolder(DataInputStream data) throws IOException {
+		String beanName = data.readUTF();
+		String[] aliases = readStrings(data);
+		return new BeanDefinitionHolder(readBeanDefinition(data), beanName, aliases);
+	}
+
+	private static void writeBeanDefinition(DataOutputStream data, String beanName, BeanDefinition bd)
+			throws IOException {
+
+		if (!(bd instanceof AbstractBeanDefinition)) {
+			throw unsupported(beanName, "not an AbstractBeanDefinition");
+		}
+		AbstractBeanDefinition abd = (AbstractBeanDefinition) bd;
+		if (abd.getInstanceSupplier() != null) {
+			throw unsupported(beanName, "instance supplier");
+		}
+		if (!abd.getQualifiers().isEmpty()) {
+			throw unsupported(beanName, "qualifiers");
+		}
+		if (abd.hasMethodOverrides()) {
+			throw unsupported(beanName, "method overrides");
+		}
+
+		writeNullableString(data, abd.getParentName());
+		writeNullableString(data, abd.getBeanClassName());
+		writeNullableString(data, abd.getScope());
+		int flags = 0;
+		flags |= (abd.isAbstract() ? FLAG_ABSTRACT : 0);
+		flags |= (abd.isLazyInit() ? FLAG_LAZY_INIT : 0);
+		flags |= (abd.isPrimary() ? FLAG_PRIMARY : 0);
+		flags |= (abd.isAutowireCandidate() ? FLAG_AUTOWIRE_CANDIDATE : 0);
+		flags |= (abd.isNonPublicAccessAllowed() ? FLAG_NON_PUBLIC_ACCESS_ALLOWED : 0);
+		flags |= (abd.isLenientConstructorResolution() ? FLAG_LENIENT_CONSTRUCTOR_RESOLUTION : 0);
+		flags |= (abd.isEnforceInitMethod() ? FLAG_ENFORCE_INIT_METHOD : 0);
+		flags |= (abd.isEnforceDestroyMethod() ? FLAG_ENFORCE_DESTROY_METHOD : 0);
+		flags |= (abd.isSynthetic() ? FLAG_SYNTHETIC : 0);
+		if (bd instanceof ConfigurationClassBeanDefinition) {
+			throw unsupported(beanName, "@Bean method definition not converted on capture");
+		}
+		BeanMethodDefinition beanMethod = (bd instanceof BeanMethodDefinition ? (BeanMethodDefinition) bd : null);
+		if (beanMethod != null) {
+			flags |= FLAG_BEAN_METHOD;
+			flags |= (beanMethod.factoryMethodUnique ? FLAG_FACTORY_METHOD_UNIQUE : 0);
+		}
+		data.writeInt(flags);
+		if (beanMethod != null) {
+			data.writeUTF(beanMethod.configClassName);
+			data.writeUTF(beanMethod.declaringClassName);
+			writeStrings(data, beanMethod.parameterTypeNames);
+		}
+		data.writeInt(abd.getAutowireMode());
+		data.writeInt(abd.getDependencyCheck());
+		data.writeInt(abd.getRole());
+		writeStrings(data, abd.getDependsOn());
+		writeNullableString(data, abd.getFactoryBeanName());
+		writeNullableString(data, abd.getFactoryMethodName());
+		writeNullableString(data, abd.getInitMethodName());
+		writeNullableString(data, abd.getDestroyMethodName());
+		writeNullableString(data, abd.getDescription());
+		writeNullableString(data, abd.getResourceDescription());
+
+		List<String> attributeNames = new ArrayList<>(Arrays.asList(abd.attributeNames()));
+		attributeNames.remove(RESTORED_ATTRIBUTE);
+		data.writeInt(attributeNames.size());
+		for (String attributeName : attributeNames) {
+			data.writeUTF(attributeName);
+			writeValue(data, beanName, abd.getAttribute(attributeName));
+		}
+
+		ConstructorArgumentValues cargs = abd.getConstructorArgumentValues();
+		data.writeInt(cargs.getIndexedArgumentValues().size());
+		for (Map.Entry<Integer, ValueHolder> entry : cargs.getIndexedArgumentValues().entrySet()) {
+			data.writeInt(entry.getKey());
+			writeValueHolder(data, beanName, entry.getValue());
+		}
+		data.writeInt(cargs.getGenericArgumentValues().size());
+		for (ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+			writeValueHolder(data, beanName, valueHolder);
+		}
+
+		PropertyValue[] pvs = abd.getPropertyValues().getPropertyValues();
+		data.writeInt(pvs.length);
+		for (PropertyValue pv : pvs) {
+			data.writeUTF(pv.getName());
+			writeValue(data, beanName, pv.getValue());
+		}
+
+		BeanDefinitionHolder decorated = (bd instanceof RootBeanDefinition ?
+				((RootBeanDefinition) bd).getDecoratedDefinition() : null);
+		data.writeBoolean(decorated != null);
+		if (decorated != null) {
+			writeBeanDefinitionHolder(data, decorated);
+		}
+	}
+
+	private static AbstractBeanDefinition readBeanDefinition(DataInputStream data) throws IOException {
+		String parentName = readNullableString(data);
+		String beanClassName = readNullableString(data);
+		String scope = readNullableString(data);
+		int flags = data.readInt();
+		AbstractBeanDefinition bd;
+		if (parentName != null) {
+			bd = new GenericBeanDefinition();
+			bd.setParentName(parentName);
+		}
+		else if ((flags & FLAG_BEAN_METHOD) != 0) {
+			bd = new BeanMethodDefinition(data.readUTF(), data.readUTF(), readStrings(data),
+					(flags & FLAG_FACTORY_METHOD_UNIQUE) != 0);
+		}
+		else {
+			bd = new RootBeanDefinition();
+		}
+		bd.setBeanClassName(beanClassName);
+		bd.setScope(scope);
+		bd.setAbstract((flags & FLAG_ABSTRACT) != 0);
+		bd.setLazyInit((flags & FLAG_LAZY_INIT) != 0);
+		bd.setPrimary((flags & FLAG_PRIMARY) != 0);
+		bd.setAutowireCandidate((flags & FLAG_AUTOWIRE_CANDIDATE) != 0);
+		bd.setNonPublicAccessAllowed((flags & FLAG_NON_PUBLIC_ACCESS_ALLOWED) != 0);
+		bd.setLenientConstructorResolution((flags & FLAG_LENIENT_CONSTRUCTOR_RESOLUTION) != 0);
+		bd.setEnforceInitMethod((flags & FLAG_ENFORCE_INIT_METHOD) != 0);
+		bd.setEnforceDestroyMethod((flags & FLAG_ENFORCE_DESTROY_METHOD) != 0);
+		bd.setSynthetic((flags & FLAG_SYNTHETIC) != 0);
+		bd.setAutowireMode(data.readInt());
+		bd.setDependencyCheck(data.readInt());
+		bd.setRole(data.readInt());
+		String[] dependsOn = readStrings(data);
+		bd.setDependsOn(dependsOn.length > 0 ? dependsOn : null);
+		bd.setFactoryBeanName(readNullableString(data));
+		String factoryMethodName = readNullableString(data);
+		if (factoryMethodName != null && (flags & FLAG_FACTORY_METHOD_UNIQUE) != 0 &&
+				bd instanceof RootBeanDefinition) {
+			((RootBeanDefinition) bd).setUniqueFactoryMethodName(factoryMethodName);
+		}
+		else {
+			bd.setFactoryMethodName(factoryMethodName);
+		}
+		bd.setInitMethodName(readNullableString(data));
+		bd.setDestroyMethodName(readNullableString(data));
+		bd.setDescription(readNullableString(data));
+		bd.setResourceDescription(readNullableString(data));
+
+		int attributeCount = data.readInt();
+		for (int i = 0; i < attributeCount; i++) {
+			bd.setAttribute(data.readUTF(), readValue(data));
+		}
+		bd.setAttribute(RESTORED_ATTRIBUTE, Boolean.TRUE);
+
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		int indexedCount = data.readInt();
+		for (int i = 0; i < indexedCount; i++) {
+			cargs.addIndexedArgumentValue(data.readInt(), readValueHolder(data));
+		}
+		int genericCount = data.readInt();
+		for (int i = 0; i < genericCount; i++) {
+			cargs.addGenericArgumentValue(readValueHolder(data));
+		}
+
+		MutablePropertyValues pvs = bd.getPropertyValues();
+		int propertyCount = data.readInt();
+		for (int i = 0; i < propertyCount; i++) {
+			pvs.add(data.readUTF(), readValue(data));
+		}
+
+		if (data.readBoolean()) {
+			BeanDefinitionHolder decorated = readBeanDefinitionHolder(data);
+			if (bd instanceof RootBeanDefinition) {
+				((RootBeanDefinition) bd).setDecoratedDefinition(decorated);
+			}
+		}
+		return bd;
+	}
+
+	private static void writeValueHolder(DataOutputStream data, String beanName, ValueHolder valueHolder)
+			throws IOException {
+
+		writeValue(data, beanName, valueHolder.getValue());
+		writeNullableString(data, valueHolder.getType());
+		writeNullableString(data, valueHolder.getName());
+	}
+
+	private static ValueHolder readValueHolder(DataInputStream data) throws IOException {
+		Object value = readValue(data);
+		return new ValueHolder(value, readNullableString(data), readNullableString(data));
+	}
+
+	private static void writeValue(DataOutputStream data, String beanName, @Nullable Object value)
+			throws IOException {
+
+		if (value == null) {
+			data.writeByte(VALUE_NULL);
+		}
+		else if (value instanceof String) {
+			data.writeByte(VALUE_STRING);
+			data.writeUTF((String) value);
+		}
+		else if (value instanceof TypedStringValue) {
+			TypedStringValue typedValue = (TypedStringValue) value;
+			if (typedValue.isDynamic()) {
+				throw unsupported(beanName, "dynamic value " + typedValue);
+			}
+			data.writeByte(VALUE_TYPED_STRING);
+			writeNullableString(data, typedValue.getValue());
+			writeNullableString(data, typedValue.getTargetTypeName());
+		}
+		else if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference reference = (RuntimeBeanReference) value;
+			data.writeByte(VALUE_BEAN_REFERENCE);
+			data.writeUTF(reference.getBeanName());
+			data.writeBoolean(reference.isToParent());
+		}
+		else if (value instanceof RuntimeBeanNameReference) {
+			data.writeByte(VALUE_BEAN_NAME_REFERENCE);
+			data.writeUTF(((RuntimeBeanNameReference) value).getBeanName());
+		}
+		else if (value instanceof Boolean) {
+			data.writeByte(VALUE_BOOLEAN);
+			data.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Integer) {
+			data.writeByte(VALUE_INTEGER);
+			data.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			data.writeByte(VALUE_LONG);
+			data.writeLong((Long) value);
+		}
+		else {
+			throw unsupported(beanName, "value of type [" + value.getClass().getName() + "]");
+		}
+	}
+
+	@Nullable
+	private static Object readValue(DataInputStream data) throws IOException {
+		byte type = data.readByte();
+		switch (type) {
+			case VALUE_NULL:
+				return null;
+			case VALUE_STRING:
+				return data.readUTF();
+			case VALUE_TYPED_STRING:
+				String value = readNullableString(data);
+				String targetTypeName = readNullableString(data);
+				return (targetTypeName != null ? new TypedStringValue(value, targetTypeName) :
+						new TypedStringValue(value));
+			case VALUE_BEAN_REFERENCE:
+				return new RuntimeBeanReference(data.readUTF(), data.readBoolean());
+			case VALUE_BEAN_NAME_REFERENCE:
+				return new RuntimeBeanNameReference(data.readUTF());
+			case VALUE_BOOLEAN:
+				return data.readBoolean();
+			case VALUE_INTEGER:
+				return data.readInt();
+			case VALUE_LONG:
+				return data.readLong();
+			default:
+				throw new IOException("Unknown value type " + type + " in bean definition snapshot");
+		}
+	}
+
+	private static void writeStrings(DataOutputStream data, @Nullable String[] values) throws IOException {
+		if (values == null) {
+			data.writeInt(0);
+			return;
+		}
+		data.writeInt(values.length);
+		for (String value : values) {
+			data.writeUTF(value);
+		}
+	}
+
+	private static String[] readStrings(DataInputStream data) throws IOException {
+		String[] values = new String[data.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = data.readUTF();
+		}
+		return values;
+	}
+
+	private static void writeNullableString(DataOutputStream data, @Nullable String value) throws IOException {
+		data.writeBoolean(value != null);
+		if (value != null) {
+			data.writeUTF(value);
+		}
+	}
+
+	@Nullable
+	private static String readNullableString(DataInputStream data) throws IOException {
+		return (data.readBoolean() ? data.readUTF() : null);
+	}
+
+	private static IllegalStateException unsupported(String beanName, String reason) {
+		return new IllegalStateException("Bean definition '" + beanName +
+				"' cannot be captured in a snapshot: unsupported " + reason);
+	}
+
+
+	/**
+	 * Definition for a {@code @Bean} method, identified by its declaring class,
+	 * name and parameter types, resolved into a {@link ConfigurationClassBeanDefinition}
+	 * with introspected metadata on registration.
+	 */
+	@SuppressWarnings("serial")
+	private static class BeanMethodDefinition extends RootBeanDefinition {
+
+		private static final String BEAN_ANNOTATION_DESCRIPTOR = Type.getDescriptor(Bean.class);
+
+		private final String configClassName;
+
+		private final String declaringClassName;
+
+		private final String[] parameterTypeNames;
+
+		private final boolean factoryMethodUnique;
+
+		public BeanMethodDefinition(String configClassName, String declaringClassName,
+				String[] parameterTypeNames, boolean factoryMethodUnique) {
+
+			this.configClassName = configClassName;
+			this.declaringClassName = declaringClassName;
+			this.parameterTypeNames = parameterTypeNames;
+			this.factoryMethodUnique = factoryMethodUnique;
+		}
+
+		private BeanMethodDefinition(ConfigurationClassBeanDefinition original, String[] parameterTypeNames) {
+			super(original);
+			MethodMetadata beanMethod = original.getFactoryMethodMetadata();
+			Assert.state(beanMethod != null, "No @Bean method metadata");
+			this.configClassName = original.getMetadata().getClassName();
+			this.declaringClassName = beanMethod.getDeclaringClassName();
+			this.parameterTypeNames = parameterTypeNames;
+			// Same uniqueness as determined by ConfigurationClassBeanDefinitionReader
+			this.factoryMethodUnique = !beanMethod.isStatic();
+		}
+
+		public ConfigurationClassBeanDefinition resolve(@Nullable ClassLoader classLoader) {
+			try {
+				Class<?> configClass = ClassUtils.forName(this.configClassName, classLoader);
+				Class<?> declaringClass = ClassUtils.forName(this.declaringClassName, classLoader);
+				for (Method method : declaringClass.getDeclaredMethods()) {
+					if (method.getName().equals(getFactoryMethodName()) &&
+							Arrays.equals(getParameterTypeNames(method), this.parameterTypeNames) &&
+							BeanAnnotationHelper.isBeanAnnotated(method)) {
+						return new ConfigurationClassBeanDefinition(this,
+								new StandardAnnotationMetadata(configClass, true), new StandardMethodMetadata(method, true));
+					}
+				}
+				throw new IllegalStateException("No @Bean method '" + getFactoryMethodName() + "(" +
+						StringUtils.arrayToCommaDelimitedString(this.parameterTypeNames) +
+						")' found on class [" + this.declaringClassName + "]");
+			}
+			catch (ClassNotFoundException ex) {
+				throw new IllegalStateException("Failed to load configuration class [" +
+						this.configClassName + "] for @Bean method '" + getFactoryMethodName() + "'", ex);
+			}
+		}
+
+		/**
+		 * Create a definition for the given {@code @Bean} method definition, determining
+		 * the parameter types of the exact method that its metadata has been read from.
+		 */
+		public static BeanMethodDefinition forBeanMethod(
+				String beanName, ConfigurationClassBeanDefinition bd, @Nullable ClassLoader classLoader) {
+
+			MethodMetadata beanMethod = bd.getFactoryMethodMetadata();
+			Assert.state(beanMethod != null, "No @Bean method metadata");
+			if (beanMethod instanceof StandardMethodMetadata) {
+				Method method = ((StandardMethodMetadata) beanMethod).getIntrospectedMethod();
+				return new BeanMethodDefinition(bd, getParameterTypeNames(method));
+			}
+
+			// Metadata read via ASM: a unique @Bean method with that name, or else
+			// the first one in declaration order, as picked by configuration class parsing.
+			String[] parameterTypeNames = null;
+			try {
+				Class<?> declaringClass = ClassUtils.forName(beanMethod.getDeclaringClassName(), classLoader);
+				for (Method method : declaringClass.getDeclaredMethods()) {
+					if (method.getName().equals(beanMethod.getMethodName()) &&
+							BeanAnnotationHelper.isBeanAnnotated(method)) {
+						if (parameterTypeNames != null) {
+							parameterTypeNames = readParameterTypeNames(beanMethod, classLoader);
+							break;
+						}
+						parameterTypeNames = getParameterTypeNames(method);
+					}
+				}
+			}
+			catch (ClassNotFoundException | IOException ex) {
+				throw new IllegalStateException("Failed to introspect @Bean method '" +
+						beanMethod.getMethodName() + "' of bean definition '" + beanName + "'", ex);
+			}
+			if (parameterTypeNames == null) {
+				throw unsupported(beanName, "@Bean method '" + beanMethod.getMethodName() +
+						"' which cannot be identified on class [" + beanMethod.getDeclaringClassName() + "]");
+			}
+			return new BeanMethodDefinition(bd, parameterTypeNames);
+		}
+
+		private static String[] getParameterTypeNames(Method method) {
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			String[] parameterTypeNames = new String[parameterTypes.length];
+			for (int i = 0; i < parameterTypes.length; i++) {
+				parameterTypeNames[i] = parameterTypes[i].getTypeName();
+			}
+			return parameterTypeNames;
+		}
+
+		/**
+		 * Read the parameter types of the first method in the class file that has
+		 * the given name and is directly annotated with {@code @Bean}.
+		 */
+		@Nullable
+		private static String[] readParameterTypeNames(MethodMetadata beanMethod, @Nullable ClassLoader classLoader)
+				throws IOException {
+
+			ClassLoader classLoaderToUse = (classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader());
+			String resourcePath = ClassUtils.convertClassNameToResourcePath(beanMethod.getDeclaringClassName()) +
+					ClassUtils.CLASS_FILE_SUFFIX;
+			InputStream is = (classLoaderToUse != null ? classLoaderToUse.getResourceAsStream(resourcePath) :
+					ClassLoader.getSystemResourceAsStream(resourcePath));
+			if (is == null) {
+				return null;
+			}
+			String[][] result = new String[1][];
+			try {
+				new ClassReader(is).accept(new ClassVisitor(SpringAsmInfo.ASM_VERSION) {
+					@Override
+					@Nullable
+					public MethodVisitor visitMethod(
+							int access, String name, String desc, String signature, String[] exceptions) {
+						if (result[0] != null || (access & Opcodes.ACC_BRIDGE) != 0 ||
+								!name.equals(beanMethod.getMethodName())) {
+							return null;
+						}
+						return new MethodVisitor(SpringAsmInfo.ASM_VERSION) {
+							@Override
+							@Nullable
+							public AnnotationVisitor visitAnnotation(String annotationDesc, boolean visible) {
+								if (result[0] == null && BEAN_ANNOTATION_DESCRIPTOR.equals(annotationDesc)) {
+									Type[] argumentTypes = Type.getArgumentTypes(desc);
+									String[] parameterTypeNames = new String[argumentTypes.length];
+									for (int i = 0; i < argumentTypes.length; i++) {
+										parameterTypeNames[i] = argumentTypes[i].getClassName();
+									}
+									result[0] = parameterTypeNames;
+								}
+								return null;
+							}
+						};
+					}
+				}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+			}
+			finally {
+				is.close();
+			}
+			return result[0];
+		}
+	}
+
+
+	/**
+	 * {@link ImportRegistry} based on the importing class names recorded in a snapshot,
+	 * introspecting the importing classes via reflection on demand.
+	 */
+	private static class SnapshotImportRegistry implements ImportRegistry {
+
+		private final Map<String, String> importingClasses;
+
+		@Nullable
+		private final ClassLoader classLoader;
+
+		public SnapshotImportRegistry(Map<String, String> importingClasses, @Nullable ClassLoader classLoader) {
+			this.importingClasses = new ConcurrentHashMap<>(importingClasses);
+			this.classLoader = classLoader;
+		}
+
+		@Override
+		@Nullable
+		public AnnotationMetadata getImportingClassFor(String importedClass) {
+			String importingClass = this.importingClasses.get(importedClass);
+			if (importingClass == null) {
+				return null;
+			}
+			try {
+				return new StandardAnnotationMetadata(ClassUtils.forName(importingClass, this.classLoader), true);
+			}
+			catch (ClassNotFoundException ex) {
+				throw new IllegalStateException("Failed to load importing class [" + importingClass + "]", ex);
+			}
+		}
+
+		@Override
+		public void removeImportingClass(String importingClass) {
+			this.importingClasses.values().removeIf(importingClass::equals);
+		}
+	}
+
+}
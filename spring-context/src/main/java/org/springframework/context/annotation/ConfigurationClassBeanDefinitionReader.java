@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -372,7 +372,7 @@ class ConfigurationClassBeanDefinitionReader {
 	 * definition was created externally.
 	 */
 	@SuppressWarnings("serial")
-	private static class ConfigurationClassBeanDefinition extends RootBeanDefinition implements AnnotatedBeanDefinition {
+	static class ConfigurationClassBeanDefinition extends RootBeanDefinition implements AnnotatedBeanDefinition {
 
 		private final AnnotationMetadata annotationMetadata;
 
@@ -391,6 +391,14 @@ class ConfigurationClassBeanDefinitionReader {
 			this.factoryMethodMetadata = beanMethodMetadata;
 		}
 
+		public ConfigurationClassBeanDefinition(RootBeanDefinition original,
+				AnnotationMetadata configClassMetadata, MethodMetadata beanMethodMetadata) {
+
+			super(original);
+			this.annotationMetadata = configClassMetadata;
+			this.factoryMethodMetadata = beanMethodMetadata;
+		}
+
 		private ConfigurationClassBeanDefinition(ConfigurationClassBeanDefinition original) {
 			super(original);
 			this.annotationMetadata = original.annotationMetadata;
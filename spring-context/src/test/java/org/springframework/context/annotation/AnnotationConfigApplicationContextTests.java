@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,10 @@
 package org.springframework.context.annotation;
 
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import org.junit.Test;
@@ -367,6 +371,38 @@ public class AnnotationConfigApplicationContextTests {
 		assertEquals(FactoryBean.class, context.getType("&fb"));
 	}
 
+	@Test
+	public void parallelBootstrapWithAnnotationDrivenInjection() {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+				ParallelBootstrapConfig.class, ParallelBean.class, ParallelDependency.class);
+
+		ParallelBean bean = context.getBean(ParallelBean.class);
+		ParallelDependency dependency = context.getBean(ParallelDependency.class);
+		assertNotSame(Thread.currentThread(), bean.creationThread);
+		assertNotSame(Thread.currentThread(), dependency.creationThread);
+		assertSame(dependency, bean.dependency);
+		context.close();
+	}
+
+	@Test
+	public void parallelBootstrapWithBeanMethodsAndAutowiredComponents() {
+		// Both @Bean methods wait for each other, so they need to be invoked concurrently
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+				ParallelBootstrapConfig.class, ParallelBeanMethodConfig.class, ParallelComponent.class);
+
+		ParallelDependency dependency1 = context.getBean("dependency1", ParallelDependency.class);
+		ParallelDependency dependency2 = context.getBean("dependency2", ParallelDependency.class);
+		assertNotSame(Thread.currentThread(), dependency1.creationThread);
+		assertNotSame(Thread.currentThread(), dependency2.creationThread);
+		assertNotSame(dependency1.creationThread, dependency2.creationThread);
+
+		ParallelComponent component = context.getBean(ParallelComponent.class);
+		assertNotSame(Thread.currentThread(), component.creationThread);
+		assertSame(dependency1, component.dependency1);
+		assertSame(dependency2, component.dependency2);
+		context.close();
+	}
+
 
 	@Configuration
 	static class Config {
@@ -440,6 +476,60 @@ public class AnnotationConfigApplicationContextTests {
 
 	static class BeanC {}
 
+	@Configuration
+	static class ParallelBootstrapConfig {
+
+		@Bean
+		public ExecutorService bootstrapExecutor() {
+			return Executors.newFixedThreadPool(2);
+		}
+	}
+
+	static class ParallelBean {
+
+		final Thread creationThread = Thread.currentThread();
+
+		@Autowired
+		ParallelDependency dependency;
+	}
+
+	static class ParallelDependency {
+
+		final Thread creationThread = Thread.currentThread();
+	}
+
+	@Configuration
+	static class ParallelBeanMethodConfig {
+
+		private final CyclicBarrier barrier = new CyclicBarrier(2);
+
+		@Bean
+		public ParallelDependency dependency1() throws Exception {
+			this.barrier.await(10, TimeUnit.SECONDS);
+			return new ParallelDependency();
+		}
+
+		@Bean
+		public ParallelDependency dependency2() throws Exception {
+			this.barrier.await(10, TimeUnit.SECONDS);
+			return new ParallelDependency();
+		}
+	}
+
+	static class ParallelComponent {
+
+		final Thread creationThread = Thread.currentThread();
+
+		final ParallelDependency dependency1;
+
+		@Autowired
+		ParallelDependency dependency2;
+
+		public ParallelComponent(ParallelDependency dependency1) {
+			this.dependency1 = dependency1;
+		}
+	}
+
 	static class TypedFactoryBean implements FactoryBean<String> {
 
 		public TypedFactoryBean() {
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.core.type.StandardMethodMetadata;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.ClassUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BeanDefinitionSnapshot}.
+ *
+ * @author Agent Local
+ * @since 5.2
+ */
+public class BeanDefinitionSnapshotTests {
+
+	@Test
+	public void captureAndRegister() throws Exception {
+		AnnotationConfigApplicationContext source = new AnnotationConfigApplicationContext();
+		source.register(SnapshotConfig.class);
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(source);
+		assertTrue(snapshot.getBeanNames().contains("testBean"));
+		assertTrue(snapshot.getBeanNames().contains("importedBean"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.write(out);
+		BeanDefinitionSnapshot restored = BeanDefinitionSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(snapshot.getBeanNames(), restored.getBeanNames());
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertTrue(restored.matches(context.getEnvironment()));
+		restored.registerBeanDefinitions(context);
+		context.refresh();
+
+		TestBean testBean = context.getBean("testBean", TestBean.class);
+		assertSame(testBean, context.getBean("alias"));
+		assertEquals("snapshot", testBean.getName());
+		assertSame(testBean, context.getBean(SnapshotConfig.class).testBean());
+		assertTrue(ClassUtils.isCglibProxy(context.getBean(SnapshotConfig.class)));
+		assertEquals("imported", context.getBean("importedBean"));
+
+		AnnotationMetadata importMetadata = context.getBean(ImportedConfig.class).importMetadata;
+		assertNotNull(importMetadata);
+		assertEquals(SnapshotConfig.class.getName(), importMetadata.getClassName());
+		context.close();
+	}
+
+	@Test
+	public void matchesActiveProfiles() {
+		AnnotationConfigApplicationContext source = new AnnotationConfigApplicationContext();
+		source.getEnvironment().setActiveProfiles("p1");
+		source.register(SnapshotConfig.class);
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(source);
+		assertEquals(Collections.singletonList("p1"), snapshot.getActiveProfiles());
+		assertTrue(snapshot.getBeanNames().contains("profileBean"));
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertFalse(snapshot.matches(context.getEnvironment()));
+		context.getEnvironment().setActiveProfiles("p1");
+		assertTrue(snapshot.matches(context.getEnvironment()));
+	}
+
+	@Test
+	public void matchesDefaultProfiles() {
+		AnnotationConfigApplicationContext source = new AnnotationConfigApplicationContext();
+		source.getEnvironment().setDefaultProfiles("p1");
+		source.register(SnapshotConfig.class);
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(source);
+		assertEquals(Collections.singletonList("p1"), snapshot.getDefaultProfiles());
+		assertTrue(snapshot.getBeanNames().contains("profileBean"));
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		assertFalse(snapshot.matches(context.getEnvironment()));
+		context.getEnvironment().setDefaultProfiles("p1");
+		assertTrue(snapshot.matches(context.getEnvironment()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void captureWithInstanceSupplier() {
+		GenericApplicationContext source = new GenericApplicationContext();
+		source.registerBean("testBean", TestBean.class, () -> new TestBean());
+		BeanDefinitionSnapshot.capture(source);
+	}
+
+	@Test
+	public void captureWithOverloadedBeanMethods() throws Exception {
+		AnnotationConfigApplicationContext source = new AnnotationConfigApplicationContext();
+		source.register(OverloadedConfig.class);
+		BeanDefinitionSnapshot snapshot = BeanDefinitionSnapshot.capture(source);
+
+		// Written again after having been read, as in the snapshot itself
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.write(out);
+		snapshot = BeanDefinitionSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+
+		GenericApplicationContext context = new GenericApplicationContext();
+		snapshot.registerBeanDefinitions(context);
+		BeanDefinition bd = context.getBeanDefinition("overloaded");
+		assertTrue(bd instanceof AnnotatedBeanDefinition);
+		assertEquals(OverloadedConfig.class.getName(), ((AnnotatedBeanDefinition) bd).getMetadata().getClassName());
+		MethodMetadata factoryMethodMetadata = ((AnnotatedBeanDefinition) bd).getFactoryMethodMetadata();
+		assertNotNull(factoryMethodMetadata);
+		assertEquals("overloaded", factoryMethodMetadata.getMethodName());
+		// Metadata from the first @Bean method with that name, as without a snapshot
+		assertTrue(factoryMethodMetadata instanceof StandardMethodMetadata);
+		assertEquals(0, ((StandardMethodMetadata) factoryMethodMetadata).getIntrospectedMethod().getParameterCount());
+		context.refresh();
+
+		// Only @Bean methods are candidates, as without a snapshot
+		assertEquals("name", context.getBean("overloaded", TestBean.class).getName());
+		context.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void captureWithCondition() {
+		AnnotationConfigApplicationContext source = new AnnotationConfigApplicationContext();
+		source.register(ConditionalConfig.class);
+		BeanDefinitionSnapshot.capture(source);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void captureWithSkippedConditionalBeanMethod() {
+		AnnotationConfigApplicationContext source = new AnnotationConfigApplicationContext();
+		source.register(SkippedConditionalConfig.class);
+		BeanDefinitionSnapshot.capture(source);
+	}
+
+	@Test
+	public void loadSnapshotWithoutResource() {
+		assertNull(BeanDefinitionSnapshot.loadSnapshot(new ClassLoader(null) {}));
+	}
+
+
+	@Configuration
+	@Import(ImportedConfig.class)
+	static class SnapshotConfig {
+
+		@Bean(name = {"testBean", "alias"})
+		public TestBean testBean() {
+			return new TestBean("snapshot");
+		}
+
+		@Bean
+		@Profile("p1")
+		public String profileBean() {
+			return "profile";
+		}
+	}
+
+
+	@Configuration
+	static class ImportedConfig implements ImportAware {
+
+		AnnotationMetadata importMetadata;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importMetadata = importMetadata;
+		}
+
+		@Bean
+		public String importedBean() {
+			return "imported";
+		}
+	}
+
+
+	@Configuration
+	static class OverloadedConfig {
+
+		@Bean
+		public String name() {
+			return "name";
+		}
+
+		@Bean
+		public TestBean overloaded() {
+			return new TestBean("default");
+		}
+
+		@Bean
+		public TestBean overloaded(String name) {
+			return new TestBean(name);
+		}
+
+		public TestBean overloaded(String name, String other) {
+			return new TestBean("notABeanMethod");
+		}
+	}
+
+
+	@Configuration
+	static class ConditionalConfig {
+
+		@Bean
+		@Conditional(MatchingCondition.class)
+		public String conditionalBean() {
+			return "conditional";
+		}
+	}
+
+
+	@Configuration
+	static class SkippedConditionalConfig {
+
+		@Bean
+		@Conditional(NonMatchingCondition.class)
+		public String conditionalBean() {
+			return "conditional";
+		}
+	}
+
+
+	static class MatchingCondition implements Condition {
+
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			return true;
+		}
+	}
+
+
+	static class NonMatchingCondition implements Condition {
+
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			return false;
+		}
+	}
+
+}
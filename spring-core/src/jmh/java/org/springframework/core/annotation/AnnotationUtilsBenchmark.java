@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for {@link AnnotationUtils} and {@link AnnotatedElementUtils}.
+ *
+ * @author Agent Local
+ */
+@BenchmarkMode(Mode.Throughput)
+public class AnnotationUtilsBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		public Method method;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.method = AnnotatedType.class.getMethod("handle");
+		}
+	}
+
+
+	@Benchmark
+	public Marker findAnnotationOnClass() {
+		return AnnotationUtils.findAnnotation(AnnotatedType.class, Marker.class);
+	}
+
+	@Benchmark
+	public Marker findAnnotationOnMethod(BenchmarkData data) {
+		return AnnotationUtils.findAnnotation(data.method, Marker.class);
+	}
+
+	@Benchmark
+	public Absent findAbsentAnnotation(BenchmarkData data) {
+		return AnnotationUtils.findAnnotation(data.method, Absent.class);
+	}
+
+	@Benchmark
+	public Composed findMergedAnnotation() {
+		return AnnotatedElementUtils.findMergedAnnotation(AnnotatedType.class, Composed.class);
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Marker {
+
+		String value() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Marker
+	public @interface Composed {
+
+		@AliasFor(annotation = Marker.class)
+		String value() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Absent {
+	}
+
+
+	@Composed("interface")
+	public interface AnnotatedInterface {
+
+		@Marker
+		void handle();
+	}
+
+
+	public static class AnnotatedType implements AnnotatedInterface {
+
+		@Override
+		public void handle() {
+		}
+	}
+
+}
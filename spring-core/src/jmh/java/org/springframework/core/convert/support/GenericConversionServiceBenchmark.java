@@ -0,0 +1,82 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.convert.support;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.core.convert.TypeDescriptor;
+
+/**
+ * Benchmarks for {@link GenericConversionService}.
+ *
+ * @author Agent Local
+ */
+@BenchmarkMode(Mode.Throughput)
+public class GenericConversionServiceBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		public GenericConversionService conversionService;
+
+		public List<String> source;
+
+		public TypeDescriptor sourceType;
+
+		public TypeDescriptor targetType;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.conversionService = new DefaultConversionService();
+			this.source = Arrays.asList("1", "2", "3", "4", "5");
+			this.sourceType = TypeDescriptor.forObject(this.source);
+			this.targetType = TypeDescriptor.collection(Set.class, TypeDescriptor.valueOf(Integer.class));
+		}
+	}
+
+
+	@Benchmark
+	public Integer convertStringToInteger(BenchmarkData data) {
+		return data.conversionService.convert("42", Integer.class);
+	}
+
+	@Benchmark
+	public Integer convertNoOp(BenchmarkData data) {
+		return data.conversionService.convert(42, Integer.class);
+	}
+
+	@Benchmark
+	public boolean canConvert(BenchmarkData data) {
+		return data.conversionService.canConvert(String.class, Long.class);
+	}
+
+	@Benchmark
+	public Object convertCollection(BenchmarkData data) {
+		return data.conversionService.convert(data.source, data.sourceType, data.targetType);
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link AntPathMatcher}.
+ *
+ * @author Agent Local
+ */
+@BenchmarkMode(Mode.Throughput)
+public class AntPathMatcherBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		public AntPathMatcher pathMatcher;
+
+		public String[] patterns = new String[] {
+				"/static/**", "/api/users/{id}", "/api/users/{id}/orders/*", "/**/*.html", "/api/projects/{project}/**"};
+
+		public String[] paths = new String[] {
+				"/static/css/main.css", "/api/users/42", "/api/users/42/orders/7", "/docs/index.html", "/api/other"};
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.pathMatcher = new AntPathMatcher();
+		}
+	}
+
+
+	@Benchmark
+	public void match(BenchmarkData data, Blackhole bh) {
+		for (String pattern : data.patterns) {
+			for (String path : data.paths) {
+				bh.consume(data.pathMatcher.match(pattern, path));
+			}
+		}
+	}
+
+	@Benchmark
+	public Map<String, String> extractUriTemplateVariables(BenchmarkData data) {
+		return data.pathMatcher.extractUriTemplateVariables("/api/users/{id}/orders/*", "/api/users/42/orders/7");
+	}
+
+	@Benchmark
+	public void comparePatterns(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.pathMatcher.getPatternComparator("/api/users/42").compare(data.patterns[1], data.patterns[4]));
+	}
+
+}
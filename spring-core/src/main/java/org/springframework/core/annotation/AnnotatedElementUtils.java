@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -261,6 +261,9 @@ public abstract class AnnotatedElementUtils {
 		if (element.isAnnotationPresent(annotationType)) {
 			return true;
 		}
+		if (isIndexedAsAbsent(element, annotationType)) {
+			return false;
+		}
 		return Boolean.TRUE.equals(searchWithGetSemantics(element, annotationType, null, alwaysTrueAnnotationProcessor));
 	}
 
@@ -277,6 +280,9 @@ public abstract class AnnotatedElementUtils {
 	 * @return {@code true} if a matching annotation is present
 	 */
 	public static boolean isAnnotated(AnnotatedElement element, String annotationName) {
+		if (isIndexedAsAbsent(element, annotationName)) {
+			return false;
+		}
 		return Boolean.TRUE.equals(searchWithGetSemantics(element, null, annotationName, alwaysTrueAnnotationProcessor));
 	}
 
@@ -301,10 +307,12 @@ public abstract class AnnotatedElementUtils {
 	public static AnnotationAttributes getMergedAnnotationAttributes(
 			AnnotatedElement element, Class<? extends Annotation> annotationType) {
 
-		AnnotationAttributes attributes = searchWithGetSemantics(element, annotationType, null,
-				new MergedAnnotationAttributesProcessor());
-		AnnotationUtils.postProcessAnnotationAttributes(element, attributes, false, false);
-		return attributes;
+		AnnotationIndex index = getIndex(element, annotationType);
+		if (index != null) {
+			return index.getMergedAnnotationAttributes(annotationType, false,
+					() -> searchMergedAnnotationAttributes(element, annotationType, false, false, false));
+		}
+		return searchMergedAnnotationAttributes(element, annotationType, false, false, false);
 	}
 
 	/**
@@ -360,6 +368,9 @@ public abstract class AnnotatedElementUtils {
 	public static AnnotationAttributes getMergedAnnotationAttributes(AnnotatedElement element,
 			String annotationName, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
+		if (isIndexedAsAbsent(element, annotationName)) {
+			return null;
+		}
 		AnnotationAttributes attributes = searchWithGetSemantics(element, null, annotationName,
 				new MergedAnnotationAttributesProcessor(classValuesAsString, nestedAnnotationsAsMap));
 		AnnotationUtils.postProcessAnnotationAttributes(element, attributes, classValuesAsString, nestedAnnotationsAsMap);
@@ -397,6 +408,13 @@ public abstract class AnnotatedElementUtils {
 			return null;
 		}
 
+		// Merged annotation determined once per class or method and annotation type...
+		AnnotationIndex index = getIndex(element, annotationType);
+		if (index != null) {
+			return index.getMergedAnnotation(annotationType, false,
+					() -> searchMergedAnnotationAttributes(element, annotationType, false, false, false));
+		}
+
 		// Exhaustive retrieval of merged annotation attributes...
 		AnnotationAttributes attributes = getMergedAnnotationAttributes(element, annotationType);
 		return (attributes != null ? AnnotationUtils.synthesizeAnnotation(attributes, annotationType, element) : null);
@@ -599,6 +617,9 @@ public abstract class AnnotatedElementUtils {
 		if (element.isAnnotationPresent(annotationType)) {
 			return true;
 		}
+		if (isIndexedAsAbsent(element, annotationType)) {
+			return false;
+		}
 		return Boolean.TRUE.equals(searchWithFindSemantics(element, annotationType, null, alwaysTrueAnnotationProcessor));
 	}
 
@@ -633,10 +654,18 @@ public abstract class AnnotatedElementUtils {
 	public static AnnotationAttributes findMergedAnnotationAttributes(AnnotatedElement element,
 			Class<? extends Annotation> annotationType, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
-		AnnotationAttributes attributes = searchWithFindSemantics(element, annotationType, null,
-				new MergedAnnotationAttributesProcessor(classValuesAsString, nestedAnnotationsAsMap));
-		AnnotationUtils.postProcessAnnotationAttributes(element, attributes, classValuesAsString, nestedAnnotationsAsMap);
-		return attributes;
+		AnnotationIndex index = getIndex(element, annotationType);
+		if (index != null) {
+			if (!classValuesAsString && !nestedAnnotationsAsMap) {
+				return index.getMergedAnnotationAttributes(annotationType, true,
+						() -> searchMergedAnnotationAttributes(element, annotationType, true, false, false));
+			}
+			if (!index.isPresent(annotationType)) {
+				return null;
+			}
+		}
+		return searchMergedAnnotationAttributes(
+				element, annotationType, true, classValuesAsString, nestedAnnotationsAsMap);
 	}
 
 	/**
@@ -670,6 +699,9 @@ public abstract class AnnotatedElementUtils {
 	public static AnnotationAttributes findMergedAnnotationAttributes(AnnotatedElement element,
 			String annotationName, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
+		if (isIndexedAsAbsent(element, annotationName)) {
+			return null;
+		}
 		AnnotationAttributes attributes = searchWithFindSemantics(element, null, annotationName,
 				new MergedAnnotationAttributesProcessor(classValuesAsString, nestedAnnotationsAsMap));
 		AnnotationUtils.postProcessAnnotationAttributes(element, attributes, classValuesAsString, nestedAnnotationsAsMap);
@@ -707,6 +739,13 @@ public abstract class AnnotatedElementUtils {
 			return null;
 		}
 
+		// Merged annotation determined once per class or method and annotation type...
+		AnnotationIndex index = getIndex(element, annotationType);
+		if (index != null) {
+			return index.getMergedAnnotation(annotationType, true,
+					() -> searchMergedAnnotationAttributes(element, annotationType, true, false, false));
+		}
+
 		// Exhaustive retrieval of merged annotation attributes...
 		AnnotationAttributes attributes = findMergedAnnotationAttributes(element, annotationType, false, false);
 		return (attributes != null ? AnnotationUtils.synthesizeAnnotation(attributes, annotationType, element) : null);
@@ -832,6 +871,86 @@ public abstract class AnnotatedElementUtils {
 		return postProcessAndSynthesizeAggregatedResults(element, processor.getAggregatedResults());
 	}
 
+	/**
+	 * Search for the merged attributes of the first annotation of the specified
+	 * {@code annotationType} on the supplied {@code element}.
+	 * @param element the annotated element
+	 * @param annotationType the annotation type to find
+	 * @param findSemantics {@code true} for <em>find semantics</em>,
+	 * {@code false} for <em>get semantics</em>
+	 * @param classValuesAsString whether to convert Class references into Strings
+	 * @param nestedAnnotationsAsMap whether to convert nested annotations into maps
+	 * @return the merged {@code AnnotationAttributes}, or {@code null} if not found
+	 * @since 5.2
+	 */
+	@Nullable
+	private static AnnotationAttributes searchMergedAnnotationAttributes(AnnotatedElement element,
+			Class<? extends Annotation> annotationType, boolean findSemantics,
+			boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
+
+		MergedAnnotationAttributesProcessor processor =
+				new MergedAnnotationAttributesProcessor(classValuesAsString, nestedAnnotationsAsMap);
+		AnnotationAttributes attributes = (findSemantics ?
+				searchWithFindSemantics(element, annotationType, null, processor) :
+				searchWithGetSemantics(element, annotationType, null, processor));
+		AnnotationUtils.postProcessAnnotationAttributes(element, attributes, classValuesAsString, nestedAnnotationsAsMap);
+		return attributes;
+	}
+
+	/**
+	 * Return the {@link AnnotationIndex} for the given class or method, if
+	 * applicable to lookups of the given annotation type. The index covers all
+	 * meta-annotations as well as overridden methods, superclasses and interfaces,
+	 * i.e. a superset of both <em>get</em> and <em>find semantics</em>: it rules
+	 * out absent annotations and retains the merged attributes of present ones
+	 * as determined by the search algorithms.
+	 * @param element the annotated element
+	 * @param annotationType the annotation type to find
+	 * @return the index, or {@code null} if not applicable
+	 * @since 5.2
+	 */
+	@Nullable
+	private static AnnotationIndex getIndex(AnnotatedElement element, Class<? extends Annotation> annotationType) {
+		if (!(element instanceof Class || element instanceof Method) ||
+				AnnotationUtils.isInJavaLangAnnotationPackage(annotationType)) {
+			return null;
+		}
+		return AnnotationIndex.forElement(element);
+	}
+
+	/**
+	 * Determine whether the {@link AnnotationIndex} for the given class or method
+	 * rules out the presence of the given annotation type, so that the search
+	 * algorithms can be skipped.
+	 * @param element the annotated element
+	 * @param annotationType the annotation type to find
+	 * @return {@code true} if the annotation is known to be absent
+	 * @since 5.2
+	 * @see #getIndex(AnnotatedElement, Class)
+	 */
+	private static boolean isIndexedAsAbsent(AnnotatedElement element, Class<? extends Annotation> annotationType) {
+		AnnotationIndex index = getIndex(element, annotationType);
+		return (index != null && !index.isPresent(annotationType));
+	}
+
+	/**
+	 * Determine whether the {@link AnnotationIndex} for the given class or method
+	 * rules out the presence of an annotation with the given type name.
+	 * @param element the annotated element
+	 * @param annotationName the fully qualified class name of the annotation type to find
+	 * @return {@code true} if the annotation is known to be absent
+	 * @since 5.2
+	 * @see #isIndexedAsAbsent(AnnotatedElement, Class)
+	 */
+	private static boolean isIndexedAsAbsent(AnnotatedElement element, String annotationName) {
+		if (!(element instanceof Class || element instanceof Method) ||
+				AnnotationUtils.isInJavaLangAnnotationPackage(annotationName)) {
+			return false;
+		}
+		AnnotationIndex index = AnnotationIndex.forElement(element);
+		return (index != null && !index.isPresent(annotationName));
+	}
+
 	/**
 	 * Search for annotations of the specified {@code annotationName} or
 	 * {@code annotationType} on the specified {@code element}, following
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Array;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.springframework.core.BridgeMethodResolver;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Precomputed index of the annotation types present on an {@link AnnotatedElement},
+ * including meta-annotations and annotations on overridden methods, superclasses
+ * and interfaces.
+ *
+ * <p>The hierarchy is traversed once per element, covering a superset of both
+ * <em>get</em> and <em>find semantics</em> of {@link AnnotatedElementUtils}.
+ * The index is therefore only suitable for ruling out the presence of an
+ * annotation. For present annotations, the merged attributes are determined
+ * by the search algorithms on first access and retained per annotation type
+ * and semantics, along with the annotation synthesized from them.
+ *
+ * <p>Used by {@link AnnotatedElementUtils} to skip searches for absent
+ * annotations and to avoid repeated searches for present ones. Indexes for
+ * classes, methods, fields and constructors are cached, including the failure
+ * to build an index for an element. Indexes are thread-safe; retained
+ * attributes are only ever exposed as copies.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see AnnotatedElementUtils
+ */
+final class AnnotationIndex {
+
+	/**
+	 * Cached in place of an index that could not be built for an element.
+	 */
+	private static final Object UNAVAILABLE = new Object();
+
+	private static final Map<AnnotatedElement, Object> indexCache =
+			new ConcurrentReferenceHashMap<>(256);
+
+	private static final Map<Class<? extends Annotation>, Class<?>[]> metaAnnotationTypesCache =
+			new ConcurrentReferenceHashMap<>(256);
+
+
+	private final AnnotatedElement element;
+
+	private final Class<?>[] annotationTypes;
+
+	/**
+	 * Merged lookup results per entry in {@link #annotationTypes}, following
+	 * <em>find semantics</em>.
+	 */
+	private final AtomicReferenceArray<MergedResult> findResults;
+
+	/**
+	 * Merged lookup results per entry in {@link #annotationTypes}, following
+	 * <em>get semantics</em>.
+	 */
+	private final AtomicReferenceArray<MergedResult> getResults;
+
+
+	private AnnotationIndex(AnnotatedElement element) {
+		this.element = element;
+		Set<Class<?>> annotationTypes = new LinkedHashSet<>();
+		for (AnnotatedElement source : getSearchElements(element)) {
+			for (Annotation annotation : AnnotationUtils.getDeclaredAnnotations(source)) {
+				Class<? extends Annotation> annotationType = annotation.annotationType();
+				if (!AnnotationUtils.isInJavaLangAnnotationPackage(annotationType) &&
+						annotationTypes.add(annotationType)) {
+					annotationTypes.addAll(Arrays.asList(getMetaAnnotationTypes(annotationType)));
+				}
+			}
+		}
+		this.annotationTypes = annotationTypes.toArray(new Class<?>[0]);
+		this.findResults = new AtomicReferenceArray<>(this.annotationTypes.length);
+		this.getResults = new AtomicReferenceArray<>(this.annotationTypes.length);
+	}
+
+
+	/**
+	 * Determine whether an annotation of the given type is present on the
+	 * element, directly, as a meta-annotation, or on overridden methods,
+	 * superclasses and interfaces.
+	 * @param annotationType the annotation type to look for
+	 * @return {@code true} if a matching annotation is present
+	 */
+	boolean isPresent(Class<? extends Annotation> annotationType) {
+		return (indexOf(annotationType) != -1);
+	}
+
+	/**
+	 * Determine whether an annotation with the given type name is present on the
+	 * element, directly, as a meta-annotation, or on overridden methods,
+	 * superclasses and interfaces.
+	 * @param annotationName the fully qualified class name of the annotation type
+	 * @return {@code true} if a matching annotation is present
+	 */
+	boolean isPresent(String annotationName) {
+		for (Class<?> type : this.annotationTypes) {
+			if (type.getName().equals(annotationName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the merged attributes of the annotation of the given type, as
+	 * determined by the given search on first access for the given semantics.
+	 * @param annotationType the annotation type to look for
+	 * @param findSemantics {@code true} for <em>find semantics</em>,
+	 * {@code false} for <em>get semantics</em>
+	 * @param search the search algorithm for the merged attributes
+	 * (with Class references and nested annotations preserved)
+	 * @return a copy of the merged attributes, or {@code null} if not found
+	 */
+	@Nullable
+	AnnotationAttributes getMergedAnnotationAttributes(Class<? extends Annotation> annotationType,
+			boolean findSemantics, Supplier<AnnotationAttributes> search) {
+
+		MergedResult result = getMergedResult(annotationType, findSemantics, search);
+		return (result != null ? result.getAttributes() : null);
+	}
+
+	/**
+	 * Return the merged annotation of the given type, synthesized from the
+	 * attributes determined by the given search on first access for the
+	 * given semantics.
+	 * @param annotationType the annotation type to look for
+	 * @param findSemantics {@code true} for <em>find semantics</em>,
+	 * {@code false} for <em>get semantics</em>
+	 * @param search the search algorithm for the merged attributes
+	 * (with Class references and nested annotations preserved)
+	 * @return the merged, synthesized annotation, or {@code null} if not found
+	 */
+	@Nullable
+	<A extends Annotation> A getMergedAnnotation(Class<A> annotationType,
+			boolean findSemantics, Supplier<AnnotationAttributes> search) {
+
+		MergedResult result = getMergedResult(annotationType, findSemantics, search);
+		return (result != null ? annotationType.cast(result.getAnnotation(annotationType, this.element)) : null);
+	}
+
+	@Nullable
+	private MergedResult getMergedResult(Class<? extends Annotation> annotationType,
+			boolean findSemantics, Supplier<AnnotationAttributes> search) {
+
+		int typeIndex = indexOf(annotationType);
+		if (typeIndex == -1) {
+			return null;
+		}
+		AtomicReferenceArray<MergedResult> results = (findSemantics ? this.findResults : this.getResults);
+		MergedResult result = results.get(typeIndex);
+		if (result == null) {
+			// Not necessarily found, e.g. only present on an interface under get semantics
+			result = new MergedResult(search.get());
+			results.set(typeIndex, result);
+		}
+		return (result.attributes != null ? result : null);
+	}
+
+	private int indexOf(Class<? extends Annotation> annotationType) {
+		for (int i = 0; i < this.annotationTypes.length; i++) {
+			if (this.annotationTypes[i] == annotationType) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "AnnotationIndex for " + this.element + ": " + Arrays.toString(this.annotationTypes);
+	}
+
+
+	/**
+	 * Return the index for the given element, building it if necessary.
+	 * @param element the annotated element
+	 * @return the (possibly cached) index for the element, or {@code null} if
+	 * the index could not be built, leaving it to the search algorithms to
+	 * handle (or report) the introspection failure
+	 */
+	@Nullable
+	static AnnotationIndex forElement(AnnotatedElement element) {
+		Assert.notNull(element, "AnnotatedElement must not be null");
+		Object index;
+		if (element instanceof Class || element instanceof Member) {
+			index = indexCache.get(element);
+			if (index == null) {
+				index = buildIndex(element);
+				indexCache.put(element, index);
+			}
+		}
+		else {
+			index = buildIndex(element);
+		}
+		return (index != UNAVAILABLE ? (AnnotationIndex) index : null);
+	}
+
+	private static Object buildIndex(AnnotatedElement element) {
+		try {
+			return new AnnotationIndex(element);
+		}
+		catch (Throwable ex) {
+			return UNAVAILABLE;
+		}
+	}
+
+	/**
+	 * Clear the internal index cache.
+	 */
+	static void clearCache() {
+		indexCache.clear();
+		metaAnnotationTypesCache.clear();
+	}
+
+
+	/**
+	 * Return the types of all meta-annotations on the given annotation type,
+	 * at any depth and outside of the {@code java.lang.annotation} package.
+	 */
+	private static Class<?>[] getMetaAnnotationTypes(Class<? extends Annotation> annotationType) {
+		Class<?>[] metaAnnotationTypes = metaAnnotationTypesCache.get(annotationType);
+		if (metaAnnotationTypes == null) {
+			Set<Class<?>> types = new LinkedHashSet<>();
+			collectMetaAnnotationTypes(annotationType, types);
+			types.remove(annotationType);
+			metaAnnotationTypes = types.toArray(new Class<?>[0]);
+			metaAnnotationTypesCache.put(annotationType, metaAnnotationTypes);
+		}
+		return metaAnnotationTypes;
+	}
+
+	private static void collectMetaAnnotationTypes(Class<? extends Annotation> annotationType, Set<Class<?>> types) {
+		for (Annotation metaAnnotation : AnnotationUtils.getDeclaredAnnotations(annotationType)) {
+			Class<? extends Annotation> metaAnnotationType = metaAnnotation.annotationType();
+			if (!AnnotationUtils.isInJavaLangAnnotationPackage(metaAnnotationType) && types.add(metaAnnotationType)) {
+				collectMetaAnnotationTypes(metaAnnotationType, types);
+			}
+		}
+	}
+
+	/**
+	 * Determine the elements to search, in order, for the given element.
+	 */
+	private static Set<AnnotatedElement> getSearchElements(AnnotatedElement element) {
+		Set<AnnotatedElement> elements = new LinkedHashSet<>();
+		if (element instanceof Method) {
+			collectMethods((Method) element, elements);
+		}
+		else if (element instanceof Class) {
+			collectTypes((Class<?>) element, elements);
+		}
+		else {
+			elements.add(element);
+		}
+		return elements;
+	}
+
+	private static void collectTypes(Class<?> clazz, Set<AnnotatedElement> elements) {
+		if (!elements.add(clazz) || Annotation.class.isAssignableFrom(clazz)) {
+			return;
+		}
+		for (Class<?> ifc : clazz.getInterfaces()) {
+			collectTypes(ifc, elements);
+		}
+		Class<?> superclass = clazz.getSuperclass();
+		if (superclass != null && superclass != Object.class) {
+			collectTypes(superclass, elements);
+		}
+	}
+
+	private static void collectMethods(Method method, Set<AnnotatedElement> elements) {
+		if (!elements.add(method)) {
+			return;
+		}
+		collectMethods(BridgeMethodResolver.findBridgedMethod(method), elements);
+		Class<?> clazz = method.getDeclaringClass();
+		collectInterfaceMethods(method, clazz.getInterfaces(), elements);
+		while (true) {
+			clazz = clazz.getSuperclass();
+			if (clazz == null || clazz == Object.class) {
+				break;
+			}
+			for (Method candidate : AnnotationUtils.getAnnotatedMethodsInBaseType(clazz)) {
+				if (AnnotationUtils.isOverride(method, candidate)) {
+					collectMethods(BridgeMethodResolver.findBridgedMethod(candidate), elements);
+				}
+			}
+			collectInterfaceMethods(method, clazz.getInterfaces(), elements);
+		}
+	}
+
+	private static void collectInterfaceMethods(Method method, Class<?>[] ifcs, Set<AnnotatedElement> elements) {
+		for (Class<?> ifc : ifcs) {
+			for (Method candidate : AnnotationUtils.getAnnotatedMethodsInBaseType(ifc)) {
+				if (AnnotationUtils.isOverride(method, candidate)) {
+					collectMethods(candidate, elements);
+				}
+			}
+		}
+	}
+
+
+
+	/**
+	 * The merged attributes of an annotation as determined by a search algorithm,
+	 * along with the annotation lazily synthesized from them.
+	 */
+	private static final class MergedResult {
+
+		@Nullable
+		private final AnnotationAttributes attributes;
+
+		@Nullable
+		private volatile Annotation annotation;
+
+		MergedResult(@Nullable AnnotationAttributes attributes) {
+			this.attributes = attributes;
+		}
+
+		AnnotationAttributes getAttributes() {
+			Assert.state(this.attributes != null, "No merged attributes");
+			AnnotationAttributes copy = new AnnotationAttributes(this.attributes);
+			for (Map.Entry<String, Object> entry : copy.entrySet()) {
+				Object value = entry.getValue();
+				if (value != null && value.getClass().isArray()) {
+					int length = Array.getLength(value);
+					Object array = Array.newInstance(value.getClass().getComponentType(), length);
+					System.arraycopy(value, 0, array, 0, length);
+					entry.setValue(array);
+				}
+			}
+			return copy;
+		}
+
+		Annotation getAnnotation(Class<? extends Annotation> annotationType, AnnotatedElement element) {
+			Annotation annotation = this.annotation;
+			if (annotation == null) {
+				Assert.state(this.attributes != null, "No merged attributes");
+				annotation = AnnotationUtils.synthesizeAnnotation(this.attributes, annotationType, element);
+				this.annotation = annotation;
+			}
+			return annotation;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -78,6 +78,14 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	private final Map<ConverterCacheKey, GenericConverter> converterCache = new ConcurrentReferenceHashMap<>(64);
 
+	/**
+	 * Converters for plain class-based type descriptors, keyed by source class and
+	 * then by target class, so that lookups do not require a cache key instance.
+	 */
+	private final Map<Class<?>, Map<Class<?>, GenericConverter>> converterTable = new ConcurrentReferenceHashMap<>(64);
+
+	private volatile boolean frozen;
+
 
 	// ConverterRegistry implementation
 
@@ -102,6 +110,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	@Override
 	public void addConverter(GenericConverter converter) {
+		assertNotFrozen();
 		this.converters.add(converter);
 		invalidateCache();
 	}
@@ -122,10 +131,42 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	@Override
 	public void removeConvertible(Class<?> sourceType, Class<?> targetType) {
+		assertNotFrozen();
 		this.converters.remove(sourceType, targetType);
 		invalidateCache();
 	}
 
+	/**
+	 * Freeze the configuration of this conversion service, rejecting any further
+	 * converter registration or removal with an {@link IllegalStateException}.
+	 * <p>Converter lookups for all registered source and target type pairs are
+	 * resolved right away, and cached lookups never need to be invalidated anymore.
+	 * @since 5.2
+	 * @see #isFrozen()
+	 */
+	public void freeze() {
+		this.frozen = true;
+		for (ConvertiblePair convertiblePair : this.converters.getConvertiblePairs()) {
+			try {
+				getConverter(TypeDescriptor.valueOf(convertiblePair.getSourceType()),
+						TypeDescriptor.valueOf(convertiblePair.getTargetType()));
+			}
+			catch (RuntimeException ex) {
+				// Converter not applicable to the declared types themselves:
+				// leave the lookup to actual conversion requests.
+			}
+		}
+	}
+
+	/**
+	 * Return whether the configuration of this conversion service has been frozen.
+	 * @since 5.2
+	 * @see #freeze()
+	 */
+	public boolean isFrozen() {
+		return this.frozen;
+	}
+
 
 	// ConversionService implementation
 
@@ -240,7 +281,9 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	/**
 	 * Hook method to lookup the converter for a given sourceType/targetType pair.
-	 * First queries this ConversionService's converter cache.
+	 * First queries this ConversionService's converter cache, which is keyed by
+	 * source and target class for type descriptors without generics, annotations
+	 * and element types, and by the full type descriptors otherwise.
 	 * On a cache miss, then performs an exhaustive search for a matching converter.
 	 * If no converter matches, returns the default converter.
 	 * @param sourceType the source type to convert from
@@ -251,24 +294,32 @@ public class GenericConversionService implements ConfigurableConversionService {
 	 */
 	@Nullable
 	protected GenericConverter getConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+		if (isPlainClass(sourceType) && isPlainClass(targetType)) {
+			Map<Class<?>, GenericConverter> convertersForSource = this.converterTable.get(sourceType.getType());
+			if (convertersForSource != null) {
+				GenericConverter converter = convertersForSource.get(targetType.getType());
+				if (converter != null) {
+					return (converter != NO_MATCH ? converter : null);
+				}
+			}
+			else {
+				convertersForSource = this.converterTable.computeIfAbsent(
+						sourceType.getType(), key -> new ConcurrentReferenceHashMap<>(16));
+			}
+			GenericConverter converter = findConverter(sourceType, targetType);
+			convertersForSource.put(targetType.getType(), (converter != null ? converter : NO_MATCH));
+			return converter;
+		}
+
 		ConverterCacheKey key = new ConverterCacheKey(sourceType, targetType);
 		GenericConverter converter = this.converterCache.get(key);
 		if (converter != null) {
 			return (converter != NO_MATCH ? converter : null);
 		}
 
-		converter = this.converters.find(sourceType, targetType);
-		if (converter == null) {
-			converter = getDefaultConverter(sourceType, targetType);
-		}
-
-		if (converter != null) {
-			this.converterCache.put(key, converter);
-			return converter;
-		}
-
-		this.converterCache.put(key, NO_MATCH);
-		return null;
+		converter = findConverter(sourceType, targetType);
+		this.converterCache.put(key, (converter != null ? converter : NO_MATCH));
+		return converter;
 	}
 
 	/**
@@ -287,6 +338,29 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	// Internal helpers
 
+	@Nullable
+	private GenericConverter findConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+		GenericConverter converter = this.converters.find(sourceType, targetType);
+		if (converter == null) {
+			converter = getDefaultConverter(sourceType, targetType);
+		}
+		return converter;
+	}
+
+	/**
+	 * Determine whether the given type descriptor is fully described by its class,
+	 * i.e. whether it is equal to {@link TypeDescriptor#valueOf} for its class.
+	 */
+	private static boolean isPlainClass(TypeDescriptor typeDescriptor) {
+		return (typeDescriptor.getResolvableType().getType() instanceof Class &&
+				typeDescriptor.getAnnotations().length == 0 && !typeDescriptor.isArray() &&
+				!typeDescriptor.isCollection() && !typeDescriptor.isMap());
+	}
+
+	private void assertNotFrozen() {
+		Assert.state(!this.frozen, "Cannot modify converters of a frozen ConversionService");
+	}
+
 	@Nullable
 	private ResolvableType[] getRequiredTypeInfo(Class<?> converterClass, Class<?> genericIfc) {
 		ResolvableType resolvableType = ResolvableType.forClass(converterClass).as(genericIfc);
@@ -304,6 +378,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	private void invalidateCache() {
 		this.converterCache.clear();
+		this.converterTable.clear();
 	}
 
 	@Nullable
@@ -531,6 +606,10 @@ public class GenericConversionService implements ConfigurableConversionService {
 			this.converters.remove(new ConvertiblePair(sourceType, targetType));
 		}
 
+		public Set<ConvertiblePair> getConvertiblePairs() {
+			return this.converters.keySet();
+		}
+
 		/**
 		 * Find a {@link GenericConverter} given a source and target type.
 		 * <p>This method will attempt to match all possible converters by working
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,10 @@ import org.springframework.lang.Nullable;
  * caching a {@link MetadataReader} instance per Spring {@link Resource} handle
  * (i.e. per ".class" file).
  *
+ * <p>Cache misses may be served from a {@link PersistentMetadataReaderCache}
+ * which survives JVM restarts, by default if the
+ * {@value PersistentMetadataReaderCache#CACHE_FILE_PROPERTY_NAME} property is set.
+ *
  * @author Juergen Hoeller
  * @author Costin Leau
  * @since 2.5
@@ -44,6 +48,10 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 	@Nullable
 	private Map<Resource, MetadataReader> metadataReaderCache;
 
+	/** Persistent cache for metadata which could not be found in the MetadataReader cache. */
+	@Nullable
+	private PersistentMetadataReaderCache persistentCache = PersistentMetadataReaderCache.getSharedInstance();
+
 
 	/**
 	 * Create a new CachingMetadataReaderFactory for the default class loader,
@@ -114,13 +122,34 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 	}
 
 
+	/**
+	 * Specify a persistent cache to consult for metadata which is not present
+	 * in the MetadataReader cache yet, or {@code null} for none.
+	 * <p>Default is the {@linkplain PersistentMetadataReaderCache#getSharedInstance()
+	 * shared instance}, if any.
+	 * @since 5.2
+	 */
+	public void setPersistentCache(@Nullable PersistentMetadataReaderCache persistentCache) {
+		this.persistentCache = persistentCache;
+	}
+
+	/**
+	 * Return the persistent cache to consult for metadata, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public PersistentMetadataReaderCache getPersistentCache() {
+		return this.persistentCache;
+	}
+
+
 	@Override
 	public MetadataReader getMetadataReader(Resource resource) throws IOException {
 		if (this.metadataReaderCache instanceof ConcurrentMap) {
 			// No synchronization necessary...
 			MetadataReader metadataReader = this.metadataReaderCache.get(resource);
 			if (metadataReader == null) {
-				metadataReader = super.getMetadataReader(resource);
+				metadataReader = obtainMetadataReader(resource);
 				this.metadataReaderCache.put(resource, metadataReader);
 			}
 			return metadataReader;
@@ -129,21 +158,32 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 			synchronized (this.metadataReaderCache) {
 				MetadataReader metadataReader = this.metadataReaderCache.get(resource);
 				if (metadataReader == null) {
-					metadataReader = super.getMetadataReader(resource);
+					metadataReader = obtainMetadataReader(resource);
 					this.metadataReaderCache.put(resource, metadataReader);
 				}
 				return metadataReader;
 			}
 		}
 		else {
-			return super.getMetadataReader(resource);
+			return obtainMetadataReader(resource);
 		}
 	}
 
+	private MetadataReader obtainMetadataReader(Resource resource) throws IOException {
+		if (this.persistentCache != null) {
+			return this.persistentCache.getMetadataReader(resource, getResourceLoader().getClassLoader());
+		}
+		return super.getMetadataReader(resource);
+	}
+
 	/**
 	 * Clear the local MetadataReader cache, if any, removing all cached class metadata.
+	 * <p>Newly parsed metadata gets flushed to the persistent cache, if any.
 	 */
 	public void clearCache() {
+		if (this.persistentCache != null) {
+			this.persistentCache.flush();
+		}
 		if (this.metadataReaderCache instanceof LocalResourceCache) {
 			synchronized (this.metadataReaderCache) {
 				this.metadataReaderCache.clear();
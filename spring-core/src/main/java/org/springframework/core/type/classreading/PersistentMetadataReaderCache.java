@@ -0,0 +1,997 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+/**
+ * Persistent cache for {@link MetadataReader} instances, surviving JVM restarts.
+ * Entries are keyed by resource URL plus the last-modified timestamp and size
+ * of the underlying file (or jar file and entry), and stored in a file which is
+ * memory-mapped on startup.
+ *
+ * <p>Rather than class metadata objects, the cache stores the sequence of ASM
+ * visitor events that the metadata is built from: replaying those events into a
+ * fresh {@link AnnotationMetadataReadingVisitor} produces metadata identical to
+ * bytecode parsing, with class values, enums and meta-annotations resolved
+ * against the current ClassLoader, but without reading or parsing class files.
+ *
+ * <p>New entries are kept in memory until {@link #flush()}, at which point they
+ * get appended to the cache file under a lock on a separate lock file, allowing
+ * for several JVMs to share the same cache file. Once the cache file consists of
+ * more superseded than current entries, it gets compacted: the current entries are
+ * written to a new file which then replaces the cache file, leaving the previous
+ * file intact for readers that still have it mapped. A {@link CachingMetadataReaderFactory} flushes
+ * its persistent cache when its local cache gets cleared, i.e. typically at the
+ * end of application context startup.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see CachingMetadataReaderFactory#setPersistentCache
+ */
+public class PersistentMetadataReaderCache {
+
+	/**
+	 * System property that specifies the location of a cache file to be used
+	 * by default by all {@link CachingMetadataReaderFactory} instances.
+	 * <p>The default is none, i.e. no persistent cache.
+	 * @see #getSharedInstance()
+	 */
+	public static final String CACHE_FILE_PROPERTY_NAME = "spring.metadata.cache.file";
+
+	private static final int MAGIC = 0x534d5243;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 8;
+
+	/** The minimum number of superseded entries in the cache file before it gets compacted. */
+	private static final int MIN_SUPERSEDED_ENTRIES_FOR_COMPACTION = 128;
+
+	private static final byte END = 0;
+
+	private static final byte CLASS = 1;
+
+	private static final byte OUTER_CLASS = 2;
+
+	private static final byte INNER_CLASS = 3;
+
+	private static final byte ANNOTATION = 4;
+
+	private static final byte METHOD = 5;
+
+	private static final byte VALUE = 6;
+
+	private static final byte ENUM = 7;
+
+	private static final byte ARRAY = 8;
+
+	private static final byte VALUE_STRING = 1;
+
+	private static final byte VALUE_TYPE = 2;
+
+	private static final byte VALUE_BOOLEAN = 3;
+
+	private static final byte VALUE_BYTE = 4;
+
+	private static final byte VALUE_CHAR = 5;
+
+	private static final byte VALUE_SHORT = 6;
+
+	private static final byte VALUE_INT = 7;
+
+	private static final byte VALUE_LONG = 8;
+
+	private static final byte VALUE_FLOAT = 9;
+
+	private static final byte VALUE_DOUBLE = 10;
+
+	private static final byte VALUE_ARRAY = 11;
+
+	private static final Log logger = LogFactory.getLog(PersistentMetadataReaderCache.class);
+
+	private static final ConcurrentMap<String, PersistentMetadataReaderCache> sharedInstances =
+			new ConcurrentHashMap<>();
+
+
+	private final File cacheFile;
+
+	/** Entries loaded from the cache file or already flushed to it. */
+	private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>(256);
+
+	/** Entries recorded in this JVM, not flushed to the cache file yet. */
+	private final Map<String, CacheEntry> pendingEntries = new LinkedHashMap<>();
+
+	/** Monitor for writing to the cache file: file locks are held per JVM. */
+	private final Object writeMonitor = new Object();
+
+	/** The number of entries in the cache file as far as known, including superseded ones. */
+	private int fileEntryCount;
+
+
+	/**
+	 * Create a new PersistentMetadataReaderCache for the given file,
+	 * loading all existing entries from it.
+	 * @param cacheFile the cache file (does not need to exist yet)
+	 */
+	public PersistentMetadataReaderCache(File cacheFile) {
+		this.cacheFile = cacheFile;
+		load();
+	}
+
+
+	/**
+	 * Return the cache file that this cache is backed by.
+	 */
+	public File getCacheFile() {
+		return this.cacheFile;
+	}
+
+	/**
+	 * Return the number of entries currently available, including pending ones.
+	 */
+	public int size() {
+		synchronized (this.pendingEntries) {
+			int size = this.entries.size();
+			for (String key : this.pendingEntries.keySet()) {
+				if (!this.entries.containsKey(key)) {
+					size++;
+				}
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * Obtain a MetadataReader for the given resource, replaying cached metadata
+	 * if the resource has not changed since, or parsing the class file otherwise.
+	 * @param resource the resource (pointing to a ".class" file)
+	 * @param classLoader the ClassLoader to resolve class values and annotations against
+	 * @return the MetadataReader for the resource (never {@code null})
+	 * @throws IOException in case of I/O failure
+	 */
+	public MetadataReader getMetadataReader(Resource resource, @Nullable ClassLoader classLoader)
+			throws IOException {
+
+		String key;
+		long lastModified;
+		long size;
+		try {
+			key = resource.getURL().toString();
+			lastModified = resource.lastModified();
+			size = resource.contentLength();
+		}
+		catch (IOException ex) {
+			// Not backed by a file or jar entry: no change detection possible...
+			return new SimpleMetadataReader(resource, classLoader);
+		}
+
+		CacheEntry entry = getEntry(key);
+		if (entry != null && entry.lastModified == lastModified && entry.size == size) {
+			AnnotationMetadataReadingVisitor visitor = new AnnotationMetadataReadingVisitor(classLoader);
+			try {
+				replay(entry.getData(), visitor);
+				return new SimpleMetadataReader(resource, visitor);
+			}
+			catch (IOException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring corrupt metadata cache entry for " + resource + ": " + ex);
+				}
+			}
+		}
+
+		AnnotationMetadataReadingVisitor visitor = new AnnotationMetadataReadingVisitor(classLoader);
+		ByteArrayOutputStream recorded = new ByteArrayOutputStream(512);
+		RecordingClassVisitor recorder = new RecordingClassVisitor(visitor, new DataOutputStream(recorded));
+		SimpleMetadataReader.getClassReader(resource).accept(recorder, ClassReader.SKIP_DEBUG);
+		IOException failure = recorder.getFailure();
+		if (failure == null) {
+			synchronized (this.pendingEntries) {
+				this.pendingEntries.put(key, new CacheEntry(lastModified, size, ByteBuffer.wrap(recorded.toByteArray())));
+			}
+		}
+		else if (logger.isDebugEnabled()) {
+			// E.g. a String constant exceeding the limits of modified UTF-8
+			logger.debug("Not caching metadata for " + resource + ": " + failure);
+		}
+		return new SimpleMetadataReader(resource, visitor);
+	}
+
+	/**
+	 * Append all entries recorded since the last flush to the cache file,
+	 * compacting the cache file if it mostly consists of superseded entries.
+	 * <p>Failures are logged rather than propagated: the cache file is a pure
+	 * optimization which gets rebuilt if unusable.
+	 */
+	public void flush() {
+		Map<String, CacheEntry> toFlush;
+		synchronized (this.pendingEntries) {
+			if (this.pendingEntries.isEmpty()) {
+				return;
+			}
+			toFlush = new LinkedHashMap<>(this.pendingEntries);
+			this.pendingEntries.clear();
+		}
+		try {
+			File parent = this.cacheFile.getAbsoluteFile().getParentFile();
+			if (parent != null && !parent.exists()) {
+				parent.mkdirs();
+			}
+			synchronized (this.writeMonitor) {
+				try (RandomAccessFile lockFile = new RandomAccessFile(getLockFile(), "rw");
+						FileChannel lockChannel = lockFile.getChannel()) {
+					FileLock lock = lockChannel.lock();
+					try {
+						write(toFlush);
+					}
+					finally {
+						lock.release();
+					}
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Flushed " + toFlush.size() + " metadata entries to " + this.cacheFile);
+			}
+		}
+		catch (IOException ex) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Could not write metadata cache file " + this.cacheFile + ": " + ex);
+			}
+		}
+		this.entries.putAll(toFlush);
+	}
+
+	private File getLockFile() {
+		return new File(this.cacheFile.getPath() + ".lock");
+	}
+
+	/**
+	 * Write the given entries to the cache file, either appending them or
+	 * replacing the cache file with a compacted one. The cache file is never
+	 * truncated since it may be memory-mapped, by this JVM or by others.
+	 * To be called with the file lock held.
+	 */
+	private void write(Map<String, CacheEntry> toFlush) throws IOException {
+		Map<String, CacheEntry> current = null;
+		try (RandomAccessFile file = new RandomAccessFile(this.cacheFile, "rw");
+				FileChannel channel = file.getChannel()) {
+			if (channel.size() >= HEADER_SIZE && hasValidHeader(channel)) {
+				if (!isCompactionRequired(toFlush)) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream(toFlush.size() * 512);
+					int count = writeEntries(toFlush, new DataOutputStream(out));
+					channel.write(ByteBuffer.wrap(out.toByteArray()), channel.size());
+					this.fileEntryCount += count;
+					return;
+				}
+				// Current content of the cache file, including entries from other JVMs
+				ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) < 0) {
+						break;
+					}
+				}
+				buffer.flip();
+				buffer.position(HEADER_SIZE);
+				current = new LinkedHashMap<>();
+				readEntries(buffer, current);
+			}
+		}
+		if (current == null) {
+			current = new LinkedHashMap<>();
+		}
+		current.putAll(toFlush);
+		replaceCacheFile(current);
+		this.entries.putAll(current);
+	}
+
+	/**
+	 * Determine whether the cache file consists of more superseded entries
+	 * than current ones after flushing the given entries.
+	 */
+	private boolean isCompactionRequired(Map<String, CacheEntry> toFlush) {
+		int currentCount = this.entries.size();
+		for (String key : toFlush.keySet()) {
+			if (!this.entries.containsKey(key)) {
+				currentCount++;
+			}
+		}
+		int supersededCount = this.fileEntryCount + toFlush.size() - currentCount;
+		return (supersededCount > Math.max(currentCount, MIN_SUPERSEDED_ENTRIES_FOR_COMPACTION));
+	}
+
+	private void replaceCacheFile(Map<String, CacheEntry> entries) throws IOException {
+		File parent = this.cacheFile.getAbsoluteFile().getParentFile();
+		File tempFile = File.createTempFile(this.cacheFile.getName(), ".tmp", parent);
+		try {
+			int count;
+			try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tempFile.toPath()))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				count = writeEntries(entries, out);
+			}
+			// Atomic replacement: readers keep a consistent view of the previous file
+			Files.move(tempFile.toPath(), this.cacheFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			this.fileEntryCount = count;
+		}
+		finally {
+			Files.deleteIfExists(tempFile.toPath());
+		}
+	}
+
+	/**
+	 * Write the given entries to the given output, skipping entries whose
+	 * key cannot be represented in modified UTF-8.
+	 * @return the number of entries written
+	 */
+	private static int writeEntries(Map<String, CacheEntry> entries, DataOutputStream out) throws IOException {
+		int count = 0;
+		for (Map.Entry<String, CacheEntry> mapEntry : entries.entrySet()) {
+			CacheEntry entry = mapEntry.getValue();
+			ByteBuffer buffer = entry.getData();
+			ByteArrayOutputStream key = new ByteArrayOutputStream(mapEntry.getKey().length() + 2);
+			try {
+				new DataOutputStream(key).writeUTF(mapEntry.getKey());
+			}
+			catch (UTFDataFormatException ex) {
+				continue;
+			}
+			key.writeTo(out);
+			out.writeLong(entry.lastModified);
+			out.writeLong(entry.size);
+			byte[] data = new byte[buffer.remaining()];
+			buffer.get(data);
+			out.writeInt(data.length);
+			out.write(data);
+			count++;
+		}
+		out.flush();
+		return count;
+	}
+
+	@Nullable
+	private CacheEntry getEntry(String key) {
+		synchronized (this.pendingEntries) {
+			CacheEntry entry = this.pendingEntries.get(key);
+			if (entry != null) {
+				return entry;
+			}
+		}
+		return this.entries.get(key);
+	}
+
+	private void load() {
+		if (!this.cacheFile.isFile()) {
+			return;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(this.cacheFile, "r");
+				FileChannel channel = file.getChannel()) {
+			if (channel.size() < HEADER_SIZE || !hasValidHeader(channel)) {
+				if (logger.isInfoEnabled()) {
+					logger.info("Ignoring invalid metadata cache file " + this.cacheFile);
+				}
+				return;
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.position(HEADER_SIZE);
+			this.fileEntryCount = readEntries(buffer, this.entries);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Loaded " + this.entries.size() + " metadata entries from " + this.cacheFile);
+			}
+		}
+		catch (IOException ex) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Could not read metadata cache file " + this.cacheFile + ": " + ex);
+			}
+		}
+	}
+
+	/**
+	 * Read all entries from the given buffer into the given map,
+	 * with later entries for the same resource superseding earlier ones.
+	 * @return the number of entries read, including superseded ones
+	 */
+	private static int readEntries(ByteBuffer buffer, Map<String, CacheEntry> entries) {
+		DataInputStream data = new DataInputStream(new ByteBufferInputStream(buffer));
+		int count = 0;
+		while (buffer.hasRemaining()) {
+			try {
+				String key = data.readUTF();
+				long lastModified = data.readLong();
+				long size = data.readLong();
+				int length = data.readInt();
+				if (length < 0 || length > buffer.remaining()) {
+					break;
+				}
+				ByteBuffer slice = buffer.slice();
+				slice.limit(length);
+				buffer.position(buffer.position() + length);
+				entries.put(key, new CacheEntry(lastModified, size, slice));
+				count++;
+			}
+			catch (IOException ex) {
+				// Truncated entry at the end, e.g. from an interrupted write
+				break;
+			}
+		}
+		return count;
+	}
+
+	private static boolean hasValidHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		channel.read(header, 0);
+		header.flip();
+		return (header.remaining() == HEADER_SIZE && header.getInt() == MAGIC && header.getInt() == VERSION);
+	}
+
+
+	/**
+	 * Return the shared cache instance for the file specified through the
+	 * {@value #CACHE_FILE_PROPERTY_NAME} property, if any.
+	 * @return the shared cache, or {@code null} if no cache file has been specified
+	 */
+	@Nullable
+	public static PersistentMetadataReaderCache getSharedInstance() {
+		String location = SpringProperties.getProperty(CACHE_FILE_PROPERTY_NAME);
+		if (location == null || location.isEmpty()) {
+			return null;
+		}
+		return sharedInstances.computeIfAbsent(location, path -> new PersistentMetadataReaderCache(new File(path)));
+	}
+
+
+	// Replaying recorded visitor events
+
+	private static void replay(ByteBuffer data, ClassVisitor visitor) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteBufferInputStream(data));
+		byte event;
+		while ((event = in.readByte()) != END) {
+			switch (event) {
+				case CLASS:
+					visitor.visit(in.readInt(), in.readInt(), in.readUTF(),
+							readNullableString(in), readNullableString(in), readStrings(in));
+					break;
+				case OUTER_CLASS:
+					visitor.visitOuterClass(in.readUTF(), readNullableString(in), readNullableString(in));
+					break;
+				case INNER_CLASS:
+					visitor.visitInnerClass(in.readUTF(), readNullableString(in), readNullableString(in), in.readInt());
+					break;
+				case ANNOTATION:
+					replayAnnotation(in, visitor.visitAnnotation(in.readUTF(), in.readBoolean()));
+					break;
+				case METHOD:
+					MethodVisitor methodVisitor = visitor.visitMethod(in.readInt(), in.readUTF(), in.readUTF(),
+							readNullableString(in), readStrings(in));
+					while (in.readByte() == ANNOTATION) {
+						String desc = in.readUTF();
+						boolean visible = in.readBoolean();
+						replayAnnotation(in, methodVisitor != null ? methodVisitor.visitAnnotation(desc, visible) : null);
+					}
+					if (methodVisitor != null) {
+						methodVisitor.visitEnd();
+					}
+					break;
+				default:
+					throw new IOException("Corrupt metadata cache entry: unexpected event " + event);
+			}
+		}
+		visitor.visitEnd();
+	}
+
+	private static void replayAnnotation(DataInputStream in, @Nullable AnnotationVisitor visitor) throws IOException {
+		byte event;
+		while ((event = in.readByte()) != END) {
+			String name = readNullableString(in);
+			switch (event) {
+				case VALUE:
+					Object value = readValue(in);
+					if (visitor != null) {
+						visitor.visit(name, value);
+					}
+					break;
+				case ENUM:
+					String desc = in.readUTF();
+					String enumValue = in.readUTF();
+					if (visitor != null) {
+						visitor.visitEnum(name, desc, enumValue);
+					}
+					break;
+				case ANNOTATION:
+					String nestedDesc = in.readUTF();
+					replayAnnotation(in, visitor != null ? visitor.visitAnnotation(name, nestedDesc) : null);
+					break;
+				case ARRAY:
+					replayAnnotation(in, visitor != null ? visitor.visitArray(name) : null);
+					break;
+				default:
+					throw new IOException("Corrupt metadata cache entry: unexpected event " + event);
+			}
+		}
+		if (visitor != null) {
+			visitor.visitEnd();
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case VALUE_STRING:
+				return in.readUTF();
+			case VALUE_TYPE:
+				return Type.getType(in.readUTF());
+			case VALUE_BOOLEAN:
+				return in.readBoolean();
+			case VALUE_BYTE:
+				return in.readByte();
+			case VALUE_CHAR:
+				return in.readChar();
+			case VALUE_SHORT:
+				return in.readShort();
+			case VALUE_INT:
+				return in.readInt();
+			case VALUE_LONG:
+				return in.readLong();
+			case VALUE_FLOAT:
+				return in.readFloat();
+			case VALUE_DOUBLE:
+				return in.readDouble();
+			case VALUE_ARRAY:
+				Class<?> componentType = primitiveTypeFor(in.readByte());
+				int length = in.readInt();
+				Object array = Array.newInstance(componentType, length);
+				for (int i = 0; i < length; i++) {
+					Array.set(array, i, readValue(in));
+				}
+				return array;
+			default:
+				throw new IOException("Corrupt metadata cache entry: unexpected value type " + type);
+		}
+	}
+
+	private static Class<?> primitiveTypeFor(byte type) throws IOException {
+		switch (type) {
+			case VALUE_BOOLEAN:
+				return boolean.class;
+			case VALUE_BYTE:
+				return byte.class;
+			case VALUE_CHAR:
+				return char.class;
+			case VALUE_SHORT:
+				return short.class;
+			case VALUE_INT:
+				return int.class;
+			case VALUE_LONG:
+				return long.class;
+			case VALUE_FLOAT:
+				return float.class;
+			case VALUE_DOUBLE:
+				return double.class;
+			default:
+				throw new IOException("Corrupt metadata cache entry: unexpected array type " + type);
+		}
+	}
+
+	@Nullable
+	private static String readNullableString(DataInputStream in) throws IOException {
+		return (in.readBoolean() ? in.readUTF() : null);
+	}
+
+	@Nullable
+	private static String[] readStrings(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		String[] values = new String[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = in.readUTF();
+		}
+		return values;
+	}
+
+
+	// Recording visitor events
+
+	private static void writeNullableString(DataOutputStream out, @Nullable String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static void writeStrings(DataOutputStream out, @Nullable String[] values) throws IOException {
+		if (values == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(values.length);
+		for (String value : values) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value instanceof String) {
+			out.writeByte(VALUE_STRING);
+			out.writeUTF((String) value);
+		}
+		else if (value instanceof Type) {
+			out.writeByte(VALUE_TYPE);
+			out.writeUTF(((Type) value).getDescriptor());
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(VALUE_BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Byte) {
+			out.writeByte(VALUE_BYTE);
+			out.writeByte((Byte) value);
+		}
+		else if (value instanceof Character) {
+			out.writeByte(VALUE_CHAR);
+			out.writeChar((Character) value);
+		}
+		else if (value instanceof Short) {
+			out.writeByte(VALUE_SHORT);
+			out.writeShort((Short) value);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(VALUE_INT);
+			out.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			out.writeByte(VALUE_LONG);
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof Float) {
+			out.writeByte(VALUE_FLOAT);
+			out.writeFloat((Float) value);
+		}
+		else if (value instanceof Double) {
+			out.writeByte(VALUE_DOUBLE);
+			out.writeDouble((Double) value);
+		}
+		else if (value.getClass().isArray() && value.getClass().getComponentType().isPrimitive()) {
+			int length = Array.getLength(value);
+			out.writeByte(VALUE_ARRAY);
+			out.writeByte(valueTypeFor(value.getClass().getComponentType()));
+			out.writeInt(length);
+			for (int i = 0; i < length; i++) {
+				writeValue(out, Array.get(value, i));
+			}
+		}
+		else {
+			throw new IOException("Unsupported annotation value type [" + value.getClass().getName() + "]");
+		}
+	}
+
+	private static byte valueTypeFor(Class<?> primitiveType) {
+		if (primitiveType == boolean.class) {
+			return VALUE_BOOLEAN;
+		}
+		else if (primitiveType == byte.class) {
+			return VALUE_BYTE;
+		}
+		else if (primitiveType == char.class) {
+			return VALUE_CHAR;
+		}
+		else if (primitiveType == short.class) {
+			return VALUE_SHORT;
+		}
+		else if (primitiveType == int.class) {
+			return VALUE_INT;
+		}
+		else if (primitiveType == long.class) {
+			return VALUE_LONG;
+		}
+		else if (primitiveType == float.class) {
+			return VALUE_FLOAT;
+		}
+		else {
+			return VALUE_DOUBLE;
+		}
+	}
+
+
+	/**
+	 * Cached metadata for a single resource.
+	 */
+	private static final class CacheEntry {
+
+		final long lastModified;
+
+		final long size;
+
+		private final ByteBuffer data;
+
+		CacheEntry(long lastModified, long size, ByteBuffer data) {
+			this.lastModified = lastModified;
+			this.size = size;
+			this.data = data;
+		}
+
+		ByteBuffer getData() {
+			// Independent position for concurrent readers
+			return this.data.duplicate();
+		}
+	}
+
+
+	/**
+	 * InputStream over the remaining content of a ByteBuffer.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return (this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1);
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, this.buffer.remaining());
+			this.buffer.get(bytes, off, count);
+			return count;
+		}
+	}
+
+
+	/**
+	 * ClassVisitor which records all events relevant for class metadata
+	 * while delegating them to the target visitor.
+	 */
+	private static final class RecordingClassVisitor extends ClassVisitor {
+
+		private final DataOutputStream out;
+
+		@Nullable
+		private IOException failure;
+
+		RecordingClassVisitor(ClassVisitor delegate, DataOutputStream out) {
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+			this.out = out;
+		}
+
+		/**
+		 * Return the failure that prevented recording, if any,
+		 * in which case the recorded events are incomplete.
+		 */
+		@Nullable
+		IOException getFailure() {
+			return this.failure;
+		}
+
+		void record(RecordingAction action) {
+			if (this.failure == null) {
+				try {
+					action.record(this.out);
+				}
+				catch (IOException ex) {
+					this.failure = ex;
+				}
+			}
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			record(out -> {
+				out.writeByte(CLASS);
+				out.writeInt(version);
+				out.writeInt(access);
+				out.writeUTF(name);
+				writeNullableString(out, signature);
+				writeNullableString(out, superName);
+				writeStrings(out, interfaces);
+			});
+			super.visit(version, access, name, signature, superName, interfaces);
+		}
+
+		@Override
+		public void visitOuterClass(String owner, String name, String desc) {
+			record(out -> {
+				out.writeByte(OUTER_CLASS);
+				out.writeUTF(owner);
+				writeNullableString(out, name);
+				writeNullableString(out, desc);
+			});
+			super.visitOuterClass(owner, name, desc);
+		}
+
+		@Override
+		public void visitInnerClass(String name, String outerName, String innerName, int access) {
+			record(out -> {
+				out.writeByte(INNER_CLASS);
+				out.writeUTF(name);
+				writeNullableString(out, outerName);
+				writeNullableString(out, innerName);
+				out.writeInt(access);
+			});
+			super.visitInnerClass(name, outerName, innerName, access);
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+			record(out -> {
+				out.writeByte(ANNOTATION);
+				out.writeUTF(desc);
+				out.writeBoolean(visible);
+			});
+			return new RecordingAnnotationVisitor(this, super.visitAnnotation(desc, visible));
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+			record(out -> {
+				out.writeByte(METHOD);
+				out.writeInt(access);
+				out.writeUTF(name);
+				out.writeUTF(desc);
+				writeNullableString(out, signature);
+				writeStrings(out, exceptions);
+			});
+			return new RecordingMethodVisitor(this, super.visitMethod(access, name, desc, signature, exceptions));
+		}
+
+		@Override
+		public void visitEnd() {
+			record(out -> out.writeByte(END));
+			super.visitEnd();
+		}
+	}
+
+
+	/**
+	 * MethodVisitor which records method annotations only.
+	 */
+	private static final class RecordingMethodVisitor extends MethodVisitor {
+
+		private final RecordingClassVisitor recorder;
+
+		RecordingMethodVisitor(RecordingClassVisitor recorder, @Nullable MethodVisitor delegate) {
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+			this.recorder = recorder;
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+			this.recorder.record(out -> {
+				out.writeByte(ANNOTATION);
+				out.writeUTF(desc);
+				out.writeBoolean(visible);
+			});
+			return new RecordingAnnotationVisitor(this.recorder, super.visitAnnotation(desc, visible));
+		}
+
+		@Override
+		public void visitEnd() {
+			this.recorder.record(out -> out.writeByte(END));
+			super.visitEnd();
+		}
+	}
+
+
+	/**
+	 * AnnotationVisitor which records all attribute values, including nested ones.
+	 */
+	private static final class RecordingAnnotationVisitor extends AnnotationVisitor {
+
+		private final RecordingClassVisitor recorder;
+
+		RecordingAnnotationVisitor(RecordingClassVisitor recorder, @Nullable AnnotationVisitor delegate) {
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+			this.recorder = recorder;
+		}
+
+		@Override
+		public void visit(String name, Object value) {
+			this.recorder.record(out -> {
+				out.writeByte(VALUE);
+				writeNullableString(out, name);
+				writeValue(out, value);
+			});
+			super.visit(name, value);
+		}
+
+		@Override
+		public void visitEnum(String name, String desc, String value) {
+			this.recorder.record(out -> {
+				out.writeByte(ENUM);
+				writeNullableString(out, name);
+				out.writeUTF(desc);
+				out.writeUTF(value);
+			});
+			super.visitEnum(name, desc, value);
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String name, String desc) {
+			this.recorder.record(out -> {
+				out.writeByte(ANNOTATION);
+				writeNullableString(out, name);
+				out.writeUTF(desc);
+			});
+			return new RecordingAnnotationVisitor(this.recorder, super.visitAnnotation(name, desc));
+		}
+
+		@Override
+		public AnnotationVisitor visitArray(String name) {
+			this.recorder.record(out -> {
+				out.writeByte(ARRAY);
+				writeNullableString(out, name);
+			});
+			return new RecordingAnnotationVisitor(this.recorder, super.visitArray(name));
+		}
+
+		@Override
+		public void visitEnd() {
+			this.recorder.record(out -> out.writeByte(END));
+			super.visitEnd();
+		}
+	}
+
+
+	/**
+	 * Callback for writing a single event.
+	 */
+	@FunctionalInterface
+	private interface RecordingAction {
+
+		void record(DataOutputStream out) throws IOException;
+	}
+
+}
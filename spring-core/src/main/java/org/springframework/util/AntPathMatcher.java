@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -75,7 +75,7 @@ public class AntPathMatcher implements PathMatcher {
 	/** Default path separator: "/". */
 	public static final String DEFAULT_PATH_SEPARATOR = "/";
 
-	private static final int CACHE_TURNOFF_THRESHOLD = 65536;
+	private static final int DEFAULT_CACHE_LIMIT = 65536;
 
 	private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{[^/]+?\\}");
 
@@ -93,9 +93,9 @@ public class AntPathMatcher implements PathMatcher {
 	@Nullable
 	private volatile Boolean cachePatterns;
 
-	private final Map<String, String[]> tokenizedPatternCache = new ConcurrentHashMap<>(256);
+	private volatile Map<String, String[]> tokenizedPatternCache = createBoundedCache();
 
-	final Map<String, AntPathStringMatcher> stringMatcherCache = new ConcurrentHashMap<>(256);
+	volatile Map<String, AntPathStringMatcher> stringMatcherCache = createBoundedCache();
 
 
 	/**
@@ -149,21 +149,28 @@ public class AntPathMatcher implements PathMatcher {
 	 * into this matcher's {@link #match} method. A value of {@code true}
 	 * activates an unlimited pattern cache; a value of {@code false} turns
 	 * the pattern cache off completely.
-	 * <p>Default is for the cache to be on, but with the variant to automatically
-	 * turn it off when encountering too many patterns to cache at runtime
-	 * (the threshold is 65536), assuming that arbitrary permutations of patterns
-	 * are coming in, with little chance for encountering a recurring pattern.
+	 * <p>Default is for the cache to be on, but bounded: when encountering too
+	 * many patterns to cache at runtime (the limit is 65536), the least recently
+	 * used patterns are evicted, so that recurring patterns remain cached even if
+	 * arbitrary permutations of patterns are coming in as well.
 	 * @since 4.0.1
 	 * @see #getStringMatcher(String)
 	 */
 	public void setCachePatterns(boolean cachePatterns) {
 		this.cachePatterns = cachePatterns;
+		if (cachePatterns) {
+			this.tokenizedPatternCache = new ConcurrentHashMap<>(256);
+			this.stringMatcherCache = new ConcurrentHashMap<>(256);
+		}
+		else {
+			this.tokenizedPatternCache.clear();
+			this.stringMatcherCache.clear();
+		}
 	}
 
-	private void deactivatePatternCache() {
-		this.cachePatterns = false;
-		this.tokenizedPatternCache.clear();
-		this.stringMatcherCache.clear();
+	private static <V> Map<String, V> createBoundedCache() {
+		return new ConcurrentReferenceHashMap<>(256, 0.75f, 16,
+				ConcurrentReferenceHashMap.ReferenceType.SOFT, DEFAULT_CACHE_LIMIT);
 	}
 
 
@@ -386,13 +393,6 @@ public class AntPathMatcher implements PathMatcher {
 		}
 		if (tokenized == null) {
 			tokenized = tokenizePath(pattern);
-			if (cachePatterns == null && this.tokenizedPatternCache.size() >= CACHE_TURNOFF_THRESHOLD) {
-				// Try to adapt to the runtime situation that we're encountering:
-				// There are obviously too many different patterns coming in here...
-				// So let's turn off the cache since the patterns are unlikely to be reoccurring.
-				deactivatePatternCache();
-				return tokenized;
-			}
 			if (cachePatterns == null || cachePatterns.booleanValue()) {
 				this.tokenizedPatternCache.put(pattern, tokenized);
 			}
@@ -426,9 +426,8 @@ public class AntPathMatcher implements PathMatcher {
 	 * <p>The default implementation checks this AntPathMatcher's internal cache
 	 * (see {@link #setCachePatterns}), creating a new AntPathStringMatcher instance
 	 * if no cached copy is found.
-	 * <p>When encountering too many patterns to cache at runtime (the threshold is 65536),
-	 * it turns the default cache off, assuming that arbitrary permutations of patterns
-	 * are coming in, with little chance for encountering a recurring pattern.
+	 * <p>When encountering too many patterns to cache at runtime (the limit is 65536),
+	 * the default cache evicts the least recently used patterns.
 	 * <p>This method may be overridden to implement a custom cache strategy.
 	 * @param pattern the pattern to match against (never {@code null})
 	 * @return a corresponding AntPathStringMatcher (never {@code null})
@@ -442,13 +441,6 @@ public class AntPathMatcher implements PathMatcher {
 		}
 		if (matcher == null) {
 			matcher = new AntPathStringMatcher(pattern, this.caseSensitive);
-			if (cachePatterns == null && this.stringMatcherCache.size() >= CACHE_TURNOFF_THRESHOLD) {
-				// Try to adapt to the runtime situation that we're encountering:
-				// There are obviously too many different patterns coming in here...
-				// So let's turn off the cache since the patterns are unlikely to be reoccurring.
-				deactivatePatternCache();
-				return matcher;
-			}
 			if (cachePatterns == null || cachePatterns.booleanValue()) {
 				this.stringMatcherCache.put(pattern, matcher);
 			}
@@ -621,6 +613,8 @@ public class AntPathMatcher implements PathMatcher {
 	 * Tests whether or not a string matches against a pattern via a {@link Pattern}.
 	 * <p>The pattern may contain special characters: '*' means zero or more characters; '?' means one and
 	 * only one character; '{' and '}' indicate a URI template pattern. For example <tt>/users/{user}</tt>.
+	 * <p>Patterns without URI template variables are matched without a regular expression,
+	 * following the same rules as the equivalent {@link Pattern}.
 	 */
 	protected static class AntPathStringMatcher {
 
@@ -628,8 +622,14 @@ public class AntPathMatcher implements PathMatcher {
 
 		private static final String DEFAULT_VARIABLE_PATTERN = "(.*)";
 
+		@Nullable
 		private final Pattern pattern;
 
+		@Nullable
+		private final String wildcardPattern;
+
+		private final boolean caseSensitive;
+
 		private final List<String> variableNames = new LinkedList<>();
 
 		public AntPathStringMatcher(String pattern) {
@@ -637,6 +637,14 @@ public class AntPathMatcher implements PathMatcher {
 		}
 
 		public AntPathStringMatcher(String pattern, boolean caseSensitive) {
+			this.caseSensitive = caseSensitive;
+			if (pattern.indexOf('{') == -1 && pattern.indexOf('}') == -1) {
+				// Literal text with '*' and '?' wildcards at most: no regular expression needed
+				this.pattern = null;
+				this.wildcardPattern = pattern;
+				return;
+			}
+			this.wildcardPattern = null;
 			StringBuilder patternBuilder = new StringBuilder();
 			Matcher matcher = GLOB_PATTERN.matcher(pattern);
 			int end = 0;
@@ -683,6 +691,10 @@ public class AntPathMatcher implements PathMatcher {
 		 * @return {@code true} if the string matches against the pattern, or {@code false} otherwise.
 		 */
 		public boolean matchStrings(String str, @Nullable Map<String, String> uriTemplateVariables) {
+			if (this.wildcardPattern != null) {
+				return (this.caseSensitive && this.wildcardPattern.equals(str)) || matchWildcards(this.wildcardPattern, str);
+			}
+			Assert.state(this.pattern != null, "No pattern");
 			Matcher matcher = this.pattern.matcher(str);
 			if (matcher.matches()) {
 				if (uriTemplateVariables != null) {
@@ -705,6 +717,59 @@ public class AntPathMatcher implements PathMatcher {
 				return false;
 			}
 		}
+
+		/**
+		 * Match the given string against a pattern consisting of literal text and
+		 * '*' and '?' wildcards, backtracking to the last '*' on a mismatch. As with
+		 * the corresponding regular expression, wildcards do not match line terminators,
+		 * and case-insensitive matching applies to US-ASCII characters only.
+		 */
+		private boolean matchWildcards(String pattern, String str) {
+			int patternIndex = 0;
+			int strIndex = 0;
+			int starIndex = -1;
+			int starStrIndex = 0;
+			while (strIndex < str.length()) {
+				char c = (patternIndex < pattern.length() ? pattern.charAt(patternIndex) : 0);
+				if (patternIndex < pattern.length() && c == '*') {
+					starIndex = patternIndex++;
+					starStrIndex = strIndex;
+				}
+				else if (patternIndex < pattern.length() && c == '?' && !isLineTerminator(str.charAt(strIndex))) {
+					patternIndex++;
+					strIndex += Character.charCount(str.codePointAt(strIndex));
+				}
+				else if (patternIndex < pattern.length() && c != '?' && charsMatch(c, str.charAt(strIndex))) {
+					patternIndex++;
+					strIndex++;
+				}
+				else if (starIndex != -1 && !isLineTerminator(str.charAt(starStrIndex))) {
+					patternIndex = starIndex + 1;
+					strIndex = ++starStrIndex;
+				}
+				else {
+					return false;
+				}
+			}
+			while (patternIndex < pattern.length() && pattern.charAt(patternIndex) == '*') {
+				patternIndex++;
+			}
+			return (patternIndex == pattern.length());
+		}
+
+		private boolean charsMatch(char patternChar, char strChar) {
+			if (patternChar == strChar) {
+				return true;
+			}
+			if (this.caseSensitive || patternChar >= 128 || strChar >= 128) {
+				return false;
+			}
+			return (Character.toLowerCase(patternChar) == Character.toLowerCase(strChar));
+		}
+
+		private static boolean isLineTerminator(char c) {
+			return (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029');
+		}
 	}
 
 
@@ -28,10 +28,13 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.lang.Nullable;
@@ -54,6 +57,21 @@ import org.springframework.lang.Nullable;
  * <p>If not explicitly specified, this implementation will use
  * {@linkplain SoftReference soft entry references}.
  *
+ * <p>A {@linkplain #ConcurrentReferenceHashMap(int, float, int, ReferenceType, int)
+ * maximum size} may be specified in order to bound the map independently of
+ * garbage collection. Once a segment exceeds its share of the maximum size,
+ * entries that have not been accessed recently are evicted, following an
+ * approximate LRU (clock) policy per segment. The number of evicted entries
+ * is exposed via {@link #getEvictionCount()}; hit and miss
+ * {@linkplain #getHitCount() counts} are exposed as well if
+ * {@linkplain #ConcurrentReferenceHashMap(int, float, int, ReferenceType, int, boolean)
+ * statistics recording} has been enabled. Neither access tracking nor statistics
+ * add any overhead to read operations on a map without these options.
+ *
+ * <p>Read operations do not block: references that have been garbage collected
+ * are purged on read only if the segment is not locked by a concurrent writer,
+ * leaving the purge to the next write otherwise.
+ *
  * @author Phillip Webb
  * @author Juergen Hoeller
  * @since 3.2
@@ -95,6 +113,22 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 	 */
 	private final int shift;
 
+	/**
+	 * The maximum number of entries per segment, or 0 if unbounded.
+	 */
+	private final int maximumSegmentSize;
+
+	/**
+	 * Whether to count hits and misses on lookups.
+	 */
+	private final boolean recordStats;
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
 	/**
 	 * Late binding entry set.
 	 */
@@ -167,18 +201,63 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 	 * write to the map
 	 * @param referenceType the reference type used for entries (soft or weak)
 	 */
-	@SuppressWarnings("unchecked")
 	public ConcurrentReferenceHashMap(
 			int initialCapacity, float loadFactor, int concurrencyLevel, ReferenceType referenceType) {
 
+		this(initialCapacity, loadFactor, concurrencyLevel, referenceType, 0);
+	}
+
+	/**
+	 * Create a new {@code ConcurrentReferenceHashMap} instance.
+	 * @param initialCapacity the initial capacity of the map
+	 * @param loadFactor the load factor. When the average number of references per
+	 * table exceeds this value, resize will be attempted.
+	 * @param concurrencyLevel the expected number of threads that will concurrently
+	 * write to the map
+	 * @param referenceType the reference type used for entries (soft or weak)
+	 * @param maximumSize the approximate maximum number of entries, or 0 for an
+	 * unbounded map. The limit is enforced per segment, based on an even share of
+	 * the maximum size, so the map may hold up to one entry per segment more than
+	 * specified; consider a lower concurrency level for small maximum sizes.
+	 * @since 5.2
+	 */
+	public ConcurrentReferenceHashMap(int initialCapacity, float loadFactor, int concurrencyLevel,
+			ReferenceType referenceType, int maximumSize) {
+
+		this(initialCapacity, loadFactor, concurrencyLevel, referenceType, maximumSize, false);
+	}
+
+	/**
+	 * Create a new {@code ConcurrentReferenceHashMap} instance.
+	 * @param initialCapacity the initial capacity of the map
+	 * @param loadFactor the load factor. When the average number of references per
+	 * table exceeds this value, resize will be attempted.
+	 * @param concurrencyLevel the expected number of threads that will concurrently
+	 * write to the map
+	 * @param referenceType the reference type used for entries (soft or weak)
+	 * @param maximumSize the approximate maximum number of entries, or 0 for an
+	 * unbounded map
+	 * @param recordStats whether to count hits and misses on lookups, at the
+	 * expense of updating shared counters on every read operation
+	 * @since 5.2
+	 * @see #getHitCount()
+	 * @see #getMissCount()
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentReferenceHashMap(int initialCapacity, float loadFactor, int concurrencyLevel,
+			ReferenceType referenceType, int maximumSize, boolean recordStats) {
+
 		Assert.isTrue(initialCapacity >= 0, "Initial capacity must not be negative");
 		Assert.isTrue(loadFactor > 0f, "Load factor must be positive");
 		Assert.isTrue(concurrencyLevel > 0, "Concurrency level must be positive");
 		Assert.notNull(referenceType, "Reference type must not be null");
+		Assert.isTrue(maximumSize >= 0, "Maximum size must not be negative");
 		this.loadFactor = loadFactor;
 		this.shift = calculateShift(concurrencyLevel, MAXIMUM_CONCURRENCY_LEVEL);
 		int size = 1 << this.shift;
 		this.referenceType = referenceType;
+		this.maximumSegmentSize = (int) ((maximumSize + size - 1L) / size);
+		this.recordStats = recordStats;
 		int roundedUpSegmentCapacity = (int) ((initialCapacity + size - 1L) / size);
 		int initialSize = 1 << calculateShift(roundedUpSegmentCapacity, MAXIMUM_SEGMENT_SIZE);
 		Segment[] segments = (Segment[]) Array.newInstance(Segment.class, size);
@@ -202,6 +281,39 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 		return this.segments[index];
 	}
 
+	/**
+	 * Return the number of lookups that found an entry.
+	 * <p>Always 0 unless statistics recording has been enabled.
+	 * @since 5.2
+	 * @see #get
+	 * @see #getOrDefault
+	 * @see #containsKey
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of lookups that did not find an entry.
+	 * <p>Always 0 unless statistics recording has been enabled.
+	 * @since 5.2
+	 * @see #get
+	 * @see #getOrDefault
+	 * @see #containsKey
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of entries evicted because the maximum size was exceeded,
+	 * not including entries that have been garbage collected.
+	 * @since 5.2
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
 	/**
 	 * Factory method that returns the {@link ReferenceManager}.
 	 * This method will be called once for each {@link Segment}.
@@ -252,7 +364,15 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 	@Nullable
 	private Entry<K, V> getEntryIfAvailable(@Nullable Object key) {
 		Reference<K, V> ref = getReference(key, Restructure.WHEN_NECESSARY);
-		return (ref != null ? ref.get() : null);
+		Entry<K, V> entry = (ref != null ? ref.get() : null);
+		if (this.recordStats) {
+			(entry != null ? this.hitCount : this.missCount).increment();
+		}
+		// Access flag only needed for eviction
+		if (entry != null && this.maximumSegmentSize > 0 && !entry.accessed) {
+			entry.accessed = true;
+		}
+		return entry;
 	}
 
 	/**
@@ -485,6 +605,17 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 		 */
 		private int resizeThreshold;
 
+		/**
+		 * References polled for purging by a reader which could not obtain the lock,
+		 * to be purged by the next restructure.
+		 */
+		private final Queue<Reference<K, V>> deferredPurges = new ConcurrentLinkedQueue<>();
+
+		/**
+		 * The index of the references array where the next eviction scan starts.
+		 */
+		private int evictionIndex;
+
 		public Segment(int initialSize, int resizeThreshold) {
 			this.referenceManager = createReferenceManager();
 			this.initialSize = initialSize;
@@ -495,7 +626,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 		@Nullable
 		public Reference<K, V> getReference(@Nullable Object key, int hash, Restructure restructure) {
 			if (restructure == Restructure.WHEN_NECESSARY) {
-				restructureIfNecessary(false);
+				purgeIfPossible();
 			}
 			if (this.count.get() == 0) {
 				return null;
@@ -533,11 +664,14 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 				Entries<V> entries = value -> {
 					@SuppressWarnings("unchecked")
 					Entry<K, V> newEntry = new Entry<>((K) key, value);
+					newEntry.accessed = true;
 					Reference<K, V> newReference = Segment.this.referenceManager.createReference(newEntry, hash, head);
 					Segment.this.references[index] = newReference;
 					Segment.this.count.incrementAndGet();
 				};
-				return task.execute(ref, entry, entries);
+				T result = task.execute(ref, entry, entries);
+				evictIfNecessary();
+				return result;
 			}
 			finally {
 				unlock();
@@ -559,6 +693,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 				this.references = createReferenceArray(this.initialSize);
 				this.resizeThreshold = (int) (this.references.length * getLoadFactor());
 				this.count.set(0);
+				this.evictionIndex = 0;
 			}
 			finally {
 				unlock();
@@ -574,64 +709,144 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 		protected final void restructureIfNecessary(boolean allowResize) {
 			int currCount = this.count.get();
 			boolean needsResize = (currCount > 0 && currCount >= this.resizeThreshold);
-			Reference<K, V> ref = this.referenceManager.pollForPurge();
+			Reference<K, V> ref = pollForPurge();
 			if (ref != null || (needsResize && allowResize)) {
 				lock();
 				try {
-					int countAfterRestructure = this.count.get();
-					Set<Reference<K, V>> toPurge = Collections.emptySet();
-					if (ref != null) {
-						toPurge = new HashSet<>();
-						while (ref != null) {
-							toPurge.add(ref);
-							ref = this.referenceManager.pollForPurge();
-						}
+					restructure(ref, allowResize);
+				}
+				finally {
+					unlock();
+				}
+			}
+		}
+
+		/**
+		 * Purge any references that have been garbage collected, unless the segment
+		 * is locked by another thread. Never blocks, so suitable for read operations:
+		 * if the lock is not available, the purge is deferred to the next restructure.
+		 */
+		private void purgeIfPossible() {
+			Reference<K, V> ref = pollForPurge();
+			if (ref != null) {
+				if (tryLock()) {
+					try {
+						restructure(ref, false);
 					}
-					countAfterRestructure -= toPurge.size();
-
-					// Recalculate taking into account count inside lock and items that
-					// will be purged
-					needsResize = (countAfterRestructure > 0 && countAfterRestructure >= this.resizeThreshold);
-					boolean resizing = false;
-					int restructureSize = this.references.length;
-					if (allowResize && needsResize && restructureSize < MAXIMUM_SEGMENT_SIZE) {
-						restructureSize <<= 1;
-						resizing = true;
+					finally {
+						unlock();
 					}
+				}
+				else {
+					this.deferredPurges.add(ref);
+				}
+			}
+		}
 
-					// Either create a new table or reuse the existing one
-					Reference<K, V>[] restructured =
-							(resizing ? createReferenceArray(restructureSize) : this.references);
+		@Nullable
+		private Reference<K, V> pollForPurge() {
+			Reference<K, V> ref = this.deferredPurges.poll();
+			return (ref != null ? ref : this.referenceManager.pollForPurge());
+		}
 
-					// Restructure
-					for (int i = 0; i < this.references.length; i++) {
-						ref = this.references[i];
-						if (!resizing) {
-							restructured[i] = null;
-						}
-						while (ref != null) {
-							if (!toPurge.contains(ref)) {
-								Entry<K, V> entry = ref.get();
-								if (entry != null) {
-									int index = getIndex(ref.getHash(), restructured);
-									restructured[index] = this.referenceManager.createReference(
-											entry, ref.getHash(), restructured[index]);
-								}
-							}
-							ref = ref.getNext();
+		/**
+		 * Restructure the underlying data structure, purging the given reference and
+		 * any further references to purge, and resizing the table if necessary and
+		 * permitted. Must be called with the segment lock held.
+		 * @param ref the first reference to purge (or {@code null})
+		 * @param allowResize if resizing is permitted
+		 */
+		private void restructure(@Nullable Reference<K, V> ref, boolean allowResize) {
+			int countAfterRestructure = this.count.get();
+			Set<Reference<K, V>> toPurge = Collections.emptySet();
+			if (ref != null) {
+				toPurge = new HashSet<>();
+				while (ref != null) {
+					toPurge.add(ref);
+					ref = pollForPurge();
+				}
+			}
+			countAfterRestructure -= toPurge.size();
+
+			// Recalculate taking into account count inside lock and items that
+			// will be purged
+			boolean needsResize = (countAfterRestructure > 0 && countAfterRestructure >= this.resizeThreshold);
+			boolean resizing = false;
+			int restructureSize = this.references.length;
+			if (allowResize && needsResize && restructureSize < MAXIMUM_SEGMENT_SIZE) {
+				restructureSize <<= 1;
+				resizing = true;
+			}
+
+			// Either create a new table or reuse the existing one
+			Reference<K, V>[] restructured =
+					(resizing ? createReferenceArray(restructureSize) : this.references);
+
+			// Restructure
+			for (int i = 0; i < this.references.length; i++) {
+				ref = this.references[i];
+				if (!resizing) {
+					restructured[i] = null;
+				}
+				while (ref != null) {
+					if (!toPurge.contains(ref)) {
+						Entry<K, V> entry = ref.get();
+						if (entry != null) {
+							int index = getIndex(ref.getHash(), restructured);
+							restructured[index] = this.referenceManager.createReference(
+									entry, ref.getHash(), restructured[index]);
 						}
 					}
+					ref = ref.getNext();
+				}
+			}
 
-					// Replace volatile members
-					if (resizing) {
-						this.references = restructured;
-						this.resizeThreshold = (int) (this.references.length * getLoadFactor());
+			// Replace volatile members
+			if (resizing) {
+				this.references = restructured;
+				this.resizeThreshold = (int) (this.references.length * getLoadFactor());
+				this.evictionIndex = 0;
+			}
+			this.count.set(Math.max(countAfterRestructure, 0));
+		}
+
+		/**
+		 * Evict entries if this segment exceeds its share of the maximum size,
+		 * down to seven eighths of it so that eviction work is amortized across
+		 * subsequent additions. Entries are selected in clock order: an entry that
+		 * has been accessed since the last scan gets its access flag cleared and
+		 * survives, otherwise it is evicted. Must be called with the segment lock held.
+		 */
+		private void evictIfNecessary() {
+			int maximumSize = ConcurrentReferenceHashMap.this.maximumSegmentSize;
+			int currCount = this.count.get();
+			if (maximumSize == 0 || currCount <= maximumSize) {
+				return;
+			}
+			int toEvict = currCount - (maximumSize - (maximumSize >> 3));
+			int evicted = 0;
+			Reference<K, V>[] references = this.references;
+			int index = this.evictionIndex;
+			// Two passes at most: the first one clears all access flags
+			for (int scanned = 0; scanned < references.length * 2 && evicted < toEvict; scanned++) {
+				for (Reference<K, V> ref = references[index]; ref != null && evicted < toEvict; ref = ref.getNext()) {
+					Entry<K, V> entry = ref.get();
+					if (entry != null) {
+						if (entry.accessed) {
+							entry.accessed = false;
+						}
+						else {
+							ref.release();
+							evicted++;
+						}
 					}
-					this.count.set(Math.max(countAfterRestructure, 0));
-				}
-				finally {
-					unlock();
 				}
+				index = (index + 1) & (references.length - 1);
+			}
+			this.evictionIndex = index;
+			if (evicted > 0) {
+				ConcurrentReferenceHashMap.this.evictionCount.add(evicted);
+				restructure(pollForPurge(), false);
 			}
 		}
 
@@ -724,6 +939,12 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 		@Nullable
 		private volatile V value;
 
+		/**
+		 * Whether the entry has been accessed since the last eviction scan.
+		 * Deliberately not volatile: an approximation is good enough.
+		 */
+		private boolean accessed;
+
 		public Entry(@Nullable K key, @Nullable V value) {
 			this.key = key;
 			this.value = value;
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link AnnotationIndex}, including the lookups of
+ * {@link AnnotatedElementUtils} that it is used for.
+ *
+ * @author Agent Local
+ */
+public class AnnotationIndexTests {
+
+	@Test
+	public void directlyDeclaredAnnotation() {
+		AnnotationIndex index = AnnotationIndex.forElement(PlainClass.class);
+		assertTrue(index.isPresent(Plain.class));
+		assertTrue(index.isPresent(Plain.class.getName()));
+	}
+
+	@Test
+	public void metaAnnotation() {
+		AnnotationIndex index = AnnotationIndex.forElement(ComposedPlainClass.class);
+		assertTrue(index.isPresent(ComposedPlain.class));
+		assertTrue(index.isPresent(Plain.class));
+		assertTrue(index.isPresent(Plain.class.getName()));
+	}
+
+	@Test
+	public void transitiveMetaAnnotations() {
+		AnnotationIndex index = AnnotationIndex.forElement(MyGetMappingClass.class);
+		assertTrue(index.isPresent(MyGetMapping.class));
+		assertTrue(index.isPresent(GetMapping.class));
+		assertTrue(index.isPresent(Mapping.class));
+		assertFalse(index.isPresent(Plain.class));
+	}
+
+	@Test
+	public void absentAnnotation() {
+		AnnotationIndex index = AnnotationIndex.forElement(PlainClass.class);
+		assertFalse(index.isPresent(Mapping.class));
+		assertFalse(index.isPresent(Mapping.class.getName()));
+		assertNull(AnnotatedElementUtils.findMergedAnnotation(PlainClass.class, Mapping.class));
+		assertNull(AnnotatedElementUtils.getMergedAnnotationAttributes(PlainClass.class, Mapping.class.getName()));
+		assertFalse(AnnotatedElementUtils.hasAnnotation(PlainClass.class, Mapping.class));
+		assertFalse(AnnotatedElementUtils.isAnnotated(PlainClass.class, Mapping.class));
+	}
+
+	@Test
+	public void javaLangAnnotationTypesNotIndexed() {
+		AnnotationIndex index = AnnotationIndex.forElement(PlainClass.class);
+		assertFalse(index.isPresent(Retention.class));
+		assertFalse(index.isPresent(Target.class));
+	}
+
+	@Test
+	public void annotationsOnSuperclassAndInterface() {
+		AnnotationIndex index = AnnotationIndex.forElement(SubClass.class);
+		assertTrue(index.isPresent(Plain.class));
+		assertTrue(index.isPresent(GetMapping.class));
+		assertTrue(index.isPresent(Mapping.class));
+		assertEquals("interface", AnnotatedElementUtils.findMergedAnnotation(SubClass.class, Plain.class).value());
+		assertArrayEquals(new String[] {"/get"},
+				AnnotatedElementUtils.findMergedAnnotation(SubClass.class, Mapping.class).path());
+	}
+
+	@Test
+	public void annotationsOnOverriddenMethods() throws Exception {
+		Method method = SubClass.class.getMethod("handle");
+		AnnotationIndex index = AnnotationIndex.forElement(method);
+		assertTrue(index.isPresent(Mapping.class));
+		assertTrue(index.isPresent(Plain.class));
+		assertFalse(index.isPresent(MyGetMapping.class));
+		assertArrayEquals(new String[] {"/handle"},
+				AnnotatedElementUtils.findMergedAnnotation(method, Mapping.class).path());
+		assertFalse(AnnotatedElementUtils.isAnnotated(method, Mapping.class));
+		assertTrue(AnnotatedElementUtils.hasAnnotation(method, Mapping.class));
+	}
+
+	@Test
+	public void mergedAnnotationRetained() {
+		Mapping mapping = AnnotatedElementUtils.findMergedAnnotation(MyGetMappingClass.class, Mapping.class);
+		assertArrayEquals(new String[] {"/mine"}, mapping.path());
+		assertEquals("GET", mapping.method());
+		assertSame(mapping, AnnotatedElementUtils.findMergedAnnotation(MyGetMappingClass.class, Mapping.class));
+
+		GetMapping getMapping = AnnotatedElementUtils.getMergedAnnotation(MyGetMappingClass.class, GetMapping.class);
+		assertArrayEquals(new String[] {"/mine"}, getMapping.value());
+		assertSame(getMapping, AnnotatedElementUtils.getMergedAnnotation(MyGetMappingClass.class, GetMapping.class));
+	}
+
+	@Test
+	public void mergedAttributesExposedAsCopies() {
+		AnnotationAttributes attributes =
+				AnnotatedElementUtils.getMergedAnnotationAttributes(MyGetMappingClass.class, Mapping.class);
+		assertArrayEquals(new String[] {"/mine"}, attributes.getStringArray("path"));
+		attributes.getStringArray("path")[0] = "/changed";
+		attributes.put("method", "POST");
+
+		attributes = AnnotatedElementUtils.getMergedAnnotationAttributes(MyGetMappingClass.class, Mapping.class);
+		assertArrayEquals(new String[] {"/mine"}, attributes.getStringArray("path"));
+		assertEquals("GET", attributes.getString("method"));
+		assertArrayEquals(new String[] {"/mine"}, AnnotatedElementUtils.findMergedAnnotationAttributes(
+				MyGetMappingClass.class, Mapping.class, false, false).getStringArray("path"));
+	}
+
+	@Test
+	public void mergedResultsRetainedPerSemantics() {
+		assertEquals("interface", AnnotatedElementUtils.findMergedAnnotation(SubClass.class, Plain.class).value());
+		assertNull(AnnotatedElementUtils.getMergedAnnotation(SubClass.class, Plain.class));
+		assertNull(AnnotatedElementUtils.getMergedAnnotationAttributes(SubClass.class, Plain.class));
+		assertEquals("interface", AnnotatedElementUtils.findMergedAnnotationAttributes(
+				SubClass.class, Plain.class, false, false).getString("value"));
+	}
+
+	@Test
+	public void mergedResultsNotRetainedForOtherRepresentations() {
+		AnnotationAttributes attributes = AnnotatedElementUtils.findMergedAnnotationAttributes(
+				MyGetMappingClass.class, Mapping.class, false, false);
+		assertArrayEquals(new String[] {"/mine"}, attributes.getStringArray("path"));
+		attributes = AnnotatedElementUtils.findMergedAnnotationAttributes(
+				MyGetMappingClass.class, Mapping.class, true, true);
+		assertArrayEquals(new String[] {"/mine"}, attributes.getStringArray("path"));
+		assertNull(AnnotatedElementUtils.findMergedAnnotationAttributes(
+				PlainClass.class, Mapping.class, true, true));
+	}
+
+	@Test
+	public void searchFailureNotRetained() {
+		assertTrue(AnnotationIndex.forElement(ConflictingMappingClass.class).isPresent(Mapping.class));
+		for (int i = 0; i < 2; i++) {
+			try {
+				AnnotatedElementUtils.findMergedAnnotationAttributes(ConflictingMappingClass.class, Mapping.class, false, false);
+				fail("Should have thrown AnnotationConfigurationException");
+			}
+			catch (AnnotationConfigurationException ex) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void indexCached() {
+		AnnotationIndex index = AnnotationIndex.forElement(GetMappingClass.class);
+		assertSame(index, AnnotationIndex.forElement(GetMappingClass.class));
+		Mapping mapping = AnnotatedElementUtils.findMergedAnnotation(GetMappingClass.class, Mapping.class);
+		assertSame(mapping, AnnotatedElementUtils.findMergedAnnotation(GetMappingClass.class, Mapping.class));
+		AnnotationUtils.clearCache();
+		assertNotSame(index, AnnotationIndex.forElement(GetMappingClass.class));
+		assertNotSame(mapping, AnnotatedElementUtils.findMergedAnnotation(GetMappingClass.class, Mapping.class));
+		assertEquals(mapping, AnnotatedElementUtils.findMergedAnnotation(GetMappingClass.class, Mapping.class));
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	@interface Plain {
+
+		String value() default "";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	@Plain("composed")
+	@interface ComposedPlain {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	@interface Mapping {
+
+		@AliasFor("path")
+		String[] value() default {};
+
+		@AliasFor("value")
+		String[] path() default {};
+
+		String method() default "";
+
+		String name() default "";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	@Mapping(method = "GET", name = "composed")
+	@interface GetMapping {
+
+		@AliasFor(annotation = Mapping.class)
+		String[] path() default {};
+
+		@AliasFor(annotation = Mapping.class, attribute = "path")
+		String[] value() default {};
+
+		String name() default "composed";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	@GetMapping
+	@interface MyGetMapping {
+
+		@AliasFor(annotation = GetMapping.class, attribute = "path")
+		String[] route() default {};
+	}
+
+	@Plain("plain")
+	static class PlainClass {
+	}
+
+	@ComposedPlain
+	static class ComposedPlainClass {
+	}
+
+	@Mapping(value = "/a", path = "/b")
+	static class ConflictingMappingClass {
+	}
+
+	@GetMapping("/get")
+	static class GetMappingClass {
+	}
+
+	@MyGetMapping(route = "/mine")
+	static class MyGetMappingClass {
+	}
+
+	@Plain("interface")
+	interface PlainInterface {
+
+		@Plain("handler")
+		@GetMapping("/handle")
+		void handle();
+	}
+
+	static class SubClass extends GetMappingClass implements PlainInterface {
+
+		@Override
+		public void handle() {
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -456,6 +456,44 @@ public class GenericConversionServiceTests {
 		assertFalse(conversionService.canConvert(String.class, Color.class));
 	}
 
+	@Test
+	public void freeze() {
+		MyConditionalConverter converter = new MyConditionalConverter();
+		conversionService.addConverter(new ColorConverter());
+		conversionService.addConverter(converter);
+		assertFalse(conversionService.isFrozen());
+		conversionService.freeze();
+		assertTrue(conversionService.isFrozen());
+		int matchAttempts = converter.getMatchAttempts();
+		assertTrue(matchAttempts > 0);
+		assertEquals(Color.BLACK, conversionService.convert("#000000", Color.class));
+		assertEquals(matchAttempts, converter.getMatchAttempts());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void addConverterWhenFrozen() {
+		conversionService.freeze();
+		conversionService.addConverter(new ColorConverter());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void removeConvertibleWhenFrozen() {
+		conversionService.addConverter(new ColorConverter());
+		conversionService.freeze();
+		conversionService.removeConvertible(String.class, Color.class);
+	}
+
+	@Test
+	public void conditionalConverterCachingForPlainAndAnnotatedTypes() throws Exception {
+		conversionService.addConverter(new ColorConverter());
+		conversionService.addConverter(new MyConditionalColorConverter());
+
+		assertEquals(Color.BLACK, conversionService.convert(" #000000 ", Color.class));
+		assertEquals(Color.BLACK, conversionService.convert("000000xxxx",
+				new TypeDescriptor(getClass().getField("activeColor"))));
+		assertEquals(Color.BLACK, conversionService.convert("  #000000  ", Color.class));
+	}
+
 	@Test
 	public void conditionalConverter() {
 		MyConditionalConverter converter = new MyConditionalConverter();
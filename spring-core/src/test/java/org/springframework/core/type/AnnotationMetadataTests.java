@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.core.type;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.Documented;
@@ -23,17 +25,27 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.net.URL;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import org.springframework.core.annotation.AliasFor;
 import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.PersistentMetadataReaderCache;
 import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.stereotype.Component;
 
@@ -51,6 +63,10 @@ import static org.junit.Assert.*;
  */
 public class AnnotationMetadataTests {
 
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
 	@Test
 	public void standardAnnotationMetadata() throws Exception {
 		AnnotationMetadata metadata = new StandardAnnotationMetadata(AnnotatedComponent.class, true);
@@ -67,6 +83,83 @@ public class AnnotationMetadataTests {
 		doTestMethodAnnotationInfo(metadata);
 	}
 
+	@Test
+	public void persistentCacheAnnotationMetadata() throws Exception {
+		File cacheFile = new File(this.temporaryFolder.getRoot(), "metadata.cache");
+		CachingMetadataReaderFactory metadataReaderFactory = new CachingMetadataReaderFactory();
+		metadataReaderFactory.setPersistentCache(new PersistentMetadataReaderCache(cacheFile));
+		doTestAnnotationInfo(metadataReaderFactory.getMetadataReader(
+				AnnotatedComponent.class.getName()).getAnnotationMetadata());
+		metadataReaderFactory.clearCache();
+		assertThat(cacheFile.isFile(), is(true));
+
+		// Replayed from the cache file rather than parsed
+		PersistentMetadataReaderCache persistentCache = new PersistentMetadataReaderCache(cacheFile);
+		assertThat(persistentCache.size(), is(1));
+		metadataReaderFactory = new CachingMetadataReaderFactory();
+		metadataReaderFactory.setPersistentCache(persistentCache);
+		MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(AnnotatedComponent.class.getName());
+		AnnotationMetadata metadata = metadataReader.getAnnotationMetadata();
+		doTestAnnotationInfo(metadata);
+		doTestMethodAnnotationInfo(metadata);
+		assertThat(persistentCache.size(), is(1));
+	}
+
+	@Test
+	public void persistentCacheCompactsSupersededEntries() throws Exception {
+		File classFile = this.temporaryFolder.newFile("AnnotatedComponent.class");
+		Files.write(classFile.toPath(), getClassFileContent());
+		Resource resource = new FileSystemResource(classFile);
+		File cacheFile = new File(this.temporaryFolder.getRoot(), "metadata.cache");
+		PersistentMetadataReaderCache persistentCache = new PersistentMetadataReaderCache(cacheFile);
+		persistentCache.getMetadataReader(resource, getClass().getClassLoader());
+		persistentCache.flush();
+		long entryLength = cacheFile.length() - 8;
+
+		long lastModified = classFile.lastModified();
+		for (int i = 1; i <= 300; i++) {
+			assertTrue(classFile.setLastModified(lastModified + i * 1000L));
+			persistentCache.getMetadataReader(resource, getClass().getClassLoader());
+			persistentCache.flush();
+		}
+		assertTrue(cacheFile.length() < 8 + 200 * entryLength);
+
+		persistentCache = new PersistentMetadataReaderCache(cacheFile);
+		assertThat(persistentCache.size(), is(1));
+		AnnotationMetadata metadata = persistentCache.getMetadataReader(resource, getClass().getClassLoader()).getAnnotationMetadata();
+		doTestAnnotationInfo(metadata);
+		assertThat(persistentCache.size(), is(1));
+	}
+
+	@Test
+	public void persistentCacheSkipsEntryWithOversizedKey() throws Exception {
+		StringBuilder path = new StringBuilder("file:/");
+		for (int i = 0; i < 70000; i++) {
+			path.append('x');
+		}
+		URL url = new URL(path.toString());
+		Resource resource = new ByteArrayResource(getClassFileContent()) {
+			@Override
+			public URL getURL() {
+				return url;
+			}
+			@Override
+			public long lastModified() {
+				return 1;
+			}
+		};
+		File cacheFile = new File(this.temporaryFolder.getRoot(), "metadata.cache");
+		PersistentMetadataReaderCache persistentCache = new PersistentMetadataReaderCache(cacheFile);
+		doTestAnnotationInfo(persistentCache.getMetadataReader(resource, getClass().getClassLoader()).getAnnotationMetadata());
+		persistentCache.flush();
+		assertThat(new PersistentMetadataReaderCache(cacheFile).size(), is(0));
+	}
+
+	private static byte[] getClassFileContent() throws IOException {
+		Resource resource = new ClassPathResource(AnnotatedComponent.class.getName().replace('.', '/') + ".class");
+		return Files.readAllBytes(resource.getFile().toPath());
+	}
+
 	@Test
 	public void standardAnnotationMetadataForSubclass() throws Exception {
 		AnnotationMetadata metadata = new StandardAnnotationMetadata(AnnotatedComponentSubClass.class, true);
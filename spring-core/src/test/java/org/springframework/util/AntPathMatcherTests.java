@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -608,6 +608,30 @@ public class AntPathMatcherTests {
 		assertTrue(pathMatcher.match("/group/{groupName}/members", "/group/sales/members"));
 		assertTrue(pathMatcher.match("/group/{groupName}/members", "/Group/Sales/Members"));
 		assertTrue(pathMatcher.match("/Group/{groupName}/Members", "/group/Sales/members"));
+		assertTrue(pathMatcher.match("/Group/*/Mem?ers", "/group/Sales/members"));
+		assertTrue(pathMatcher.match("/group/*.HTML", "/GROUP/index.html"));
+	}
+
+	@Test
+	public void wildcardSegmentsWithoutRegularExpression() {
+		AntPathMatcher.AntPathStringMatcher matcher = new AntPathMatcher.AntPathStringMatcher("a*b?c*");
+		assertTrue(matcher.matchStrings("abxc", null));
+		assertTrue(matcher.matchStrings("axxbbbxcyy", null));
+		assertFalse(matcher.matchStrings("abc", null));
+		assertFalse(matcher.matchStrings("Abxc", null));
+		assertFalse(matcher.matchStrings("a\nbxc", null));
+
+		matcher = new AntPathMatcher.AntPathStringMatcher("a*b?c*", false);
+		assertTrue(matcher.matchStrings("AXBXC", null));
+		assertFalse(matcher.matchStrings("\u00c4bxc", null));
+
+		matcher = new AntPathMatcher.AntPathStringMatcher("x?z");
+		assertTrue(matcher.matchStrings("x\ud83d\ude00z", null));
+		assertFalse(matcher.matchStrings("x\rz", null));
+
+		matcher = new AntPathMatcher.AntPathStringMatcher("a.b\\d");
+		assertTrue(matcher.matchStrings("a.b\\d", null));
+		assertFalse(matcher.matchStrings("axb\\d", null));
 	}
 
 	@Test
@@ -615,11 +639,12 @@ public class AntPathMatcherTests {
 		match();
 		assertTrue(pathMatcher.stringMatcherCache.size() > 20);
 
-		for (int i = 0; i < 65536; i++) {
+		for (int i = 0; i < 70000; i++) {
 			pathMatcher.match("test" + i, "test");
 		}
-		// Cache turned off because it went beyond the threshold
-		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+		// Cache still active but bounded, evicting the least recently used patterns
+		assertFalse(pathMatcher.stringMatcherCache.isEmpty());
+		assertTrue(pathMatcher.stringMatcherCache.size() <= 65536);
 	}
 
 	@Test
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -37,6 +38,7 @@ import org.junit.rules.ExpectedException;
 import org.springframework.lang.Nullable;
 import org.springframework.util.ConcurrentReferenceHashMap.Entry;
 import org.springframework.util.ConcurrentReferenceHashMap.Reference;
+import org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 import org.springframework.util.ConcurrentReferenceHashMap.Restructure;
 import org.springframework.util.comparator.ComparableComparator;
 import org.springframework.util.comparator.NullSafeComparator;
@@ -255,6 +257,105 @@ public class ConcurrentReferenceHashMapTests {
 		assertThat(this.map.get(5), is("5"));
 	}
 
+	@Test
+	public void shouldDeferPurgeOnGetWhileLocked() throws Exception {
+		this.map = new TestWeakConcurrentCache<>(1, 0.75f, 1);
+		for (int i = 1; i <= 5; i++) {
+			this.map.put(i, String.valueOf(i));
+		}
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread writer = new Thread(() -> {
+			this.map.getSegment(0).lock();
+			try {
+				locked.countDown();
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				this.map.getSegment(0).unlock();
+			}
+		});
+		writer.start();
+		locked.await();
+		this.map.getMockReference(1, Restructure.NEVER).queueForPurge();
+		assertThat(this.map.get(2), is("2"));
+		assertThat(this.map.getReference(1, Restructure.NEVER), is(notNullValue()));
+		release.countDown();
+		writer.join();
+		assertThat(this.map.get(2), is("2"));
+		assertThat(this.map.getReference(1, Restructure.NEVER), is(nullValue()));
+		assertThat(this.map.size(), is(4));
+	}
+
+	@Test
+	public void shouldNeedNonNegativeMaximumSize() {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("Maximum size must not be negative");
+		new ConcurrentReferenceHashMap<Integer, String>(16, 0.75f, 1, ReferenceType.SOFT, -1);
+	}
+
+	@Test
+	public void shouldEvictWhenMaximumSizeExceeded() {
+		ConcurrentReferenceHashMap<Integer, String> map =
+				new ConcurrentReferenceHashMap<>(16, 0.75f, 1, ReferenceType.SOFT, 8);
+		for (int i = 0; i < 100; i++) {
+			map.put(i, String.valueOf(i));
+			assertThat(map.size(), is(lessThanOrEqualTo(8)));
+		}
+		assertThat(map.get(99), is("99"));
+		assertThat(map.getEvictionCount(), is(92L));
+	}
+
+	@Test
+	public void shouldRetainRecentlyAccessedEntries() {
+		ConcurrentReferenceHashMap<Integer, String> map =
+				new ConcurrentReferenceHashMap<>(16, 0.75f, 1, ReferenceType.SOFT, 8);
+		for (int i = 100; i < 110; i++) {
+			map.put(i, String.valueOf(i));
+		}
+		map.put(0, "0");
+		for (int i = 1; i < 100; i++) {
+			map.put(i, String.valueOf(i));
+			assertThat(map.get(0), is("0"));
+		}
+		assertThat(map.getEvictionCount(), is(greaterThan(0L)));
+	}
+
+	@Test
+	public void shouldNotEvictWithoutMaximumSize() {
+		ConcurrentReferenceHashMap<Integer, String> map = new ConcurrentReferenceHashMap<>(16, 0.75f, 1);
+		for (int i = 0; i < 100; i++) {
+			map.put(i, String.valueOf(i));
+		}
+		assertThat(map.size(), is(100));
+		assertThat(map.getEvictionCount(), is(0L));
+	}
+
+	@Test
+	public void shouldCountHitsAndMissesWhenRecordingStats() {
+		ConcurrentReferenceHashMap<Integer, String> map =
+				new ConcurrentReferenceHashMap<>(16, 0.75f, 1, ReferenceType.SOFT, 0, true);
+		map.put(123, "123");
+		map.get(123);
+		map.getOrDefault(123, "x");
+		map.containsKey(123);
+		map.get(456);
+		assertThat(map.getHitCount(), is(3L));
+		assertThat(map.getMissCount(), is(1L));
+	}
+
+	@Test
+	public void shouldNotCountHitsAndMissesByDefault() {
+		this.map.put(123, "123");
+		this.map.get(123);
+		this.map.get(456);
+		assertThat(this.map.getHitCount(), is(0L));
+		assertThat(this.map.getMissCount(), is(0L));
+	}
+
 	@Test
 	public void shouldPutIfAbsent() {
 		assertThat(this.map.putIfAbsent(123, "123"), is(nullValue()));
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.expression.spel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Benchmarks for SpEL parsing and evaluation, in both interpreted
+ * and compiled mode.
+ *
+ * @author Agent Local
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SpelBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"OFF", "IMMEDIATE"})
+		public SpelCompilerMode compilerMode;
+
+		public ExpressionParser parser;
+
+		public EvaluationContext context;
+
+		public Expression propertyExpression;
+
+		public Expression methodExpression;
+
+		public Expression operatorExpression;
+
+		public Holder root = new Holder();
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.parser = new SpelExpressionParser(new SpelParserConfiguration(this.compilerMode, getClass().getClassLoader()));
+			this.context = new StandardEvaluationContext(this.root);
+			this.propertyExpression = this.parser.parseExpression("nested.name");
+			this.methodExpression = this.parser.parseExpression("nested.name.substring(1)");
+			this.operatorExpression = this.parser.parseExpression("count > 10 and nested.name != null");
+		}
+	}
+
+
+	@Benchmark
+	public Expression parse(BenchmarkData data) {
+		return data.parser.parseExpression("nested.name.substring(1)");
+	}
+
+	@Benchmark
+	public Object evaluatePropertyAccess(BenchmarkData data) {
+		return data.propertyExpression.getValue(data.context);
+	}
+
+	@Benchmark
+	public Object evaluateMethodInvocation(BenchmarkData data) {
+		return data.methodExpression.getValue(data.context);
+	}
+
+	@Benchmark
+	public Object evaluateOperators(BenchmarkData data) {
+		return data.operatorExpression.getValue(data.context, Boolean.class);
+	}
+
+
+	public static class Holder {
+
+		public int count = 42;
+
+		private final Nested nested = new Nested();
+
+		public int getCount() {
+			return this.count;
+		}
+
+		public Nested getNested() {
+			return this.nested;
+		}
+	}
+
+
+	public static class Nested {
+
+		public String getName() {
+			return "spring";
+		}
+	}
+
+}
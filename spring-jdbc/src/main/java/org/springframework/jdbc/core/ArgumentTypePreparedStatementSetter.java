@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -100,6 +100,13 @@ public class ArgumentTypePreparedStatementSetter implements PreparedStatementSet
 		StatementCreatorUtils.setParameterValue(ps, parameterPosition, argType, argValue);
 	}
 
+	/**
+	 * Return the number of arguments to set.
+	 */
+	int getParameterCount() {
+		return (this.args != null ? this.args.length : 0);
+	}
+
 	@Override
 	public void cleanupParameters() {
 		StatementCreatorUtils.cleanupParameters(this.args);
@@ -0,0 +1,560 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Variant of {@link BeanPropertyRowMapper} which resolves the column-to-property
+ * mapping once per result set shape and then populates each row through
+ * {@link MethodHandle MethodHandles} for the constructor and the setters,
+ * instead of a {@link org.springframework.beans.BeanWrapper} per row.
+ *
+ * <p>The mapping plan for a given mapped class and list of column names is
+ * computed on first use and kept in a cache shared by all mapper instances
+ * of the same type, so short-lived mappers (e.g. created per query through
+ * {@link #newInstance}) benefit from it as well. Primitive properties are read
+ * with the corresponding type-specific {@code ResultSet} getter and set without
+ * boxing, unless {@link #getColumnValue} has been overridden; other properties
+ * are read through {@link #getColumnValue} and only go through the
+ * {@link ConversionService} if the JDBC value is not already assignable to
+ * the property type.
+ *
+ * <p>Name matching, {@link #setCheckFullyPopulated "checkFullyPopulated"},
+ * {@link #setPrimitivesDefaultedForNullValue "primitivesDefaultedForNullValue"}
+ * and {@link #setConversionService "conversionService"} behave as in
+ * {@code BeanPropertyRowMapper}. Since no {@code BeanWrapper} is involved,
+ * {@link #initBeanWrapper} is not called.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @param <T> the result type
+ */
+public class CompiledBeanPropertyRowMapper<T> extends BeanPropertyRowMapper<T> {
+
+	/** Mapping plans per mapper type, mapped class and list of column names. */
+	private static final Map<MappingPlanKey, MappingPlan> mappingPlanCache = new ConcurrentReferenceHashMap<>(64);
+
+
+	/** Whether a subclass customizes column value retrieval, ruling out primitive getters. */
+	private final boolean columnValueOverridden = isColumnValueOverridden(getClass());
+
+	/** Compiled mapping state for the current mapped class. */
+	@Nullable
+	private volatile ClassMapping classMapping;
+
+	/** Fallback converter for values not handled by the ConversionService. */
+	@Nullable
+	private volatile SimpleTypeConverter typeConverter;
+
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper} for bean-style configuration.
+	 * @see #setMappedClass
+	 * @see #setCheckFullyPopulated
+	 */
+	public CompiledBeanPropertyRowMapper() {
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}, accepting unpopulated
+	 * properties in the target bean.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass) {
+		super(mappedClass);
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @param checkFullyPopulated whether we're strictly validating that
+	 * all bean properties have been mapped from corresponding database fields
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass, boolean checkFullyPopulated) {
+		super(mappedClass, checkFullyPopulated);
+	}
+
+
+	@Override
+	public void setConversionService(@Nullable ConversionService conversionService) {
+		super.setConversionService(conversionService);
+		this.typeConverter = null;
+	}
+
+	@Override
+	protected void initialize(Class<T> mappedClass) {
+		super.initialize(mappedClass);
+		this.classMapping = new ClassMapping(mappedClass);
+	}
+
+	/**
+	 * Extract the values for all columns in the current row.
+	 * <p>Utilizes the cached mapping plan for the column names of the given
+	 * ResultSet, computing it on first encounter.
+	 * @see java.sql.ResultSetMetaData
+	 */
+	@Override
+	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		ClassMapping classMapping = this.classMapping;
+		Assert.state(classMapping != null, "Mapped class was not specified");
+		MappingPlan plan = classMapping.getMappingPlan(rs);
+
+		if (!plan.fullyPopulated && isCheckFullyPopulated()) {
+			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
+					"necessary to populate object of class [" + classMapping.mappedClass.getName() + "]: " +
+					classMapping.mappedProperties);
+		}
+
+		T mappedObject = classMapping.instantiate();
+		for (ColumnMapping columnMapping : plan.columnMappings) {
+			try {
+				if (columnMapping.primitiveSetter != null && !this.columnValueOverridden) {
+					mapPrimitiveColumn(rs, mappedObject, columnMapping, columnMapping.primitiveSetter);
+				}
+				else {
+					mapColumn(rs, mappedObject, columnMapping);
+				}
+			}
+			catch (SQLException | RuntimeException | Error ex) {
+				throw ex;
+			}
+			catch (Throwable ex) {
+				throw new DataRetrievalFailureException("Unable to map column '" + columnMapping.column +
+						"' to property '" + columnMapping.pd.getName() + "'", ex);
+			}
+		}
+		return mappedObject;
+	}
+
+	/**
+	 * Map a column through {@link #getColumnValue}, converting the value
+	 * only if not assignable to the property type.
+	 */
+	private void mapColumn(ResultSet rs, Object mappedObject, ColumnMapping columnMapping) throws Throwable {
+		Object value = getColumnValue(rs, columnMapping.index, columnMapping.pd);
+		if (value != null && !columnMapping.valueType.isInstance(value)) {
+			value = convertValue(value, columnMapping);
+		}
+		if (value == null && columnMapping.primitiveSetter != null) {
+			handleNullForPrimitive(mappedObject, columnMapping);
+			return;
+		}
+		columnMapping.setter.invokeExact(mappedObject, value);
+	}
+
+	/**
+	 * Map a column to a primitive property, using the type-specific
+	 * ResultSet getter and a setter handle taking the primitive value.
+	 */
+	private void mapPrimitiveColumn(ResultSet rs, Object mappedObject, ColumnMapping columnMapping,
+			MethodHandle setter) throws Throwable {
+
+		Class<?> type = columnMapping.pd.getPropertyType();
+		int index = columnMapping.index;
+		if (type == int.class) {
+			int value = rs.getInt(index);
+			if (!rs.wasNull()) {
+				setter.invokeExact(mappedObject, value);
+				return;
+			}
+		}
+		else if (type == long.class) {
+			long value = rs.getLong(index);
+			if (!rs.wasNull()) {
+				setter.invokeExact(mappedObject, value);
+				return;
+			}
+		}
+		else if (type == boolean.class) {
+			boolean value = rs.getBoolean(index);
+			if (!rs.wasNull()) {
+				setter.invokeExact(mappedObject, value);
+				return;
+			}
+		}
+		else if (type == double.class) {
+			double value = rs.getDouble(index);
+			if (!rs.wasNull()) {
+				setter.invokeExact(mappedObject, value);
+				return;
+			}
+		}
+		else if (type == float.class) {
+			float value = rs.getFloat(index);
+			if (!rs.wasNull()) {
+				setter.invokeExact(mappedObject, value);
+				return;
+			}
+		}
+		else if (type == short.class) {
+			short value = rs.getShort(index);
+			if (!rs.wasNull()) {
+				setter.invokeExact(mappedObject, value);
+				return;
+			}
+		}
+		else if (type == byte.class) {
+			byte value = rs.getByte(index);
+			if (!rs.wasNull()) {
+				setter.invokeExact(mappedObject, value);
+				return;
+			}
+		}
+		else {
+			// char: no type-specific getter, convert from the String value
+			String value = rs.getString(index);
+			if (value != null) {
+				Object converted = convertValue(value, columnMapping);
+				if (converted != null) {
+					setter.invokeExact(mappedObject, ((Character) converted).charValue());
+					return;
+				}
+			}
+		}
+		handleNullForPrimitive(mappedObject, columnMapping);
+	}
+
+	/**
+	 * Convert the given JDBC value to the type of the given property,
+	 * using the configured {@link ConversionService} if possible.
+	 */
+	@Nullable
+	private Object convertValue(Object value, ColumnMapping columnMapping) {
+		ConversionService cs = getConversionService();
+		TypeDescriptor sourceType = TypeDescriptor.forObject(value);
+		if (cs != null && cs.canConvert(sourceType, columnMapping.targetType)) {
+			return cs.convert(value, sourceType, columnMapping.targetType);
+		}
+		SimpleTypeConverter typeConverter = this.typeConverter;
+		if (typeConverter == null) {
+			typeConverter = new SimpleTypeConverter();
+			if (cs != null) {
+				typeConverter.setConversionService(cs);
+			}
+			this.typeConverter = typeConverter;
+		}
+		// Default property editors are stateful, so no concurrent use
+		synchronized (typeConverter) {
+			return typeConverter.convertIfNecessary(
+					value, columnMapping.pd.getPropertyType(), columnMapping.methodParameter);
+		}
+	}
+
+	/**
+	 * Handle a {@code null} value for a primitive property, either leaving
+	 * the property at its default value or rejecting it.
+	 */
+	private void handleNullForPrimitive(Object mappedObject, ColumnMapping columnMapping) {
+		if (!isPrimitivesDefaultedForNullValue()) {
+			throw new TypeMismatchException(
+					new PropertyChangeEvent(mappedObject, columnMapping.pd.getName(), null, null),
+					columnMapping.pd.getPropertyType());
+		}
+	}
+
+
+	/**
+	 * Static factory method to create a new {@code CompiledBeanPropertyRowMapper}
+	 * (with the mapped class specified only once).
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public static <T> CompiledBeanPropertyRowMapper<T> newInstance(Class<T> mappedClass) {
+		return new CompiledBeanPropertyRowMapper<>(mappedClass);
+	}
+
+	private static boolean isColumnValueOverridden(Class<?> mapperClass) {
+		Method method = ReflectionUtils.findMethod(
+				mapperClass, "getColumnValue", ResultSet.class, int.class, PropertyDescriptor.class);
+		return (method != null && method.getDeclaringClass() != BeanPropertyRowMapper.class);
+	}
+
+
+	/**
+	 * Mapping state for one mapped class: constructor and writable properties.
+	 */
+	private class ClassMapping {
+
+		private final Class<T> mappedClass;
+
+		@Nullable
+		private final MethodHandle constructor;
+
+		private final Map<String, PropertyDescriptor> mappedFields = new HashMap<>();
+
+		private final Set<String> mappedProperties = new HashSet<>();
+
+		@Nullable
+		private volatile ResultSetPlan lastPlan;
+
+		public ClassMapping(Class<T> mappedClass) {
+			this.mappedClass = mappedClass;
+			this.constructor = findConstructor(mappedClass);
+			for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(mappedClass)) {
+				if (pd.getWriteMethod() != null) {
+					this.mappedFields.put(lowerCaseName(pd.getName()), pd);
+					String underscoredName = underscoreName(pd.getName());
+					if (!lowerCaseName(pd.getName()).equals(underscoredName)) {
+						this.mappedFields.put(underscoredName, pd);
+					}
+					this.mappedProperties.add(pd.getName());
+				}
+			}
+		}
+
+		@Nullable
+		private MethodHandle findConstructor(Class<T> mappedClass) {
+			if (mappedClass.isInterface() || Modifier.isAbstract(mappedClass.getModifiers())) {
+				return null;
+			}
+			try {
+				Constructor<T> ctor = mappedClass.getDeclaredConstructor();
+				ReflectionUtils.makeAccessible(ctor);
+				return MethodHandles.lookup().unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+			}
+			catch (NoSuchMethodException | IllegalAccessException ex) {
+				// Let BeanUtils deal with it (e.g. Kotlin primary constructor)
+				return null;
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		public T instantiate() {
+			if (this.constructor == null) {
+				return BeanUtils.instantiateClass(this.mappedClass);
+			}
+			try {
+				Object instance = this.constructor.invokeExact();
+				return (T) instance;
+			}
+			catch (Throwable ex) {
+				throw new BeanInstantiationException(this.mappedClass, "Constructor threw exception", ex);
+			}
+		}
+
+		public MappingPlan getMappingPlan(ResultSet rs) throws SQLException {
+			ResultSetPlan lastPlan = this.lastPlan;
+			if (lastPlan != null && lastPlan.resultSet.get() == rs) {
+				return lastPlan.plan;
+			}
+			ResultSetMetaData rsmd = rs.getMetaData();
+			int columnCount = rsmd.getColumnCount();
+			List<String> columns = new ArrayList<>(columnCount);
+			for (int index = 1; index <= columnCount; index++) {
+				columns.add(JdbcUtils.lookupColumnName(rsmd, index));
+			}
+			// Name matching may be customized in subclasses, hence the mapper type in the key
+			MappingPlanKey key = new MappingPlanKey(CompiledBeanPropertyRowMapper.this.getClass(),
+					this.mappedClass, columns);
+			MappingPlan plan = mappingPlanCache.get(key);
+			if (plan == null) {
+				plan = createMappingPlan(columns);
+				mappingPlanCache.put(key, plan);
+			}
+			this.lastPlan = new ResultSetPlan(rs, plan);
+			return plan;
+		}
+
+		private MappingPlan createMappingPlan(List<String> columns) {
+			List<ColumnMapping> columnMappings = new ArrayList<>(columns.size());
+			Set<String> populatedProperties = new HashSet<>();
+			for (int index = 1; index <= columns.size(); index++) {
+				String column = columns.get(index - 1);
+				String field = lowerCaseName(StringUtils.delete(column, " "));
+				PropertyDescriptor pd = this.mappedFields.get(field);
+				if (pd != null) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Mapping column '" + column + "' to property '" + pd.getName() +
+								"' of type '" + ClassUtils.getQualifiedName(pd.getPropertyType()) + "'");
+					}
+					columnMappings.add(createColumnMapping(index, column, pd));
+					populatedProperties.add(pd.getName());
+				}
+				else if (logger.isDebugEnabled()) {
+					logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
+				}
+			}
+			return new MappingPlan(columnMappings, populatedProperties.equals(this.mappedProperties));
+		}
+
+		private ColumnMapping createColumnMapping(int index, String column, PropertyDescriptor pd) {
+			Method writeMethod = pd.getWriteMethod();
+			Assert.state(writeMethod != null, "No write method");
+			MethodHandle setter;
+			try {
+				ReflectionUtils.makeAccessible(writeMethod);
+				setter = MethodHandles.lookup().unreflect(writeMethod);
+			}
+			catch (IllegalAccessException ex) {
+				throw new DataRetrievalFailureException(
+						"Unable to map column '" + column + "' to property '" + pd.getName() + "'", ex);
+			}
+			Class<?> propertyType = pd.getPropertyType();
+			MethodHandle primitiveSetter = (propertyType.isPrimitive() ?
+					setter.asType(MethodType.methodType(void.class, Object.class, propertyType)) : null);
+			return new ColumnMapping(index, column, pd,
+					setter.asType(MethodType.methodType(void.class, Object.class, Object.class)),
+					primitiveSetter, new MethodParameter(writeMethod, 0));
+		}
+	}
+
+
+	/**
+	 * Cache key for a {@link MappingPlan}.
+	 */
+	private static final class MappingPlanKey {
+
+		private final Class<?> mapperClass;
+
+		private final Class<?> mappedClass;
+
+		private final List<String> columns;
+
+		public MappingPlanKey(Class<?> mapperClass, Class<?> mappedClass, List<String> columns) {
+			this.mapperClass = mapperClass;
+			this.mappedClass = mappedClass;
+			this.columns = columns;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MappingPlanKey)) {
+				return false;
+			}
+			MappingPlanKey otherKey = (MappingPlanKey) other;
+			return (this.mapperClass == otherKey.mapperClass && this.mappedClass == otherKey.mappedClass &&
+					this.columns.equals(otherKey.columns));
+		}
+
+		@Override
+		public int hashCode() {
+			return (this.mapperClass.hashCode() * 29 + this.mappedClass.hashCode()) * 29 + this.columns.hashCode();
+		}
+	}
+
+
+	/**
+	 * Mapping plan for a specific list of result set columns.
+	 */
+	private static class MappingPlan {
+
+		final ColumnMapping[] columnMappings;
+
+		/** Whether all mapped properties are covered by the columns. */
+		final boolean fullyPopulated;
+
+		public MappingPlan(List<ColumnMapping> columnMappings, boolean fullyPopulated) {
+			this.columnMappings = columnMappings.toArray(new ColumnMapping[0]);
+			this.fullyPopulated = fullyPopulated;
+		}
+	}
+
+
+	/**
+	 * Holder for the plan last used, for skipping the meta-data lookup
+	 * on subsequent rows of the same ResultSet.
+	 */
+	private static class ResultSetPlan {
+
+		final WeakReference<ResultSet> resultSet;
+
+		final MappingPlan plan;
+
+		public ResultSetPlan(ResultSet resultSet, MappingPlan plan) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.plan = plan;
+		}
+	}
+
+
+	/**
+	 * Mapping of a single column to a single bean property.
+	 */
+	private static class ColumnMapping {
+
+		final int index;
+
+		final String column;
+
+		final PropertyDescriptor pd;
+
+		/** The property type, with primitives resolved to their wrapper type. */
+		final Class<?> valueType;
+
+		/** Setter handle taking the value as an object, unboxing it if necessary. */
+		final MethodHandle setter;
+
+		/** Setter handle taking the primitive value, for primitive properties. */
+		@Nullable
+		final MethodHandle primitiveSetter;
+
+		final MethodParameter methodParameter;
+
+		final TypeDescriptor targetType;
+
+		public ColumnMapping(int index, String column, PropertyDescriptor pd, MethodHandle setter,
+				@Nullable MethodHandle primitiveSetter, MethodParameter methodParameter) {
+
+			this.index = index;
+			this.column = column;
+			this.pd = pd;
+			this.valueType = ClassUtils.resolvePrimitiveIfNecessary(pd.getPropertyType());
+			this.setter = setter;
+			this.primitiveSetter = primitiveSetter;
+			this.methodParameter = methodParameter;
+			this.targetType = new TypeDescriptor(methodParameter);
+		}
+	}
+
+}
@@ -31,9 +31,18 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.BaseStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -43,6 +52,7 @@ import org.springframework.jdbc.SQLWarningException;
 import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.jdbc.datasource.ConnectionProxy;
 import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.PreparedStatementCache;
 import org.springframework.jdbc.support.JdbcAccessor;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
@@ -146,6 +156,20 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	 */
 	private boolean resultsMapCaseInsensitive = false;
 
+	/**
+	 * Executor for fetching the next chunk of a streaming batch update
+	 * while the current chunk is being sent to the database.
+	 */
+	@Nullable
+	private Executor batchPrefetchExecutor;
+
+	/** Observer to notify about statement execution, if any. */
+	@Nullable
+	private StatementObserver statementObserver;
+
+	/** Maximum number of updates to buffer per transaction, or 0 for no buffering. */
+	private int transactionalBatchSize = 0;
+
 
 	/**
 	 * Construct a new JdbcTemplate for bean usage.
@@ -310,6 +334,89 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return this.resultsMapCaseInsensitive;
 	}
 
+	/**
+	 * Set an {@link Executor} for preparing the next chunk of a streaming
+	 * batch update while the current chunk is being executed.
+	 * <p>If set, batch arguments are pulled from the given {@code Iterator}
+	 * on a thread of this executor, one chunk ahead of the JDBC thread, which
+	 * is useful when producing the arguments is expensive (e.g. parsing an
+	 * input feed). The {@code PreparedStatement} itself is only ever accessed
+	 * by the calling thread. Default is none, pulling arguments on the calling
+	 * thread in between executions.
+	 * @since 5.2
+	 * @see #batchUpdate(String, Iterator, int, ParameterizedPreparedStatementSetter)
+	 */
+	public void setBatchPrefetchExecutor(@Nullable Executor batchPrefetchExecutor) {
+		this.batchPrefetchExecutor = batchPrefetchExecutor;
+	}
+
+	/**
+	 * Return the {@link Executor} for preparing the next chunk of a streaming
+	 * batch update, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public Executor getBatchPrefetchExecutor() {
+		return this.batchPrefetchExecutor;
+	}
+
+	/**
+	 * Set a {@link StatementObserver} to notify about the creation, execution
+	 * and result extraction of each statement executed by this JdbcTemplate,
+	 * e.g. for collecting timing metrics per SQL statement.
+	 * <p>Default is none, in which case no observation overhead is incurred.
+	 * @since 5.2
+	 * @see org.springframework.jdbc.core.support.StatementStatisticsObserver
+	 */
+	public void setStatementObserver(@Nullable StatementObserver statementObserver) {
+		this.statementObserver = statementObserver;
+	}
+
+	/**
+	 * Return the {@link StatementObserver} for this JdbcTemplate, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public StatementObserver getStatementObserver() {
+		return this.statementObserver;
+	}
+
+	/**
+	 * Set the maximum number of updates to buffer within a transaction,
+	 * to be sent to the database as a single JDBC batch.
+	 * <p>If set, consecutive {@link #update(String, Object...)} calls with the
+	 * same SQL, issued within an actual, non-read-only transaction that the
+	 * DataSource participates in (e.g. through {@code DataSourceTransactionManager}),
+	 * are buffered rather than executed one by one. The buffered updates are
+	 * executed as a batch on the next update with different SQL, on the next
+	 * other operation of any JdbcTemplate, once this number of updates has
+	 * been buffered, and before the transaction commits. Updates buffered
+	 * at the time of a rollback are discarded.
+	 * <p><b>NOTE:</b> Buffered updates return {@link Statement#SUCCESS_NO_INFO}
+	 * instead of the number of affected rows, and exceptions for them are
+	 * thrown by the operation that triggers the flush. Only enable this for
+	 * code that does not check update counts, e.g. for optimistic locking.
+	 * Operations on the Connection that bypass JdbcTemplate do not trigger a
+	 * flush either; call {@code TransactionStatus.flush()} before such access.
+	 * Argument arrays must not be modified after being passed in.
+	 * <p>Default is 0, executing every update right away.
+	 * @since 5.2
+	 * @see #update(String, Object...)
+	 * @see #update(String, Object[], int[])
+	 * @see org.springframework.transaction.TransactionStatus#flush()
+	 */
+	public void setTransactionalBatchSize(int transactionalBatchSize) {
+		this.transactionalBatchSize = transactionalBatchSize;
+	}
+
+	/**
+	 * Return the maximum number of updates to buffer within a transaction.
+	 * @since 5.2
+	 */
+	public int getTransactionalBatchSize() {
+		return this.transactionalBatchSize;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with a plain java.sql.Connection
@@ -320,7 +427,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(ConnectionCallback<T> action) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
 
-		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		Connection con = obtainConnection(null);
 		try {
 			// Create close-suppressing Connection proxy, also preparing returned Statements.
 			Connection conToUse = createConnectionProxy(con);
@@ -365,30 +472,52 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	@Override
 	@Nullable
 	public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+		return execute(action, true, startObservation(StatementObservation.Operation.EXECUTE));
+	}
+
+	@Nullable
+	private <T> T execute(StatementCallback<T> action, boolean closeResources,
+			@Nullable StatementObservation observation) throws DataAccessException {
+
 		Assert.notNull(action, "Callback object must not be null");
 
-		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		Connection con = obtainConnection(observation);
 		Statement stmt = null;
+		T result = null;
 		try {
 			stmt = con.createStatement();
 			applyStatementSettings(stmt);
-			T result = action.doInStatement(stmt);
+			if (observation != null) {
+				observation.statementCreated(getSql(action), getFetchSize());
+			}
+			result = action.doInStatement(stmt);
 			handleWarnings(stmt);
+			if (observation != null && closeResources) {
+				observation.statementCompleted(null);
+			}
 			return result;
 		}
 		catch (SQLException ex) {
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			String sql = getSql(action);
-			JdbcUtils.closeStatement(stmt);
+			releaseResources(closeResources ? null : result, null, stmt, con, observation, ex);
 			stmt = null;
-			DataSourceUtils.releaseConnection(con, getDataSource());
 			con = null;
-			throw translateException("StatementCallback", sql, ex);
+			throw observeFailure(observation, translateException("StatementCallback", sql, ex));
+		}
+		catch (RuntimeException | Error ex) {
+			observeFailure(observation, ex);
+			if (!closeResources) {
+				releaseResources(result, null, stmt, con, observation, ex);
+			}
+			throw ex;
 		}
 		finally {
-			JdbcUtils.closeStatement(stmt);
-			DataSourceUtils.releaseConnection(con, getDataSource());
+			if (closeResources) {
+				JdbcUtils.closeStatement(stmt);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
 		}
 	}
 
@@ -426,6 +555,8 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing SQL query [" + sql + "]");
 		}
 
+		StatementObservation observation = startObservation(StatementObservation.Operation.QUERY);
+
 		/**
 		 * Callback to execute the query.
 		 */
@@ -436,7 +567,14 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				ResultSet rs = null;
 				try {
 					rs = stmt.executeQuery(sql);
-					return rse.extractData(rs);
+					if (observation != null) {
+						observation.statementExecuted();
+					}
+					T result = rse.extractData(rs);
+					if (observation != null) {
+						observation.setRowCount(getRowCount(rse, result));
+					}
+					return result;
 				}
 				finally {
 					JdbcUtils.closeResultSet(rs);
@@ -448,7 +586,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 		}
 
-		return execute(new QueryStatementCallback());
+		return execute(new QueryStatementCallback(), true, observation);
 	}
 
 	@Override
@@ -461,6 +599,47 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) throws DataAccessException {
+		Assert.notNull(sql, "SQL must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing SQL query [" + sql + "]");
+		}
+
+		StatementObservation observation = startObservation(StatementObservation.Operation.QUERY);
+
+		/**
+		 * Callback to execute the query, keeping the ResultSet open for streaming.
+		 */
+		class StreamStatementCallback implements StatementCallback<Stream<T>>, SqlProvider {
+			@Override
+			public Stream<T> doInStatement(Statement stmt) throws SQLException {
+				ResultSet rs = stmt.executeQuery(sql);
+				if (observation != null) {
+					observation.statementExecuted();
+				}
+				Connection con = stmt.getConnection();
+				ResultSetSpliterator<T> spliterator = new ResultSetSpliterator<>(rs, rowMapper, sql);
+				return spliterator.stream().onClose(() -> {
+					JdbcUtils.closeResultSet(rs);
+					JdbcUtils.closeStatement(stmt);
+					DataSourceUtils.releaseConnection(con, getDataSource());
+					if (observation != null) {
+						observation.setRowCount(spliterator.getRowCount());
+						observation.statementCompleted(null);
+					}
+				});
+			}
+			@Override
+			public String getSql() {
+				return sql;
+			}
+		}
+
+		return result(execute(new StreamStatementCallback(), false, observation));
+	}
+
 	@Override
 	public Map<String, Object> queryForMap(String sql) throws DataAccessException {
 		return result(queryForObject(sql, getColumnMapRowMapper()));
@@ -501,6 +680,8 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing SQL update [" + sql + "]");
 		}
 
+		StatementObservation observation = startObservation(StatementObservation.Operation.UPDATE);
+
 		/**
 		 * Callback to execute the update statement.
 		 */
@@ -508,6 +689,10 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			@Override
 			public Integer doInStatement(Statement stmt) throws SQLException {
 				int rows = stmt.executeUpdate(sql);
+				if (observation != null) {
+					observation.setRowCount(rows);
+					observation.statementExecuted();
+				}
 				if (logger.isTraceEnabled()) {
 					logger.trace("SQL update affected " + rows + " rows");
 				}
@@ -519,7 +704,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 		}
 
-		return updateCount(execute(new UpdateStatementCallback()));
+		return updateCount(execute(new UpdateStatementCallback(), true, observation));
 	}
 
 	@Override
@@ -529,6 +714,11 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing SQL batch update of " + sql.length + " statements");
 		}
 
+		StatementObservation observation = startObservation(StatementObservation.Operation.BATCH_UPDATE);
+		if (observation != null) {
+			observation.setBatchSize(sql.length);
+		}
+
 		/**
 		 * Callback to execute the batch update.
 		 */
@@ -572,6 +762,10 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 						}
 					}
 				}
+				if (observation != null) {
+					observation.setRowCount(getRowCount(rowsAffected));
+					observation.statementExecuted();
+				}
 				return rowsAffected;
 			}
 
@@ -586,7 +780,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 		}
 
-		int[] result = execute(new BatchUpdateStatementCallback());
+		int[] result = execute(new BatchUpdateStatementCallback(), true, observation);
 		Assert.state(result != null, "No update counts");
 		return result;
 	}
@@ -601,6 +795,19 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
 			throws DataAccessException {
 
+		return execute(psc, action, true, false, startObservation(StatementObservation.Operation.EXECUTE));
+	}
+
+	/**
+	 * Execute a JDBC data access operation on a prepared statement.
+	 * <p>Statements from the transactional statement cache are only handed to
+	 * this template's own callbacks (with {@code useStatementCache} set), not
+	 * to application callbacks that could make arbitrary changes to them.
+	 */
+	@Nullable
+	private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean closeResources,
+			boolean useStatementCache, @Nullable StatementObservation observation) throws DataAccessException {
+
 		Assert.notNull(psc, "PreparedStatementCreator must not be null");
 		Assert.notNull(action, "Callback object must not be null");
 		if (logger.isDebugEnabled()) {
@@ -608,35 +815,67 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing prepared SQL statement" + (sql != null ? " [" + sql + "]" : ""));
 		}
 
-		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		Connection con = obtainConnection(observation);
+		PreparedStatementCache statementCache = (closeResources && useStatementCache ?
+				DataSourceUtils.getStatementCache(con, getDataSource()) : null);
+		String cacheableSql = (statementCache != null ? getCacheableSql(psc) : null);
 		PreparedStatement ps = null;
+		T result = null;
+		boolean reusable = false;
 		try {
-			ps = psc.createPreparedStatement(con);
+			if (statementCache != null && cacheableSql != null) {
+				ps = statementCache.take(cacheableSql);
+			}
+			if (ps != null) {
+				if (psc instanceof PreparedStatementSetter) {
+					((PreparedStatementSetter) psc).setValues(ps);
+				}
+			}
+			else {
+				ps = psc.createPreparedStatement(con);
+			}
 			applyStatementSettings(ps);
-			T result = action.doInPreparedStatement(ps);
+			if (observation != null) {
+				observation.statementCreated(getSql(psc), getFetchSize());
+			}
+			result = action.doInPreparedStatement(ps);
 			handleWarnings(ps);
+			reusable = (cacheableSql != null);
+			if (observation != null && closeResources) {
+				observation.statementCompleted(null);
+			}
 			return result;
 		}
 		catch (SQLException ex) {
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
-			if (psc instanceof ParameterDisposer) {
-				((ParameterDisposer) psc).cleanupParameters();
-			}
 			String sql = getSql(psc);
+			releaseResources(closeResources ? null : result, psc, ps, con, observation, ex);
 			psc = null;
-			JdbcUtils.closeStatement(ps);
 			ps = null;
-			DataSourceUtils.releaseConnection(con, getDataSource());
 			con = null;
-			throw translateException("PreparedStatementCallback", sql, ex);
+			throw observeFailure(observation, translateException("PreparedStatementCallback", sql, ex));
+		}
+		catch (RuntimeException | Error ex) {
+			observeFailure(observation, ex);
+			if (!closeResources) {
+				releaseResources(result, psc, ps, con, observation, ex);
+			}
+			throw ex;
 		}
 		finally {
-			if (psc instanceof ParameterDisposer) {
-				((ParameterDisposer) psc).cleanupParameters();
+			if (closeResources) {
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				if (reusable && statementCache != null && cacheableSql != null && ps != null) {
+					releaseToStatementCache(statementCache, cacheableSql, ps);
+				}
+				else {
+					JdbcUtils.closeStatement(ps);
+				}
+				DataSourceUtils.releaseConnection(con, getDataSource());
 			}
-			JdbcUtils.closeStatement(ps);
-			DataSourceUtils.releaseConnection(con, getDataSource());
 		}
 	}
 
@@ -665,6 +904,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		Assert.notNull(rse, "ResultSetExtractor must not be null");
 		logger.debug("Executing prepared SQL query");
 
+		StatementObservation observation = startObservation(StatementObservation.Operation.QUERY, psc, pss);
 		return execute(psc, new PreparedStatementCallback<T>() {
 			@Override
 			@Nullable
@@ -675,7 +915,14 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 						pss.setValues(ps);
 					}
 					rs = ps.executeQuery();
-					return rse.extractData(rs);
+					if (observation != null) {
+						observation.statementExecuted();
+					}
+					T result = rse.extractData(rs);
+					if (observation != null) {
+						observation.setRowCount(getRowCount(rse, result));
+					}
+					return result;
 				}
 				finally {
 					JdbcUtils.closeResultSet(rs);
@@ -684,7 +931,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					}
 				}
 			}
-		});
+		}, true, true, observation);
 	}
 
 	@Override
@@ -767,6 +1014,88 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, args, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	/**
+	 * Query using a prepared statement, allowing for a PreparedStatementCreator
+	 * and a PreparedStatementSetter, mapping each row to a result object through
+	 * a lazily populated {@code Stream}.
+	 * <p>Rows are pulled from the live ResultSet as the Stream is consumed, with
+	 * the JDBC driver fetching them according to the {@link #setFetchSize fetch size}.
+	 * The underlying Statement and Connection stay open until the Stream is closed.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param pss a callback that knows how to set values on the prepared statement.
+	 * If this is {@code null}, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if the query fails
+	 * @since 5.2
+	 */
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss,
+			RowMapper<T> rowMapper) throws DataAccessException {
+
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		logger.debug("Executing prepared SQL query");
+
+		StatementObservation observation = startObservation(StatementObservation.Operation.QUERY, psc, pss);
+		String sql = getSql(psc);
+		return result(execute(psc, ps -> {
+			ResultSet rs;
+			Connection con;
+			try {
+				if (pss != null) {
+					pss.setValues(ps);
+				}
+				rs = ps.executeQuery();
+				if (observation != null) {
+					observation.statementExecuted();
+				}
+				con = ps.getConnection();
+			}
+			catch (Throwable ex) {
+				// The Statement and Connection get released by the execute method
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				throw ex;
+			}
+			ResultSetSpliterator<T> spliterator = new ResultSetSpliterator<>(rs, rowMapper, sql);
+			return spliterator.stream().onClose(() -> {
+				JdbcUtils.closeResultSet(rs);
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+				if (observation != null) {
+					observation.setRowCount(spliterator.getRowCount());
+					observation.statementCompleted(null);
+				}
+			});
+		}, false, false, observation));
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) throws DataAccessException {
+		return queryForStream(psc, null, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, @Nullable PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), pss, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args), rowMapper);
+	}
+
 	@Override
 	@Nullable
 	public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper)
@@ -858,12 +1187,17 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		logger.debug("Executing prepared SQL update");
 
+		StatementObservation observation = startObservation(StatementObservation.Operation.UPDATE, psc, pss);
 		return updateCount(execute(psc, ps -> {
 			try {
 				if (pss != null) {
 					pss.setValues(ps);
 				}
 				int rows = ps.executeUpdate();
+				if (observation != null) {
+					observation.setRowCount(rows);
+					observation.statementExecuted();
+				}
 				if (logger.isTraceEnabled()) {
 					logger.trace("SQL update affected " + rows + " rows");
 				}
@@ -874,7 +1208,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					((ParameterDisposer) pss).cleanupParameters();
 				}
 			}
-		}));
+		}, true, true, observation));
 	}
 
 	@Override
@@ -889,8 +1223,13 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		Assert.notNull(generatedKeyHolder, "KeyHolder must not be null");
 		logger.debug("Executing SQL update and returning generated keys");
 
+		StatementObservation observation = startObservation(StatementObservation.Operation.UPDATE, psc, null);
 		return updateCount(execute(psc, ps -> {
 			int rows = ps.executeUpdate();
+			if (observation != null) {
+				observation.setRowCount(rows);
+				observation.statementExecuted();
+			}
 			List<Map<String, Object>> generatedKeys = generatedKeyHolder.getKeyList();
 			generatedKeys.clear();
 			ResultSet keys = ps.getGeneratedKeys();
@@ -908,7 +1247,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				logger.trace("SQL update affected " + rows + " rows and returned " + generatedKeys.size() + " keys");
 			}
 			return rows;
-		}));
+		}, true, true, observation));
 	}
 
 	@Override
@@ -918,12 +1257,14 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 	@Override
 	public int update(String sql, Object[] args, int[] argTypes) throws DataAccessException {
-		return update(sql, newArgTypePreparedStatementSetter(args, argTypes));
+		PreparedStatementSetter pss = newArgTypePreparedStatementSetter(args, argTypes);
+		return (addToTransactionalBatch(sql, pss) ? Statement.SUCCESS_NO_INFO : update(sql, pss));
 	}
 
 	@Override
 	public int update(String sql, @Nullable Object... args) throws DataAccessException {
-		return update(sql, newArgPreparedStatementSetter(args));
+		PreparedStatementSetter pss = newArgPreparedStatementSetter(args);
+		return (addToTransactionalBatch(sql, pss) ? Statement.SUCCESS_NO_INFO : update(sql, pss));
 	}
 
 	@Override
@@ -932,9 +1273,13 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing SQL batch update [" + sql + "]");
 		}
 
-		int[] result = execute(sql, (PreparedStatementCallback<int[]>) ps -> {
+		StatementObservation observation = startObservation(StatementObservation.Operation.BATCH_UPDATE);
+		int[] result = execute(new SimplePreparedStatementCreator(sql), ps -> {
 			try {
 				int batchSize = pss.getBatchSize();
+				if (observation != null) {
+					observation.setBatchSize(batchSize);
+				}
 				InterruptibleBatchPreparedStatementSetter ipss =
 						(pss instanceof InterruptibleBatchPreparedStatementSetter ?
 						(InterruptibleBatchPreparedStatementSetter) pss : null);
@@ -946,7 +1291,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 						}
 						ps.addBatch();
 					}
-					return ps.executeBatch();
+					return observeBatch(observation, ps.executeBatch());
 				}
 				else {
 					List<Integer> rowsAffected = new ArrayList<>();
@@ -961,7 +1306,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					for (int i = 0; i < rowsAffectedArray.length; i++) {
 						rowsAffectedArray[i] = rowsAffected.get(i);
 					}
-					return rowsAffectedArray;
+					return observeBatch(observation, rowsAffectedArray);
 				}
 			}
 			finally {
@@ -969,7 +1314,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					((ParameterDisposer) pss).cleanupParameters();
 				}
 			}
-		});
+		}, true, true, observation);
 
 		Assert.state(result != null, "No result array");
 		return result;
@@ -1025,7 +1370,11 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Executing SQL batch update [" + sql + "] with a batch size of " + batchSize);
 		}
-		int[][] result = execute(sql, (PreparedStatementCallback<int[][]>) ps -> {
+		StatementObservation observation = startObservation(StatementObservation.Operation.BATCH_UPDATE);
+		if (observation != null) {
+			observation.setBatchSize(batchArgs.size());
+		}
+		int[][] result = execute(new SimplePreparedStatementCreator(sql), ps -> {
 			List<int[]> rowsAffected = new ArrayList<>();
 			try {
 				boolean batchSupported = JdbcUtils.supportsBatchUpdates(ps.getConnection());
@@ -1050,8 +1399,14 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					}
 				}
 				int[][] result1 = new int[rowsAffected.size()][];
+				long rowCount = 0;
 				for (int i = 0; i < result1.length; i++) {
 					result1[i] = rowsAffected.get(i);
+					rowCount += getRowCount(result1[i]);
+				}
+				if (observation != null) {
+					observation.setRowCount(rowCount);
+					observation.statementExecuted();
 				}
 				return result1;
 			}
@@ -1060,12 +1415,139 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					((ParameterDisposer) pss).cleanupParameters();
 				}
 			}
-		});
+		}, true, true, observation);
 
 		Assert.state(result != null, "No result array");
 		return result;
 	}
 
+	@Override
+	public <T> long batchUpdate(String sql, final Iterator<T> batchArgs, final int batchSize,
+			final ParameterizedPreparedStatementSetter<T> pss) throws DataAccessException {
+
+		Assert.notNull(batchArgs, "Batch arguments must not be null");
+		Assert.isTrue(batchSize > 0, "Batch size must be greater than 0");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing streaming SQL batch update [" + sql + "] with a batch size of " + batchSize);
+		}
+		StatementObservation observation = startObservation(StatementObservation.Operation.BATCH_UPDATE);
+		Long result = execute(new SimplePreparedStatementCreator(sql), ps -> {
+			Executor executor = getBatchPrefetchExecutor();
+			CompletableFuture<List<T>> nextChunk = null;
+			try {
+				boolean batchSupported = JdbcUtils.supportsBatchUpdates(ps.getConnection());
+				long rowsAffected = 0;
+				int batchIdx = 0;
+				int argCount = 0;
+				if (executor != null) {
+					nextChunk = CompletableFuture.supplyAsync(() -> nextBatchChunk(batchArgs, batchSize), executor);
+				}
+				while (true) {
+					List<T> chunk;
+					if (nextChunk != null) {
+						chunk = awaitBatchChunk(nextChunk);
+						nextChunk = null;
+					}
+					else {
+						chunk = nextBatchChunk(batchArgs, batchSize);
+					}
+					if (chunk.isEmpty()) {
+						break;
+					}
+					boolean lastChunk = (chunk.size() < batchSize);
+					if (executor != null && !lastChunk) {
+						// Prepare the next chunk while this one is being sent to the database
+						nextChunk = CompletableFuture.supplyAsync(() -> nextBatchChunk(batchArgs, batchSize), executor);
+					}
+					batchIdx++;
+					argCount += chunk.size();
+					if (logger.isTraceEnabled()) {
+						logger.trace("Sending SQL batch update #" + batchIdx + " with " + chunk.size() + " items");
+					}
+					rowsAffected += executeBatchChunk(ps, chunk, pss, batchSupported);
+					if (lastChunk) {
+						break;
+					}
+				}
+				if (observation != null) {
+					observation.statementExecuted();
+					observation.setBatchSize(argCount);
+					observation.setRowCount(rowsAffected);
+				}
+				return rowsAffected;
+			}
+			finally {
+				if (nextChunk != null) {
+					nextChunk.cancel(false);
+				}
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+			}
+		}, true, true, observation);
+
+		Assert.state(result != null, "No update count");
+		return result;
+	}
+
+	/**
+	 * Pull up to {@code batchSize} arguments from the given {@code Iterator}.
+	 */
+	private static <T> List<T> nextBatchChunk(Iterator<T> batchArgs, int batchSize) {
+		List<T> chunk = new ArrayList<>(batchSize);
+		while (chunk.size() < batchSize && batchArgs.hasNext()) {
+			chunk.add(batchArgs.next());
+		}
+		return chunk;
+	}
+
+	/**
+	 * Wait for a chunk prepared by the batch prefetch executor, rethrowing
+	 * any exception raised by the argument {@code Iterator} as-is.
+	 */
+	private static <T> List<T> awaitBatchChunk(CompletableFuture<List<T>> future) {
+		try {
+			return future.join();
+		}
+		catch (CompletionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Send the given chunk of arguments to the database, as a single JDBC batch
+	 * if supported, returning the number of rows affected as far as reported.
+	 */
+	private static <T> long executeBatchChunk(PreparedStatement ps, List<T> chunk,
+			ParameterizedPreparedStatementSetter<T> pss, boolean batchSupported) throws SQLException {
+
+		long rowsAffected = 0;
+		for (T obj : chunk) {
+			pss.setValues(ps, obj);
+			if (batchSupported) {
+				ps.addBatch();
+			}
+			else {
+				rowsAffected += ps.executeUpdate();
+			}
+		}
+		if (batchSupported) {
+			for (int count : ps.executeBatch()) {
+				if (count > 0) {
+					rowsAffected += count;
+				}
+			}
+		}
+		return rowsAffected;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with callable statements
@@ -1083,13 +1565,20 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Calling stored procedure" + (sql != null ? " [" + sql  + "]" : ""));
 		}
 
-		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		StatementObservation observation = startObservation(StatementObservation.Operation.CALL);
+		Connection con = obtainConnection(observation);
 		CallableStatement cs = null;
 		try {
 			cs = csc.createCallableStatement(con);
 			applyStatementSettings(cs);
+			if (observation != null) {
+				observation.statementCreated(getSql(csc), getFetchSize());
+			}
 			T result = action.doInCallableStatement(cs);
 			handleWarnings(cs);
+			if (observation != null) {
+				observation.statementCompleted(null);
+			}
 			return result;
 		}
 		catch (SQLException ex) {
@@ -1104,7 +1593,11 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			cs = null;
 			DataSourceUtils.releaseConnection(con, getDataSource());
 			con = null;
-			throw translateException("CallableStatementCallback", sql, ex);
+			throw observeFailure(observation, translateException("CallableStatementCallback", sql, ex));
+		}
+		catch (RuntimeException | Error ex) {
+			observeFailure(observation, ex);
+			throw ex;
 		}
 		finally {
 			if (csc instanceof ParameterDisposer) {
@@ -1443,6 +1936,98 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return (dae != null ? dae : new UncategorizedSQLException(task, sql, ex));
 	}
 
+	/**
+	 * Start a new observation for the given operation,
+	 * if a {@link #setStatementObserver StatementObserver} has been set.
+	 */
+	@Nullable
+	private StatementObservation startObservation(StatementObservation.Operation operation) {
+		StatementObserver observer = this.statementObserver;
+		return (observer != null ? new StatementObservation(observer, operation) : null);
+	}
+
+	/**
+	 * Start a new observation for the given operation, determining the
+	 * parameter count from the given creator and setter if possible.
+	 */
+	@Nullable
+	private StatementObservation startObservation(StatementObservation.Operation operation,
+			PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss) {
+
+		StatementObservation observation = startObservation(operation);
+		if (observation != null) {
+			observation.setParameterCount(getParameterCount(pss != null ? pss : psc));
+		}
+		return observation;
+	}
+
+	/**
+	 * Buffer the given update for execution as part of a transactional batch,
+	 * if a {@link #setTransactionalBatchSize transactional batch size} has been
+	 * set and a suitable transaction is active.
+	 */
+	private boolean addToTransactionalBatch(String sql, PreparedStatementSetter pss) {
+		return (this.transactionalBatchSize > 0 &&
+				TransactionalUpdateBatch.add(this, obtainDataSource(), sql, pss));
+	}
+
+	/**
+	 * Obtain a Connection from the DataSource, reporting a failure to do so
+	 * to the given observation. Any updates still buffered for the current
+	 * transaction are executed first, preserving the order of statements.
+	 */
+	private Connection obtainConnection(@Nullable StatementObservation observation) {
+		TransactionalUpdateBatch.flushPending();
+		try {
+			return DataSourceUtils.getConnection(obtainDataSource());
+		}
+		catch (RuntimeException ex) {
+			throw observeFailure(observation, ex);
+		}
+	}
+
+
+	/**
+	 * Release the given statement into the transactional statement cache,
+	 * resetting its batch and settings to the JDBC defaults: setters and
+	 * extractors may have changed it besides this template. Parameters
+	 * and warnings are cleared by the cache itself.
+	 * @see #applyStatementSettings
+	 * @see PreparedStatementCache#release
+	 */
+	private void releaseToStatementCache(PreparedStatementCache statementCache, String sql, PreparedStatement ps) {
+		try {
+			ps.clearBatch();
+			ps.setFetchDirection(ResultSet.FETCH_FORWARD);
+			ps.setFetchSize(0);
+			ps.setMaxRows(0);
+			ps.setMaxFieldSize(0);
+			ps.setQueryTimeout(0);
+		}
+		catch (SQLException ex) {
+			logger.debug("Could not reset JDBC PreparedStatement settings for reuse", ex);
+			JdbcUtils.closeStatement(ps);
+			return;
+		}
+		statementCache.release(sql, ps);
+	}
+
+	/**
+	 * Determine the SQL to look up a cached statement for, if the given
+	 * creator is known to create plain statements for a given SQL String.
+	 */
+	@Nullable
+	private static String getCacheableSql(PreparedStatementCreator psc) {
+		if (psc instanceof SimplePreparedStatementCreator) {
+			return ((SimplePreparedStatementCreator) psc).getSql();
+		}
+		else if (psc instanceof PreparedStatementCreatorFactory.PreparedStatementCreatorImpl) {
+			return ((PreparedStatementCreatorFactory.PreparedStatementCreatorImpl) psc).getCacheableSql();
+		}
+		else {
+			return null;
+		}
+	}
 
 	/**
 	 * Determine SQL from potential provider object.
@@ -1470,6 +2055,80 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result;
 	}
 
+	/**
+	 * Release the resources of a failed execution: through the given result
+	 * if it is a Stream which has taken over the resources already, or else
+	 * directly, including the parameters of the given statement creator.
+	 */
+	private void releaseResources(@Nullable Object result, @Nullable Object psc, @Nullable Statement stmt,
+			@Nullable Connection con, @Nullable StatementObservation observation, Throwable ex) {
+
+		if (result instanceof BaseStream) {
+			// Record the failure first, since closing the Stream completes the observation
+			observeFailure(observation, ex);
+			((BaseStream<?, ?>) result).close();
+		}
+		else {
+			if (psc instanceof ParameterDisposer) {
+				((ParameterDisposer) psc).cleanupParameters();
+			}
+			JdbcUtils.closeStatement(stmt);
+			DataSourceUtils.releaseConnection(con, getDataSource());
+		}
+	}
+
+	private static <E extends Throwable> E observeFailure(@Nullable StatementObservation observation, E ex) {
+		if (observation != null) {
+			observation.statementCompleted(ex);
+		}
+		return ex;
+	}
+
+	private static int[] observeBatch(@Nullable StatementObservation observation, int[] rowsAffected) {
+		if (observation != null) {
+			observation.setRowCount(getRowCount(rowsAffected));
+			observation.statementExecuted();
+		}
+		return rowsAffected;
+	}
+
+	private static int getParameterCount(Object setter) {
+		if (setter instanceof ArgumentPreparedStatementSetter) {
+			return ((ArgumentPreparedStatementSetter) setter).getParameterCount();
+		}
+		else if (setter instanceof ArgumentTypePreparedStatementSetter) {
+			return ((ArgumentTypePreparedStatementSetter) setter).getParameterCount();
+		}
+		else if (setter instanceof PreparedStatementCreatorFactory.PreparedStatementCreatorImpl) {
+			return ((PreparedStatementCreatorFactory.PreparedStatementCreatorImpl) setter).getParameterCount();
+		}
+		else {
+			return -1;
+		}
+	}
+
+	private static long getRowCount(ResultSetExtractor<?> rse, @Nullable Object result) {
+		if (rse instanceof RowCallbackHandlerResultSetExtractor) {
+			return ((RowCallbackHandlerResultSetExtractor) rse).getRowCount();
+		}
+		else if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		}
+		else {
+			return -1;
+		}
+	}
+
+	private static long getRowCount(int[] rowsAffected) {
+		long rowCount = 0;
+		for (int rows : rowsAffected) {
+			if (rows > 0) {
+				rowCount += rows;
+			}
+		}
+		return rowCount;
+	}
+
 
 	/**
 	 * Invocation handler that suppresses close calls on JDBC Connections.
@@ -1595,6 +2254,8 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		private final RowCallbackHandler rch;
 
+		private int rowCount = 0;
+
 		public RowCallbackHandlerResultSetExtractor(RowCallbackHandler rch) {
 			this.rch = rch;
 		}
@@ -1604,9 +2265,76 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		public Object extractData(ResultSet rs) throws SQLException {
 			while (rs.next()) {
 				this.rch.processRow(rs);
+				this.rowCount++;
 			}
 			return null;
 		}
+
+		public int getRowCount() {
+			return this.rowCount;
+		}
+	}
+
+
+	/**
+	 * Spliterator for queryForStream adaptation of a ResultSet to a Stream,
+	 * mapping each row through the given RowMapper as the Stream is consumed.
+	 * @since 5.2
+	 */
+	private class ResultSetSpliterator<T> implements Spliterator<T> {
+
+		private final ResultSet rs;
+
+		private final RowMapper<T> rowMapper;
+
+		@Nullable
+		private final String sql;
+
+		private int rowNum = 0;
+
+		public ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper, @Nullable String sql) {
+			this.rs = rs;
+			this.rowMapper = rowMapper;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			try {
+				if (this.rs.next()) {
+					action.accept(this.rowMapper.mapRow(this.rs, this.rowNum++));
+					return true;
+				}
+				return false;
+			}
+			catch (SQLException ex) {
+				throw translateException("ResultSetSpliterator", this.sql, ex);
+			}
+		}
+
+		@Override
+		@Nullable
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED;
+		}
+
+		public int getRowCount() {
+			return this.rowNum;
+		}
+
+		public Stream<T> stream() {
+			return StreamSupport.stream(this, false);
+		}
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -188,7 +188,7 @@ public class PreparedStatementCreatorFactory {
 	/**
 	 * PreparedStatementCreator implementation returned by this class.
 	 */
-	private class PreparedStatementCreatorImpl
+	class PreparedStatementCreatorImpl
 			implements PreparedStatementCreator, PreparedStatementSetter, SqlProvider, ParameterDisposer {
 
 		private final String actualSql;
@@ -293,6 +293,20 @@ public class PreparedStatementCreatorFactory {
 			return sql;
 		}
 
+		int getParameterCount() {
+			return this.parameters.size();
+		}
+
+		/**
+		 * Return the SQL to look up a cached statement for, or {@code null}
+		 * if the statements created here are not plain reusable ones.
+		 */
+		@Nullable
+		String getCacheableSql() {
+			return (resultSetType == ResultSet.TYPE_FORWARD_ONLY && !updatableResults &&
+					!returnGeneratedKeys && generatedKeysColumnNames == null ? this.actualSql : null);
+		}
+
 		@Override
 		public void cleanupParameters() {
 			StatementCreatorUtils.cleanupParameters(this.parameters);
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Details about a single {@link JdbcTemplate} operation, as exposed to a
+ * {@link StatementObserver}: the SQL statement, its parameter and row counts,
+ * and the time spent in the individual phases of the operation.
+ *
+ * <p>An instance is only created if a {@code StatementObserver} has been
+ * configured, and is populated as the operation progresses. All times are
+ * measured through {@link System#nanoTime()}.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see StatementObserver
+ */
+public final class StatementObservation {
+
+	/**
+	 * The kind of JdbcTemplate operation being observed.
+	 */
+	public enum Operation {
+
+		/** A query, mapping the rows of a ResultSet. */
+		QUERY,
+
+		/** A single update statement. */
+		UPDATE,
+
+		/** A batch of update statements. */
+		BATCH_UPDATE,
+
+		/** A stored procedure call. */
+		CALL,
+
+		/** A generic statement or callback execution. */
+		EXECUTE
+	}
+
+
+	private final StatementObserver observer;
+
+	private final Operation operation;
+
+	private final long startTime;
+
+	@Nullable
+	private String sql;
+
+	private int parameterCount = -1;
+
+	private int batchSize = -1;
+
+	private int fetchSize = -1;
+
+	private long rowCount = -1;
+
+	private long creationTime;
+
+	private long executionTime;
+
+	private long completionTime;
+
+	@Nullable
+	private Throwable exception;
+
+
+	StatementObservation(StatementObserver observer, Operation operation) {
+		this.observer = observer;
+		this.operation = operation;
+		this.startTime = System.nanoTime();
+	}
+
+
+	/**
+	 * Return the kind of operation being observed.
+	 */
+	public Operation getOperation() {
+		return this.operation;
+	}
+
+	/**
+	 * Return the SQL statement as sent to the JDBC driver, i.e. with any
+	 * named parameters already substituted, if known.
+	 * <p>Available from {@link StatementObserver#statementCreated} on.
+	 */
+	@Nullable
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Return the number of bind parameters, or -1 if not known
+	 * (e.g. for custom {@code PreparedStatementSetter} implementations).
+	 * For a batch update, this refers to the first set of parameters.
+	 */
+	public int getParameterCount() {
+		return this.parameterCount;
+	}
+
+	/**
+	 * Return the number of statements or argument sets in a batch update,
+	 * or -1 if not a batch update (or if not known upfront).
+	 */
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Return the fetch size applied to the statement,
+	 * or -1 for the JDBC driver's default.
+	 */
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+
+	/**
+	 * Return the number of rows fetched by a query or affected by an update,
+	 * or -1 if not known (e.g. for a custom {@code ResultSetExtractor}).
+	 * <p>Available from {@link StatementObserver#statementCompleted} on.
+	 */
+	public long getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * Return the time in nanoseconds for obtaining a Connection and
+	 * creating the Statement.
+	 */
+	public long getCreationNanos() {
+		return (this.creationTime != 0 ? this.creationTime - this.startTime : 0);
+	}
+
+	/**
+	 * Return the time in nanoseconds for binding parameter values and
+	 * executing the Statement. If no distinct execution phase is known,
+	 * this covers the entire callback.
+	 */
+	public long getExecutionNanos() {
+		if (this.creationTime == 0) {
+			return 0;
+		}
+		long end = (this.executionTime != 0 ? this.executionTime : this.completionTime);
+		return (end != 0 ? end - this.creationTime : 0);
+	}
+
+	/**
+	 * Return the time in nanoseconds for extracting the results of an
+	 * executed Statement, e.g. mapping all rows of a query.
+	 */
+	public long getExtractionNanos() {
+		return (this.executionTime != 0 && this.completionTime != 0 ? this.completionTime - this.executionTime : 0);
+	}
+
+	/**
+	 * Return the total time in nanoseconds for the operation so far.
+	 */
+	public long getElapsedNanos() {
+		return (this.completionTime != 0 ? this.completionTime : System.nanoTime()) - this.startTime;
+	}
+
+	/**
+	 * Return the exception that the operation failed with, if any.
+	 * <p>Available from {@link StatementObserver#statementCompleted} on.
+	 */
+	@Nullable
+	public Throwable getException() {
+		return this.exception;
+	}
+
+	/**
+	 * Return whether the operation has completed without exception.
+	 */
+	public boolean isSuccessful() {
+		return (this.completionTime != 0 && this.exception == null);
+	}
+
+
+	void setParameterCount(int parameterCount) {
+		this.parameterCount = parameterCount;
+	}
+
+	void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	void setRowCount(long rowCount) {
+		this.rowCount = rowCount;
+	}
+
+	void statementCreated(@Nullable String sql, int fetchSize) {
+		this.sql = sql;
+		this.fetchSize = fetchSize;
+		this.creationTime = System.nanoTime();
+		this.observer.statementCreated(this);
+	}
+
+	void statementExecuted() {
+		if (this.executionTime == 0) {
+			this.executionTime = System.nanoTime();
+			this.observer.statementExecuted(this);
+		}
+	}
+
+	void statementCompleted(@Nullable Throwable exception) {
+		if (this.completionTime == 0) {
+			this.completionTime = System.nanoTime();
+			this.exception = exception;
+			this.observer.statementCompleted(this);
+		}
+	}
+
+
+	@Override
+	public String toString() {
+		return this.operation + " [" + this.sql + "]: " + (this.rowCount >= 0 ? this.rowCount + " rows, " : "") +
+				getElapsedNanos() / 1000000 + " ms" + (this.exception != null ? ", failed with " + this.exception : "");
+	}
+
+}
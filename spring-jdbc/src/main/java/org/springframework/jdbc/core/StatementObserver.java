@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+/**
+ * Callback interface for observing the statements executed by a
+ * {@link JdbcTemplate}, e.g. for collecting timing metrics or for
+ * logging slow queries.
+ *
+ * <p>The same {@link StatementObservation} instance is passed to all three
+ * callbacks for a given JdbcTemplate operation, progressively populated
+ * along the way. Callbacks are invoked on the thread executing the
+ * statement and should return quickly.
+ *
+ * <p>Exceptions thrown by an observer propagate to the caller of the
+ * JdbcTemplate operation; implementations are therefore expected not to
+ * throw exceptions.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see JdbcTemplate#setStatementObserver
+ * @see org.springframework.jdbc.core.support.StatementStatisticsObserver
+ */
+public interface StatementObserver {
+
+	/**
+	 * Invoked once the JDBC Statement has been created and configured,
+	 * before it is executed.
+	 * <p>Parameter values may or may not have been bound at this point:
+	 * a {@link PreparedStatementCreator} may bind them on creation, as the
+	 * ones built by {@link PreparedStatementCreatorFactory} do (and thereby
+	 * all {@code NamedParameterJdbcTemplate} operations), whereas values
+	 * passed to {@code JdbcTemplate} as arguments or through a
+	 * {@link PreparedStatementSetter} are only bound afterwards.
+	 * <p>The default implementation is empty.
+	 * @param observation the observation for the current operation
+	 */
+	default void statementCreated(StatementObservation observation) {
+	}
+
+	/**
+	 * Invoked once the JDBC Statement has been executed, before its
+	 * results are extracted. Not invoked for custom callbacks passed
+	 * to the generic {@code execute} methods of JdbcTemplate.
+	 * <p>The default implementation is empty.
+	 * @param observation the observation for the current operation
+	 */
+	default void statementExecuted(StatementObservation observation) {
+	}
+
+	/**
+	 * Invoked once the operation has completed, successfully or not, with
+	 * all of its results extracted. For a {@code queryForStream} operation,
+	 * this happens when the returned {@code Stream} gets closed.
+	 * @param observation the observation for the current operation
+	 * @see StatementObservation#getException()
+	 */
+	void statementCompleted(StatementObservation observation);
+
+}
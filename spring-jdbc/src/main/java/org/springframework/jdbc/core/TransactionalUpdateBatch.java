@@ -0,0 +1,220 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction-scoped buffer for updates issued through a {@link JdbcTemplate}
+ * with a {@link JdbcTemplate#setTransactionalBatchSize transactional batch size},
+ * collecting consecutive updates with the same SQL into a single JDBC batch.
+ *
+ * <p>At most one batch is pending per thread. It is flushed when an update with
+ * different SQL or for a different DataSource comes in, when any JdbcTemplate
+ * obtains a Connection for another operation, when the batch size is reached,
+ * when the transaction is suspended or flushed, before a savepoint is created
+ * (e.g. for a nested transaction), and before commit. On rollback, including
+ * a rollback to a savepoint, pending updates are discarded: since the batch
+ * has been flushed when the savepoint was created, any pending updates have
+ * been issued after the savepoint.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see JdbcTemplate#setTransactionalBatchSize
+ */
+final class TransactionalUpdateBatch extends TransactionSynchronizationAdapter {
+
+	private static final Object RESOURCE_KEY = TransactionalUpdateBatch.class;
+
+
+	private final List<PreparedStatementSetter> pendingSetters = new ArrayList<>();
+
+	@Nullable
+	private JdbcTemplate jdbcTemplate;
+
+	@Nullable
+	private DataSource dataSource;
+
+	@Nullable
+	private String sql;
+
+
+	private TransactionalUpdateBatch() {
+	}
+
+
+	/**
+	 * Add the given update to the batch pending for the current transaction,
+	 * if the given DataSource participates in a transaction which is not read-only.
+	 * @param jdbcTemplate the JdbcTemplate issuing the update
+	 * @param dataSource the DataSource that the update is meant for
+	 * @param sql the SQL statement
+	 * @param pss the setter for the parameters of the statement
+	 * @return {@code true} if the update has been buffered, {@code false}
+	 * if it needs to be executed right away
+	 */
+	static boolean add(JdbcTemplate jdbcTemplate, DataSource dataSource, String sql, PreparedStatementSetter pss) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive() ||
+				!TransactionSynchronizationManager.isActualTransactionActive() ||
+				TransactionSynchronizationManager.isCurrentTransactionReadOnly() ||
+				!TransactionSynchronizationManager.hasResource(dataSource)) {
+			return false;
+		}
+		TransactionalUpdateBatch batch =
+				(TransactionalUpdateBatch) TransactionSynchronizationManager.getResource(RESOURCE_KEY);
+		if (batch == null) {
+			batch = new TransactionalUpdateBatch();
+			TransactionSynchronizationManager.bindResource(RESOURCE_KEY, batch);
+			TransactionSynchronizationManager.registerSynchronization(batch);
+		}
+		else if (!sql.equals(batch.sql) || dataSource != batch.dataSource) {
+			batch.flush();
+		}
+		if (batch.pendingSetters.isEmpty()) {
+			batch.jdbcTemplate = jdbcTemplate;
+			batch.dataSource = dataSource;
+			batch.sql = sql;
+		}
+		batch.pendingSetters.add(pss);
+		if (batch.pendingSetters.size() >= jdbcTemplate.getTransactionalBatchSize()) {
+			batch.flush();
+		}
+		return true;
+	}
+
+	/**
+	 * Flush the batch pending for the current transaction, if any.
+	 * Called before any other operation that uses a JDBC Connection.
+	 */
+	static void flushPending() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionalUpdateBatch batch =
+					(TransactionalUpdateBatch) TransactionSynchronizationManager.getResource(RESOURCE_KEY);
+			if (batch != null) {
+				batch.flush();
+			}
+		}
+	}
+
+
+	/**
+	 * Execute the pending updates as a JDBC batch. The batch is reset upfront,
+	 * so that the Connection obtained for the execution does not trigger
+	 * a nested flush.
+	 */
+	@Override
+	public void flush() {
+		JdbcTemplate jdbcTemplate = this.jdbcTemplate;
+		String sql = this.sql;
+		if (this.pendingSetters.isEmpty() || jdbcTemplate == null || sql == null) {
+			return;
+		}
+		List<PreparedStatementSetter> setters = new ArrayList<>(this.pendingSetters);
+		reset();
+		jdbcTemplate.batchUpdate(sql, new PendingBatchPreparedStatementSetter(setters));
+	}
+
+	@Override
+	public void suspend() {
+		flush();
+		TransactionSynchronizationManager.unbindResource(RESOURCE_KEY);
+	}
+
+	@Override
+	public void resume() {
+		TransactionSynchronizationManager.bindResource(RESOURCE_KEY, this);
+	}
+
+	@Override
+	public void beforeSavepoint() {
+		flush();
+	}
+
+	@Override
+	public void afterSavepointRollback() {
+		discard();
+	}
+
+	@Override
+	public void beforeCommit(boolean readOnly) {
+		flush();
+	}
+
+	@Override
+	public void afterCompletion(int status) {
+		// Discard anything left over, e.g. on rollback
+		TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+		discard();
+	}
+
+	private void discard() {
+		for (PreparedStatementSetter pss : this.pendingSetters) {
+			if (pss instanceof ParameterDisposer) {
+				((ParameterDisposer) pss).cleanupParameters();
+			}
+		}
+		reset();
+	}
+
+	private void reset() {
+		this.pendingSetters.clear();
+		this.jdbcTemplate = null;
+		this.dataSource = null;
+		this.sql = null;
+	}
+
+
+	/**
+	 * Applies one buffered setter per batch entry.
+	 */
+	private static class PendingBatchPreparedStatementSetter implements BatchPreparedStatementSetter, ParameterDisposer {
+
+		private final List<PreparedStatementSetter> setters;
+
+		PendingBatchPreparedStatementSetter(List<PreparedStatementSetter> setters) {
+			this.setters = setters;
+		}
+
+		@Override
+		public void setValues(PreparedStatement ps, int i) throws SQLException {
+			this.setters.get(i).setValues(ps);
+		}
+
+		@Override
+		public int getBatchSize() {
+			return this.setters.size();
+		}
+
+		@Override
+		public void cleanupParameters() {
+			for (PreparedStatementSetter pss : this.setters) {
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,10 +18,15 @@ package org.springframework.jdbc.core.namedparam;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -30,6 +35,7 @@ import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
@@ -37,7 +43,6 @@ import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
-import org.springframework.jdbc.core.SqlParameter;
 import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
@@ -74,17 +79,8 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	/** The JdbcTemplate we are wrapping. */
 	private final JdbcOperations classicJdbcTemplate;
 
-	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
-
 	/** Cache of original SQL String to ParsedSql representation. */
-	@SuppressWarnings("serial")
-	private final Map<String, ParsedSql> parsedSqlCache =
-			new LinkedHashMap<String, ParsedSql>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
-				@Override
-				protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
-					return size() > getCacheLimit();
-				}
-			};
+	private volatile ParsedSqlCache parsedSqlCache = new ParsedSqlCache(DEFAULT_CACHE_LIMIT);
 
 
 	/**
@@ -132,16 +128,39 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	/**
 	 * Specify the maximum number of entries for this template's SQL cache.
 	 * Default is 256.
+	 * <p>Replaces the current cache with a new, template-specific
+	 * {@link ParsedSqlCache} of the given limit.
+	 * @see #setParsedSqlCache
 	 */
 	public void setCacheLimit(int cacheLimit) {
-		this.cacheLimit = cacheLimit;
+		this.parsedSqlCache = new ParsedSqlCache(cacheLimit);
 	}
 
 	/**
 	 * Return the maximum number of entries for this template's SQL cache.
 	 */
 	public int getCacheLimit() {
-		return this.cacheLimit;
+		return this.parsedSqlCache.getCacheLimit();
+	}
+
+	/**
+	 * Specify the cache of parsed SQL statements to use, e.g. an instance
+	 * shared with other {@code NamedParameterJdbcTemplate} instances.
+	 * <p>Default is a template-specific cache with a limit of 256 entries.
+	 * @since 5.2
+	 * @see #setCacheLimit
+	 */
+	public void setParsedSqlCache(ParsedSqlCache parsedSqlCache) {
+		Assert.notNull(parsedSqlCache, "ParsedSqlCache must not be null");
+		this.parsedSqlCache = parsedSqlCache;
+	}
+
+	/**
+	 * Return the cache of parsed SQL statements used by this template.
+	 * @since 5.2
+	 */
+	public ParsedSqlCache getParsedSqlCache() {
+		return this.parsedSqlCache;
 	}
 
 
@@ -227,6 +246,20 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return query(sql, EmptySqlParameterSource.INSTANCE, rowMapper);
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return getJdbcOperations().queryForStream(getPreparedStatementCreator(sql, paramSource), rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(sql, new MapSqlParameterSource(paramMap), rowMapper);
+	}
+
 	@Override
 	@Nullable
 	public <T> T queryForObject(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
@@ -377,6 +410,28 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 				});
 	}
 
+	@Override
+	public long batchUpdate(String sql, Iterator<? extends SqlParameterSource> batchArgs, int batchSize) {
+		if (!batchArgs.hasNext()) {
+			return 0;
+		}
+
+		SqlParameterSource first = batchArgs.next();
+		ParsedSql parsedSql = getParsedSql(sql);
+		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, first);
+
+		// Put the first element back in front, keeping the remainder lazy
+		Iterator<SqlParameterSource> allArgs = Stream.concat(Stream.of(first),
+				StreamSupport.stream(Spliterators.spliteratorUnknownSize(batchArgs, Spliterator.ORDERED), false))
+				.iterator();
+
+		return getJdbcOperations().batchUpdate(pscf.getSql(), allArgs, batchSize,
+				(ParameterizedPreparedStatementSetter<SqlParameterSource>) (ps, paramSource) -> {
+					Object[] values = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+					pscf.newPreparedStatementSetter(values).setValues(ps);
+				});
+	}
+
 
 	/**
 	 * Build a {@link PreparedStatementCreator} based on the given SQL and named parameters.
@@ -420,22 +475,14 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 
 	/**
 	 * Obtain a parsed representation of the given SQL statement.
-	 * <p>The default implementation uses an LRU cache with an upper limit of 256 entries.
+	 * <p>The default implementation uses the configured {@link ParsedSqlCache},
+	 * by default with an upper limit of 256 entries.
 	 * @param sql the original SQL statement
 	 * @return a representation of the parsed SQL statement
+	 * @see #setParsedSqlCache
 	 */
 	protected ParsedSql getParsedSql(String sql) {
-		if (getCacheLimit() <= 0) {
-			return NamedParameterUtils.parseSqlStatement(sql);
-		}
-		synchronized (this.parsedSqlCache) {
-			ParsedSql parsedSql = this.parsedSqlCache.get(sql);
-			if (parsedSql == null) {
-				parsedSql = NamedParameterUtils.parseSqlStatement(sql);
-				this.parsedSqlCache.put(sql, parsedSql);
-			}
-			return parsedSql;
-		}
+		return this.parsedSqlCache.getParsedSql(sql);
 	}
 
 	/**
@@ -450,9 +497,9 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	protected PreparedStatementCreatorFactory getPreparedStatementCreatorFactory(
 			ParsedSql parsedSql, SqlParameterSource paramSource) {
 
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
-		List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
-		return new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
+		SubstitutedSql substitutedSql = SubstitutedSql.forParameters(parsedSql, paramSource);
+		return new PreparedStatementCreatorFactory(
+				substitutedSql.getSql(), new ArrayList<>(substitutedSql.getDeclaredParameters()));
 	}
 
 }
@@ -18,6 +18,10 @@ package org.springframework.jdbc.core.namedparam;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.lang.Nullable;
 
 /**
  * Holds information about a parsed SQL statement.
@@ -28,6 +32,10 @@ import java.util.List;
  */
 public class ParsedSql {
 
+	/** Maximum number of parameter shapes to keep substituted SQL for. */
+	private static final int SUBSTITUTED_SQL_CACHE_LIMIT = 32;
+
+
 	private String originalSql;
 
 	private List<String> parameterNames = new ArrayList<>();
@@ -40,6 +48,8 @@ public class ParsedSql {
 
 	private int totalParameterCount;
 
+	private final Map<SubstitutedSql.Shape, SubstitutedSql> substitutedSqlCache = new ConcurrentHashMap<>(4);
+
 
 	/**
 	 * Create a new instance of the {@link ParsedSql} class.
@@ -134,6 +144,27 @@ public class ParsedSql {
 	}
 
 
+	/**
+	 * Return the substituted SQL previously derived for the given parameter shape.
+	 * @since 5.2
+	 */
+	@Nullable
+	SubstitutedSql getSubstitutedSql(SubstitutedSql.Shape shape) {
+		return this.substitutedSqlCache.get(shape);
+	}
+
+	/**
+	 * Keep the substituted SQL derived for the given parameter shape,
+	 * unless the limit for different shapes has been reached already.
+	 * @since 5.2
+	 */
+	void addSubstitutedSql(SubstitutedSql.Shape shape, SubstitutedSql substitutedSql) {
+		if (this.substitutedSqlCache.size() < SUBSTITUTED_SQL_CACHE_LIMIT) {
+			this.substitutedSqlCache.putIfAbsent(shape, substitutedSql);
+		}
+	}
+
+
 	/**
 	 * Exposes the original SQL String.
 	 */
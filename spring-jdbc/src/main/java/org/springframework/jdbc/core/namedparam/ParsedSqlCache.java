@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of {@link ParsedSql} representations, keyed by original SQL String.
+ *
+ * <p>Lookups are lock-free; once the cache limit is exceeded, entries that have
+ * not been used since the previous eviction sweep are removed first (a "second
+ * chance" approximation of LRU). A single instance may be shared across several
+ * {@link NamedParameterJdbcTemplate} instances, e.g. one per {@code DataSource},
+ * so that identical SQL statements are parsed only once.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see NamedParameterJdbcTemplate#setParsedSqlCache
+ */
+public class ParsedSqlCache {
+
+	/** Default maximum number of entries: 256. */
+	public static final int DEFAULT_CACHE_LIMIT = 256;
+
+
+	private final int cacheLimit;
+
+	private final ConcurrentMap<String, CacheEntry> cache;
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+
+	/**
+	 * Create a new {@code ParsedSqlCache} with the default limit of 256 entries.
+	 */
+	public ParsedSqlCache() {
+		this(DEFAULT_CACHE_LIMIT);
+	}
+
+	/**
+	 * Create a new {@code ParsedSqlCache} with the given limit.
+	 * @param cacheLimit the maximum number of entries
+	 * (0 or less indicating no caching)
+	 */
+	public ParsedSqlCache(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+		this.cache = new ConcurrentHashMap<>(Math.max(16, Math.min(cacheLimit, DEFAULT_CACHE_LIMIT)));
+	}
+
+
+	/**
+	 * Return the maximum number of entries for this cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Return the current number of entries in this cache.
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Remove all entries from this cache.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * Obtain a parsed representation of the given SQL statement,
+	 * parsing it if not cached yet.
+	 * @param sql the original SQL statement
+	 * @return a representation of the parsed SQL statement
+	 * @see NamedParameterUtils#parseSqlStatement(String)
+	 */
+	public ParsedSql getParsedSql(String sql) {
+		if (this.cacheLimit <= 0) {
+			return NamedParameterUtils.parseSqlStatement(sql);
+		}
+		CacheEntry entry = this.cache.get(sql);
+		if (entry == null) {
+			entry = this.cache.computeIfAbsent(sql, key -> new CacheEntry(NamedParameterUtils.parseSqlStatement(key)));
+			if (this.cache.size() > this.cacheLimit) {
+				evict();
+			}
+		}
+		else if (!entry.used) {
+			entry.used = true;
+		}
+		return entry.parsedSql;
+	}
+
+	/**
+	 * Remove entries until a tenth of the cache limit is free again,
+	 * giving recently used entries a second chance. Skipped if another
+	 * thread is evicting already.
+	 */
+	private void evict() {
+		if (!this.evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			int targetSize = this.cacheLimit - Math.max(1, this.cacheLimit / 10);
+			for (int pass = 0; pass < 2 && this.cache.size() > targetSize; pass++) {
+				Iterator<CacheEntry> it = this.cache.values().iterator();
+				while (it.hasNext() && this.cache.size() > targetSize) {
+					CacheEntry entry = it.next();
+					if (entry.used) {
+						entry.used = false;
+					}
+					else {
+						it.remove();
+					}
+				}
+			}
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ParsedSqlCache: " + this.cache.size() + " of " + this.cacheLimit + " entries";
+	}
+
+
+	private static class CacheEntry {
+
+		final ParsedSql parsedSql;
+
+		volatile boolean used = true;
+
+		CacheEntry(ParsedSql parsedSql) {
+			this.parsedSql = parsedSql;
+		}
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * The JDBC-style SQL String and declared {@link SqlParameter SqlParameters} for
+ * a {@link ParsedSql} statement, as derived from a given parameter source.
+ *
+ * <p>Both only depend on the "shape" of the parameter values: their SQL types,
+ * and the number of placeholders each value expands to. Results are therefore
+ * cached on the {@code ParsedSql} per shape, avoiding repeated substitution for
+ * statements which are executed with different values of the same shape.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see NamedParameterUtils#substituteNamedParameters(ParsedSql, SqlParameterSource)
+ * @see NamedParameterUtils#buildSqlParameterList(ParsedSql, SqlParameterSource)
+ */
+final class SubstitutedSql {
+
+	private final String sql;
+
+	private final List<SqlParameter> declaredParameters;
+
+
+	private SubstitutedSql(String sql, List<SqlParameter> declaredParameters) {
+		this.sql = sql;
+		this.declaredParameters = Collections.unmodifiableList(declaredParameters);
+	}
+
+
+	/**
+	 * Return the SQL String with named parameters substituted by JDBC placeholders.
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Return the declared parameters, in the order of their occurrence.
+	 */
+	public List<SqlParameter> getDeclaredParameters() {
+		return this.declaredParameters;
+	}
+
+
+	/**
+	 * Derive the substituted SQL for the given statement and parameter source,
+	 * reusing a previously derived result for the same parameter shape.
+	 * @param parsedSql the parsed SQL statement
+	 * @param paramSource the source for named parameters
+	 * @return the substituted SQL
+	 */
+	public static SubstitutedSql forParameters(ParsedSql parsedSql, SqlParameterSource paramSource) {
+		Shape shape = Shape.of(parsedSql, paramSource);
+		SubstitutedSql substitutedSql = parsedSql.getSubstitutedSql(shape);
+		if (substitutedSql == null) {
+			substitutedSql = new SubstitutedSql(
+					NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource),
+					NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource));
+			parsedSql.addSubstitutedSql(shape, substitutedSql);
+		}
+		return substitutedSql;
+	}
+
+
+	/**
+	 * Shape of the parameter values for a statement: the SQL type and type name
+	 * of each parameter, and the placeholder expansion for collection values.
+	 */
+	static final class Shape {
+
+		private final int[] codes;
+
+		@Nullable
+		private final String[] typeNames;
+
+		private final int hashCode;
+
+		private Shape(int[] codes, @Nullable String[] typeNames) {
+			this.codes = codes;
+			this.typeNames = typeNames;
+			this.hashCode = Arrays.hashCode(codes) * 29 + ObjectUtils.nullSafeHashCode(typeNames);
+		}
+
+		static Shape of(ParsedSql parsedSql, SqlParameterSource paramSource) {
+			List<String> paramNames = parsedSql.getParameterNames();
+			int[] codes = new int[paramNames.size() * 2];
+			int pos = 0;
+			String[] typeNames = null;
+			for (int i = 0; i < paramNames.size(); i++) {
+				String paramName = paramNames.get(i);
+				Object value = (paramSource.hasValue(paramName) ? paramSource.getValue(paramName) : null);
+				if (value instanceof SqlParameterValue) {
+					value = ((SqlParameterValue) value).getValue();
+				}
+				if (pos + 2 > codes.length) {
+					codes = Arrays.copyOf(codes, Math.max(codes.length * 2, pos + 2));
+				}
+				codes[pos++] = paramSource.getSqlType(paramName);
+				if (value instanceof Collection) {
+					Collection<?> entries = (Collection<?>) value;
+					codes[pos++] = entries.size();
+					if (pos + entries.size() > codes.length) {
+						codes = Arrays.copyOf(codes, Math.max(codes.length * 2, pos + entries.size() + 2));
+					}
+					for (Object entry : entries) {
+						codes[pos++] = (entry instanceof Object[] ? ((Object[]) entry).length : -1);
+					}
+				}
+				else {
+					codes[pos++] = -1;
+				}
+				String typeName = paramSource.getTypeName(paramName);
+				if (typeName != null) {
+					if (typeNames == null) {
+						typeNames = new String[paramNames.size()];
+					}
+					typeNames[i] = typeName;
+				}
+			}
+			return new Shape((pos == codes.length ? codes : Arrays.copyOf(codes, pos)), typeNames);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Shape)) {
+				return false;
+			}
+			Shape otherShape = (Shape) other;
+			return (Arrays.equals(this.codes, otherShape.codes) &&
+					Arrays.equals(this.typeNames, otherShape.typeNames));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.reactive;
+
+import java.util.List;
+import java.util.function.Function;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.Nullable;
+
+/**
+ * Interface specifying a basic set of JDBC operations with reactive return types.
+ * Implemented by {@link ReactiveJdbcTemplate}.
+ *
+ * <p>All operations are deferred: the underlying blocking JDBC call happens on
+ * subscription, on a scheduler dedicated to JDBC access, never on the
+ * subscribing thread.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see JdbcOperations
+ */
+public interface ReactiveJdbcOperations {
+
+	/**
+	 * Execute a JDBC data access operation, implemented as callback action
+	 * working on the underlying {@link JdbcOperations}.
+	 * @param action the callback action, possibly returning {@code null}
+	 * @return a Mono with the result of the callback, empty for {@code null}
+	 */
+	<T> Mono<T> execute(Function<JdbcOperations, T> action);
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, mapping each row to a result object
+	 * via a RowMapper.
+	 * <p>Rows are pulled from the live ResultSet according to downstream demand,
+	 * with the Connection being held until the Flux terminates or is cancelled.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper a callback that will map one object per row
+	 * @param args arguments to bind to the query
+	 * @return a Flux of mapped objects
+	 * @see JdbcOperations#queryForStream(String, RowMapper, Object...)
+	 */
+	<T> Flux<T> query(String sql, RowMapper<T> rowMapper, @Nullable Object... args);
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, mapping a single result row to a
+	 * result object via a RowMapper.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper a callback that will map one object per row
+	 * @param args arguments to bind to the query
+	 * @return a Mono with the single mapped object, empty if the
+	 * RowMapper returned {@code null}
+	 * @see JdbcOperations#queryForObject(String, RowMapper, Object...)
+	 */
+	<T> Mono<T> queryForObject(String sql, RowMapper<T> rowMapper, @Nullable Object... args);
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, expecting a result object.
+	 * @param sql the SQL query to execute
+	 * @param requiredType the type that the result object is expected to match
+	 * @param args arguments to bind to the query
+	 * @return a Mono with the result object, empty in case of SQL NULL
+	 * @see JdbcOperations#queryForObject(String, Class, Object...)
+	 */
+	<T> Mono<T> queryForObject(String sql, Class<T> requiredType, @Nullable Object... args);
+
+	/**
+	 * Issue a single SQL update operation (such as an insert, update or delete
+	 * statement) via a prepared statement, binding the given arguments.
+	 * @param sql the SQL containing bind parameters
+	 * @param args arguments to bind to the query
+	 * @return a Mono with the number of rows affected
+	 * @see JdbcOperations#update(String, Object...)
+	 */
+	Mono<Integer> update(String sql, @Nullable Object... args);
+
+	/**
+	 * Execute a batch using the supplied SQL statement with the batch of supplied arguments.
+	 * @param sql the SQL statement to execute
+	 * @param batchArgs the List of Object arrays containing the batch of arguments for the query
+	 * @return a Mono with an array containing the numbers of rows affected by each update in the batch
+	 * @see JdbcOperations#batchUpdate(String, List)
+	 */
+	Mono<int[]> batchUpdate(String sql, List<Object[]> batchArgs);
+
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.reactive;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.CustomizableThreadCreator;
+
+/**
+ * Reactive facade over a {@link JdbcOperations} instance, typically a
+ * {@link JdbcTemplate}, returning {@link Mono} and {@link Flux} results.
+ *
+ * <p>Every blocking JDBC call is offloaded onto a dedicated scheduler with a
+ * fixed number of threads, which should usually match the maximum size of the
+ * connection pool behind the {@code DataSource}. Calls beyond that concurrency
+ * wait in a queue instead of occupying further threads; with a bounded queue,
+ * calls that do not fit are rejected with a
+ * {@link java.util.concurrent.RejectedExecutionException} error signal.
+ * The current load can be monitored via {@link #getQueueDepth()} and
+ * {@link #getActiveCount()}.
+ *
+ * <p>A streaming {@link #query query} occupies one of these threads from
+ * opening its ResultSet until the returned Flux terminates or is cancelled,
+ * waiting for demand in between. The number of open ResultSets, and of the
+ * Connections held by them, is therefore bounded by the concurrency as well.
+ * Consumers should not wait for other calls on this template while keeping
+ * a query open, since those calls may have to wait for a thread in turn.
+ *
+ * <p>The subscriber's Reactor {@link Context} is exposed to the JDBC thread
+ * for the duration of each call, see {@link #currentContext()}, e.g. for
+ * routing to a specific {@code DataSource}. Since JDBC transactions are bound
+ * to a thread, transactional work needs to happen within a single callback:
+ * see {@link #inTransaction(Function)}.
+ *
+ * <p><b>NOTE: An instance of this class is thread-safe once configured.</b>
+ * It needs to be {@link #destroy() destroyed} for shutting down its threads.
+ *
+ * @author Agent Local
+ * @since 5.2
+ */
+public class ReactiveJdbcTemplate implements ReactiveJdbcOperations, DisposableBean {
+
+	/** Default number of rows to pull from a ResultSet at a time: 256. */
+	public static final int DEFAULT_ROW_BATCH_SIZE = 256;
+
+	private static final ThreadLocal<Context> currentContext =
+			new NamedThreadLocal<>("Current Reactor Context for JDBC access");
+
+
+	private final JdbcOperations jdbcOperations;
+
+	private final ThreadPoolExecutor executor;
+
+	private final Scheduler scheduler;
+
+	private int rowBatchSize = DEFAULT_ROW_BATCH_SIZE;
+
+	@Nullable
+	private TransactionTemplate transactionTemplate;
+
+
+	/**
+	 * Create a new ReactiveJdbcTemplate for the given {@link DataSource},
+	 * with an unbounded queue.
+	 * @param dataSource the JDBC DataSource to access
+	 * @param concurrency the maximum number of concurrent JDBC calls,
+	 * typically the maximum size of the connection pool
+	 */
+	public ReactiveJdbcTemplate(DataSource dataSource, int concurrency) {
+		this(new JdbcTemplate(dataSource), concurrency, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Create a new ReactiveJdbcTemplate for the given {@link JdbcOperations}.
+	 * @param jdbcOperations the JdbcOperations to delegate to
+	 * @param concurrency the maximum number of concurrent JDBC calls,
+	 * typically the maximum size of the connection pool
+	 * @param queueCapacity the maximum number of calls waiting for a thread
+	 * ({@code Integer.MAX_VALUE} for an unbounded queue)
+	 */
+	public ReactiveJdbcTemplate(JdbcOperations jdbcOperations, int concurrency, int queueCapacity) {
+		Assert.notNull(jdbcOperations, "JdbcOperations must not be null");
+		Assert.isTrue(concurrency > 0, "Concurrency must be greater than 0");
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be greater than 0");
+		this.jdbcOperations = jdbcOperations;
+		CustomizableThreadCreator threadCreator = new CustomizableThreadCreator("jdbc-");
+		threadCreator.setDaemon(true);
+		this.executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(queueCapacity), threadCreator::createThread);
+		this.executor.allowCoreThreadTimeOut(true);
+		this.scheduler = Schedulers.fromExecutorService(this.executor);
+	}
+
+
+	/**
+	 * Return the underlying {@link JdbcOperations} which all calls delegate to.
+	 */
+	public JdbcOperations getJdbcOperations() {
+		return this.jdbcOperations;
+	}
+
+	/**
+	 * Return the {@link Scheduler} that JDBC calls are offloaded to.
+	 */
+	public Scheduler getScheduler() {
+		return this.scheduler;
+	}
+
+	/**
+	 * Set the number of rows to request from the live ResultSet at a time
+	 * when streaming query results. Default is 256.
+	 * @see #query(String, RowMapper, Object...)
+	 */
+	public void setRowBatchSize(int rowBatchSize) {
+		Assert.isTrue(rowBatchSize > 0, "Row batch size must be greater than 0");
+		this.rowBatchSize = rowBatchSize;
+	}
+
+	/**
+	 * Return the number of rows to request from the live ResultSet at a time.
+	 */
+	public int getRowBatchSize() {
+		return this.rowBatchSize;
+	}
+
+	/**
+	 * Set the transaction manager to use for {@link #inTransaction(Function)}.
+	 */
+	public void setTransactionManager(@Nullable PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = (transactionManager != null ? new TransactionTemplate(transactionManager) : null);
+	}
+
+	/**
+	 * Return the maximum number of concurrent JDBC calls.
+	 */
+	public int getConcurrency() {
+		return this.executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Return the number of JDBC calls currently waiting for a thread.
+	 */
+	public int getQueueDepth() {
+		return this.executor.getQueue().size();
+	}
+
+	/**
+	 * Return the approximate number of JDBC calls currently executing.
+	 */
+	public int getActiveCount() {
+		return this.executor.getActiveCount();
+	}
+
+	/**
+	 * Return the remaining capacity of the queue for waiting JDBC calls.
+	 */
+	public int getRemainingQueueCapacity() {
+		BlockingQueue<Runnable> queue = this.executor.getQueue();
+		return queue.remainingCapacity();
+	}
+
+
+	@Override
+	public <T> Mono<T> execute(Function<JdbcOperations, T> action) {
+		Assert.notNull(action, "Callback object must not be null");
+		return offload(() -> action.apply(this.jdbcOperations));
+	}
+
+	/**
+	 * Execute a JDBC data access operation within a transaction, using the
+	 * configured {@link #setTransactionManager transaction manager}.
+	 * <p>The entire callback runs on a single JDBC thread, with the
+	 * transaction being bound to that thread for its duration.
+	 * @param action the callback action, possibly returning {@code null}
+	 * @return a Mono with the result of the callback, empty for {@code null}
+	 * @see TransactionTemplate#execute
+	 */
+	public <T> Mono<T> inTransaction(Function<JdbcOperations, T> action) {
+		Assert.notNull(action, "Callback object must not be null");
+		TransactionTemplate transactionTemplate = this.transactionTemplate;
+		Assert.state(transactionTemplate != null, "No PlatformTransactionManager set");
+		return offload(() -> transactionTemplate.execute(status -> action.apply(this.jdbcOperations)));
+	}
+
+	@Override
+	public <T> Flux<T> query(String sql, RowMapper<T> rowMapper, @Nullable Object... args) {
+		// Requests are not scheduled onto the JDBC thread, since it blocks while waiting for them
+		return Mono.subscriberContext()
+				.flatMapMany(context -> Flux.<T>create(sink -> emitWithContext(context, sink,
+						() -> this.jdbcOperations.queryForStream(sql, rowMapper, args)))
+				.subscribeOn(this.scheduler, false))
+				.limitRate(this.rowBatchSize);
+	}
+
+	@Override
+	public <T> Mono<T> queryForObject(String sql, RowMapper<T> rowMapper, @Nullable Object... args) {
+		return offload(() -> this.jdbcOperations.queryForObject(sql, rowMapper, args));
+	}
+
+	@Override
+	public <T> Mono<T> queryForObject(String sql, Class<T> requiredType, @Nullable Object... args) {
+		return offload(() -> this.jdbcOperations.queryForObject(sql, requiredType, args));
+	}
+
+	@Override
+	public Mono<Integer> update(String sql, @Nullable Object... args) {
+		return offload(() -> this.jdbcOperations.update(sql, args));
+	}
+
+	@Override
+	public Mono<int[]> batchUpdate(String sql, List<Object[]> batchArgs) {
+		return offload(() -> this.jdbcOperations.batchUpdate(sql, batchArgs));
+	}
+
+
+	/**
+	 * Shut down the JDBC threads, letting running calls complete.
+	 */
+	@Override
+	public void destroy() {
+		this.scheduler.dispose();
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Defer the given blocking call to the JDBC scheduler,
+	 * exposing the subscriber's Context while it is running.
+	 */
+	private <T> Mono<T> offload(Callable<T> callable) {
+		return Mono.subscriberContext()
+				.flatMap(context -> Mono.fromCallable(() -> callWithContext(context, callable))
+				.subscribeOn(this.scheduler));
+	}
+
+	/**
+	 * Emit the elements of the given Stream on the current JDBC thread,
+	 * exposing the subscriber's Context, and blocking while waiting for demand.
+	 * The Stream is closed on completion, error and cancellation.
+	 */
+	private static <T> void emitWithContext(Context context, FluxSink<T> sink, Callable<Stream<T>> streamCallable) {
+		Object demandMonitor = new Object();
+		Runnable signal = () -> {
+			synchronized (demandMonitor) {
+				demandMonitor.notifyAll();
+			}
+		};
+		sink.onRequest(n -> signal.run());
+		sink.onDispose(signal::run);
+		try {
+			callWithContext(context, () -> {
+				try (Stream<T> stream = streamCallable.call()) {
+					Iterator<T> iterator = stream.iterator();
+					while (awaitDemand(sink, demandMonitor) && iterator.hasNext()) {
+						sink.next(iterator.next());
+					}
+				}
+				return null;
+			});
+			sink.complete();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			sink.error(ex);
+		}
+		catch (Throwable ex) {
+			sink.error(ex);
+		}
+	}
+
+	/**
+	 * Wait until the given sink has demand or has been cancelled.
+	 * @return {@code true} if there is demand, {@code false} if cancelled
+	 */
+	private static boolean awaitDemand(FluxSink<?> sink, Object demandMonitor) throws InterruptedException {
+		synchronized (demandMonitor) {
+			while (sink.requestedFromDownstream() == 0 && !sink.isCancelled()) {
+				demandMonitor.wait();
+			}
+		}
+		return !sink.isCancelled();
+	}
+
+	private static <T> T callWithContext(Context context, Callable<T> callable) throws Exception {
+		Context previous = currentContext.get();
+		currentContext.set(context);
+		try {
+			return callable.call();
+		}
+		finally {
+			if (previous != null) {
+				currentContext.set(previous);
+			}
+			else {
+				currentContext.remove();
+			}
+		}
+	}
+
+	/**
+	 * Return the Reactor {@link Context} of the subscriber that the current
+	 * JDBC call is being executed for, if any.
+	 * <p>Only available on the JDBC thread while a call issued through a
+	 * {@code ReactiveJdbcTemplate} is executing, e.g. within a custom
+	 * {@code DataSource} or a callback passed to {@link #execute(Function)}.
+	 */
+	@Nullable
+	public static Context currentContext() {
+		return currentContext.get();
+	}
+
+}
@@ -0,0 +1,10 @@
+/**
+ * Reactive facade over the {@code org.springframework.jdbc.core} package,
+ * offloading blocking JDBC calls onto a dedicated, bounded scheduler.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.jdbc.core.reactive;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.jdbc.core.StatementObservation;
+import org.springframework.jdbc.core.StatementObserver;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Default {@link StatementObserver} implementation, keeping execution
+ * statistics per SQL statement and logging statements that take longer
+ * than a configurable threshold.
+ *
+ * <p>Statistics are kept in lock-free counters, with elapsed times recorded
+ * in a histogram of exponentially growing buckets (below 1 ms, below 2 ms,
+ * below 4 ms, and so on), allowing for cheap percentile estimates. The number
+ * of distinct SQL statements tracked is bounded; further statements are
+ * aggregated under {@link #OTHER_STATEMENTS}.
+ *
+ * <p>Slow statements are logged at warn level, including the time spent in
+ * each phase, the number of rows, and the fetch size.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see org.springframework.jdbc.core.JdbcTemplate#setStatementObserver
+ */
+public class StatementStatisticsObserver implements StatementObserver {
+
+	/** Key for statistics of statements beyond the tracking limit, or without known SQL. */
+	public static final String OTHER_STATEMENTS = "(other)";
+
+	/** Default maximum number of distinct SQL statements to track: 1000. */
+	public static final int DEFAULT_MAX_STATEMENTS = 1000;
+
+	/** Number of histogram buckets, with the last one for 2^14 ms (about 16 seconds) and above. */
+	public static final int BUCKET_COUNT = 16;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final Map<String, Statistics> statistics = new ConcurrentHashMap<>(64);
+
+	private long slowQueryThresholdNanos = TimeUnit.SECONDS.toNanos(1);
+
+	private int maxStatements = DEFAULT_MAX_STATEMENTS;
+
+
+	/**
+	 * Set the threshold above which statements are logged as slow.
+	 * Default is 1 second.
+	 */
+	public void setSlowQueryThreshold(Duration slowQueryThreshold) {
+		Assert.notNull(slowQueryThreshold, "Slow query threshold must not be null");
+		this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+	}
+
+	/**
+	 * Return the threshold above which statements are logged as slow.
+	 */
+	public Duration getSlowQueryThreshold() {
+		return Duration.ofNanos(this.slowQueryThresholdNanos);
+	}
+
+	/**
+	 * Set the maximum number of distinct SQL statements to keep individual
+	 * statistics for. Default is 1000.
+	 */
+	public void setMaxStatements(int maxStatements) {
+		Assert.isTrue(maxStatements > 0, "Max statements must be greater than 0");
+		this.maxStatements = maxStatements;
+	}
+
+	/**
+	 * Return the maximum number of distinct SQL statements to keep individual
+	 * statistics for.
+	 */
+	public int getMaxStatements() {
+		return this.maxStatements;
+	}
+
+
+	@Override
+	public void statementCompleted(StatementObservation observation) {
+		long elapsed = observation.getElapsedNanos();
+		getOrCreateStatistics(observation.getSql()).record(observation, elapsed);
+		if (elapsed >= this.slowQueryThresholdNanos && logger.isWarnEnabled()) {
+			logger.warn(describeSlowStatement(observation, elapsed));
+		}
+	}
+
+	private Statistics getOrCreateStatistics(@Nullable String sql) {
+		if (sql == null) {
+			sql = OTHER_STATEMENTS;
+		}
+		Statistics stats = this.statistics.get(sql);
+		if (stats == null) {
+			if (this.statistics.size() >= this.maxStatements) {
+				sql = OTHER_STATEMENTS;
+			}
+			stats = this.statistics.computeIfAbsent(sql, key -> new Statistics());
+		}
+		return stats;
+	}
+
+	/**
+	 * Build the log message for a slow statement.
+	 * @param observation the observation of the slow statement
+	 * @param elapsed the total elapsed time in nanoseconds
+	 * @return the log message
+	 */
+	protected String describeSlowStatement(StatementObservation observation, long elapsed) {
+		StringBuilder sb = new StringBuilder("Slow SQL ");
+		sb.append(observation.getOperation().name().toLowerCase().replace('_', ' '));
+		sb.append(" took ").append(toMillis(elapsed)).append(" ms (connection and statement: ");
+		sb.append(toMillis(observation.getCreationNanos())).append(" ms, execution: ");
+		sb.append(toMillis(observation.getExecutionNanos())).append(" ms, extraction: ");
+		sb.append(toMillis(observation.getExtractionNanos())).append(" ms");
+		if (observation.getRowCount() >= 0) {
+			sb.append(", rows: ").append(observation.getRowCount());
+		}
+		if (observation.getBatchSize() >= 0) {
+			sb.append(", batch size: ").append(observation.getBatchSize());
+		}
+		if (observation.getParameterCount() >= 0) {
+			sb.append(", parameters: ").append(observation.getParameterCount());
+		}
+		if (observation.getFetchSize() >= 0) {
+			sb.append(", fetch size: ").append(observation.getFetchSize());
+		}
+		sb.append(") [").append(observation.getSql()).append("]");
+		if (observation.getException() != null) {
+			sb.append(" failed with ").append(observation.getException());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Return the statistics for the given SQL statement, if any.
+	 * @param sql the SQL statement, or {@link #OTHER_STATEMENTS}
+	 */
+	@Nullable
+	public Statistics getStatistics(String sql) {
+		return this.statistics.get(sql);
+	}
+
+	/**
+	 * Return a live view of the statistics for all tracked SQL statements.
+	 */
+	public Map<String, Statistics> getStatistics() {
+		return Collections.unmodifiableMap(this.statistics);
+	}
+
+	/**
+	 * Discard all statistics collected so far.
+	 */
+	public void reset() {
+		this.statistics.clear();
+	}
+
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * Return the histogram bucket for the given elapsed time.
+	 */
+	static int getBucket(long nanos) {
+		long millis = toMillis(nanos);
+		return (millis <= 0 ? 0 : Math.min(BUCKET_COUNT - 1, Long.SIZE - Long.numberOfLeadingZeros(millis)));
+	}
+
+	/**
+	 * Return the exclusive upper bound in milliseconds for the given histogram
+	 * bucket, or {@code Long.MAX_VALUE} for the last bucket.
+	 * @param bucket the bucket index, between 0 and {@link #BUCKET_COUNT} - 1
+	 */
+	public static long getBucketUpperBoundMillis(int bucket) {
+		Assert.isTrue(bucket >= 0 && bucket < BUCKET_COUNT, "Invalid bucket index");
+		return (bucket < BUCKET_COUNT - 1 ? 1L << bucket : Long.MAX_VALUE);
+	}
+
+
+	/**
+	 * Execution statistics for a single SQL statement.
+	 */
+	public static class Statistics {
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder failureCount = new LongAdder();
+
+		private final LongAdder rowCount = new LongAdder();
+
+		private final LongAdder totalNanos = new LongAdder();
+
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_COUNT);
+
+		void record(StatementObservation observation, long elapsed) {
+			this.count.increment();
+			if (observation.getException() != null) {
+				this.failureCount.increment();
+			}
+			if (observation.getRowCount() > 0) {
+				this.rowCount.add(observation.getRowCount());
+			}
+			this.totalNanos.add(elapsed);
+			this.maxNanos.accumulate(elapsed);
+			this.histogram.incrementAndGet(getBucket(elapsed));
+		}
+
+		/**
+		 * Return the number of executions.
+		 */
+		public long getCount() {
+			return this.count.sum();
+		}
+
+		/**
+		 * Return the number of executions that failed with an exception.
+		 */
+		public long getFailureCount() {
+			return this.failureCount.sum();
+		}
+
+		/**
+		 * Return the total number of rows fetched or affected, as far as known.
+		 */
+		public long getRowCount() {
+			return this.rowCount.sum();
+		}
+
+		/**
+		 * Return the total elapsed time of all executions in nanoseconds.
+		 */
+		public long getTotalNanos() {
+			return this.totalNanos.sum();
+		}
+
+		/**
+		 * Return the maximum elapsed time of a single execution in nanoseconds.
+		 */
+		public long getMaxNanos() {
+			return this.maxNanos.get();
+		}
+
+		/**
+		 * Return the mean elapsed time per execution in nanoseconds.
+		 */
+		public long getMeanNanos() {
+			long count = getCount();
+			return (count > 0 ? getTotalNanos() / count : 0);
+		}
+
+		/**
+		 * Return a snapshot of the elapsed time histogram, with one
+		 * execution count per bucket.
+		 * @see #getBucketUpperBoundMillis(int)
+		 */
+		public long[] getHistogram() {
+			long[] snapshot = new long[BUCKET_COUNT];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				snapshot[i] = this.histogram.get(i);
+			}
+			return snapshot;
+		}
+
+		/**
+		 * Estimate the given percentile of elapsed times, as the upper bound
+		 * of the histogram bucket that the percentile falls into.
+		 * @param percentile the percentile, between 0.0 and 1.0 (e.g. 0.99)
+		 * @return the estimated elapsed time in milliseconds, or {@code Long.MAX_VALUE}
+		 * if the percentile falls into the last bucket
+		 */
+		public long getPercentileMillis(double percentile) {
+			Assert.isTrue(percentile >= 0.0 && percentile <= 1.0, "Percentile must be between 0.0 and 1.0");
+			long[] snapshot = getHistogram();
+			long total = 0;
+			for (long bucketCount : snapshot) {
+				total += bucketCount;
+			}
+			long threshold = (long) Math.ceil(total * percentile);
+			long seen = 0;
+			for (int i = 0; i < snapshot.length; i++) {
+				seen += snapshot[i];
+				if (seen >= threshold && seen > 0) {
+					return getBucketUpperBoundMillis(i);
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + getCount() + ", failures=" + getFailureCount() + ", rows=" + getRowCount() +
+					", mean=" + toMillis(getMeanNanos()) + " ms, max=" + toMillis(getMaxNanos()) + " ms";
+		}
+	}
+
+}
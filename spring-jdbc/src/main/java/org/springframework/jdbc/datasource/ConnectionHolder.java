@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -60,6 +60,9 @@ public class ConnectionHolder extends ResourceHolderSupport {
 
 	private int savepointCounter = 0;
 
+	@Nullable
+	private PreparedStatementCache statementCache;
+
 
 	/**
 	 * Create a new ConnectionHolder for the given ConnectionHandle.
@@ -187,6 +190,28 @@ public class ConnectionHolder extends ResourceHolderSupport {
 		return getConnection().setSavepoint(SAVEPOINT_NAME_PREFIX + this.savepointCounter);
 	}
 
+	/**
+	 * Set a cache for the PreparedStatements executed on the current Connection.
+	 * <p>The cache is not closed by this holder: that is the responsibility
+	 * of whoever set it, before releasing the Connection.
+	 * @since 5.2
+	 * @see DataSourceTransactionManager#setStatementCacheSize
+	 */
+	public void setStatementCache(@Nullable PreparedStatementCache statementCache) {
+		this.statementCache = statementCache;
+	}
+
+	/**
+	 * Return the cache for the PreparedStatements executed on the current
+	 * Connection, if any.
+	 * @since 5.2
+	 * @see DataSourceUtils#getStatementCache
+	 */
+	@Nullable
+	public PreparedStatementCache getStatementCache() {
+		return this.statementCache;
+	}
+
 	/**
 	 * Releases the current Connection held by this ConnectionHolder.
 	 * <p>This is necessary for ConnectionHandles that expect "Connection borrowing",
@@ -212,6 +237,7 @@ public class ConnectionHolder extends ResourceHolderSupport {
 		this.transactionActive = false;
 		this.savepointsSupported = null;
 		this.savepointCounter = 0;
+		this.statementCache = null;
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -117,6 +117,8 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
 
 	private boolean enforceReadOnly = false;
 
+	private int statementCacheSize = 0;
+
 
 	/**
 	 * Create a new DataSourceTransactionManager instance.
@@ -219,6 +221,32 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
 		return this.enforceReadOnly;
 	}
 
+	/**
+	 * Specify the maximum number of PreparedStatements to keep open per
+	 * transaction, for reuse by {@link org.springframework.jdbc.core.JdbcTemplate}
+	 * when the same SQL statement is executed repeatedly within a transaction.
+	 * Only the template's query and update operations use cached statements;
+	 * statements handed to application callbacks via {@code execute} are
+	 * prepared and closed for every call.
+	 * <p>Cached statements are closed when the transaction completes, before
+	 * the Connection is released. This is mainly worth enabling for JDBC drivers
+	 * and connection pools that do not cache prepared statements themselves.
+	 * <p>Default is 0, not caching any statements.
+	 * @since 5.2
+	 * @see PreparedStatementCache
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Return the maximum number of PreparedStatements to keep open per transaction.
+	 * @since 5.2
+	 */
+	public int getStatementCacheSize() {
+		return this.statementCacheSize;
+	}
+
 	@Override
 	public void afterPropertiesSet() {
 		if (getDataSource() == null) {
@@ -285,6 +313,10 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
 
 			prepareTransactionalConnection(con, definition);
 			txObject.getConnectionHolder().setTransactionActive(true);
+			if (this.statementCacheSize > 0) {
+				txObject.getConnectionHolder().setStatementCache(
+						new PreparedStatementCache(con, this.statementCacheSize));
+			}
 
 			int timeout = determineTimeout(definition);
 			if (timeout != TransactionDefinition.TIMEOUT_DEFAULT) {
@@ -367,6 +399,13 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
 			TransactionSynchronizationManager.unbindResource(obtainDataSource());
 		}
 
+		// Close cached statements while the connection is still ours.
+		PreparedStatementCache statementCache = txObject.getConnectionHolder().getStatementCache();
+		if (statementCache != null) {
+			statementCache.close();
+			txObject.getConnectionHolder().setStatementCache(null);
+		}
+
 		// Reset connection.
 		Connection con = txObject.getConnectionHolder().getConnection();
 		try {
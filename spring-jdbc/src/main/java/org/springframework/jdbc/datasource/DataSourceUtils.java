@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -262,6 +262,27 @@ public abstract class DataSourceUtils {
 		return (conHolder != null && connectionEquals(conHolder, con));
 	}
 
+	/**
+	 * Return the {@link PreparedStatementCache} for the given JDBC Connection,
+	 * if the Connection is bound to the current transaction and the transaction
+	 * manager has set up a statement cache for it.
+	 * @param con the Connection to check
+	 * @param dataSource the DataSource that the Connection was obtained from
+	 * (may be {@code null})
+	 * @return the statement cache, or {@code null} if none
+	 * @since 5.2
+	 * @see DataSourceTransactionManager#setStatementCacheSize
+	 */
+	@Nullable
+	public static PreparedStatementCache getStatementCache(Connection con, @Nullable DataSource dataSource) {
+		if (dataSource == null) {
+			return null;
+		}
+		ConnectionHolder conHolder = (ConnectionHolder) TransactionSynchronizationManager.getResource(dataSource);
+		PreparedStatementCache statementCache = (conHolder != null ? conHolder.getStatementCache() : null);
+		return (statementCache != null && statementCache.getConnection() == con ? statementCache : null);
+	}
+
 	/**
 	 * Apply the current transaction timeout, if any,
 	 * to the given JDBC Statement object.
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Bounded LRU cache of {@link PreparedStatement PreparedStatements} for a single
+ * transactional JDBC {@link Connection}, keyed by SQL String.
+ *
+ * <p>Held by a {@link ConnectionHolder} for the duration of a transaction, see
+ * {@link DataSourceTransactionManager#setStatementCacheSize}, and consulted by
+ * {@link org.springframework.jdbc.core.JdbcTemplate} so that statements which are
+ * executed repeatedly within the same transaction are only prepared once. This is
+ * mainly useful for JDBC drivers and connection pools without a statement cache
+ * of their own.
+ *
+ * <p>A statement is {@link #take taken} out of the cache while in use and
+ * {@link #release released} back into it afterwards, so nested executions of the
+ * same SQL statement never share a statement. Not thread-safe: like the
+ * Connection itself, an instance is only to be used by one thread at a time.
+ *
+ * <p>Note: This is an SPI class, not intended to be used by applications.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see ConnectionHolder#getStatementCache()
+ * @see DataSourceUtils#getStatementCache
+ */
+public class PreparedStatementCache {
+
+	private static final Log logger = LogFactory.getLog(PreparedStatementCache.class);
+
+
+	private final Connection connection;
+
+	private final int cacheLimit;
+
+	private final Map<String, PreparedStatement> statements;
+
+	private int hitCount;
+
+	private int missCount;
+
+
+	/**
+	 * Create a new PreparedStatementCache for the given Connection.
+	 * @param connection the JDBC Connection that cached statements belong to
+	 * @param cacheLimit the maximum number of statements to keep open
+	 */
+	public PreparedStatementCache(Connection connection, int cacheLimit) {
+		Assert.notNull(connection, "Connection must not be null");
+		Assert.isTrue(cacheLimit > 0, "Cache limit must be greater than 0");
+		this.connection = connection;
+		this.cacheLimit = cacheLimit;
+		this.statements = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+
+	/**
+	 * Return the JDBC Connection that cached statements belong to.
+	 */
+	public Connection getConnection() {
+		return this.connection;
+	}
+
+	/**
+	 * Return the maximum number of statements to keep open.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Return the number of statements currently cached.
+	 */
+	public int size() {
+		return this.statements.size();
+	}
+
+	/**
+	 * Return the number of {@link #take} calls which returned a cached statement.
+	 */
+	public int getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Return the number of {@link #take} calls which found no cached statement.
+	 */
+	public int getMissCount() {
+		return this.missCount;
+	}
+
+
+	/**
+	 * Take the statement for the given SQL out of the cache, if any.
+	 * <p>The caller owns the statement until it is {@link #release released}.
+	 * @param sql the SQL String of the statement
+	 * @return the cached statement, or {@code null} if none
+	 */
+	@Nullable
+	public PreparedStatement take(String sql) {
+		PreparedStatement ps = this.statements.remove(sql);
+		if (ps != null) {
+			this.hitCount++;
+		}
+		else {
+			this.missCount++;
+		}
+		return ps;
+	}
+
+	/**
+	 * Release the given statement into the cache after use, clearing its
+	 * parameters and warnings. The least recently used statement is closed if
+	 * the cache limit is exceeded; the given statement is closed right away if
+	 * another statement for the same SQL has been cached in the meantime, or
+	 * if it cannot be reset.
+	 * @param sql the SQL String of the statement
+	 * @param ps the statement to release
+	 */
+	public void release(String sql, PreparedStatement ps) {
+		if (this.statements.containsKey(sql)) {
+			JdbcUtils.closeStatement(ps);
+			return;
+		}
+		try {
+			ps.clearParameters();
+			ps.clearWarnings();
+		}
+		catch (SQLException ex) {
+			logger.debug("Could not reset JDBC PreparedStatement for reuse", ex);
+			JdbcUtils.closeStatement(ps);
+			return;
+		}
+		this.statements.put(sql, ps);
+		if (this.statements.size() > this.cacheLimit) {
+			Iterator<PreparedStatement> it = this.statements.values().iterator();
+			JdbcUtils.closeStatement(it.next());
+			it.remove();
+		}
+	}
+
+	/**
+	 * Close all cached statements. To be called before the Connection
+	 * is released at the end of the transaction.
+	 */
+	public void close() {
+		for (PreparedStatement ps : this.statements.values()) {
+			JdbcUtils.closeStatement(ps);
+		}
+		this.statements.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "PreparedStatementCache: " + this.statements.size() + " of " + this.cacheLimit +
+				" statements, " + this.hitCount + " hits, " + this.missCount + " misses";
+	}
+
+}
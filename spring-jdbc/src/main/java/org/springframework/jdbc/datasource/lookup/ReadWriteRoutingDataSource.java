@@ -0,0 +1,443 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * DataSource that routes read-only transactions to a set of replica DataSources,
+ * and everything else to a primary DataSource. The replicas are configured as
+ * {@link #setTargetDataSources target DataSources}, keyed by arbitrary names;
+ * the primary is configured as {@link #setDefaultTargetDataSource default target}.
+ *
+ * <p>Whether the current transaction is read-only is determined through
+ * {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()},
+ * e.g. as exposed for {@code @Transactional(readOnly = true)}. Since that flag
+ * only gets exposed once the transaction has begun, a local transaction manager
+ * such as {@link org.springframework.jdbc.datasource.DataSourceTransactionManager}
+ * needs to operate on a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * around this router, deferring the actual Connection until the first statement:
+ *
+ * <pre class="code">
+ * ReadWriteRoutingDataSource router = new ReadWriteRoutingDataSource();
+ * router.setDefaultTargetDataSource(primaryDataSource);
+ * router.setTargetDataSources(replicaDataSourcesByName);
+ * router.setReplicaSelectionStrategy(ReplicaSelectionStrategy.leastActive());
+ * router.afterPropertiesSet();
+ * DataSource dataSource = new LazyConnectionDataSourceProxy(router);</pre>
+ *
+ * <p>Replicas are chosen by a pluggable {@link ReplicaSelectionStrategy},
+ * round-robin by default. A replica that repeatedly fails to provide a
+ * Connection gets ejected for a configurable period, with the Connection being
+ * obtained from another replica instead, or from the primary as a last resort.
+ * Connections from replicas are tracked until closed, for the benefit of
+ * {@link ReplicaSelectionStrategy#leastActive()}.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see #setDefaultTargetDataSource
+ * @see #setTargetDataSources
+ * @see #setReplicaSelectionStrategy
+ * @see org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+	private ReplicaSelectionStrategy replicaSelectionStrategy = ReplicaSelectionStrategy.roundRobin();
+
+	private int failureThreshold = 3;
+
+	private long ejectionNanos = TimeUnit.SECONDS.toNanos(30);
+
+	private boolean fallbackToPrimary = true;
+
+	private List<Replica> replicas = Collections.emptyList();
+
+
+	/**
+	 * Set the strategy for choosing between replicas.
+	 * Default is {@link ReplicaSelectionStrategy#roundRobin()}.
+	 */
+	public void setReplicaSelectionStrategy(ReplicaSelectionStrategy replicaSelectionStrategy) {
+		Assert.notNull(replicaSelectionStrategy, "ReplicaSelectionStrategy must not be null");
+		this.replicaSelectionStrategy = replicaSelectionStrategy;
+	}
+
+	/**
+	 * Return the strategy for choosing between replicas.
+	 */
+	public ReplicaSelectionStrategy getReplicaSelectionStrategy() {
+		return this.replicaSelectionStrategy;
+	}
+
+	/**
+	 * Set the number of consecutive Connection failures after which a replica
+	 * gets ejected. Default is 3.
+	 */
+	public void setFailureThreshold(int failureThreshold) {
+		Assert.isTrue(failureThreshold > 0, "Failure threshold must be greater than 0");
+		this.failureThreshold = failureThreshold;
+	}
+
+	/**
+	 * Return the number of consecutive Connection failures after which
+	 * a replica gets ejected.
+	 */
+	public int getFailureThreshold() {
+		return this.failureThreshold;
+	}
+
+	/**
+	 * Set the number of milliseconds that an ejected replica stays out of
+	 * rotation. Once elapsed, the replica is tried again; a further failure
+	 * ejects it right away. Default is 30 seconds.
+	 */
+	public void setEjectionMillis(long ejectionMillis) {
+		Assert.isTrue(ejectionMillis >= 0, "Ejection time must not be negative");
+		this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionMillis);
+	}
+
+	/**
+	 * Return the number of milliseconds that an ejected replica stays out of rotation.
+	 */
+	public long getEjectionMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.ejectionNanos);
+	}
+
+	/**
+	 * Set whether read-only work should fall back to the primary DataSource
+	 * if no replica is able to provide a Connection. Default is "true".
+	 * <p>Switch this flag to "false" to rather propagate the Connection failure,
+	 * keeping read-only traffic off the primary under any circumstances.
+	 */
+	public void setFallbackToPrimary(boolean fallbackToPrimary) {
+		this.fallbackToPrimary = fallbackToPrimary;
+	}
+
+	/**
+	 * Return whether read-only work falls back to the primary DataSource.
+	 */
+	public boolean isFallbackToPrimary() {
+		return this.fallbackToPrimary;
+	}
+
+
+	@Override
+	public void afterPropertiesSet() {
+		super.afterPropertiesSet();
+		if (getResolvedDefaultDataSource() == null) {
+			throw new IllegalArgumentException("Property 'defaultTargetDataSource' (the primary) is required");
+		}
+		List<Replica> replicas = new ArrayList<>(getResolvedDataSources().size());
+		getResolvedDataSources().forEach((key, dataSource) -> replicas.add(new Replica(key, dataSource)));
+		this.replicas = Collections.unmodifiableList(replicas);
+	}
+
+	/**
+	 * Return all replicas, including currently ejected ones.
+	 */
+	public List<Replica> getReplicas() {
+		return this.replicas;
+	}
+
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return routeConnection(null, null);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return routeConnection(username, password);
+	}
+
+	private Connection routeConnection(@Nullable String username, @Nullable String password) throws SQLException {
+		DataSource primary = getPrimaryDataSource();
+		if (!isReadOnlyRoute()) {
+			return obtainConnection(primary, username, password);
+		}
+		SQLException failure = null;
+		List<Replica> candidates = getAvailableReplicas();
+		while (!candidates.isEmpty()) {
+			Replica replica = selectReplica(candidates);
+			try {
+				return replica.getConnection(username, password);
+			}
+			catch (SQLException ex) {
+				if (failure == null) {
+					failure = ex;
+				}
+				else {
+					failure.setNextException(ex);
+				}
+				candidates = new ArrayList<>(candidates);
+				candidates.remove(replica);
+			}
+		}
+		if (failure != null && !this.fallbackToPrimary) {
+			throw failure;
+		}
+		if (failure != null && logger.isDebugEnabled()) {
+			logger.debug("No replica available - obtaining read-only Connection from primary", failure);
+		}
+		return obtainConnection(primary, username, password);
+	}
+
+	/**
+	 * Determine whether the current work should be routed to a replica.
+	 * <p>The default implementation checks for a read-only transaction through
+	 * {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()}.
+	 */
+	protected boolean isReadOnlyRoute() {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	/**
+	 * Returns {@code null} for the primary, and the lookup key of
+	 * a selected replica for read-only work.
+	 */
+	@Override
+	@Nullable
+	protected Object determineCurrentLookupKey() {
+		if (!isReadOnlyRoute()) {
+			return null;
+		}
+		List<Replica> candidates = getAvailableReplicas();
+		return (!candidates.isEmpty() ? selectReplica(candidates).getName() : null);
+	}
+
+	private DataSource getPrimaryDataSource() {
+		DataSource primary = getResolvedDefaultDataSource();
+		Assert.state(primary != null, "DataSource router not initialized");
+		return primary;
+	}
+
+	private List<Replica> getAvailableReplicas() {
+		List<Replica> replicas = this.replicas;
+		for (Replica replica : replicas) {
+			if (!replica.isAvailable()) {
+				List<Replica> available = new ArrayList<>(replicas.size() - 1);
+				for (Replica candidate : replicas) {
+					if (candidate.isAvailable()) {
+						available.add(candidate);
+					}
+				}
+				return available;
+			}
+		}
+		return replicas;
+	}
+
+	private Replica selectReplica(List<Replica> candidates) {
+		Replica replica = this.replicaSelectionStrategy.select(candidates);
+		Assert.state(replica != null, "ReplicaSelectionStrategy returned null");
+		return replica;
+	}
+
+	private static Connection obtainConnection(DataSource dataSource, @Nullable String username,
+			@Nullable String password) throws SQLException {
+
+		return (username != null ? dataSource.getConnection(username, password) : dataSource.getConnection());
+	}
+
+
+	/**
+	 * A replica DataSource, with statistics on Connection usage and failures.
+	 */
+	public final class Replica {
+
+		private final Object name;
+
+		private final DataSource dataSource;
+
+		private final AtomicInteger activeConnections = new AtomicInteger();
+
+		private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+		private volatile long ejectedUntil;
+
+		private volatile long averageLatencyNanos;
+
+		Replica(Object name, DataSource dataSource) {
+			this.name = name;
+			this.dataSource = dataSource;
+		}
+
+		/**
+		 * Return the lookup key of this replica.
+		 */
+		public Object getName() {
+			return this.name;
+		}
+
+		/**
+		 * Return the target DataSource of this replica.
+		 */
+		public DataSource getDataSource() {
+			return this.dataSource;
+		}
+
+		/**
+		 * Return the number of Connections obtained from this replica
+		 * that have not been closed yet.
+		 */
+		public int getActiveConnections() {
+			return this.activeConnections.get();
+		}
+
+		/**
+		 * Return the number of consecutive failures to obtain a Connection.
+		 */
+		public int getConsecutiveFailures() {
+			return this.consecutiveFailures.get();
+		}
+
+		/**
+		 * Return the exponentially weighted average time in nanoseconds for
+		 * obtaining a Connection from this replica, or 0 if not known yet.
+		 */
+		public long getAverageLatencyNanos() {
+			return this.averageLatencyNanos;
+		}
+
+		/**
+		 * Return whether this replica is currently in rotation, i.e. not ejected.
+		 */
+		public boolean isAvailable() {
+			long ejectedUntil = this.ejectedUntil;
+			return (ejectedUntil == 0 || System.nanoTime() - ejectedUntil >= 0);
+		}
+
+		Connection getConnection(@Nullable String username, @Nullable String password) throws SQLException {
+			long start = System.nanoTime();
+			Connection con;
+			try {
+				con = obtainConnection(this.dataSource, username, password);
+			}
+			catch (SQLException | RuntimeException ex) {
+				connectionFailed(ex);
+				throw ex;
+			}
+			long latency = System.nanoTime() - start;
+			long average = this.averageLatencyNanos;
+			this.averageLatencyNanos = (average == 0 ? latency : average - (average >> 3) + (latency >> 3));
+			this.consecutiveFailures.set(0);
+			this.ejectedUntil = 0;
+			this.activeConnections.incrementAndGet();
+			return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+					new Class<?>[] {ConnectionProxy.class}, new ReplicaConnectionInvocationHandler(con, this));
+		}
+
+		private void connectionFailed(Exception ex) {
+			int failures = this.consecutiveFailures.incrementAndGet();
+			if (failures >= getFailureThreshold()) {
+				this.ejectedUntil = System.nanoTime() + ReadWriteRoutingDataSource.this.ejectionNanos;
+				if (logger.isWarnEnabled()) {
+					logger.warn("Ejecting replica '" + this.name + "' for " + getEjectionMillis() +
+							" ms after " + failures + " consecutive Connection failures: " + ex);
+				}
+			}
+		}
+
+		void connectionClosed() {
+			this.activeConnections.decrementAndGet();
+		}
+
+		@Override
+		public String toString() {
+			return "Replica '" + this.name + "': " + this.activeConnections + " active Connections" +
+					(isAvailable() ? "" : " (ejected)");
+		}
+	}
+
+
+	/**
+	 * Invocation handler that tracks the closing of Connections obtained from a replica.
+	 */
+	private static class ReplicaConnectionInvocationHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final Replica replica;
+
+		private boolean closed = false;
+
+		public ReplicaConnectionInvocationHandler(Connection target, Replica replica) {
+			this.target = target;
+			this.replica = replica;
+		}
+
+		@Override
+		@Nullable
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			// Invocation on ConnectionProxy interface coming in...
+
+			switch (method.getName()) {
+				case "equals":
+					// Only consider equal when proxies are identical.
+					return (proxy == args[0]);
+				case "hashCode":
+					// Use hashCode of Connection proxy.
+					return System.identityHashCode(proxy);
+				case "unwrap":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return proxy;
+					}
+					break;
+				case "isWrapperFor":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return true;
+					}
+					break;
+				case "getTargetConnection":
+					// Handle getTargetConnection method: return underlying Connection.
+					return this.target;
+				case "close":
+					// Track the first close call, then delegate.
+					if (!this.closed) {
+						this.closed = true;
+						this.replica.connectionClosed();
+					}
+					break;
+			}
+
+			// Invoke method on target Connection.
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.jdbc.datasource.lookup.ReadWriteRoutingDataSource.Replica;
+
+/**
+ * Strategy for choosing one of several replica DataSources
+ * in a {@link ReadWriteRoutingDataSource}.
+ *
+ * <p>Common strategies are available through the static factory methods
+ * on this interface: {@link #roundRobin()}, {@link #leastActive()} and
+ * {@link #latencyWeighted()}.
+ *
+ * @author Agent Local
+ * @since 5.2
+ * @see ReadWriteRoutingDataSource#setReplicaSelectionStrategy
+ */
+@FunctionalInterface
+public interface ReplicaSelectionStrategy {
+
+	/**
+	 * Select the replica to obtain the next Connection from.
+	 * @param replicas the currently available replicas (never empty)
+	 * @return the selected replica (must be one of the given replicas)
+	 */
+	Replica select(List<Replica> replicas);
+
+
+	/**
+	 * Return a strategy that cycles through the available replicas in turn.
+	 */
+	static ReplicaSelectionStrategy roundRobin() {
+		AtomicInteger counter = new AtomicInteger();
+		return replicas -> replicas.get((counter.getAndIncrement() & Integer.MAX_VALUE) % replicas.size());
+	}
+
+	/**
+	 * Return a strategy that selects the replica with the fewest Connections
+	 * currently in use, choosing randomly between equally loaded replicas.
+	 * @see Replica#getActiveConnections()
+	 */
+	static ReplicaSelectionStrategy leastActive() {
+		return replicas -> {
+			int size = replicas.size();
+			int offset = (size > 1 ? ThreadLocalRandom.current().nextInt(size) : 0);
+			Replica selected = null;
+			for (int i = 0; i < size; i++) {
+				Replica candidate = replicas.get((offset + i) % size);
+				if (selected == null || candidate.getActiveConnections() < selected.getActiveConnections()) {
+					selected = candidate;
+				}
+			}
+			return selected;
+		};
+	}
+
+	/**
+	 * Return a strategy that selects replicas randomly, with a probability
+	 * inversely proportional to their average Connection acquisition latency.
+	 * Replicas without latency samples yet are weighted like the fastest one.
+	 * @see Replica#getAverageLatencyNanos()
+	 */
+	static ReplicaSelectionStrategy latencyWeighted() {
+		return replicas -> {
+			int size = replicas.size();
+			if (size == 1) {
+				return replicas.get(0);
+			}
+			long fastest = Long.MAX_VALUE;
+			for (Replica replica : replicas) {
+				long latency = replica.getAverageLatencyNanos();
+				if (latency > 0 && latency < fastest) {
+					fastest = latency;
+				}
+			}
+			double[] weights = new double[size];
+			double total = 0;
+			for (int i = 0; i < size; i++) {
+				long latency = replicas.get(i).getAverageLatencyNanos();
+				weights[i] = 1.0 / Math.max(1, latency > 0 ? latency : fastest);
+				total += weights[i];
+			}
+			double point = ThreadLocalRandom.current().nextDouble(total);
+			for (int i = 0; i < size - 1; i++) {
+				point -= weights[i];
+				if (point < 0) {
+					return replicas.get(i);
+				}
+			}
+			return replicas.get(size - 1);
+		};
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyDescriptor;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.jdbc.core.test.Person;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link CompiledBeanPropertyRowMapper}, covering what differs from
+ * {@link BeanPropertyRowMapper} (see {@link BeanPropertyRowMapperTests}).
+ *
+ * @author Agent Local
+ */
+public class CompiledBeanPropertyRowMapperTests extends AbstractRowMapperTests {
+
+	@Test
+	public void testStaticQueryWithRowMapper() throws Exception {
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				CompiledBeanPropertyRowMapper.newInstance(Person.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingNullValueWithPrimitivesDefaulted() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		Mock mock = new Mock(MockType.TWO);
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		assertEquals("Bubba", result.get(0).getName());
+		assertEquals(0L, result.get(0).getAge());
+	}
+
+	@Test
+	public void testMappingPlanReusedForSameResultSet() throws Exception {
+		ResultSet rs = mockResultSet();
+		given(rs.getString(1)).willReturn("Bubba", "Billy");
+		given(rs.getLong(2)).willReturn(22L, 33L);
+
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		Person first = mapper.mapRow(rs, 0);
+		Person second = mapper.mapRow(rs, 1);
+		assertEquals("Bubba", first.getName());
+		assertEquals(22L, first.getAge());
+		assertEquals("Billy", second.getName());
+		assertEquals(33L, second.getAge());
+		verify(rs, times(1)).getMetaData();
+	}
+
+	@Test
+	public void testMappingPlanSharedAcrossInstances() throws Exception {
+		ResultSet rs = mockResultSet();
+		given(rs.getString(1)).willReturn("Bubba", "Billy");
+		given(rs.getLong(2)).willReturn(22L, 33L);
+
+		NameLookupCountingRowMapper first = new NameLookupCountingRowMapper();
+		first.nameLookups = 0;
+		assertEquals("Bubba", first.mapRow(rs, 0).getName());
+		assertEquals(2, first.nameLookups);
+
+		NameLookupCountingRowMapper second = new NameLookupCountingRowMapper();
+		second.nameLookups = 0;
+		assertEquals("Billy", second.mapRow(rs, 0).getName());
+		assertEquals(0, second.nameLookups);
+	}
+
+	@Test
+	public void testPrimitiveReadThroughOverriddenColumnValue() throws Exception {
+		ResultSet rs = mockResultSet();
+		given(rs.getString(1)).willReturn("Bubba");
+		given(rs.getLong(2)).willReturn(22L);
+
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<Person>(Person.class) {
+			@Override
+			protected Object getColumnValue(ResultSet rs, int index, PropertyDescriptor pd) throws SQLException {
+				return ("age".equals(pd.getName()) ? "33" : super.getColumnValue(rs, index, pd));
+			}
+		};
+		Person person = mapper.mapRow(rs, 0);
+		assertEquals("Bubba", person.getName());
+		assertEquals(33L, person.getAge());
+		verify(rs, never()).getLong(2);
+	}
+
+
+	private static ResultSet mockResultSet() throws SQLException {
+		ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+		given(rsmd.getColumnCount()).willReturn(2);
+		given(rsmd.getColumnLabel(1)).willReturn("name");
+		given(rsmd.getColumnLabel(2)).willReturn("age");
+		ResultSet rs = mock(ResultSet.class);
+		given(rs.getMetaData()).willReturn(rsmd);
+		return rs;
+	}
+
+
+	private static class NameLookupCountingRowMapper extends CompiledBeanPropertyRowMapper<Person> {
+
+		int nameLookups;
+
+		public NameLookupCountingRowMapper() {
+			super(Person.class);
+		}
+
+		@Override
+		protected String lowerCaseName(String name) {
+			this.nameLookups++;
+			return super.lowerCaseName(name);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,9 +30,15 @@ import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 import org.junit.Before;
@@ -247,6 +253,103 @@ public class JdbcTemplateTests {
 		verify(this.connection).close();
 	}
 
+	@Test
+	public void testQueryForStreamWithStaticSql() throws Exception {
+		String sql = "SELECT FORENAME FROM CUSTMR";
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getString(1)).willReturn("rod", "gary");
+		given(this.connection.createStatement()).willReturn(this.statement);
+
+		try (Stream<String> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getString(1))) {
+			assertEquals(Arrays.asList("rod", "gary"), stream.collect(Collectors.toList()));
+			verify(this.resultSet, never()).close();
+			verify(this.connection, never()).close();
+		}
+
+		verify(this.statement).executeQuery(sql);
+		verify(this.resultSet).close();
+		verify(this.statement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithPreparedStatementArgs() throws Exception {
+		String sql = "SELECT FORENAME FROM CUSTMR WHERE ID > ?";
+		given(this.resultSet.next()).willReturn(true, true, true, false);
+		given(this.resultSet.getString(1)).willReturn("rod", "gary", "portia");
+
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+		template.setFetchSize(2);
+		try (Stream<String> stream = template.queryForStream(sql, (rs, rowNum) -> rowNum + ":" + rs.getString(1), 1)) {
+			Iterator<String> it = stream.iterator();
+			assertEquals("0:rod", it.next());
+			verify(this.resultSet, times(1)).next();
+			assertEquals("1:gary", it.next());
+			verify(this.resultSet, times(2)).next();
+		}
+
+		verify(this.preparedStatement).setFetchSize(2);
+		verify(this.preparedStatement).setObject(1, 1);
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamReleasesConnectionOnSqlException() throws Exception {
+		SQLException sqlException = new SQLException("bad SQL syntax");
+		given(this.preparedStatement.executeQuery()).willThrow(sqlException);
+
+		this.thrown.expect(DataAccessException.class);
+		try {
+			this.template.queryForStream("SELECT FORENAME FROM CUSTMR", (PreparedStatementSetter) null,
+					(rs, rowNum) -> rs.getString(1));
+		}
+		finally {
+			verify(this.preparedStatement).close();
+			verify(this.connection, atLeastOnce()).close();
+		}
+	}
+
+	@Test
+	public void testQueryForStreamReleasesResourcesOnFatalWarning() throws Exception {
+		SQLWarning warnings = new SQLWarning("My warning");
+		given(this.preparedStatement.getWarnings()).willReturn(warnings);
+		ArgumentPreparedStatementSetter pss = spy(new ArgumentPreparedStatementSetter(new Object[] {1}));
+
+		this.template.setIgnoreWarnings(false);
+		this.thrown.expect(SQLWarningException.class);
+		try {
+			this.template.queryForStream("SELECT FORENAME FROM CUSTMR WHERE ID > ?", pss,
+					(rs, rowNum) -> rs.getString(1));
+		}
+		finally {
+			verify(pss).cleanupParameters();
+			verify(this.resultSet).close();
+			verify(this.preparedStatement).close();
+			verify(this.connection).close();
+		}
+	}
+
+	@Test
+	public void testQueryForStreamTranslatesSqlExceptionWhileIterating() throws Exception {
+		SQLException sqlException = new SQLException("connection lost");
+		given(this.resultSet.next()).willReturn(true).willThrow(sqlException);
+		given(this.resultSet.getString(1)).willReturn("rod");
+		given(this.connection.createStatement()).willReturn(this.statement);
+
+		this.thrown.expect(DataAccessException.class);
+		this.thrown.expect(exceptionCause(sameInstance(sqlException)));
+		try (Stream<String> stream = this.template.queryForStream("SELECT FORENAME FROM CUSTMR",
+				(rs, rowNum) -> rs.getString(1))) {
+			stream.forEach(name -> assertEquals("rod", name));
+		}
+		finally {
+			verify(this.resultSet).close();
+			verify(this.connection, atLeastOnce()).close();
+		}
+	}
+
 	@Test
 	public void testLeaveConnectionOpenOnRequest() throws Exception {
 		String sql = "SELECT ID, FORENAME FROM CUSTMR WHERE ID < 3";
@@ -786,6 +889,78 @@ public class JdbcTemplateTests {
 		verify(this.connection, atLeastOnce()).close();
 	}
 
+	@Test
+	public void testStreamingBatchUpdate() throws Exception {
+		final String sql = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = SYSDATE WHERE ID = ?";
+		Iterator<Integer> ids = IntStream.rangeClosed(1, 5).boxed().iterator();
+
+		given(this.preparedStatement.executeBatch()).willReturn(
+				new int[] {1, 1}, new int[] {2, Statement.SUCCESS_NO_INFO}, new int[] {3});
+		mockDatabaseMetaData(true);
+
+		ParameterizedPreparedStatementSetter<Integer> setter = (ps, argument) -> ps.setInt(1, argument.intValue());
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+
+		long actualRowsAffected = template.batchUpdate(sql, ids, 2, setter);
+		assertEquals(7, actualRowsAffected);
+		assertFalse(ids.hasNext());
+
+		verify(this.preparedStatement, times(5)).addBatch();
+		verify(this.preparedStatement, times(3)).executeBatch();
+		for (int i = 1; i <= 5; i++) {
+			verify(this.preparedStatement).setInt(1, i);
+		}
+		verify(this.preparedStatement).close();
+		verify(this.connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testStreamingBatchUpdateWithPrefetchExecutor() throws Exception {
+		final String sql = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = SYSDATE WHERE ID = ?";
+		Iterator<Integer> ids = IntStream.rangeClosed(1, 4).boxed().iterator();
+
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1});
+		mockDatabaseMetaData(true);
+
+		ParameterizedPreparedStatementSetter<Integer> setter = (ps, argument) -> ps.setInt(1, argument.intValue());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+			template.setBatchPrefetchExecutor(executor);
+
+			long actualRowsAffected = template.batchUpdate(sql, ids, 2, setter);
+			assertEquals(4, actualRowsAffected);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		verify(this.preparedStatement, times(4)).addBatch();
+		verify(this.preparedStatement, times(2)).executeBatch();
+		verify(this.preparedStatement).close();
+		verify(this.connection, atLeastOnce()).close();
+	}
+
+	@Test
+	public void testStreamingBatchUpdateWithoutBatchSupport() throws Exception {
+		final String sql = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = SYSDATE WHERE ID = ?";
+		Iterator<Integer> ids = Arrays.asList(100, 200, 300).iterator();
+
+		given(this.preparedStatement.executeUpdate()).willReturn(1, 1, 0);
+		mockDatabaseMetaData(false);
+
+		ParameterizedPreparedStatementSetter<Integer> setter = (ps, argument) -> ps.setInt(1, argument.intValue());
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+
+		long actualRowsAffected = template.batchUpdate(sql, ids, 2, setter);
+		assertEquals(2, actualRowsAffected);
+
+		verify(this.preparedStatement, never()).addBatch();
+		verify(this.preparedStatement, times(3)).executeUpdate();
+		verify(this.preparedStatement).close();
+		verify(this.connection, atLeastOnce()).close();
+	}
+
 	@Test
 	public void testCouldNotGetConnectionForOperationOrExceptionTranslator() throws SQLException {
 		SQLException sqlException = new SQLException("foo", "07xxx");
@@ -1136,6 +1311,102 @@ public class JdbcTemplateTests {
 	}
 
 
+	@Test
+	public void testStatementObserverWithQuery() throws Exception {
+		List<StatementObservation> observations = new ArrayList<>();
+		this.template.setStatementObserver(observations::add);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getString(1)).willReturn("a", "b");
+
+		List<String> result = this.template.query("SELECT NAME FROM T WHERE ID > ?",
+				(rs, rowNum) -> rs.getString(1), 1);
+		assertEquals(Arrays.asList("a", "b"), result);
+		assertEquals(1, observations.size());
+		StatementObservation observation = observations.get(0);
+		assertEquals(StatementObservation.Operation.QUERY, observation.getOperation());
+		assertEquals("SELECT NAME FROM T WHERE ID > ?", observation.getSql());
+		assertEquals(1, observation.getParameterCount());
+		assertEquals(2, observation.getRowCount());
+		assertEquals(-1, observation.getBatchSize());
+		assertTrue(observation.isSuccessful());
+		assertEquals(observation.getElapsedNanos(), observation.getCreationNanos() +
+				observation.getExecutionNanos() + observation.getExtractionNanos());
+	}
+
+	@Test
+	public void testStatementObserverPhases() throws Exception {
+		List<String> phases = new ArrayList<>();
+		this.template.setStatementObserver(new StatementObserver() {
+			@Override
+			public void statementCreated(StatementObservation observation) {
+				phases.add("created " + observation.getSql());
+			}
+			@Override
+			public void statementExecuted(StatementObservation observation) {
+				phases.add("executed " + observation.getRowCount());
+			}
+			@Override
+			public void statementCompleted(StatementObservation observation) {
+				phases.add("completed " + observation.getRowCount());
+			}
+		});
+		given(this.preparedStatement.executeUpdate()).willReturn(3);
+
+		this.template.update("UPDATE T SET X = ?", 1);
+		assertEquals(Arrays.asList("created UPDATE T SET X = ?", "executed 3", "completed 3"), phases);
+	}
+
+	@Test
+	public void testStatementObserverWithBatchUpdate() throws Exception {
+		List<StatementObservation> observations = new ArrayList<>();
+		this.template.setStatementObserver(observations::add);
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1, Statement.SUCCESS_NO_INFO});
+		mockDatabaseMetaData(true);
+
+		this.template.batchUpdate("UPDATE T SET X = ?",
+				Arrays.asList(new Object[] {1}, new Object[] {2}, new Object[] {3}));
+		StatementObservation observation = observations.get(0);
+		assertEquals(StatementObservation.Operation.BATCH_UPDATE, observation.getOperation());
+		assertEquals(3, observation.getBatchSize());
+		assertEquals(2, observation.getRowCount());
+	}
+
+	@Test
+	public void testStatementObserverWithFailure() throws Exception {
+		List<StatementObservation> observations = new ArrayList<>();
+		this.template.setStatementObserver(observations::add);
+		given(this.connection.createStatement()).willReturn(this.statement);
+		SQLException sqlException = new SQLException("bad SQL", "42000");
+		given(this.statement.executeUpdate("UPDATE NOSUCHTABLE SET X = 1")).willThrow(sqlException);
+
+		try {
+			this.template.update("UPDATE NOSUCHTABLE SET X = 1");
+			fail("Should have thrown DataAccessException");
+		}
+		catch (DataAccessException ex) {
+			StatementObservation observation = observations.get(0);
+			assertSame(ex, observation.getException());
+			assertFalse(observation.isSuccessful());
+			assertEquals("UPDATE NOSUCHTABLE SET X = 1", observation.getSql());
+		}
+	}
+
+	@Test
+	public void testStatementObserverWithStream() throws Exception {
+		List<StatementObservation> observations = new ArrayList<>();
+		this.template.setStatementObserver(observations::add);
+		given(this.resultSet.next()).willReturn(true, true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(1, 2, 3);
+
+		try (Stream<Integer> stream = this.template.queryForStream("SELECT ID FROM T", (rs, rowNum) -> rs.getInt(1), 1)) {
+			assertEquals(Arrays.asList(1, 2), stream.limit(2).collect(Collectors.toList()));
+			assertTrue(observations.isEmpty());
+		}
+		assertEquals(1, observations.size());
+		assertEquals(2, observations.get(0).getRowCount());
+	}
+
+
 	private void mockDatabaseMetaData(boolean supportsBatchUpdates) throws SQLException {
 		DatabaseMetaData databaseMetaData = mock(DatabaseMetaData.class);
 		given(databaseMetaData.getDatabaseProductName()).willReturn("MySQL");
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link JdbcTemplate} with a
+ * {@link JdbcTemplate#setTransactionalBatchSize transactional batch size}.
+ *
+ * @author Agent Local
+ */
+public class JdbcTemplateTransactionalBatchTests {
+
+	private static final String INSERT = "insert into t (x) values (?)";
+
+	private static final String UPDATE = "update t set x = ?";
+
+	private Connection connection;
+
+	private PreparedStatement insertStatement;
+
+	private PreparedStatement updateStatement;
+
+	private JdbcTemplate template;
+
+	private TransactionTemplate transactionTemplate;
+
+
+	@Before
+	public void setup() throws Exception {
+		this.connection = mock(Connection.class);
+		DataSource dataSource = mock(DataSource.class);
+		given(dataSource.getConnection()).willReturn(this.connection);
+		DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+		given(metaData.supportsBatchUpdates()).willReturn(true);
+		given(this.connection.getMetaData()).willReturn(metaData);
+		given(this.connection.getAutoCommit()).willReturn(true);
+		this.insertStatement = mock(PreparedStatement.class);
+		this.updateStatement = mock(PreparedStatement.class);
+		given(this.connection.prepareStatement(INSERT)).willReturn(this.insertStatement);
+		given(this.connection.prepareStatement(UPDATE)).willReturn(this.updateStatement);
+		given(this.insertStatement.getConnection()).willReturn(this.connection);
+		given(this.updateStatement.getConnection()).willReturn(this.connection);
+		given(this.insertStatement.executeBatch()).willReturn(new int[] {1, 1, 1});
+		given(this.updateStatement.executeBatch()).willReturn(new int[] {5});
+		given(this.updateStatement.executeUpdate()).willReturn(5);
+
+		this.template = new JdbcTemplate(dataSource);
+		this.template.setTransactionalBatchSize(10);
+		this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+	}
+
+	@After
+	public void verifyCleanup() {
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+	}
+
+
+	@Test
+	public void updatesBatchedUntilCommit() throws Exception {
+		this.transactionTemplate.execute(status -> {
+			assertEquals(Statement.SUCCESS_NO_INFO, this.template.update(INSERT, 1));
+			assertEquals(Statement.SUCCESS_NO_INFO, this.template.update(INSERT, 2));
+			assertEquals(Statement.SUCCESS_NO_INFO, this.template.update(INSERT, 3));
+			verifyZeroInteractions(this.insertStatement);
+			return null;
+		});
+
+		InOrder ordered = inOrder(this.insertStatement, this.connection);
+		ordered.verify(this.insertStatement).setObject(1, 1);
+		ordered.verify(this.insertStatement).addBatch();
+		ordered.verify(this.insertStatement).setObject(1, 2);
+		ordered.verify(this.insertStatement).addBatch();
+		ordered.verify(this.insertStatement).setObject(1, 3);
+		ordered.verify(this.insertStatement).addBatch();
+		ordered.verify(this.insertStatement).executeBatch();
+		ordered.verify(this.connection).commit();
+		verify(this.connection, times(1)).prepareStatement(INSERT);
+	}
+
+	@Test
+	public void batchFlushedOnDifferentStatement() throws Exception {
+		this.transactionTemplate.execute(status -> {
+			this.template.update(INSERT, 1);
+			this.template.update(INSERT, 2);
+			this.template.update(UPDATE, 3);
+			return null;
+		});
+
+		InOrder ordered = inOrder(this.insertStatement, this.updateStatement, this.connection);
+		ordered.verify(this.insertStatement).executeBatch();
+		ordered.verify(this.updateStatement).executeBatch();
+		ordered.verify(this.connection).commit();
+	}
+
+	@Test
+	public void batchFlushedOnQuery() throws Exception {
+		PreparedStatement queryStatement = mock(PreparedStatement.class);
+		ResultSet resultSet = mock(ResultSet.class);
+		given(this.connection.prepareStatement("select count(*) from t where x > ?")).willReturn(queryStatement);
+		given(queryStatement.executeQuery()).willReturn(resultSet);
+		given(resultSet.next()).willReturn(true, false);
+		given(resultSet.getInt(1)).willReturn(2);
+
+		this.transactionTemplate.execute(status -> {
+			this.template.update(INSERT, 1);
+			this.template.update(INSERT, 2);
+			assertEquals(Integer.valueOf(2),
+					this.template.queryForObject("select count(*) from t where x > ?", (rs, rowNum) -> rs.getInt(1), 0));
+			return null;
+		});
+
+		InOrder ordered = inOrder(this.insertStatement, queryStatement);
+		ordered.verify(this.insertStatement).executeBatch();
+		ordered.verify(queryStatement).executeQuery();
+	}
+
+	@Test
+	public void batchFlushedWhenFull() throws Exception {
+		this.template.setTransactionalBatchSize(2);
+		this.transactionTemplate.execute(status -> {
+			this.template.update(INSERT, 1);
+			this.template.update(INSERT, 2);
+			try {
+				verify(this.insertStatement).executeBatch();
+			}
+			catch (Exception ex) {
+				throw new IllegalStateException(ex);
+			}
+			this.template.update(INSERT, 3);
+			return null;
+		});
+
+		verify(this.insertStatement, times(2)).executeBatch();
+	}
+
+	@Test
+	public void batchDiscardedOnRollback() throws Exception {
+		this.transactionTemplate.execute(status -> {
+			this.template.update(INSERT, 1);
+			status.setRollbackOnly();
+			return null;
+		});
+
+		verifyZeroInteractions(this.insertStatement);
+		verify(this.connection).rollback();
+	}
+
+	@Test
+	public void batchFlushedBeforeSavepointAndDiscardedOnNestedRollback() throws Exception {
+		Savepoint savepoint = mock(Savepoint.class);
+		given(this.connection.getMetaData().supportsSavepoints()).willReturn(true);
+		given(this.connection.setSavepoint(anyString())).willReturn(savepoint);
+
+		this.transactionTemplate.execute(status -> {
+			this.template.update(INSERT, 1);
+			TransactionTemplate nested = new TransactionTemplate(this.transactionTemplate.getTransactionManager());
+			nested.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+			nested.execute(nestedStatus -> {
+				this.template.update(UPDATE, 2);
+				nestedStatus.setRollbackOnly();
+				return null;
+			});
+			this.template.update(INSERT, 3);
+			return null;
+		});
+
+		InOrder ordered = inOrder(this.insertStatement, this.connection);
+		ordered.verify(this.insertStatement).setObject(1, 1);
+		ordered.verify(this.insertStatement).executeBatch();
+		ordered.verify(this.connection).setSavepoint(anyString());
+		ordered.verify(this.connection).rollback(savepoint);
+		ordered.verify(this.insertStatement).setObject(1, 3);
+		ordered.verify(this.insertStatement).executeBatch();
+		ordered.verify(this.connection).commit();
+		verifyZeroInteractions(this.updateStatement);
+	}
+
+	@Test
+	public void noBatchingInReadOnlyTransaction() throws Exception {
+		this.transactionTemplate.setReadOnly(true);
+		this.transactionTemplate.execute(status -> {
+			assertEquals(5, this.template.update(UPDATE, 1));
+			return null;
+		});
+
+		verify(this.updateStatement).executeUpdate();
+	}
+
+	@Test
+	public void noBatchingWithoutTransaction() throws Exception {
+		assertEquals(5, this.template.update(UPDATE, 1));
+		verify(this.updateStatement).executeUpdate();
+	}
+
+	@Test
+	public void batchFlushedOnSuspend() throws Exception {
+		Connection innerConnection = mock(Connection.class);
+		DataSource dataSource = this.template.getDataSource();
+		given(dataSource.getConnection()).willReturn(this.connection, innerConnection);
+		given(innerConnection.getAutoCommit()).willReturn(true);
+
+		this.transactionTemplate.execute(status -> {
+			this.template.update(INSERT, 1);
+			TransactionTemplate inner = new TransactionTemplate(this.transactionTemplate.getTransactionManager());
+			inner.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+			inner.execute(innerStatus -> {
+				try {
+					verify(this.insertStatement).executeBatch();
+				}
+				catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+				return null;
+			});
+			this.template.update(INSERT, 2);
+			return null;
+		});
+
+		verify(this.insertStatement, times(2)).executeBatch();
+		verify(this.connection).commit();
+		verify(innerConnection).commit();
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ParsedSqlCache} and the substituted SQL cached per {@link ParsedSql}.
+ *
+ * @author Agent Local
+ */
+public class ParsedSqlCacheTests {
+
+	@Test
+	public void parsedSqlIsCached() {
+		ParsedSqlCache cache = new ParsedSqlCache();
+		ParsedSql parsedSql = cache.getParsedSql("select * from t where id = :id");
+		assertSame(parsedSql, cache.getParsedSql("select * from t where id = :id"));
+		assertNotSame(parsedSql, cache.getParsedSql("select * from t where name = :name"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void cacheLimitIsEnforced() {
+		ParsedSqlCache cache = new ParsedSqlCache(10);
+		for (int i = 0; i < 100; i++) {
+			cache.getParsedSql("select * from t where id = :id and x = " + i);
+			assertTrue(cache.size() <= 10);
+		}
+	}
+
+	@Test
+	public void recentlyUsedEntriesSurviveEviction() {
+		ParsedSqlCache cache = new ParsedSqlCache(10);
+		ParsedSql hot = cache.getParsedSql("select * from t where id = :id");
+		for (int i = 0; i < 100; i++) {
+			assertSame(hot, cache.getParsedSql("select * from t where id = :id"));
+			cache.getParsedSql("select * from t where id = :id and x = " + i);
+		}
+	}
+
+	@Test
+	public void noCachingWithZeroLimit() {
+		ParsedSqlCache cache = new ParsedSqlCache(0);
+		ParsedSql parsedSql = cache.getParsedSql("select * from t where id = :id");
+		assertNotSame(parsedSql, cache.getParsedSql("select * from t where id = :id"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void cacheSharedAcrossTemplates() {
+		ParsedSqlCache cache = new ParsedSqlCache();
+		NamedParameterJdbcTemplate template1 = new NamedParameterJdbcTemplate(new JdbcTemplate());
+		NamedParameterJdbcTemplate template2 = new NamedParameterJdbcTemplate(new JdbcTemplate());
+		template1.setParsedSqlCache(cache);
+		template2.setParsedSqlCache(cache);
+		assertSame(template1.getParsedSql("select * from t where id = :id"),
+				template2.getParsedSql("select * from t where id = :id"));
+		assertEquals(256, template1.getCacheLimit());
+
+		template2.setCacheLimit(10);
+		assertNotSame(cache, template2.getParsedSqlCache());
+		assertEquals(10, template2.getCacheLimit());
+		assertSame(cache, template1.getParsedSqlCache());
+	}
+
+	@Test
+	public void substitutedSqlCachedPerParameterShape() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("select * from t where id in (:ids) and name = :name");
+
+		MapSqlParameterSource source1 = new MapSqlParameterSource("ids", Arrays.asList(1, 2)).addValue("name", "a");
+		MapSqlParameterSource source2 = new MapSqlParameterSource("ids", Arrays.asList(3, 4)).addValue("name", "b");
+		MapSqlParameterSource source3 = new MapSqlParameterSource("ids", Collections.singletonList(5)).addValue("name", "c");
+		MapSqlParameterSource source4 = new MapSqlParameterSource("ids", Arrays.asList(6, 7))
+				.addValue("name", "d", Types.VARCHAR);
+
+		SubstitutedSql substituted1 = SubstitutedSql.forParameters(parsedSql, source1);
+		assertEquals("select * from t where id in (?, ?) and name = ?", substituted1.getSql());
+		assertSame(substituted1, SubstitutedSql.forParameters(parsedSql, source2));
+
+		SubstitutedSql substituted3 = SubstitutedSql.forParameters(parsedSql, source3);
+		assertEquals("select * from t where id in (?) and name = ?", substituted3.getSql());
+
+		SubstitutedSql substituted4 = SubstitutedSql.forParameters(parsedSql, source4);
+		assertNotSame(substituted1, substituted4);
+		assertEquals(substituted1.getSql(), substituted4.getSql());
+		assertEquals(Types.VARCHAR, substituted4.getDeclaredParameters().get(1).getSqlType());
+	}
+
+	@Test
+	public void substitutedSqlWithTupleEntries() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("select * from t where (a, b) in (:pairs)");
+		MapSqlParameterSource source1 = new MapSqlParameterSource("pairs",
+				Arrays.asList(new Object[] {1, 2}, new Object[] {3, 4}));
+		MapSqlParameterSource source2 = new MapSqlParameterSource("pairs",
+				Arrays.asList(new Object[] {1, 2, 3}, new Object[] {4, 5, 6}));
+		assertEquals("select * from t where (a, b) in ((?, ?), (?, ?))",
+				SubstitutedSql.forParameters(parsedSql, source1).getSql());
+		assertEquals("select * from t where (a, b) in ((?, ?, ?), (?, ?, ?))",
+				SubstitutedSql.forParameters(parsedSql, source2).getSql());
+	}
+
+}
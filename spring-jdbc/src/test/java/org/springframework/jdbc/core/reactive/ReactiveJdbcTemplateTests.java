@@ -0,0 +1,261 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.reactive;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link ReactiveJdbcTemplate}.
+ *
+ * @author Agent Local
+ */
+public class ReactiveJdbcTemplateTests {
+
+	private static final RowMapper<String> ROW_MAPPER = (rs, rowNum) -> rs.getString(1);
+
+	private JdbcOperations jdbcOperations;
+
+	private ReactiveJdbcTemplate template;
+
+
+	@Before
+	public void setup() {
+		this.jdbcOperations = mock(JdbcOperations.class);
+		this.template = new ReactiveJdbcTemplate(this.jdbcOperations, 2, 1);
+	}
+
+	@After
+	public void destroy() {
+		this.template.destroy();
+	}
+
+
+	@Test
+	public void queryForObjectRunsOnJdbcThread() {
+		AtomicReference<String> threadName = new AtomicReference<>();
+		given(this.jdbcOperations.queryForObject("select name", String.class, 1)).willAnswer(invocation -> {
+			threadName.set(Thread.currentThread().getName());
+			return "Juergen";
+		});
+
+		StepVerifier.create(this.template.queryForObject("select name", String.class, 1))
+				.expectNext("Juergen")
+				.verifyComplete();
+		assertTrue(threadName.get().startsWith("jdbc-"));
+	}
+
+	@Test
+	public void queryForObjectWithNullResult() {
+		given(this.jdbcOperations.queryForObject("select name", ROW_MAPPER, 1)).willReturn(null);
+
+		StepVerifier.create(this.template.queryForObject("select name", ROW_MAPPER, 1))
+				.verifyComplete();
+	}
+
+	@Test
+	public void nothingExecutedWithoutSubscription() {
+		this.template.update("update t set x = ?", 1);
+		verifyZeroInteractions(this.jdbcOperations);
+	}
+
+	@Test
+	public void updateAndBatchUpdate() {
+		given(this.jdbcOperations.update("update t set x = ?", 1)).willReturn(3);
+		given(this.jdbcOperations.batchUpdate(eq("update t set x = ?"), anyList())).willReturn(new int[] {1, 2});
+
+		StepVerifier.create(this.template.update("update t set x = ?", 1))
+				.expectNext(3)
+				.verifyComplete();
+		StepVerifier.create(this.template.batchUpdate("update t set x = ?",
+				Arrays.asList(new Object[] {1}, new Object[] {2})))
+				.assertNext(counts -> assertArrayEquals(new int[] {1, 2}, counts))
+				.verifyComplete();
+	}
+
+	@Test
+	public void exceptionSignalledAsError() {
+		BadSqlGrammarException ex = new BadSqlGrammarException("task", "update x", new SQLException());
+		given(this.jdbcOperations.update("update x", 1)).willThrow(ex);
+
+		StepVerifier.create(this.template.update("update x", 1))
+				.expectErrorMatches(err -> err == ex)
+				.verify();
+	}
+
+	@Test
+	public void queryStreamsRowsAndClosesStream() {
+		AtomicBoolean closed = new AtomicBoolean();
+		given(this.jdbcOperations.queryForStream("select name", ROW_MAPPER, 1)).willReturn(
+				Stream.of("a", "b", "c").onClose(() -> closed.set(true)));
+
+		StepVerifier.create(this.template.query("select name", ROW_MAPPER, 1))
+				.expectNext("a", "b", "c")
+				.verifyComplete();
+		assertTrue(closed.get());
+	}
+
+	@Test
+	public void queryClosesStreamOnCancel() throws Exception {
+		CountDownLatch closed = new CountDownLatch(1);
+		given(this.jdbcOperations.queryForStream("select name", ROW_MAPPER, 1)).willReturn(
+				Stream.iterate(0, i -> i + 1).map(String::valueOf).onClose(closed::countDown));
+
+		StepVerifier.create(this.template.query("select name", ROW_MAPPER, 1), 2)
+				.expectNext("0", "1")
+				.thenCancel()
+				.verify();
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void openQueriesBoundedByConcurrency() throws Exception {
+		CountDownLatch closed = new CountDownLatch(2);
+		given(this.jdbcOperations.queryForStream("select name", ROW_MAPPER, 1)).willAnswer(invocation ->
+				Stream.iterate(0, i -> i + 1).map(String::valueOf).onClose(closed::countDown));
+		given(this.jdbcOperations.update("update x")).willReturn(1);
+
+		CountDownLatch opened = new CountDownLatch(2);
+		List<Disposable> queries = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			BaseSubscriber<String> subscriber = new BaseSubscriber<String>() {
+				@Override
+				protected void hookOnSubscribe(Subscription subscription) {
+					request(1);
+				}
+				@Override
+				protected void hookOnNext(String value) {
+					opened.countDown();
+				}
+			};
+			this.template.query("select name", ROW_MAPPER, 1).subscribe(subscriber);
+			queries.add(subscriber);
+		}
+		assertTrue(opened.await(5, TimeUnit.SECONDS));
+
+		// Both threads are held by the open queries, so the update needs to wait
+		CountDownLatch updated = new CountDownLatch(1);
+		this.template.update("update x").subscribe(count -> updated.countDown());
+		assertFalse(updated.await(200, TimeUnit.MILLISECONDS));
+		assertEquals(2, this.template.getActiveCount());
+		assertEquals(1, this.template.getQueueDepth());
+
+		queries.forEach(Disposable::dispose);
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+		assertTrue(updated.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void subscriberContextExposedOnJdbcThread() {
+		AtomicReference<Context> context = new AtomicReference<>();
+		Mono<Object> result = this.template.execute(ops -> {
+			context.set(ReactiveJdbcTemplate.currentContext());
+			return "done";
+		});
+
+		StepVerifier.create(result.subscriberContext(Context.of("tenant", "acme")))
+				.expectNext("done")
+				.verifyComplete();
+		assertEquals("acme", context.get().get("tenant"));
+		assertNull(ReactiveJdbcTemplate.currentContext());
+	}
+
+	@Test
+	public void callsBeyondQueueCapacityRejected() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		Mono<Object> blocking = this.template.execute(ops -> {
+			blocked.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return "released";
+		});
+		blocking.subscribe();
+		blocking.subscribe();
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+		assertEquals(2, this.template.getActiveCount());
+
+		blocking.subscribe();
+		assertEquals(1, this.template.getQueueDepth());
+		assertEquals(0, this.template.getRemainingQueueCapacity());
+
+		StepVerifier.create(this.template.update("update x"))
+				.expectError(RejectedExecutionException.class)
+				.verify(Duration.ofSeconds(5));
+		release.countDown();
+	}
+
+	@Test
+	public void inTransaction() {
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		TransactionStatus status = mock(TransactionStatus.class);
+		given(transactionManager.getTransaction(any(TransactionDefinition.class))).willReturn(status);
+		given(this.jdbcOperations.update("update t set x = ?", 1)).willReturn(1);
+		this.template.setTransactionManager(transactionManager);
+
+		StepVerifier.create(this.template.inTransaction(ops -> ops.update("update t set x = ?", 1)))
+				.expectNext(1)
+				.verifyComplete();
+		verify(transactionManager).commit(status);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void inTransactionWithoutTransactionManager() {
+		this.template.inTransaction(ops -> ops.update("update x"));
+	}
+
+	@Test
+	public void concurrency() {
+		assertEquals(2, this.template.getConcurrency());
+		assertEquals(ReactiveJdbcTemplate.DEFAULT_ROW_BATCH_SIZE, this.template.getRowBatchSize());
+	}
+
+}
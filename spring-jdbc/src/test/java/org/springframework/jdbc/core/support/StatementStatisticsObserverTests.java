@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.StatementObservation;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link StatementStatisticsObserver}.
+ *
+ * @author Agent Local
+ */
+public class StatementStatisticsObserverTests {
+
+	private PreparedStatement preparedStatement;
+
+	private JdbcTemplate template;
+
+	private StatementStatisticsObserver observer;
+
+
+	@Before
+	public void setup() throws Exception {
+		DataSource dataSource = mock(DataSource.class);
+		Connection connection = mock(Connection.class);
+		this.preparedStatement = mock(PreparedStatement.class);
+		given(dataSource.getConnection()).willReturn(connection);
+		given(connection.prepareStatement(anyString())).willReturn(this.preparedStatement);
+		this.template = new JdbcTemplate(dataSource);
+		this.observer = new StatementStatisticsObserver();
+		this.template.setStatementObserver(this.observer);
+	}
+
+
+	@Test
+	public void statisticsPerStatement() throws Exception {
+		given(this.preparedStatement.executeUpdate()).willReturn(2, 3);
+		this.template.update("UPDATE T SET X = ?", 1);
+		this.template.update("UPDATE T SET X = ?", 2);
+		this.template.update("UPDATE U SET X = ?", 3);
+
+		StatementStatisticsObserver.Statistics stats = this.observer.getStatistics("UPDATE T SET X = ?");
+		assertNotNull(stats);
+		assertEquals(2, stats.getCount());
+		assertEquals(0, stats.getFailureCount());
+		assertEquals(5, stats.getRowCount());
+		assertTrue(stats.getMaxNanos() <= stats.getTotalNanos());
+		assertEquals(2, sum(stats.getHistogram()));
+		assertEquals(2, this.observer.getStatistics().size());
+
+		this.observer.reset();
+		assertTrue(this.observer.getStatistics().isEmpty());
+	}
+
+	@Test
+	public void failureCounted() throws Exception {
+		given(this.preparedStatement.executeUpdate()).willThrow(new SQLException("bad SQL", "42000"));
+		try {
+			this.template.update("UPDATE NOSUCHTABLE SET X = ?", 1);
+			fail("Should have thrown DataAccessException");
+		}
+		catch (DataAccessException ex) {
+			// expected
+		}
+		StatementStatisticsObserver.Statistics stats = this.observer.getStatistics("UPDATE NOSUCHTABLE SET X = ?");
+		assertEquals(1, stats.getCount());
+		assertEquals(1, stats.getFailureCount());
+	}
+
+	@Test
+	public void statementsBeyondLimitAggregated() throws Exception {
+		this.observer.setMaxStatements(2);
+		for (int i = 0; i < 5; i++) {
+			this.template.update("UPDATE T" + i + " SET X = ?", i);
+		}
+		assertEquals(3, this.observer.getStatistics().size());
+		assertEquals(3, this.observer.getStatistics(StatementStatisticsObserver.OTHER_STATEMENTS).getCount());
+	}
+
+	@Test
+	public void slowStatementDescription() throws Exception {
+		List<StatementObservation> observations = new ArrayList<>();
+		this.template.setStatementObserver(observations::add);
+		given(this.preparedStatement.executeUpdate()).willReturn(4);
+		this.template.update("UPDATE T SET X = ?", 1);
+
+		StatementObservation observation = observations.get(0);
+		String description = this.observer.describeSlowStatement(observation, observation.getElapsedNanos());
+		assertTrue(description, description.startsWith("Slow SQL update took "));
+		assertTrue(description, description.endsWith("rows: 4, parameters: 1) [UPDATE T SET X = ?]"));
+	}
+
+	@Test
+	public void histogramBuckets() {
+		assertEquals(0, StatementStatisticsObserver.getBucket(TimeUnit.MICROSECONDS.toNanos(500)));
+		assertEquals(1, StatementStatisticsObserver.getBucket(TimeUnit.MILLISECONDS.toNanos(1)));
+		assertEquals(2, StatementStatisticsObserver.getBucket(TimeUnit.MILLISECONDS.toNanos(3)));
+		assertEquals(11, StatementStatisticsObserver.getBucket(TimeUnit.MILLISECONDS.toNanos(1500)));
+		assertEquals(StatementStatisticsObserver.BUCKET_COUNT - 1,
+				StatementStatisticsObserver.getBucket(TimeUnit.HOURS.toNanos(1)));
+		assertEquals(2048, StatementStatisticsObserver.getBucketUpperBoundMillis(11));
+		assertEquals(Long.MAX_VALUE,
+				StatementStatisticsObserver.getBucketUpperBoundMillis(StatementStatisticsObserver.BUCKET_COUNT - 1));
+	}
+
+	@Test
+	public void percentileEstimate() throws Exception {
+		StatementStatisticsObserver.Statistics stats = new StatementStatisticsObserver.Statistics();
+		assertEquals(0, stats.getPercentileMillis(0.99));
+		for (int i = 0; i < 10; i++) {
+			this.template.update("UPDATE T SET X = ?", i);
+		}
+		stats = this.observer.getStatistics("UPDATE T SET X = ?");
+		assertEquals(10, stats.getCount());
+		assertTrue(stats.getPercentileMillis(0.5) >= 1);
+	}
+
+
+	private static long sum(long[] values) {
+		long sum = 0;
+		for (long value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+
+}
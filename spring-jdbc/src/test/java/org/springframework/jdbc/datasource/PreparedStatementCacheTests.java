@@ -0,0 +1,255 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link PreparedStatementCache}, standalone and as set up by
+ * {@link DataSourceTransactionManager} for use by {@link JdbcTemplate}.
+ *
+ * @author Agent Local
+ */
+public class PreparedStatementCacheTests {
+
+	private static final String UPDATE = "update t set x = ?";
+
+	private Connection connection;
+
+	private DataSource dataSource;
+
+	private DataSourceTransactionManager transactionManager;
+
+
+	@Before
+	public void setup() throws Exception {
+		this.connection = mock(Connection.class);
+		this.dataSource = mock(DataSource.class);
+		given(this.dataSource.getConnection()).willReturn(this.connection);
+		this.transactionManager = new DataSourceTransactionManager(this.dataSource);
+		this.transactionManager.setStatementCacheSize(2);
+	}
+
+	@After
+	public void verifyCleanup() {
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+	}
+
+
+	@Test
+	public void takeAndRelease() throws Exception {
+		PreparedStatementCache cache = new PreparedStatementCache(this.connection, 2);
+		PreparedStatement ps1 = mock(PreparedStatement.class);
+		PreparedStatement ps2 = mock(PreparedStatement.class);
+		PreparedStatement ps3 = mock(PreparedStatement.class);
+
+		assertNull(cache.take("sql1"));
+		cache.release("sql1", ps1);
+		verify(ps1).clearParameters();
+		assertSame(ps1, cache.take("sql1"));
+		assertNull(cache.take("sql1"));
+		cache.release("sql1", ps1);
+		cache.release("sql2", ps2);
+		assertSame(ps1, cache.take("sql1"));
+		cache.release("sql1", ps1);
+
+		// sql2 least recently used
+		cache.release("sql3", ps3);
+		verify(ps2).close();
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+
+		cache.close();
+		verify(ps1).close();
+		verify(ps3).close();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void releaseWithDuplicateSqlClosesStatement() throws Exception {
+		PreparedStatementCache cache = new PreparedStatementCache(this.connection, 2);
+		PreparedStatement ps1 = mock(PreparedStatement.class);
+		PreparedStatement ps2 = mock(PreparedStatement.class);
+		cache.release("sql", ps1);
+		cache.release("sql", ps2);
+		verify(ps2).close();
+		assertSame(ps1, cache.take("sql"));
+	}
+
+	@Test
+	public void releaseWithResetFailureClosesStatement() throws Exception {
+		PreparedStatementCache cache = new PreparedStatementCache(this.connection, 2);
+		PreparedStatement ps = mock(PreparedStatement.class);
+		willThrow(new SQLException()).given(ps).clearParameters();
+		cache.release("sql", ps);
+		verify(ps).close();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void statementReusedWithinTransaction() throws Exception {
+		PreparedStatement ps = mock(PreparedStatement.class);
+		given(this.connection.prepareStatement(UPDATE)).willReturn(ps);
+		given(ps.executeUpdate()).willReturn(1);
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+
+		new TransactionTemplate(this.transactionManager).execute(status -> {
+			for (int i = 0; i < 3; i++) {
+				assertEquals(1, template.update(UPDATE, i));
+			}
+			return null;
+		});
+
+		verify(this.connection, times(1)).prepareStatement(UPDATE);
+		verify(ps, times(3)).executeUpdate();
+		InOrder ordered = inOrder(ps, this.connection);
+		ordered.verify(ps).close();
+		ordered.verify(this.connection).close();
+	}
+
+	@Test
+	public void statementNotReusedAcrossTransactions() throws Exception {
+		PreparedStatement ps1 = mock(PreparedStatement.class);
+		PreparedStatement ps2 = mock(PreparedStatement.class);
+		given(this.connection.prepareStatement(UPDATE)).willReturn(ps1, ps2);
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+
+		transactionTemplate.execute(status -> template.update(UPDATE, 1));
+		transactionTemplate.execute(status -> template.update(UPDATE, 2));
+
+		verify(ps1).close();
+		verify(ps2).close();
+	}
+
+	@Test
+	public void statementClosedOnFailure() throws Exception {
+		PreparedStatement ps1 = mock(PreparedStatement.class);
+		PreparedStatement ps2 = mock(PreparedStatement.class);
+		given(this.connection.prepareStatement(UPDATE)).willReturn(ps1, ps2);
+		given(ps1.executeUpdate()).willThrow(new SQLException("broken"));
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+
+		new TransactionTemplate(this.transactionManager).execute(status -> {
+			try {
+				template.update(UPDATE, 1);
+				fail("Should have thrown DataAccessException");
+			}
+			catch (DataAccessException ex) {
+				// expected
+			}
+			template.update(UPDATE, 2);
+			return null;
+		});
+
+		verify(ps1).close();
+		verify(this.connection, times(2)).prepareStatement(UPDATE);
+	}
+
+	@Test
+	public void statementNotCachedForApplicationCallback() throws Exception {
+		PreparedStatement ps1 = mock(PreparedStatement.class);
+		PreparedStatement ps2 = mock(PreparedStatement.class);
+		given(this.connection.prepareStatement(UPDATE)).willReturn(ps1, ps2);
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+
+		new TransactionTemplate(this.transactionManager).execute(status -> {
+			template.execute(UPDATE, (PreparedStatementCallback<Integer>) ps -> {
+				ps.setMaxRows(5);
+				ps.setFetchSize(100);
+				ps.addBatch();
+				return ps.executeUpdate();
+			});
+			template.update(UPDATE, 1);
+			return null;
+		});
+
+		verify(this.connection, times(2)).prepareStatement(UPDATE);
+		verify(ps1).close();
+		verify(ps2, never()).setMaxRows(5);
+		verify(ps2, never()).setFetchSize(100);
+		verify(ps2, never()).addBatch();
+	}
+
+	@Test
+	public void statementResetForReuse() throws Exception {
+		PreparedStatement ps = mock(PreparedStatement.class);
+		given(this.connection.prepareStatement(UPDATE)).willReturn(ps);
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+
+		new TransactionTemplate(this.transactionManager).execute(status -> {
+			template.update(UPDATE, statement -> {
+				statement.setInt(1, 1);
+				statement.setMaxRows(5);
+				statement.setMaxFieldSize(10);
+				statement.setFetchSize(100);
+				statement.setFetchDirection(ResultSet.FETCH_REVERSE);
+				statement.addBatch();
+			});
+			template.update(UPDATE, 2);
+			return null;
+		});
+
+		verify(this.connection, times(1)).prepareStatement(UPDATE);
+		InOrder ordered = inOrder(ps);
+		ordered.verify(ps).setInt(1, 1);
+		ordered.verify(ps).executeUpdate();
+		ordered.verify(ps).clearBatch();
+		ordered.verify(ps).setMaxRows(0);
+		ordered.verify(ps).setMaxFieldSize(0);
+		ordered.verify(ps).clearParameters();
+		ordered.verify(ps).setObject(1, 2);
+		ordered.verify(ps).executeUpdate();
+		verify(ps, times(1)).setMaxRows(5);
+		verify(ps, times(1)).setFetchDirection(ResultSet.FETCH_REVERSE);
+		verify(ps).setFetchDirection(ResultSet.FETCH_FORWARD);
+		verify(ps).setFetchSize(0);
+	}
+
+	@Test
+	public void noCachingWithoutTransaction() throws Exception {
+		PreparedStatement ps = mock(PreparedStatement.class);
+		given(this.connection.prepareStatement(UPDATE)).willReturn(ps);
+		JdbcTemplate template = new JdbcTemplate(this.dataSource);
+
+		template.update(UPDATE, 1);
+		template.update(UPDATE, 2);
+
+		verify(this.connection, times(2)).prepareStatement(UPDATE);
+		verify(ps, times(2)).close();
+	}
+
+}
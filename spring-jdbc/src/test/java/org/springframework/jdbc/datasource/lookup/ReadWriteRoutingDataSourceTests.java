@@ -0,0 +1,199 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.lookup.ReadWriteRoutingDataSource.Replica;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link ReadWriteRoutingDataSource}.
+ *
+ * @author Agent Local
+ */
+public class ReadWriteRoutingDataSourceTests {
+
+	private DataSource primary;
+
+	private Connection primaryConnection;
+
+	private DataSource replica1;
+
+	private DataSource replica2;
+
+	private ReadWriteRoutingDataSource router;
+
+
+	@Before
+	public void setup() throws Exception {
+		this.primary = mock(DataSource.class);
+		this.primaryConnection = mock(Connection.class);
+		given(this.primary.getConnection()).willReturn(this.primaryConnection);
+		this.replica1 = mock(DataSource.class);
+		given(this.replica1.getConnection()).willAnswer(invocation -> mock(Connection.class));
+		this.replica2 = mock(DataSource.class);
+		given(this.replica2.getConnection()).willAnswer(invocation -> mock(Connection.class));
+
+		Map<Object, Object> replicas = new HashMap<>();
+		replicas.put("replica1", this.replica1);
+		replicas.put("replica2", this.replica2);
+		this.router = new ReadWriteRoutingDataSource();
+		this.router.setDefaultTargetDataSource(this.primary);
+		this.router.setTargetDataSources(replicas);
+		this.router.afterPropertiesSet();
+	}
+
+	@After
+	public void cleanup() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+	}
+
+
+	@Test
+	public void readWriteWorkGoesToPrimary() throws Exception {
+		assertSame(this.primaryConnection, this.router.getConnection());
+		verifyZeroInteractions(this.replica1, this.replica2);
+	}
+
+	@Test
+	public void readOnlyWorkGoesToReplicasInTurn() throws Exception {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		Connection con1 = this.router.getConnection();
+		Connection con2 = this.router.getConnection();
+		assertTrue(con1 instanceof ConnectionProxy);
+		verify(this.replica1).getConnection();
+		verify(this.replica2).getConnection();
+		verifyZeroInteractions(this.primary);
+		assertNotSame(DataSourceUtils.getTargetConnection(con1), DataSourceUtils.getTargetConnection(con2));
+	}
+
+	@Test
+	public void activeConnectionsTracked() throws Exception {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		this.router.setReplicaSelectionStrategy(ReplicaSelectionStrategy.leastActive());
+		Connection con1 = this.router.getConnection();
+		Connection con2 = this.router.getConnection();
+		for (Replica replica : this.router.getReplicas()) {
+			assertEquals(1, replica.getActiveConnections());
+			assertTrue(replica.getAverageLatencyNanos() > 0);
+		}
+
+		con1.close();
+		con1.close();
+		assertEquals(1, this.router.getReplicas().stream().mapToInt(Replica::getActiveConnections).sum());
+		Connection con3 = this.router.getConnection();
+		for (Replica replica : this.router.getReplicas()) {
+			assertEquals(1, replica.getActiveConnections());
+		}
+		con2.close();
+		con3.close();
+		verify(DataSourceUtils.getTargetConnection(con3)).close();
+	}
+
+	@Test
+	public void failingReplicaEjected() throws Exception {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		given(this.replica1.getConnection()).willThrow(new SQLException("down"));
+		this.router.setFailureThreshold(2);
+
+		for (int i = 0; i < 6; i++) {
+			DataSourceUtils.getTargetConnection(this.router.getConnection());
+		}
+		Replica failing = replica("replica1");
+		assertFalse(failing.isAvailable());
+		assertEquals(2, failing.getConsecutiveFailures());
+		verify(this.replica1, times(2)).getConnection();
+		verify(this.replica2, times(6)).getConnection();
+		verifyZeroInteractions(this.primary);
+	}
+
+	@Test
+	public void ejectedReplicaRetriedAfterEjectionTime() throws Exception {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		this.router.setFailureThreshold(1);
+		this.router.setEjectionMillis(0);
+		this.router.setReplicaSelectionStrategy(replicas -> replicas.get(0));
+
+		Replica first = this.router.getReplicas().get(0);
+		given(first.getDataSource().getConnection()).willThrow(new SQLException("down")).willAnswer(
+				invocation -> mock(Connection.class));
+		this.router.getConnection();
+		assertEquals(1, first.getConsecutiveFailures());
+		assertTrue(first.isAvailable());
+
+		this.router.getConnection();
+		assertEquals(0, first.getConsecutiveFailures());
+	}
+
+	@Test
+	public void allReplicasFailingFallsBackToPrimary() throws Exception {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		given(this.replica1.getConnection()).willThrow(new SQLException("down"));
+		given(this.replica2.getConnection()).willThrow(new SQLException("down"));
+
+		assertSame(this.primaryConnection, this.router.getConnection());
+	}
+
+	@Test(expected = SQLException.class)
+	public void allReplicasFailingWithoutFallback() throws Exception {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		given(this.replica1.getConnection()).willThrow(new SQLException("down"));
+		given(this.replica2.getConnection()).willThrow(new SQLException("down"));
+		this.router.setFallbackToPrimary(false);
+
+		this.router.getConnection();
+	}
+
+	@Test
+	public void latencyWeightedSelection() {
+		ReplicaSelectionStrategy strategy = ReplicaSelectionStrategy.latencyWeighted();
+		Set<Object> selected = new HashSet<>();
+		for (int i = 0; i < 100; i++) {
+			selected.add(strategy.select(this.router.getReplicas()).getName());
+		}
+		assertEquals(2, selected.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void primaryRequired() {
+		ReadWriteRoutingDataSource router = new ReadWriteRoutingDataSource();
+		router.setTargetDataSources(new HashMap<>());
+		router.afterPropertiesSet();
+	}
+
+
+	private Replica replica(String name) {
+		return this.router.getReplicas().stream().filter(replica -> replica.getName().equals(name)).findFirst().get();
+	}
+
+}
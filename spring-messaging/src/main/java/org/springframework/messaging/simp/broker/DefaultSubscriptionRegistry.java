@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,19 @@
 
 package org.springframework.messaging.simp.broker;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
@@ -55,6 +59,13 @@ import org.springframework.util.StringUtils;
  * header on subscription messages with Spring EL expressions evaluated against
  * the headers to filter out messages in addition to destination matching.
  *
+ * <p>As of 5.2, when used with a plain {@link AntPathMatcher}, destinations
+ * are resolved through an index of subscribed destinations keyed by their
+ * literal prefix, so that lookups as well as subscription changes are
+ * independent of the total number of subscriptions. Other {@code PathMatcher}
+ * implementations fall back on matching every subscribed destination, with
+ * results kept in a destination cache.
+ *
  * @author Rossen Stoyanchev
  * @author Sebastien Deleuze
  * @author Juergen Hoeller
@@ -83,6 +94,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 	private final DestinationCache destinationCache = new DestinationCache();
 
+	private final DestinationIndex destinationIndex = new DestinationIndex();
+
 	private final SessionSubscriptionRegistry subscriptionRegistry = new SessionSubscriptionRegistry();
 
 
@@ -103,6 +116,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	/**
 	 * Specify the maximum number of entries for the resolved destination cache.
 	 * Default is 1024.
+	 * <p>The cache is only used for {@code PathMatcher} implementations other
+	 * than {@link AntPathMatcher}, which is served by the destination index.
 	 */
 	public void setCacheLimit(int cacheLimit) {
 		this.cacheLimit = cacheLimit;
@@ -149,6 +164,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 		Expression expression = getSelectorExpression(message.getHeaders());
 		this.subscriptionRegistry.addSubscription(sessionId, subsId, destination, expression);
+		this.destinationIndex.addSubscription(destination, sessionId, subsId);
 		this.destinationCache.updateAfterNewSubscription(destination, sessionId, subsId);
 	}
 
@@ -181,6 +197,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		if (info != null) {
 			String destination = info.removeSubscription(subsId);
 			if (destination != null) {
+				this.destinationIndex.removeSubscription(destination, sessionId, subsId);
 				this.destinationCache.updateAfterRemovedSubscription(sessionId, subsId);
 			}
 		}
@@ -190,13 +207,16 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	public void unregisterAllSubscriptions(String sessionId) {
 		SessionSubscriptionInfo info = this.subscriptionRegistry.removeSubscriptions(sessionId);
 		if (info != null) {
+			this.destinationIndex.removeSession(info);
 			this.destinationCache.updateAfterRemovedSession(info);
 		}
 	}
 
 	@Override
 	protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
-		MultiValueMap<String, String> result = this.destinationCache.getSubscriptions(destination, message);
+		MultiValueMap<String, String> result = (getPathMatcher().getClass() == AntPathMatcher.class ?
+				this.destinationIndex.getSubscriptions(destination) :
+				this.destinationCache.getSubscriptions(destination, message));
 		return filterSubscriptions(result, message);
 	}
 
@@ -242,7 +262,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 	@Override
 	public String toString() {
-		return "DefaultSubscriptionRegistry[" + this.destinationCache + ", " + this.subscriptionRegistry + "]";
+		return "DefaultSubscriptionRegistry[" + this.destinationCache + ", " +
+				this.destinationIndex + ", " + this.subscriptionRegistry + "]";
 	}
 
 
@@ -363,6 +384,200 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	}
 
 
+	/**
+	 * An index of subscribed destinations for {@link AntPathMatcher} based
+	 * matching, organized as a trie over the segments of the literal prefix of
+	 * each destination, i.e. the part before the first wildcard or URI template
+	 * variable.
+	 * <p>Index segments are the lower-cased runs of letters and digits, which
+	 * makes the trie independent of the path separator, case sensitivity and
+	 * token trimming settings of the matcher. A segment directly followed by a
+	 * wildcard may continue in a matching destination and is left out, so a
+	 * destination pattern can only match destinations whose key starts with
+	 * the key of the pattern. Candidates found that way are then confirmed
+	 * through {@link PathMatcher#match}.
+	 * <p>Lookups are lock-free; changes are applied under a lock but only touch
+	 * the nodes along the key of the affected destination.
+	 */
+	private class DestinationIndex {
+
+		private final IndexNode root = new IndexNode();
+
+		private final AtomicInteger destinationCount = new AtomicInteger();
+
+		/** Registration order of subscriptions, guarded by the root node. */
+		private long sequence;
+
+
+		public LinkedMultiValueMap<String, String> getSubscriptions(String destination) {
+			List<Map<String, Map<String, Long>>> matches = new ArrayList<>(2);
+			String[] key = getIndexKey(destination);
+			IndexNode node = this.root;
+			addMatches(node.patterns, destination, matches);
+			for (int i = 0; i < key.length && node != null; i++) {
+				node = node.children.get(key[i]);
+				if (node != null) {
+					addMatches(node.patterns, destination, matches);
+				}
+			}
+			if (node != null) {
+				addMatches(node.destinations, destination, matches);
+			}
+
+			LinkedMultiValueMap<String, String> result = new LinkedMultiValueMap<>();
+			if (matches.size() == 1) {
+				matches.get(0).forEach((sessionId, subsIds) -> addInOrder(sessionId, subsIds, result));
+			}
+			else if (!matches.isEmpty()) {
+				Map<String, Map<String, Long>> merged = new LinkedHashMap<>();
+				for (Map<String, Map<String, Long>> sessions : matches) {
+					sessions.forEach((sessionId, subsIds) ->
+							merged.computeIfAbsent(sessionId, id -> new HashMap<>()).putAll(subsIds));
+				}
+				merged.forEach((sessionId, subsIds) -> addInOrder(sessionId, subsIds, result));
+			}
+			return result;
+		}
+
+		private void addMatches(Map<String, Map<String, Map<String, Long>>> candidates, String destination,
+				List<Map<String, Map<String, Long>>> matches) {
+
+			candidates.forEach((candidate, sessions) -> {
+				if (candidate.equals(destination) || getPathMatcher().match(candidate, destination)) {
+					matches.add(sessions);
+				}
+			});
+		}
+
+		private void addInOrder(String sessionId, Map<String, Long> subsIds, LinkedMultiValueMap<String, String> result) {
+			// Subscription ids in the order of registration, across destinations
+			List<Map.Entry<String, Long>> entries = new ArrayList<>(subsIds.entrySet());
+			if (entries.size() > 1) {
+				entries.sort(Map.Entry.comparingByValue());
+			}
+			for (Map.Entry<String, Long> entry : entries) {
+				result.add(sessionId, entry.getKey());
+			}
+		}
+
+		public void addSubscription(String destination, String sessionId, String subsId) {
+			synchronized (this.root) {
+				IndexNode node = this.root;
+				for (String segment : getIndexKey(destination)) {
+					node = node.children.computeIfAbsent(segment, s -> new IndexNode());
+				}
+				Map<String, Map<String, Long>> sessions = node.getEntries(destination).computeIfAbsent(destination, d -> {
+					this.destinationCount.incrementAndGet();
+					return new ConcurrentHashMap<>(4);
+				});
+				sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>(4))
+						.putIfAbsent(subsId, this.sequence++);
+			}
+		}
+
+		public void removeSubscription(String destination, String sessionId, String subsId) {
+			synchronized (this.root) {
+				removeInternal(destination, sessionId, subsId);
+			}
+		}
+
+		public void removeSession(SessionSubscriptionInfo info) {
+			synchronized (this.root) {
+				for (String destination : info.getDestinations()) {
+					removeInternal(destination, info.getSessionId(), null);
+				}
+			}
+		}
+
+		private void removeInternal(String destination, String sessionId, @Nullable String subsId) {
+			String[] key = getIndexKey(destination);
+			IndexNode[] path = new IndexNode[key.length + 1];
+			path[0] = this.root;
+			for (int i = 0; i < key.length; i++) {
+				path[i + 1] = path[i].children.get(key[i]);
+				if (path[i + 1] == null) {
+					return;
+				}
+			}
+			Map<String, Map<String, Map<String, Long>>> entries = path[key.length].getEntries(destination);
+			Map<String, Map<String, Long>> sessions = entries.get(destination);
+			if (sessions == null) {
+				return;
+			}
+			if (subsId != null) {
+				Map<String, Long> subsIds = sessions.get(sessionId);
+				if (subsIds == null || subsIds.remove(subsId) == null || !subsIds.isEmpty()) {
+					return;
+				}
+			}
+			if (sessions.remove(sessionId) == null || !sessions.isEmpty()) {
+				return;
+			}
+			entries.remove(destination);
+			this.destinationCount.decrementAndGet();
+			for (int i = key.length; i > 0 && path[i].isEmpty(); i--) {
+				path[i - 1].children.remove(key[i - 1]);
+			}
+		}
+
+		private String[] getIndexKey(String destination) {
+			List<String> segments = new ArrayList<>(4);
+			int length = destination.length();
+			int start = -1;
+			for (int i = 0; i < length; i++) {
+				char c = destination.charAt(i);
+				if (c == '*' || c == '?' || c == '{') {
+					// A segment in progress may continue in a matching destination
+					return StringUtils.toStringArray(segments);
+				}
+				if (Character.isLetterOrDigit(c)) {
+					if (start == -1) {
+						start = i;
+					}
+				}
+				else if (start != -1) {
+					segments.add(destination.substring(start, i).toLowerCase(Locale.ENGLISH));
+					start = -1;
+				}
+			}
+			if (start != -1) {
+				segments.add(destination.substring(start).toLowerCase(Locale.ENGLISH));
+			}
+			return StringUtils.toStringArray(segments);
+		}
+
+		@Override
+		public String toString() {
+			return "index[" + this.destinationCount.get() + " destination(s)]";
+		}
+	}
+
+
+	/**
+	 * A node in the {@link DestinationIndex} for one segment, holding the subscribed destinations
+	 * and destination patterns whose index key ends at this node, each mapped to
+	 * {@code sessionId -> subscription id -> registration sequence}.
+	 */
+	private static class IndexNode {
+
+		private final Map<String, IndexNode> children = new ConcurrentHashMap<>(4);
+
+		private final Map<String, Map<String, Map<String, Long>>> destinations = new ConcurrentHashMap<>(4);
+
+		private final Map<String, Map<String, Map<String, Long>>> patterns = new ConcurrentHashMap<>(4);
+
+		public Map<String, Map<String, Map<String, Long>>> getEntries(String destination) {
+			boolean pattern = (destination.indexOf('*') != -1 || destination.indexOf('?') != -1 ||
+					destination.indexOf('{') != -1);
+			return (pattern ? this.patterns : this.destinations);
+		}
+
+		public boolean isEmpty() {
+			return (this.children.isEmpty() && this.destinations.isEmpty() && this.patterns.isEmpty());
+		}
+	}
+
+
 	/**
 	 * Provide access to session subscriptions by sessionId.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,7 +21,13 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
@@ -35,6 +41,8 @@ import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.messaging.support.MessageHeaderInitializer;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
+import org.springframework.util.CustomizableThreadCreator;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.PathMatcher;
 
@@ -43,12 +51,23 @@ import org.springframework.util.PathMatcher;
  * {@link SimpMessageType}, keeps track of subscriptions with the help of a
  * {@link SubscriptionRegistry} and sends messages to subscribers.
  *
+ * <p>As of 5.2, messages can be sent to sessions from a fixed number of
+ * worker threads rather than from the thread handling the published message,
+ * see {@link #setShardCount}.
+ *
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 4.0
  */
 public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
+	/**
+	 * The default number of pending tasks per shard worker.
+	 * @since 5.2
+	 * @see #setShardQueueCapacity
+	 */
+	public static final int DEFAULT_SHARD_QUEUE_CAPACITY = 1024;
+
 	private static final byte[] EMPTY_PAYLOAD = new byte[0];
 
 
@@ -70,6 +89,10 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	@Nullable
 	private MessageHeaderInitializer headerInitializer;
 
+	private int shardCount = 0;
+
+	private int shardQueueCapacity = DEFAULT_SHARD_QUEUE_CAPACITY;
+
 
 	private SubscriptionRegistry subscriptionRegistry;
 
@@ -78,6 +101,9 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	@Nullable
 	private ScheduledFuture<?> heartbeatFuture;
 
+	@Nullable
+	private volatile ExecutorService[] shardExecutors;
+
 
 	/**
 	 * Create a SimpleBrokerMessageHandler instance with the given message channels
@@ -249,9 +275,70 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		return this.headerInitializer;
 	}
 
+	/**
+	 * Configure the number of worker threads to send messages to sessions from.
+	 * Each session is assigned to one worker, which sends all messages for that
+	 * session: published messages as well as CONNECT_ACK, DISCONNECT_ACK and
+	 * heartbeat messages. Each session therefore receives messages in the order
+	 * in which they were handled, while different sessions are sent to in parallel.
+	 * <p>For a published message, subscriptions are resolved on the thread that
+	 * handles the message, and each worker is then handed a single task for the
+	 * subscribed sessions assigned to it, building and sending the messages for
+	 * those sessions. Messages still pending for a session when it disconnects
+	 * are not sent.
+	 * <p>By default this is set to 0, in which case messages are sent to
+	 * sessions from the thread that handles the incoming message.
+	 * @since 5.2
+	 * @see #setShardQueueCapacity
+	 */
+	public void setShardCount(int shardCount) {
+		Assert.isTrue(shardCount >= 0, "Shard count must not be negative");
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 * Return the configured number of broadcast worker threads.
+	 * @since 5.2
+	 */
+	public int getShardCount() {
+		return this.shardCount;
+	}
+
+	/**
+	 * Configure the maximum number of pending tasks for each worker thread
+	 * configured via {@link #setShardCount}. When the queue of a worker is
+	 * full, the thread handling the incoming message blocks until the worker
+	 * catches up, rather than dropping messages or sending them out of order.
+	 * <p>By default this is set to {@link #DEFAULT_SHARD_QUEUE_CAPACITY}.
+	 * @since 5.2
+	 */
+	public void setShardQueueCapacity(int shardQueueCapacity) {
+		Assert.isTrue(shardQueueCapacity > 0, "Shard queue capacity must be greater than 0");
+		this.shardQueueCapacity = shardQueueCapacity;
+	}
+
+	/**
+	 * Return the configured maximum number of pending tasks per worker thread.
+	 * @since 5.2
+	 */
+	public int getShardQueueCapacity() {
+		return this.shardQueueCapacity;
+	}
+
 
 	@Override
 	public void startInternal() {
+		if (this.shardCount > 0 && this.shardExecutors == null) {
+			ExecutorService[] shardExecutors = new ExecutorService[this.shardCount];
+			CustomizableThreadCreator threadCreator = new CustomizableThreadCreator("SimpleBrokerShard-");
+			threadCreator.setDaemon(true);
+			for (int i = 0; i < shardExecutors.length; i++) {
+				shardExecutors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+						new LinkedBlockingQueue<>(this.shardQueueCapacity), threadCreator::createThread,
+						new BlockingSubmitPolicy());
+			}
+			this.shardExecutors = shardExecutors;
+		}
 		publishBrokerAvailableEvent();
 		if (this.taskScheduler != null) {
 			long interval = initHeartbeatTaskDelay();
@@ -284,6 +371,13 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		if (this.heartbeatFuture != null) {
 			this.heartbeatFuture.cancel(true);
 		}
+		ExecutorService[] shardExecutors = this.shardExecutors;
+		if (shardExecutors != null) {
+			for (ExecutorService shardExecutor : shardExecutors) {
+				shardExecutor.shutdown();
+			}
+			this.shardExecutors = null;
+		}
 	}
 
 	@Override
@@ -320,7 +414,7 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 				connectAck.setHeader(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER, message);
 				connectAck.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, heartbeatOut);
 				Message<byte[]> messageOut = MessageBuilder.createMessage(EMPTY_PAYLOAD, connectAck.getMessageHeaders());
-				getClientOutboundChannel().send(messageOut);
+				executeForSession(sessionId, () -> getClientOutboundChannel().send(messageOut));
 			}
 		}
 		else if (SimpMessageType.DISCONNECT.equals(messageType)) {
@@ -376,16 +470,45 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		}
 		initHeaders(accessor);
 		Message<byte[]> message = MessageBuilder.createMessage(EMPTY_PAYLOAD, accessor.getMessageHeaders());
-		getClientOutboundChannel().send(message);
+		executeForSession(sessionId, () -> getClientOutboundChannel().send(message));
 	}
 
+	@SuppressWarnings("unchecked")
 	protected void sendMessageToSubscribers(@Nullable String destination, Message<?> message) {
 		MultiValueMap<String,String> subscriptions = this.subscriptionRegistry.findSubscriptions(message);
 		if (!subscriptions.isEmpty() && logger.isDebugEnabled()) {
 			logger.debug("Broadcasting to " + subscriptions.size() + " sessions.");
 		}
 		long now = System.currentTimeMillis();
+		ExecutorService[] shardExecutors = this.shardExecutors;
+		if (shardExecutors == null) {
+			sendToSessions(subscriptions, message, now);
+			return;
+		}
+		// One task per shard, carrying the sessions assigned to that shard
+		MultiValueMap<String, String>[] sessionGroups = new MultiValueMap[shardExecutors.length];
+		subscriptions.forEach((sessionId, subscriptionIds) -> {
+			int shard = getShardIndex(sessionId, shardExecutors.length);
+			if (sessionGroups[shard] == null) {
+				sessionGroups[shard] = new LinkedMultiValueMap<>();
+			}
+			sessionGroups[shard].put(sessionId, subscriptionIds);
+		});
+		for (int i = 0; i < sessionGroups.length; i++) {
+			MultiValueMap<String, String> sessionGroup = sessionGroups[i];
+			if (sessionGroup != null) {
+				execute(shardExecutors[i], () -> sendToSessions(sessionGroup, message, now), message);
+			}
+		}
+	}
+
+	private void sendToSessions(MultiValueMap<String, String> subscriptions, Message<?> message, long now) {
 		subscriptions.forEach((sessionId, subscriptionIds) -> {
+			SessionInfo info = this.sessions.get(sessionId);
+			if (info == null) {
+				// Session closed in the meantime
+				return;
+			}
 			for (String subscriptionId : subscriptionIds) {
 				SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
 				initHeaders(headerAccessor);
@@ -395,24 +518,50 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 				headerAccessor.setLeaveMutable(true);
 				Object payload = message.getPayload();
 				Message<?> reply = MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
-				SessionInfo info = this.sessions.get(sessionId);
-				if (info != null) {
-					try {
-						info.getClientOutboundChannel().send(reply);
-					}
-					catch (Throwable ex) {
-						if (logger.isErrorEnabled()) {
-							logger.error("Failed to send " + message, ex);
-						}
-					}
-					finally {
-						info.setLastWriteTime(now);
+				try {
+					info.getClientOutboundChannel().send(reply);
+				}
+				catch (Throwable ex) {
+					if (logger.isErrorEnabled()) {
+						logger.error("Failed to send " + message, ex);
 					}
 				}
+				finally {
+					info.setLastWriteTime(now);
+				}
 			}
 		});
 	}
 
+	/**
+	 * Run the given task on the worker that the session is assigned to,
+	 * or right away if no workers are configured.
+	 */
+	private void executeForSession(String sessionId, Runnable task) {
+		ExecutorService[] shardExecutors = this.shardExecutors;
+		if (shardExecutors != null) {
+			execute(shardExecutors[getShardIndex(sessionId, shardExecutors.length)], task, sessionId);
+		}
+		else {
+			task.run();
+		}
+	}
+
+	private void execute(ExecutorService shardExecutor, Runnable task, Object description) {
+		try {
+			shardExecutor.execute(task);
+		}
+		catch (RejectedExecutionException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Dropping task for " + description + " after shutdown of the broker");
+			}
+		}
+	}
+
+	private static int getShardIndex(String sessionId, int shardCount) {
+		return Math.abs(sessionId.hashCode() % shardCount);
+	}
+
 	@Override
 	public String toString() {
 		return "SimpleBrokerMessageHandler [" + this.subscriptionRegistry + "]";
@@ -516,11 +665,38 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 					}
 					initHeaders(accessor);
 					accessor.setLeaveMutable(true);
-					MessageHeaders headers = accessor.getMessageHeaders();
-					info.getClientOutboundChannel().send(MessageBuilder.createMessage(EMPTY_PAYLOAD, headers));
+					Message<byte[]> heartbeat = MessageBuilder.createMessage(EMPTY_PAYLOAD, accessor.getMessageHeaders());
+					executeForSession(info.getSessionId(), () -> {
+						if (SimpleBrokerMessageHandler.this.sessions.get(info.getSessionId()) == info) {
+							info.getClientOutboundChannel().send(heartbeat);
+						}
+					});
 				}
 			}
 		}
 	}
 
+
+	/**
+	 * Overflow policy for the shard workers: block the submitting thread
+	 * until there is room in the worker's queue, preserving the order of
+	 * tasks for each session.
+	 */
+	private static class BlockingSubmitPolicy implements RejectedExecutionHandler {
+
+		@Override
+		public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("Shard worker has been shut down");
+			}
+			try {
+				executor.getQueue().put(task);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for shard worker", ex);
+			}
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -39,6 +39,8 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 	@Nullable
 	private String selectorHeaderName = "selector";
 
+	private int shardCount = 0;
+
 
 	public SimpleBrokerRegistration(SubscribableChannel inChannel, MessageChannel outChannel, String[] prefixes) {
 		super(inChannel, outChannel, prefixes);
@@ -89,6 +91,19 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 		this.selectorHeaderName = selectorHeaderName;
 	}
 
+	/**
+	 * Configure the number of worker threads to send published messages to
+	 * subscribers from, with sessions partitioned across them.
+	 * <p>By default this is set to 0, in which case messages are sent to
+	 * subscribers from the thread that handles the published message.
+	 * @since 5.2
+	 * @see SimpleBrokerMessageHandler#setShardCount
+	 */
+	public SimpleBrokerRegistration setShardCount(int shardCount) {
+		this.shardCount = shardCount;
+		return this;
+	}
+
 
 	@Override
 	protected SimpleBrokerMessageHandler getMessageHandler(SubscribableChannel brokerChannel) {
@@ -101,6 +116,7 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 			handler.setHeartbeatValue(this.heartbeat);
 		}
 		handler.setSelectorHeaderName(this.selectorHeaderName);
+		handler.setShardCount(this.shardCount);
 		return handler;
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,6 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -25,6 +24,7 @@ import java.util.List;
 
 import org.apache.commons.logging.Log;
 
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpLogging;
@@ -43,6 +43,10 @@ import org.springframework.util.MultiValueMap;
  * partial content. The caller is then responsible for dealing with that
  * incomplete content by buffering until there is more input available.
  *
+ * <p>As of 5.2, frames can also be decoded from a {@link DataBuffer}, in which
+ * case the decoder reads through a view of the buffer's content and advances
+ * its read position past the decoded frames.
+ *
  * @author Andy Wilkinson
  * @author Rossen Stoyanchev
  * @since 4.0
@@ -53,6 +57,34 @@ public class StompDecoder {
 
 	private static final Log logger = SimpLogging.forLogName(StompDecoder.class);
 
+	private static final StompCommand[] COMMANDS = StompCommand.values();
+
+	private static final byte[][] COMMAND_NAMES = new byte[COMMANDS.length][];
+
+	/** Header names that are decoded to the same String instance every time. */
+	private static final String[] KNOWN_HEADER_NAMES = new String[] {
+			StompHeaderAccessor.STOMP_DESTINATION_HEADER, StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER,
+			StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER, StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER,
+			StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER, StompHeaderAccessor.STOMP_ID_HEADER,
+			StompHeaderAccessor.STOMP_RECEIPT_HEADER, StompHeaderAccessor.STOMP_RECEIPT_ID_HEADER,
+			StompHeaderAccessor.STOMP_ACK_HEADER, StompHeaderAccessor.STOMP_NACK_HEADER,
+			StompHeaderAccessor.STOMP_HOST_HEADER, StompHeaderAccessor.STOMP_ACCEPT_VERSION_HEADER,
+			StompHeaderAccessor.STOMP_VERSION_HEADER, StompHeaderAccessor.STOMP_HEARTBEAT_HEADER,
+			StompHeaderAccessor.STOMP_LOGIN_HEADER, StompHeaderAccessor.STOMP_PASSCODE_HEADER,
+			StompHeaderAccessor.STOMP_MESSAGE_HEADER, "transaction", "session", "server"};
+
+	private static final byte[][] KNOWN_HEADER_NAME_BYTES = new byte[KNOWN_HEADER_NAMES.length][];
+
+	static {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			COMMAND_NAMES[i] = COMMANDS[i].name().getBytes(StandardCharsets.UTF_8);
+		}
+		for (int i = 0; i < KNOWN_HEADER_NAMES.length; i++) {
+			KNOWN_HEADER_NAME_BYTES[i] = KNOWN_HEADER_NAMES[i].getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+
 	@Nullable
 	private MessageHeaderInitializer headerInitializer;
 
@@ -122,6 +154,40 @@ public class StompDecoder {
 		return messages;
 	}
 
+	/**
+	 * Decodes one or more STOMP frames from the given {@code DataBuffer} into a
+	 * list of {@link Message Messages}, advancing the read position of the buffer
+	 * past the decoded frames. Any partial frame content at the end remains
+	 * unread in the buffer.
+	 * @param buffer the buffer to decode the STOMP frames from
+	 * @return the decoded messages, or an empty list if none
+	 * @throws StompConversionException raised in case of decoding issues
+	 * @since 5.2
+	 */
+	public List<Message<byte[]>> decode(DataBuffer buffer) {
+		return decode(buffer, null);
+	}
+
+	/**
+	 * Variant of {@link #decode(DataBuffer)} that also stores the headers of a
+	 * trailing partial frame, see {@link #decode(ByteBuffer, MultiValueMap)}.
+	 * @param buffer the buffer to decode the STOMP frames from
+	 * @param partialMessageHeaders an empty output map that will store the last
+	 * successfully parsed partialMessageHeaders in case of partial message content
+	 * @return the decoded messages, or an empty list if none
+	 * @throws StompConversionException raised in case of decoding issues
+	 * @since 5.2
+	 */
+	public List<Message<byte[]>> decode(DataBuffer buffer,
+			@Nullable MultiValueMap<String, String> partialMessageHeaders) {
+
+		ByteBuffer byteBuffer = buffer.asByteBuffer(buffer.readPosition(), buffer.readableByteCount());
+		int start = byteBuffer.position();
+		List<Message<byte[]>> messages = decode(byteBuffer, partialMessageHeaders);
+		buffer.readPosition(buffer.readPosition() + byteBuffer.position() - start);
+		return messages;
+	}
+
 	/**
 	 * Decode a single STOMP frame from the given {@code buffer} into a {@link Message}.
 	 */
@@ -135,12 +201,13 @@ public class StompDecoder {
 		Buffer buffer = byteBuffer;
 		buffer.mark();
 
-		String command = readCommand(byteBuffer);
-		if (command.length() > 0) {
+		int commandStart = byteBuffer.position();
+		int commandEnd = readLine(byteBuffer);
+		if (byteBuffer.position() > commandStart) {
 			StompHeaderAccessor headerAccessor = null;
 			byte[] payload = null;
-			if (byteBuffer.remaining() > 0) {
-				StompCommand stompCommand = StompCommand.valueOf(command);
+			if (commandEnd != -1 && byteBuffer.remaining() > 0) {
+				StompCommand stompCommand = getCommand(byteBuffer, commandStart, commandEnd);
 				headerAccessor = StompHeaderAccessor.create(stompCommand);
 				initHeaders(headerAccessor);
 				readHeaders(byteBuffer, headerAccessor);
@@ -206,51 +273,110 @@ public class StompDecoder {
 		}
 	}
 
-	private String readCommand(ByteBuffer byteBuffer) {
-		ByteArrayOutputStream command = new ByteArrayOutputStream(256);
-		while (byteBuffer.remaining() > 0 && !tryConsumeEndOfLine(byteBuffer)) {
-			command.write(byteBuffer.get());
+	/**
+	 * Consume the next line, including its EOL, if complete.
+	 * @return the end index of the line content, or -1 if the buffer ended
+	 * before an EOL, in which case all remaining content is consumed
+	 */
+	private int readLine(ByteBuffer byteBuffer) {
+		int limit = byteBuffer.limit();
+		for (int i = byteBuffer.position(); i < limit; i++) {
+			byte b = byteBuffer.get(i);
+			if (b == '\n' || b == '\r') {
+				((Buffer) byteBuffer).position(i);
+				tryConsumeEndOfLine(byteBuffer);
+				return i;
+			}
+		}
+		((Buffer) byteBuffer).position(limit);
+		return -1;
+	}
+
+	private StompCommand getCommand(ByteBuffer byteBuffer, int start, int end) {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			if (matches(byteBuffer, start, end, COMMAND_NAMES[i])) {
+				return COMMANDS[i];
+			}
 		}
-		return new String(command.toByteArray(), StandardCharsets.UTF_8);
+		return StompCommand.valueOf(readString(byteBuffer, start, end));
 	}
 
 	private void readHeaders(ByteBuffer byteBuffer, StompHeaderAccessor headerAccessor) {
 		while (true) {
-			ByteArrayOutputStream headerStream = new ByteArrayOutputStream(256);
-			boolean headerComplete = false;
-			while (byteBuffer.hasRemaining()) {
-				if (tryConsumeEndOfLine(byteBuffer)) {
-					headerComplete = true;
-					break;
+			int start = byteBuffer.position();
+			int end = readLine(byteBuffer);
+			if (end == -1 || end == start) {
+				break;
+			}
+			int colonIndex = indexOf(byteBuffer, start, end, (byte) ':');
+			if (colonIndex <= start) {
+				if (byteBuffer.remaining() > 0) {
+					throw new StompConversionException("Illegal header: '" + readString(byteBuffer, start, end) +
+							"'. A header must be of the form <name>:[<value>].");
 				}
-				headerStream.write(byteBuffer.get());
 			}
-			if (headerStream.size() > 0 && headerComplete) {
-				String header = new String(headerStream.toByteArray(), StandardCharsets.UTF_8);
-				int colonIndex = header.indexOf(':');
-				if (colonIndex <= 0) {
+			else {
+				String headerName = readHeaderName(byteBuffer, start, colonIndex);
+				String headerValue = readHeaderValue(byteBuffer, colonIndex + 1, end);
+				try {
+					headerAccessor.addNativeHeader(headerName, headerValue);
+				}
+				catch (InvalidMimeTypeException ex) {
 					if (byteBuffer.remaining() > 0) {
-						throw new StompConversionException("Illegal header: '" + header +
-								"'. A header must be of the form <name>:[<value>].");
+						throw ex;
 					}
 				}
-				else {
-					String headerName = unescape(header.substring(0, colonIndex));
-					String headerValue = unescape(header.substring(colonIndex + 1));
-					try {
-						headerAccessor.addNativeHeader(headerName, headerValue);
-					}
-					catch (InvalidMimeTypeException ex) {
-						if (byteBuffer.remaining() > 0) {
-							throw ex;
-						}
-					}
+			}
+		}
+	}
+
+	private String readHeaderName(ByteBuffer byteBuffer, int start, int end) {
+		if (indexOf(byteBuffer, start, end, (byte) '\\') == -1) {
+			for (int i = 0; i < KNOWN_HEADER_NAMES.length; i++) {
+				if (matches(byteBuffer, start, end, KNOWN_HEADER_NAME_BYTES[i])) {
+					return KNOWN_HEADER_NAMES[i];
 				}
 			}
-			else {
-				break;
+			return readString(byteBuffer, start, end);
+		}
+		return unescape(readString(byteBuffer, start, end));
+	}
+
+	private String readHeaderValue(ByteBuffer byteBuffer, int start, int end) {
+		String value = readString(byteBuffer, start, end);
+		return (indexOf(byteBuffer, start, end, (byte) '\\') != -1 ? unescape(value) : value);
+	}
+
+	private static boolean matches(ByteBuffer byteBuffer, int start, int end, byte[] bytes) {
+		if (end - start != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (byteBuffer.get(start + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(ByteBuffer byteBuffer, int start, int end, byte b) {
+		for (int i = start; i < end; i++) {
+			if (byteBuffer.get(i) == b) {
+				return i;
 			}
 		}
+		return -1;
+	}
+
+	private static String readString(ByteBuffer byteBuffer, int start, int end) {
+		if (byteBuffer.hasArray()) {
+			return new String(byteBuffer.array(), byteBuffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+		}
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = byteBuffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
 	}
 
 	/**
@@ -319,16 +445,14 @@ public class StompDecoder {
 			}
 		}
 		else {
-			ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
-			while (byteBuffer.remaining() > 0) {
-				byte b = byteBuffer.get();
-				if (b == 0) {
-					return payload.toByteArray();
-				}
-				else {
-					payload.write(b);
-				}
+			int end = indexOf(byteBuffer, byteBuffer.position(), byteBuffer.limit(), (byte) 0);
+			if (end != -1) {
+				byte[] payload = new byte[end - byteBuffer.position()];
+				byteBuffer.get(payload);
+				byteBuffer.get();
+				return payload;
 			}
+			((Buffer) byteBuffer).position(byteBuffer.limit());
 		}
 		return null;
 	}
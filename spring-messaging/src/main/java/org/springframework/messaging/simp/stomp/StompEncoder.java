@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,10 +17,11 @@
 package org.springframework.messaging.simp.stomp;
 
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,9 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpLogging;
@@ -40,6 +44,9 @@ import org.springframework.util.Assert;
 /**
  * An encoder for STOMP frames.
  *
+ * <p>As of 5.2, frames can also be written directly into a {@link DataBuffer},
+ * e.g. a pooled Netty buffer, without an intermediate {@code byte[]}.
+ *
  * @author Andy Wilkinson
  * @author Rossen Stoyanchev
  * @since 4.0
@@ -55,6 +62,16 @@ public class StompEncoder  {
 
 	private static final int HEADER_KEY_CACHE_LIMIT = 32;
 
+	private static final byte[] CONTENT_LENGTH_PREFIX = "content-length:".getBytes(StandardCharsets.UTF_8);
+
+	private static final Map<StompCommand, byte[]> COMMAND_BYTES = new EnumMap<>(StompCommand.class);
+
+	static {
+		for (StompCommand command : StompCommand.values()) {
+			COMMAND_BYTES.put(command, command.toString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
 
 	private final Map<String, byte[]> headerKeyAccessCache = new ConcurrentHashMap<>(HEADER_KEY_CACHE_LIMIT);
 
@@ -93,10 +110,45 @@ public class StompEncoder  {
 		Assert.notNull(headers, "'headers' is required");
 		Assert.notNull(payload, "'payload' is required");
 
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(128 + payload.length);
+		encode(headers, payload, baos);
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Encodes the given STOMP {@code message} into a {@code DataBuffer}
+	 * allocated from the given factory.
+	 * @param message the message to encode
+	 * @param bufferFactory the factory to allocate the buffer from
+	 * @return the encoded message
+	 * @since 5.2
+	 */
+	public DataBuffer encode(Message<byte[]> message, DataBufferFactory bufferFactory) {
+		DataBuffer buffer = bufferFactory.allocateBuffer(128 + message.getPayload().length);
 		try {
-			ByteArrayOutputStream baos = new ByteArrayOutputStream(128 + payload.length);
-			DataOutputStream output = new DataOutputStream(baos);
+			encode(message, buffer);
+			return buffer;
+		}
+		catch (Throwable ex) {
+			DataBufferUtils.release(buffer);
+			throw ex;
+		}
+	}
 
+	/**
+	 * Encodes the given STOMP {@code message}, writing it to the given
+	 * {@code DataBuffer}.
+	 * @param message the message to encode
+	 * @param buffer the buffer to write to
+	 * @since 5.2
+	 */
+	public void encode(Message<byte[]> message, DataBuffer buffer) {
+		Assert.notNull(buffer, "'buffer' is required");
+		encode(message.getHeaders(), message.getPayload(), buffer.asOutputStream());
+	}
+
+	private void encode(Map<String, Object> headers, byte[] payload, OutputStream output) {
+		try {
 			if (SimpMessageType.HEARTBEAT.equals(SimpMessageHeaderAccessor.getMessageType(headers))) {
 				logger.trace("Encoding heartbeat");
 				output.write(StompDecoder.HEARTBEAT_PAYLOAD);
@@ -108,15 +160,13 @@ public class StompEncoder  {
 					throw new IllegalStateException("Missing STOMP command: " + headers);
 				}
 
-				output.write(command.toString().getBytes(StandardCharsets.UTF_8));
+				output.write(COMMAND_BYTES.get(command));
 				output.write(LF);
 				writeHeaders(command, headers, payload, output);
 				output.write(LF);
 				writeBody(payload, output);
 				output.write((byte) 0);
 			}
-
-			return baos.toByteArray();
 		}
 		catch (IOException ex) {
 			throw new StompConversionException("Failed to encode STOMP frame, headers=" + headers,  ex);
@@ -124,7 +174,7 @@ public class StompEncoder  {
 	}
 
 	private void writeHeaders(StompCommand command, Map<String, Object> headers, byte[] payload,
-			DataOutputStream output) throws IOException {
+			OutputStream output) throws IOException {
 
 		@SuppressWarnings("unchecked")
 		Map<String,List<String>> nativeHeaders =
@@ -162,7 +212,7 @@ public class StompEncoder  {
 
 		if (command.requiresContentLength()) {
 			int contentLength = payload.length;
-			output.write("content-length:".getBytes(StandardCharsets.UTF_8));
+			output.write(CONTENT_LENGTH_PREFIX);
 			output.write(Integer.toString(contentLength).getBytes(StandardCharsets.UTF_8));
 			output.write(LF);
 		}
@@ -228,7 +278,7 @@ public class StompEncoder  {
 		return sb;
 	}
 
-	private void writeBody(byte[] payload, DataOutputStream output) throws IOException {
+	private void writeBody(byte[] payload, OutputStream output) throws IOException {
 		output.write(payload);
 	}
 
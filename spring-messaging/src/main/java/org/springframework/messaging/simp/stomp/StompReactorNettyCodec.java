@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,14 +16,23 @@
 package org.springframework.messaging.simp.stomp;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.tcp.reactor.AbstractNioBufferReactorNettyCodec;
 
 /**
  * Simple delegation to StompDecoder and StompEncoder.
  *
+ * <p>As of 5.2, frames are decoded from and encoded into the Netty
+ * {@link ByteBuf} directly, through the {@code DataBuffer} variants of
+ * the decoder and encoder.
+ *
  * @author Rossen Stoyanchev
  * @since 5.0
  */
@@ -33,6 +42,8 @@ public class StompReactorNettyCodec extends AbstractNioBufferReactorNettyCodec<b
 
 	private final StompEncoder encoder;
 
+	private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(ByteBufAllocator.DEFAULT);
+
 
 	public StompReactorNettyCodec() {
 		this(new StompDecoder());
@@ -48,6 +59,16 @@ public class StompReactorNettyCodec extends AbstractNioBufferReactorNettyCodec<b
 	}
 
 
+	@Override
+	public Collection<Message<byte[]>> decode(ByteBuf inputBuffer) {
+		return this.decoder.decode(this.bufferFactory.wrap(inputBuffer));
+	}
+
+	@Override
+	public void encode(Message<byte[]> message, ByteBuf outputBuffer) {
+		this.encoder.encode(message, this.bufferFactory.wrap(outputBuffer));
+	}
+
 	@Override
 	protected List<Message<byte[]>> decodeInternal(ByteBuffer nioBuffer) {
 		return this.decoder.decode(nioBuffer);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.MultiValueMap;
 
 import static org.junit.Assert.assertEquals;
@@ -257,6 +258,76 @@ public class DefaultSubscriptionRegistryTests {
 		assertEquals("Expected no elements " + actual, 0, actual.size());
 	}
 
+	@Test
+	public void registerSubscriptionWithCustomPathSeparator() {
+		this.registry.setPathMatcher(new AntPathMatcher("."));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "price.stock.*"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "price.**"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs01", "price.stock.ibm"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("price.stock.ibm"));
+		assertEquals(2, actual.size());
+		assertEquals(Arrays.asList("subs01", "subs02"), actual.get("sess01"));
+		assertEquals(Collections.singletonList("subs01"), actual.get("sess02"));
+
+		actual = this.registry.findSubscriptions(createMessage("price"));
+		assertEquals(1, actual.size());
+		assertEquals(Collections.singletonList("subs02"), actual.get("sess01"));
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess01", "subs02"));
+		this.registry.unregisterAllSubscriptions("sess02");
+
+		actual = this.registry.findSubscriptions(createMessage("price.stock.ibm"));
+		assertEquals(1, actual.size());
+		assertEquals(Collections.singletonList("subs01"), actual.get("sess01"));
+		assertEquals(0, this.registry.findSubscriptions(createMessage("price")).size());
+	}
+
+	@Test
+	public void registerSubscriptionWithPatternWithinSegment() {
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/topic/price*"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/topic/price.{ticker}"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs03", "/topic/price/**"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/topic/prices"));
+		assertEquals(Collections.singletonList("subs01"), actual.get("sess01"));
+
+		actual = this.registry.findSubscriptions(createMessage("/topic/price.ibm"));
+		assertEquals(Arrays.asList("subs01", "subs02"), actual.get("sess01"));
+
+		actual = this.registry.findSubscriptions(createMessage("/topic/price/stock/ibm"));
+		assertEquals(Collections.singletonList("subs03"), actual.get("sess01"));
+	}
+
+	@Test
+	public void registerSubscriptionCaseInsensitive() {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		this.registry.setPathMatcher(pathMatcher);
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/Topic/Price/*"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/TOPIC/PRICE/IBM"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/topic/price/ibm"));
+		assertEquals(1, actual.size());
+		assertEquals(Arrays.asList("subs01", "subs02"), actual.get("sess01"));
+	}
+
+	@Test
+	public void registerSubscriptionWithCustomPathMatcher() {
+		this.registry.setPathMatcher(new AntPathMatcher() {});
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/topic/PRICE.STOCK.*.IBM"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs01", "/topic/PRICE.STOCK.NASDAQ.IBM"));
+
+		MultiValueMap<String, String> actual =
+				this.registry.findSubscriptions(createMessage("/topic/PRICE.STOCK.NASDAQ.IBM"));
+		assertEquals(2, actual.size());
+
+		this.registry.unregisterAllSubscriptions("sess01");
+		actual = this.registry.findSubscriptions(createMessage("/topic/PRICE.STOCK.NASDAQ.IBM"));
+		assertEquals(1, actual.size());
+		assertEquals(Collections.singletonList("subs01"), actual.get("sess02"));
+	}
+
 	@Test
 	public void registerSubscriptionWithSelector() {
 		String sessionId = "sess01";
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,9 +17,12 @@
 package org.springframework.messaging.simp.broker;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -139,6 +142,77 @@ public class SimpleBrokerMessageHandlerTests {
 		assertTrue(messageCaptured(sess2, "sub3", "/bar"));
 	}
 
+	@Test
+	public void subscribePublishWithShards() {
+		this.messageHandler.setShardCount(2);
+		startSession("sess1");
+		startSession("sess2");
+
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub2", "/bar"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess2", "sub1", "/foo"));
+
+		for (int i = 0; i < 20; i++) {
+			this.messageHandler.handleMessage(createMessage("/foo", "foo" + i));
+			this.messageHandler.handleMessage(createMessage("/bar", "bar" + i));
+		}
+
+		verify(this.clientOutChannel, timeout(5000).times(60)).send(this.messageCaptor.capture());
+		this.messageHandler.stop();
+
+		// Each session receives messages in the order of publication, across destinations
+		List<Object> sess1Payloads = new ArrayList<>();
+		List<Object> sess2Payloads = new ArrayList<>();
+		for (Message<?> message : this.messageCaptor.getAllValues()) {
+			if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+				continue;
+			}
+			String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+			("sess1".equals(sessionId) ? sess1Payloads : sess2Payloads).add(message.getPayload());
+		}
+		assertEquals(40, sess1Payloads.size());
+		assertEquals(20, sess2Payloads.size());
+		for (int i = 0; i < 20; i++) {
+			assertEquals("foo" + i, sess1Payloads.get(i * 2));
+			assertEquals("bar" + i, sess1Payloads.get(i * 2 + 1));
+			assertEquals("foo" + i, sess2Payloads.get(i));
+		}
+	}
+
+	@Test
+	public void disconnectWithShardsSkipsPendingMessages() throws Exception {
+		this.messageHandler.setShardCount(1);
+		startSession("sess1");
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+
+		CountDownLatch sending = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+		when(this.clientOutChannel.send(any())).thenAnswer(invocation -> {
+			sending.countDown();
+			proceed.await(5, TimeUnit.SECONDS);
+			return true;
+		});
+
+		this.messageHandler.handleMessage(createMessage("/foo", "message1"));
+		assertTrue(sending.await(5, TimeUnit.SECONDS));
+		this.messageHandler.handleMessage(createMessage("/foo", "message2"));
+		this.messageHandler.handleMessage(createMessage("/foo", "message3"));
+
+		SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT);
+		headers.setSessionId("sess1");
+		this.messageHandler.handleMessage(MessageBuilder.createMessage("", headers.getMessageHeaders()));
+		proceed.countDown();
+
+		verify(this.clientOutChannel, timeout(5000).times(2)).send(this.messageCaptor.capture());
+		this.messageHandler.stop();
+
+		// Pending messages for the closed session are skipped; the DISCONNECT_ACK is sent last
+		List<Message<?>> messages = this.messageCaptor.getAllValues();
+		messages = messages.subList(messages.size() - 2, messages.size());
+		assertEquals("message1", messages.get(0).getPayload());
+		assertEquals(SimpMessageType.DISCONNECT_ACK, SimpMessageHeaderAccessor.getMessageType(messages.get(1).getHeaders()));
+	}
+
 	@Test
 	public void connect() {
 		String id = "sess1";
@@ -294,7 +368,7 @@ public class SimpleBrokerMessageHandlerTests {
 		this.messageHandler.setTaskScheduler(this.taskScheduler);
 		this.messageHandler.handleMessage(connectMessage);
 
-		verify(this.clientOutChannel, times(1)).send(this.messageCaptor.capture());
+		verify(this.clientOutChannel, timeout(5000).times(1)).send(this.messageCaptor.capture());
 		reset(this.clientOutChannel);
 		return connectMessage;
 	}
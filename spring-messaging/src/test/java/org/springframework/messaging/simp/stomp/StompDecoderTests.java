@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,16 +18,20 @@ package org.springframework.messaging.simp.stomp;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.junit.Test;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.util.InvalidMimeTypeException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test fixture for {@link StompDecoder}.
@@ -248,6 +252,34 @@ public class StompDecoderTests {
 		assertEquals(SimpMessageType.HEARTBEAT, StompHeaderAccessor.wrap(messages.get(0)).getMessageType());
 	}
 
+	@Test
+	public void decodeFramesFromDataBuffer() {
+		String frame1 = "SEND\ndestination:/queue/a\ncontent-length:5\n\nhello\0";
+		String frame2 = "SEND\ndestination:/queue/b\n\nworld\0";
+		String partial = "SEND\ndestination:/queue/c\n";
+		byte[] bytes = (frame1 + frame2 + partial).getBytes(StandardCharsets.UTF_8);
+		DataBuffer buffer = new DefaultDataBufferFactory(true).allocateBuffer(bytes.length);
+		buffer.write(bytes);
+
+		List<Message<byte[]>> messages = this.decoder.decode(buffer);
+
+		assertEquals(2, messages.size());
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(messages.get(0));
+		assertEquals(StompCommand.SEND, headers.getCommand());
+		assertEquals("/queue/a", headers.getDestination());
+		assertEquals("hello", new String(messages.get(0).getPayload(), StandardCharsets.UTF_8));
+		assertEquals("world", new String(messages.get(1).getPayload(), StandardCharsets.UTF_8));
+		assertEquals(partial.length(), buffer.readableByteCount());
+	}
+
+	@Test
+	public void decodeFrameInternsKnownHeaderNames() {
+		Message<byte[]> frame = decode("SEND\ndestination:/queue/a\n\n\0");
+		String headerName = StompHeaderAccessor.wrap(frame).toNativeHeaderMap().keySet().iterator().next();
+
+		assertSame(StompHeaderAccessor.STOMP_DESTINATION_HEADER, headerName);
+	}
+
 	private void assertIncompleteDecode(String partialFrame) {
 		ByteBuffer buffer = ByteBuffer.wrap(partialFrame.getBytes());
 		assertNull(decode(buffer));
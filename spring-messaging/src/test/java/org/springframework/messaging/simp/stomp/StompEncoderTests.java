@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,12 @@
 
 package org.springframework.messaging.simp.stomp;
 
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Test;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 
@@ -88,4 +92,18 @@ public class StompEncoderTests {
 				new String(encoder.encode(frame)));
 	}
 
+	@Test
+	public void encodeFrameToDataBuffer() {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.SEND);
+		headers.addNativeHeader("a", "alpha");
+		Message<byte[]> frame = MessageBuilder.createMessage(
+				"Message body".getBytes(StandardCharsets.UTF_8), headers.getMessageHeaders());
+
+		DataBuffer buffer = this.encoder.encode(frame, new DefaultDataBufferFactory());
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+
+		assertEquals("SEND\na:alpha\ncontent-length:12\n\nMessage body\0", new String(bytes, StandardCharsets.UTF_8));
+	}
+
 }
@@ -17,6 +17,7 @@
 package org.springframework.transaction.interceptor;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentMap;
 
@@ -151,6 +152,11 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	private final ConcurrentMap<Object, PlatformTransactionManager> transactionManagerCache =
 			new ConcurrentReferenceHashMap<>(4);
 
+	private boolean cacheTransactionMetadata = false;
+
+	private final ConcurrentMap<Method, TransactionMetadata[]> transactionMetadataCache =
+			new ConcurrentReferenceHashMap<>(64);
+
 
 	/**
 	 * Specify the name of the default transaction manager bean.
@@ -237,6 +243,35 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		return this.transactionAttributeSource;
 	}
 
+	/**
+	 * Set whether to resolve the transaction attribute, transaction manager and
+	 * joinpoint identification only once per advised method, keeping them in
+	 * this aspect for subsequent invocations of the same method.
+	 * <p>Default is "false", consulting the {@link TransactionAttributeSource}
+	 * and determining the transaction manager for every invocation. Switch this
+	 * flag to "true" for avoiding that work (including the cache key allocation
+	 * in a typical {@code TransactionAttributeSource}) on the invocation path,
+	 * provided that the attribute source returns the same attribute for a given
+	 * method and target class at all times - as is the case for the common
+	 * annotation-based and name-based sources.
+	 * <p>Metadata is kept per method and target class: for a method invoked on
+	 * several target classes through the same aspect (e.g. an interface method
+	 * with multiple implementations), each target class is resolved only once.
+	 * @since 5.2
+	 * @see #clearTransactionManagerCache()
+	 */
+	public void setCacheTransactionMetadata(boolean cacheTransactionMetadata) {
+		this.cacheTransactionMetadata = cacheTransactionMetadata;
+	}
+
+	/**
+	 * Return whether transaction metadata is resolved only once per advised method.
+	 * @since 5.2
+	 */
+	public boolean isCacheTransactionMetadata() {
+		return this.cacheTransactionMetadata;
+	}
+
 	/**
 	 * Set the BeanFactory to use for retrieving PlatformTransactionManager beans.
 	 */
@@ -286,14 +321,27 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 			final InvocationCallback invocation) throws Throwable {
 
 		// If the transaction attribute is null, the method is non-transactional.
-		TransactionAttributeSource tas = getTransactionAttributeSource();
-		final TransactionAttribute txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
-		final PlatformTransactionManager tm = determineTransactionManager(txAttr);
-		final String joinpointIdentification = methodIdentification(method, targetClass, txAttr);
+		final TransactionAttribute txAttr;
+		final PlatformTransactionManager tm;
+		final String joinpointIdentification;
+		TransactionMetadata metadata = null;
+		if (this.cacheTransactionMetadata) {
+			metadata = getTransactionMetadata(method, targetClass);
+			txAttr = metadata.transactionAttribute;
+			tm = metadata.transactionManager;
+			joinpointIdentification = metadata.joinpointIdentification;
+		}
+		else {
+			TransactionAttributeSource tas = getTransactionAttributeSource();
+			txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
+			tm = determineTransactionManager(txAttr);
+			joinpointIdentification = methodIdentification(method, targetClass, txAttr);
+		}
 
 		if (txAttr == null || !(tm instanceof CallbackPreferringPlatformTransactionManager)) {
 			// Standard transaction demarcation with getTransaction and commit/rollback calls.
-			TransactionInfo txInfo = createTransactionIfNecessary(tm, txAttr, joinpointIdentification);
+			TransactionInfo txInfo = createTransactionIfNecessary(tm,
+					(metadata != null ? metadata.namedTransactionAttribute : txAttr), joinpointIdentification);
 
 			Object retVal;
 			try {
@@ -388,9 +436,46 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	protected void clearTransactionManagerCache() {
 		this.transactionManagerCache.clear();
+		this.transactionMetadataCache.clear();
 		this.beanFactory = null;
 	}
 
+	/**
+	 * Obtain the transaction metadata for the given method and target class,
+	 * resolving it on first invocation of the method for that target class.
+	 * <p>The entries for a method are held in a small array, scanned by target
+	 * class identity, so that a lookup does not need to allocate a cache key;
+	 * the array is replaced by an extended copy for every newly resolved class.
+	 */
+	private TransactionMetadata getTransactionMetadata(Method method, @Nullable Class<?> targetClass) {
+		TransactionMetadata[] entries = this.transactionMetadataCache.get(method);
+		if (entries != null) {
+			for (TransactionMetadata metadata : entries) {
+				if (metadata.targetClass == targetClass) {
+					return metadata;
+				}
+			}
+		}
+		TransactionAttributeSource tas = getTransactionAttributeSource();
+		TransactionAttribute txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
+		TransactionMetadata metadata = new TransactionMetadata(targetClass, txAttr,
+				determineTransactionManager(txAttr), methodIdentification(method, targetClass, txAttr));
+		this.transactionMetadataCache.compute(method, (key, current) -> {
+			if (current == null) {
+				return new TransactionMetadata[] {metadata};
+			}
+			for (TransactionMetadata existing : current) {
+				if (existing.targetClass == targetClass) {
+					return current;
+				}
+			}
+			TransactionMetadata[] extended = Arrays.copyOf(current, current.length + 1);
+			extended[current.length] = metadata;
+			return extended;
+		});
+		return metadata;
+	}
+
 	/**
 	 * Determine the specific transaction manager to use for the given transaction.
 	 */
@@ -707,6 +792,49 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 
+	/**
+	 * Transaction metadata resolved for a specific method and target class.
+	 */
+	private static final class TransactionMetadata {
+
+		@Nullable
+		final Class<?> targetClass;
+
+		@Nullable
+		final TransactionAttribute transactionAttribute;
+
+		@Nullable
+		final TransactionAttribute namedTransactionAttribute;
+
+		@Nullable
+		final PlatformTransactionManager transactionManager;
+
+		final String joinpointIdentification;
+
+		@SuppressWarnings("serial")
+		TransactionMetadata(@Nullable Class<?> targetClass, @Nullable TransactionAttribute transactionAttribute,
+				@Nullable PlatformTransactionManager transactionManager, String joinpointIdentification) {
+
+			this.targetClass = targetClass;
+			this.transactionAttribute = transactionAttribute;
+			this.transactionManager = transactionManager;
+			this.joinpointIdentification = joinpointIdentification;
+			// Apply method identification as transaction name upfront, if not specified
+			if (transactionAttribute != null && transactionAttribute.getName() == null) {
+				this.namedTransactionAttribute = new DelegatingTransactionAttribute(transactionAttribute) {
+					@Override
+					public String getName() {
+						return joinpointIdentification;
+					}
+				};
+			}
+			else {
+				this.namedTransactionAttribute = transactionAttribute;
+			}
+		}
+	}
+
+
 	/**
 	 * Internal holder class for a Throwable in a callback transaction model.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -144,7 +144,9 @@ public abstract class AbstractTransactionStatus implements TransactionStatus {
 	 * if the underlying transaction does not support savepoints
 	 */
 	public void createAndHoldSavepoint() throws TransactionException {
-		setSavepoint(getSavepointManager().createSavepoint());
+		SavepointManager savepointManager = getSavepointManager();
+		triggerBeforeSavepoint();
+		setSavepoint(savepointManager.createSavepoint());
 	}
 
 	/**
@@ -158,6 +160,7 @@ public abstract class AbstractTransactionStatus implements TransactionStatus {
 					"Cannot roll back to savepoint - no savepoint associated with current transaction");
 		}
 		getSavepointManager().rollbackToSavepoint(savepoint);
+		triggerAfterSavepointRollback();
 		getSavepointManager().releaseSavepoint(savepoint);
 		setSavepoint(null);
 	}
@@ -188,7 +191,9 @@ public abstract class AbstractTransactionStatus implements TransactionStatus {
 	 */
 	@Override
 	public Object createSavepoint() throws TransactionException {
-		return getSavepointManager().createSavepoint();
+		SavepointManager savepointManager = getSavepointManager();
+		triggerBeforeSavepoint();
+		return savepointManager.createSavepoint();
 	}
 
 	/**
@@ -200,6 +205,7 @@ public abstract class AbstractTransactionStatus implements TransactionStatus {
 	@Override
 	public void rollbackToSavepoint(Object savepoint) throws TransactionException {
 		getSavepointManager().rollbackToSavepoint(savepoint);
+		triggerAfterSavepointRollback();
 	}
 
 	/**
@@ -223,4 +229,24 @@ public abstract class AbstractTransactionStatus implements TransactionStatus {
 		throw new NestedTransactionNotSupportedException("This transaction does not support savepoints");
 	}
 
+	/**
+	 * Let registered synchronizations flush buffered work before a savepoint is created.
+	 * @see TransactionSynchronization#beforeSavepoint()
+	 */
+	private void triggerBeforeSavepoint() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationUtils.triggerBeforeSavepoint();
+		}
+	}
+
+	/**
+	 * Let registered synchronizations discard work buffered since the savepoint.
+	 * @see TransactionSynchronization#afterSavepointRollback()
+	 */
+	private void triggerAfterSavepointRollback() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationUtils.triggerAfterSavepointRollback();
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -72,6 +72,26 @@ public interface TransactionSynchronization extends Flushable {
 	default void flush() {
 	}
 
+	/**
+	 * Invoked before a savepoint is created for the current transaction,
+	 * e.g. for a nested transaction scope. Can flush work buffered so far,
+	 * so that it is covered by the savepoint rather than by a later rollback to it.
+	 * @throws RuntimeException in case of errors; will be <b>propagated to the caller</b>
+	 * @since 5.2
+	 * @see org.springframework.transaction.SavepointManager#createSavepoint()
+	 */
+	default void beforeSavepoint() {
+	}
+
+	/**
+	 * Invoked after the current transaction has been rolled back to a savepoint.
+	 * Supposed to discard any work buffered since the savepoint has been created.
+	 * @since 5.2
+	 * @see org.springframework.transaction.SavepointManager#rollbackToSavepoint(Object)
+	 */
+	default void afterSavepointRollback() {
+	}
+
 	/**
 	 * Invoked before transaction commit (before "beforeCompletion").
 	 * Can e.g. flush transactional O/R Mapping sessions to the database.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,8 +17,9 @@
 package org.springframework.transaction.support;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -64,6 +65,14 @@ import org.springframework.util.Assert;
  * within a JTA transaction, e.g. a JDBC Connection or a Hibernate Session for
  * any given DataSource or SessionFactory, respectively.
  *
+ * <p>As of 5.2, all of this state is kept in a single context object per thread,
+ * which is reused for subsequent transactions on the same thread: resources are
+ * held in small arrays rather than a map, since there are typically only one or
+ * two of them, and the set of synchronizations is cleared rather than recreated.
+ * Note that the context therefore stays bound to a pooled thread in between
+ * transactions, referencing this class (and thereby its ClassLoader) until the
+ * thread ends; it is small and only holds on to structures of limited capacity.
+ *
  * @author Juergen Hoeller
  * @since 02.06.2003
  * @see #isSynchronizationActive
@@ -78,23 +87,8 @@ public abstract class TransactionSynchronizationManager {
 
 	private static final Log logger = LogFactory.getLog(TransactionSynchronizationManager.class);
 
-	private static final ThreadLocal<Map<Object, Object>> resources =
-			new NamedThreadLocal<>("Transactional resources");
-
-	private static final ThreadLocal<Set<TransactionSynchronization>> synchronizations =
-			new NamedThreadLocal<>("Transaction synchronizations");
-
-	private static final ThreadLocal<String> currentTransactionName =
-			new NamedThreadLocal<>("Current transaction name");
-
-	private static final ThreadLocal<Boolean> currentTransactionReadOnly =
-			new NamedThreadLocal<>("Current transaction read-only status");
-
-	private static final ThreadLocal<Integer> currentTransactionIsolationLevel =
-			new NamedThreadLocal<>("Current transaction isolation level");
-
-	private static final ThreadLocal<Boolean> actualTransactionActive =
-			new NamedThreadLocal<>("Actual transaction active");
+	private static final ThreadLocal<TransactionContext> transactionContext =
+			new NamedThreadLocal<>("Transaction synchronization state");
 
 
 	//-------------------------------------------------------------------------
@@ -111,8 +105,9 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #hasResource
 	 */
 	public static Map<Object, Object> getResourceMap() {
-		Map<Object, Object> map = resources.get();
-		return (map != null ? Collections.unmodifiableMap(map) : Collections.emptyMap());
+		TransactionContext context = transactionContext.get();
+		return (context != null && context.resourceCount > 0 ?
+				Collections.unmodifiableMap(context.getResourceMap()) : Collections.emptyMap());
 	}
 
 	/**
@@ -150,18 +145,14 @@ public abstract class TransactionSynchronizationManager {
 	 */
 	@Nullable
 	private static Object doGetResource(Object actualKey) {
-		Map<Object, Object> map = resources.get();
-		if (map == null) {
+		TransactionContext context = transactionContext.get();
+		if (context == null) {
 			return null;
 		}
-		Object value = map.get(actualKey);
+		Object value = context.getResource(actualKey);
 		// Transparently remove ResourceHolder that was marked as void...
 		if (value instanceof ResourceHolder && ((ResourceHolder) value).isVoid()) {
-			map.remove(actualKey);
-			// Remove entire ThreadLocal if empty...
-			if (map.isEmpty()) {
-				resources.remove();
-			}
+			context.removeResource(actualKey);
 			value = null;
 		}
 		return value;
@@ -177,13 +168,7 @@ public abstract class TransactionSynchronizationManager {
 	public static void bindResource(Object key, Object value) throws IllegalStateException {
 		Object actualKey = TransactionSynchronizationUtils.unwrapResourceIfNecessary(key);
 		Assert.notNull(value, "Value must not be null");
-		Map<Object, Object> map = resources.get();
-		// set ThreadLocal Map if none found
-		if (map == null) {
-			map = new HashMap<>();
-			resources.set(map);
-		}
-		Object oldValue = map.put(actualKey, value);
+		Object oldValue = obtainTransactionContext().putResource(actualKey, value);
 		// Transparently suppress a ResourceHolder that was marked as void...
 		if (oldValue instanceof ResourceHolder && ((ResourceHolder) oldValue).isVoid()) {
 			oldValue = null;
@@ -231,15 +216,11 @@ public abstract class TransactionSynchronizationManager {
 	 */
 	@Nullable
 	private static Object doUnbindResource(Object actualKey) {
-		Map<Object, Object> map = resources.get();
-		if (map == null) {
+		TransactionContext context = transactionContext.get();
+		if (context == null) {
 			return null;
 		}
-		Object value = map.remove(actualKey);
-		// Remove entire ThreadLocal if empty...
-		if (map.isEmpty()) {
-			resources.remove();
-		}
+		Object value = context.removeResource(actualKey);
 		// Transparently suppress a ResourceHolder that was marked as void...
 		if (value instanceof ResourceHolder && ((ResourceHolder) value).isVoid()) {
 			value = null;
@@ -262,7 +243,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #registerSynchronization
 	 */
 	public static boolean isSynchronizationActive() {
-		return (synchronizations.get() != null);
+		TransactionContext context = transactionContext.get();
+		return (context != null && context.synchronizationActive);
 	}
 
 	/**
@@ -275,7 +257,7 @@ public abstract class TransactionSynchronizationManager {
 			throw new IllegalStateException("Cannot activate transaction synchronization - already active");
 		}
 		logger.trace("Initializing transaction synchronization");
-		synchronizations.set(new LinkedHashSet<>());
+		obtainTransactionContext().synchronizationActive = true;
 	}
 
 	/**
@@ -292,10 +274,11 @@ public abstract class TransactionSynchronizationManager {
 			throws IllegalStateException {
 
 		Assert.notNull(synchronization, "TransactionSynchronization must not be null");
-		if (!isSynchronizationActive()) {
+		TransactionContext context = transactionContext.get();
+		if (context == null || !context.synchronizationActive) {
 			throw new IllegalStateException("Transaction synchronization is not active");
 		}
-		synchronizations.get().add(synchronization);
+		context.addSynchronization(synchronization);
 	}
 
 	/**
@@ -306,16 +289,20 @@ public abstract class TransactionSynchronizationManager {
 	 * @see TransactionSynchronization
 	 */
 	public static List<TransactionSynchronization> getSynchronizations() throws IllegalStateException {
-		Set<TransactionSynchronization> synchs = synchronizations.get();
-		if (synchs == null) {
+		TransactionContext context = transactionContext.get();
+		if (context == null || !context.synchronizationActive) {
 			throw new IllegalStateException("Transaction synchronization is not active");
 		}
 		// Return unmodifiable snapshot, to avoid ConcurrentModificationExceptions
 		// while iterating and invoking synchronization callbacks that in turn
 		// might register further synchronizations.
-		if (synchs.isEmpty()) {
+		Set<TransactionSynchronization> synchs = context.synchronizations;
+		if (synchs == null || synchs.isEmpty()) {
 			return Collections.emptyList();
 		}
+		else if (synchs.size() == 1) {
+			return Collections.singletonList(synchs.iterator().next());
+		}
 		else {
 			// Sort lazily here, not in registerSynchronization.
 			List<TransactionSynchronization> sortedSynchs = new ArrayList<>(synchs);
@@ -334,7 +321,7 @@ public abstract class TransactionSynchronizationManager {
 			throw new IllegalStateException("Cannot deactivate transaction synchronization - not active");
 		}
 		logger.trace("Clearing transaction synchronization");
-		synchronizations.remove();
+		obtainTransactionContext().clearSynchronization();
 	}
 
 
@@ -349,7 +336,10 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#getName()
 	 */
 	public static void setCurrentTransactionName(@Nullable String name) {
-		currentTransactionName.set(name);
+		TransactionContext context = (name != null ? obtainTransactionContext() : transactionContext.get());
+		if (context != null) {
+			context.name = name;
+		}
 	}
 
 	/**
@@ -360,7 +350,8 @@ public abstract class TransactionSynchronizationManager {
 	 */
 	@Nullable
 	public static String getCurrentTransactionName() {
-		return currentTransactionName.get();
+		TransactionContext context = transactionContext.get();
+		return (context != null ? context.name : null);
 	}
 
 	/**
@@ -371,7 +362,10 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#isReadOnly()
 	 */
 	public static void setCurrentTransactionReadOnly(boolean readOnly) {
-		currentTransactionReadOnly.set(readOnly ? Boolean.TRUE : null);
+		TransactionContext context = (readOnly ? obtainTransactionContext() : transactionContext.get());
+		if (context != null) {
+			context.readOnly = readOnly;
+		}
 	}
 
 	/**
@@ -387,7 +381,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see TransactionSynchronization#beforeCommit(boolean)
 	 */
 	public static boolean isCurrentTransactionReadOnly() {
-		return (currentTransactionReadOnly.get() != null);
+		TransactionContext context = transactionContext.get();
+		return (context != null && context.readOnly);
 	}
 
 	/**
@@ -407,7 +402,10 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#getIsolationLevel()
 	 */
 	public static void setCurrentTransactionIsolationLevel(@Nullable Integer isolationLevel) {
-		currentTransactionIsolationLevel.set(isolationLevel);
+		TransactionContext context = (isolationLevel != null ? obtainTransactionContext() : transactionContext.get());
+		if (context != null) {
+			context.isolationLevel = isolationLevel;
+		}
 	}
 
 	/**
@@ -429,7 +427,8 @@ public abstract class TransactionSynchronizationManager {
 	 */
 	@Nullable
 	public static Integer getCurrentTransactionIsolationLevel() {
-		return currentTransactionIsolationLevel.get();
+		TransactionContext context = transactionContext.get();
+		return (context != null ? context.isolationLevel : null);
 	}
 
 	/**
@@ -439,7 +438,10 @@ public abstract class TransactionSynchronizationManager {
 	 * with an actual transaction; {@code false} to reset that marker
 	 */
 	public static void setActualTransactionActive(boolean active) {
-		actualTransactionActive.set(active ? Boolean.TRUE : null);
+		TransactionContext context = (active ? obtainTransactionContext() : transactionContext.get());
+		if (context != null) {
+			context.actualTransactionActive = active;
+		}
 	}
 
 	/**
@@ -454,7 +456,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #isSynchronizationActive()
 	 */
 	public static boolean isActualTransactionActive() {
-		return (actualTransactionActive.get() != null);
+		TransactionContext context = transactionContext.get();
+		return (context != null && context.actualTransactionActive);
 	}
 
 
@@ -468,11 +471,173 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #setActualTransactionActive
 	 */
 	public static void clear() {
-		synchronizations.remove();
-		currentTransactionName.remove();
-		currentTransactionReadOnly.remove();
-		currentTransactionIsolationLevel.remove();
-		actualTransactionActive.remove();
+		TransactionContext context = transactionContext.get();
+		if (context != null) {
+			context.clearSynchronization();
+			context.name = null;
+			context.readOnly = false;
+			context.isolationLevel = null;
+			context.actualTransactionActive = false;
+		}
+	}
+
+	/**
+	 * Return the context for the current thread, binding a new one if none bound yet.
+	 */
+	private static TransactionContext obtainTransactionContext() {
+		TransactionContext context = transactionContext.get();
+		if (context == null) {
+			context = new TransactionContext();
+			transactionContext.set(context);
+		}
+		return context;
+	}
+
+
+	/**
+	 * Holder for the transactional state of a thread, bound on first use and
+	 * cleared in place at the end of each transaction.
+	 * <p>Resources are stored in parallel arrays, matched by identity or by
+	 * hash code and {@code equals} like in a {@code HashMap}: a linear scan
+	 * beats hashing for the handful of resources that are usually bound.
+	 * Structures that grew beyond {@link #RETAINED_CAPACITY} are released
+	 * once empty again, rather than being held on to by the thread.
+	 */
+	private static final class TransactionContext {
+
+		private static final int INITIAL_CAPACITY = 2;
+
+		private static final int RETAINED_CAPACITY = 16;
+
+		@Nullable
+		private Object[] resourceKeys;
+
+		@Nullable
+		private Object[] resourceValues;
+
+		@Nullable
+		private int[] resourceHashes;
+
+		private int resourceCount;
+
+		@Nullable
+		private Set<TransactionSynchronization> synchronizations;
+
+		private boolean synchronizationActive;
+
+		@Nullable
+		private String name;
+
+		private boolean readOnly;
+
+		@Nullable
+		private Integer isolationLevel;
+
+		private boolean actualTransactionActive;
+
+		private int indexOfResource(Object key, int hash) {
+			Object[] keys = this.resourceKeys;
+			int[] hashes = this.resourceHashes;
+			if (keys != null && hashes != null) {
+				for (int i = 0; i < this.resourceCount; i++) {
+					Object candidate = keys[i];
+					if (candidate == key || (hashes[i] == hash && key.equals(candidate))) {
+						return i;
+					}
+				}
+			}
+			return -1;
+		}
+
+		@Nullable
+		Object getResource(Object key) {
+			int index = indexOfResource(key, key.hashCode());
+			return (index != -1 && this.resourceValues != null ? this.resourceValues[index] : null);
+		}
+
+		@Nullable
+		Object putResource(Object key, Object value) {
+			int hash = key.hashCode();
+			int index = indexOfResource(key, hash);
+			if (index != -1 && this.resourceValues != null) {
+				Object oldValue = this.resourceValues[index];
+				this.resourceValues[index] = value;
+				return oldValue;
+			}
+			if (this.resourceKeys == null || this.resourceValues == null || this.resourceHashes == null) {
+				this.resourceKeys = new Object[INITIAL_CAPACITY];
+				this.resourceValues = new Object[INITIAL_CAPACITY];
+				this.resourceHashes = new int[INITIAL_CAPACITY];
+			}
+			else if (this.resourceCount == this.resourceKeys.length) {
+				int newCapacity = this.resourceCount * 2;
+				this.resourceKeys = Arrays.copyOf(this.resourceKeys, newCapacity);
+				this.resourceValues = Arrays.copyOf(this.resourceValues, newCapacity);
+				this.resourceHashes = Arrays.copyOf(this.resourceHashes, newCapacity);
+			}
+			this.resourceKeys[this.resourceCount] = key;
+			this.resourceValues[this.resourceCount] = value;
+			this.resourceHashes[this.resourceCount] = hash;
+			this.resourceCount++;
+			return null;
+		}
+
+		@Nullable
+		Object removeResource(Object key) {
+			int index = indexOfResource(key, key.hashCode());
+			if (index == -1 || this.resourceKeys == null || this.resourceValues == null ||
+					this.resourceHashes == null) {
+				return null;
+			}
+			Object value = this.resourceValues[index];
+			int last = --this.resourceCount;
+			if (index < last) {
+				// Keep binding order for getResourceMap
+				System.arraycopy(this.resourceKeys, index + 1, this.resourceKeys, index, last - index);
+				System.arraycopy(this.resourceValues, index + 1, this.resourceValues, index, last - index);
+				System.arraycopy(this.resourceHashes, index + 1, this.resourceHashes, index, last - index);
+			}
+			this.resourceKeys[last] = null;
+			this.resourceValues[last] = null;
+			if (last == 0 && this.resourceKeys.length > RETAINED_CAPACITY) {
+				this.resourceKeys = null;
+				this.resourceValues = null;
+				this.resourceHashes = null;
+			}
+			return value;
+		}
+
+		Map<Object, Object> getResourceMap() {
+			Map<Object, Object> map = new LinkedHashMap<>(this.resourceCount * 2);
+			if (this.resourceKeys != null && this.resourceValues != null) {
+				for (int i = 0; i < this.resourceCount; i++) {
+					map.put(this.resourceKeys[i], this.resourceValues[i]);
+				}
+			}
+			return map;
+		}
+
+		void addSynchronization(TransactionSynchronization synchronization) {
+			Set<TransactionSynchronization> synchs = this.synchronizations;
+			if (synchs == null) {
+				synchs = new LinkedHashSet<>(8);
+				this.synchronizations = synchs;
+			}
+			synchs.add(synchronization);
+		}
+
+		void clearSynchronization() {
+			this.synchronizationActive = false;
+			Set<TransactionSynchronization> synchs = this.synchronizations;
+			if (synchs != null) {
+				if (synchs.size() > RETAINED_CAPACITY) {
+					this.synchronizations = null;
+				}
+				else {
+					synchs.clear();
+				}
+			}
+		}
 	}
 
 }
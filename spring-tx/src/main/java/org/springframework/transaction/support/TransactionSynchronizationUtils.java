@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -85,6 +85,30 @@ public abstract class TransactionSynchronizationUtils {
 		}
 	}
 
+	/**
+	 * Trigger {@code beforeSavepoint} callbacks on all currently registered synchronizations.
+	 * @throws RuntimeException if thrown by a {@code beforeSavepoint} callback
+	 * @since 5.2
+	 * @see TransactionSynchronization#beforeSavepoint()
+	 */
+	public static void triggerBeforeSavepoint() {
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			synchronization.beforeSavepoint();
+		}
+	}
+
+	/**
+	 * Trigger {@code afterSavepointRollback} callbacks on all currently registered synchronizations.
+	 * @throws RuntimeException if thrown by a {@code afterSavepointRollback} callback
+	 * @since 5.2
+	 * @see TransactionSynchronization#afterSavepointRollback()
+	 */
+	public static void triggerAfterSavepointRollback() {
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			synchronization.afterSavepointRollback();
+		}
+	}
+
 	/**
 	 * Trigger {@code beforeCommit} callbacks on all currently registered synchronizations.
 	 * @param readOnly whether the transaction is defined as read-only transaction
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.interceptor;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Runs the transaction aspect tests against a {@link TransactionInterceptor}
+ * with {@link TransactionAspectSupport#setCacheTransactionMetadata per-method caching}
+ * of transaction metadata, plus tests specific to that mode.
+ *
+ * @author Agent Local
+ */
+public class MetadataCachingTransactionInterceptorTests extends AbstractTransactionAspectTests {
+
+	@Override
+	protected Object advised(Object target, PlatformTransactionManager ptm, TransactionAttributeSource[] tas) {
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionManager(ptm);
+		ti.setTransactionAttributeSources(tas);
+		ti.setCacheTransactionMetadata(true);
+		return proxy(target, ti);
+	}
+
+	@Override
+	protected Object advised(Object target, PlatformTransactionManager ptm, TransactionAttributeSource tas) {
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionManager(ptm);
+		ti.setTransactionAttributeSource(tas);
+		ti.setCacheTransactionMetadata(true);
+		assertTrue(ti.isCacheTransactionMetadata());
+		return proxy(target, ti);
+	}
+
+	private Object proxy(Object target, TransactionInterceptor ti) {
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvice(0, ti);
+		return pf.getProxy();
+	}
+
+
+	@Test
+	public void metadataResolvedOncePerMethod() throws Exception {
+		TransactionAttributeSource tas = mock(TransactionAttributeSource.class);
+		DefaultTransactionAttribute txatt = new DefaultTransactionAttribute();
+		txatt.setQualifier("fooTransactionManager");
+		given(tas.getTransactionAttribute(getNameMethod, TestBean.class)).willReturn(txatt);
+
+		BeanFactory beanFactory = mock(BeanFactory.class);
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		given(beanFactory.containsBean("fooTransactionManager")).willReturn(true);
+		given(beanFactory.getBean("fooTransactionManager", PlatformTransactionManager.class)).willReturn(ptm);
+		TransactionStatus status = mock(TransactionStatus.class);
+		given(ptm.getTransaction(any(TransactionDefinition.class))).willReturn(status);
+
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionAttributeSource(tas);
+		ti.setBeanFactory(beanFactory);
+		ti.setCacheTransactionMetadata(true);
+		ITestBean itb = (ITestBean) proxy(new TestBean(), ti);
+
+		itb.getName();
+		itb.getName();
+		itb.getName();
+
+		verify(tas, times(1)).getTransactionAttribute(getNameMethod, TestBean.class);
+		verify(beanFactory, times(1)).getBean("fooTransactionManager", PlatformTransactionManager.class);
+		verify(ptm, times(3)).commit(status);
+	}
+
+	@Test
+	public void transactionNamedAfterMethod() throws Exception {
+		MapTransactionAttributeSource tas = new MapTransactionAttributeSource();
+		tas.register(getNameMethod, new DefaultTransactionAttribute());
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		given(ptm.getTransaction(any(TransactionDefinition.class))).willReturn(mock(TransactionStatus.class));
+
+		ITestBean itb = (ITestBean) advised(new TestBean(), ptm, tas);
+		itb.getName();
+
+		verify(ptm).getTransaction(argThat(definition ->
+				TestBean.class.getName().concat(".getName").equals(definition.getName())));
+	}
+
+	@Test
+	public void metadataReresolvedForDifferentTargetClass() throws Exception {
+		TransactionAttributeSource tas = mock(TransactionAttributeSource.class);
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionManager(ptm);
+		ti.setTransactionAttributeSource(tas);
+		ti.setCacheTransactionMetadata(true);
+
+		ITestBean itb1 = (ITestBean) proxy(new TestBean(), ti);
+		ITestBean itb2 = (ITestBean) proxy(new TestBean() {}, ti);
+		itb1.getName();
+		itb2.getName();
+		itb2.getName();
+
+		Method method = ITestBean.class.getMethod("getName");
+		verify(tas, times(1)).getTransactionAttribute(eq(method), eq(TestBean.class));
+		verify(tas, times(1)).getTransactionAttribute(eq(method), argThat(clazz -> clazz != TestBean.class));
+		verifyZeroInteractions(ptm);
+	}
+
+	@Test
+	public void metadataCachedPerTargetClass() throws Exception {
+		TransactionAttributeSource tas = mock(TransactionAttributeSource.class);
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionManager(ptm);
+		ti.setTransactionAttributeSource(tas);
+		ti.setCacheTransactionMetadata(true);
+
+		ITestBean itb1 = (ITestBean) proxy(new TestBean(), ti);
+		ITestBean itb2 = (ITestBean) proxy(new TestBean() {}, ti);
+		for (int i = 0; i < 3; i++) {
+			itb1.getName();
+			itb2.getName();
+		}
+
+		Method method = ITestBean.class.getMethod("getName");
+		verify(tas, times(1)).getTransactionAttribute(eq(method), eq(TestBean.class));
+		verify(tas, times(1)).getTransactionAttribute(eq(method), argThat(clazz -> clazz != TestBean.class));
+		verifyZeroInteractions(ptm);
+	}
+
+}
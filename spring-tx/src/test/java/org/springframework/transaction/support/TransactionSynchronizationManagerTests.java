@@ -0,0 +1,231 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TransactionSynchronizationManager}.
+ *
+ * @author Agent Local
+ */
+public class TransactionSynchronizationManagerTests {
+
+	@After
+	public void cleanup() {
+		for (Object key : TransactionSynchronizationManager.getResourceMap().keySet()) {
+			TransactionSynchronizationManager.unbindResource(key);
+		}
+		TransactionSynchronizationManager.clear();
+	}
+
+
+	@Test
+	public void bindAndUnbindMultipleResources() {
+		for (int i = 0; i < 20; i++) {
+			TransactionSynchronizationManager.bindResource("key" + i, "value" + i);
+		}
+		assertEquals("value7", TransactionSynchronizationManager.getResource("key7"));
+		assertEquals("value7", TransactionSynchronizationManager.unbindResource("key7"));
+		assertFalse(TransactionSynchronizationManager.hasResource("key7"));
+		assertNull(TransactionSynchronizationManager.unbindResourceIfPossible("key7"));
+
+		Map<Object, Object> resourceMap = TransactionSynchronizationManager.getResourceMap();
+		assertEquals(19, resourceMap.size());
+		Iterator<Object> keys = resourceMap.keySet().iterator();
+		assertEquals("key0", keys.next());
+		assertEquals("key1", keys.next());
+		assertEquals("value19", TransactionSynchronizationManager.getResource("key19"));
+
+		for (int i = 0; i < 20; i++) {
+			TransactionSynchronizationManager.unbindResourceIfPossible("key" + i);
+		}
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+		TransactionSynchronizationManager.bindResource("key", "value");
+		assertEquals("value", TransactionSynchronizationManager.getResource("key"));
+	}
+
+	@Test
+	public void resourceKeysMatchedByEquality() {
+		TransactionSynchronizationManager.bindResource(new String("key"), "value");
+		assertEquals("value", TransactionSynchronizationManager.getResource(new String("key")));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void bindResourceTwice() {
+		TransactionSynchronizationManager.bindResource("key", "value");
+		TransactionSynchronizationManager.bindResource("key", "other");
+	}
+
+	@Test
+	public void voidResourceHolderRemoved() {
+		ResourceHolderSupport holder = new ResourceHolderSupport() {};
+		TransactionSynchronizationManager.bindResource("key", holder);
+		holder.unbound();
+		assertNull(TransactionSynchronizationManager.getResource("key"));
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+		TransactionSynchronizationManager.bindResource("key", "value");
+		assertEquals("value", TransactionSynchronizationManager.getResource("key"));
+	}
+
+	@Test
+	public void synchronizationsWithoutDuplicatesInOrder() {
+		TransactionSynchronization first = new OrderedSynchronization(2);
+		TransactionSynchronization second = new OrderedSynchronization(1);
+		TransactionSynchronization third = new OrderedSynchronization(1);
+
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.registerSynchronization(first);
+		assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+		TransactionSynchronizationManager.registerSynchronization(second);
+		TransactionSynchronizationManager.registerSynchronization(first);
+		TransactionSynchronizationManager.registerSynchronization(third);
+		assertEquals(Arrays.asList(second, third, first), TransactionSynchronizationManager.getSynchronizations());
+
+		TransactionSynchronizationManager.clearSynchronization();
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+		TransactionSynchronizationManager.initSynchronization();
+		assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+		TransactionSynchronizationManager.clearSynchronization();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void registerSynchronizationWhenNotActive() {
+		TransactionSynchronizationManager.registerSynchronization(new OrderedSynchronization(0));
+	}
+
+	@Test
+	public void transactionCharacteristicsResetOnClear() {
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setCurrentTransactionName("tx");
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		TransactionSynchronizationManager.setCurrentTransactionIsolationLevel(2);
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		TransactionSynchronizationManager.bindResource("key", "value");
+		assertEquals("tx", TransactionSynchronizationManager.getCurrentTransactionName());
+		assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+		assertEquals(Integer.valueOf(2), TransactionSynchronizationManager.getCurrentTransactionIsolationLevel());
+		assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+
+		TransactionSynchronizationManager.clear();
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+		assertNull(TransactionSynchronizationManager.getCurrentTransactionName());
+		assertFalse(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+		assertNull(TransactionSynchronizationManager.getCurrentTransactionIsolationLevel());
+		assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+		// Resources are not affected by clear()
+		assertEquals("value", TransactionSynchronizationManager.getResource("key"));
+	}
+
+	@Test
+	public void transactionStateResetForSubsequentTransactions() {
+		for (int i = 0; i < 3; i++) {
+			assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+			assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+
+			// Beyond the capacity retained in between transactions
+			TransactionSynchronizationManager.initSynchronization();
+			TransactionSynchronizationManager.setCurrentTransactionName("tx" + i);
+			for (int j = 0; j < 20; j++) {
+				TransactionSynchronizationManager.bindResource("key" + j, "value" + i);
+				TransactionSynchronizationManager.registerSynchronization(new OrderedSynchronization(j));
+			}
+			assertEquals(20, TransactionSynchronizationManager.getResourceMap().size());
+			assertEquals(20, TransactionSynchronizationManager.getSynchronizations().size());
+			assertEquals("value" + i, TransactionSynchronizationManager.getResource("key19"));
+
+			for (int j = 0; j < 20; j++) {
+				TransactionSynchronizationManager.unbindResource("key" + j);
+			}
+			TransactionSynchronizationManager.clear();
+			assertNull(TransactionSynchronizationManager.getCurrentTransactionName());
+
+			// Small transaction within the retained capacity
+			TransactionSynchronizationManager.initSynchronization();
+			assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+			TransactionSynchronizationManager.bindResource("key", "value");
+			TransactionSynchronizationManager.registerSynchronization(new OrderedSynchronization(0));
+			assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+			assertEquals(Collections.singletonMap("key", "value"), TransactionSynchronizationManager.getResourceMap());
+			TransactionSynchronizationManager.unbindResource("key");
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	public void transactionContextReusedAndTrimmed() throws Exception {
+		Field field = TransactionSynchronizationManager.class.getDeclaredField("transactionContext");
+		field.setAccessible(true);
+		ThreadLocal<?> transactionContext = (ThreadLocal<?>) field.get(null);
+
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		TransactionSynchronizationManager.bindResource("key", "value");
+		Object context = transactionContext.get();
+		assertNotNull(context);
+		Field resourceKeys = context.getClass().getDeclaredField("resourceKeys");
+		resourceKeys.setAccessible(true);
+		Object keys = resourceKeys.get(context);
+		TransactionSynchronizationManager.unbindResource("key");
+		TransactionSynchronizationManager.clear();
+		assertSame(context, transactionContext.get());
+
+		// Next transaction on the same thread: same context, same resource storage
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.bindResource("key", "value");
+		assertSame(context, transactionContext.get());
+		assertSame(keys, resourceKeys.get(context));
+
+		// Storage grown beyond the retained capacity is released once empty
+		for (int i = 0; i < 20; i++) {
+			TransactionSynchronizationManager.bindResource("key" + i, "value");
+		}
+		TransactionSynchronizationManager.unbindResource("key");
+		for (int i = 0; i < 20; i++) {
+			TransactionSynchronizationManager.unbindResource("key" + i);
+		}
+		assertNull(resourceKeys.get(context));
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+		TransactionSynchronizationManager.clear();
+		assertSame(context, transactionContext.get());
+	}
+
+
+	private static class OrderedSynchronization extends TransactionSynchronizationAdapter {
+
+		private final int order;
+
+		OrderedSynchronization(int order) {
+			this.order = order;
+		}
+
+		@Override
+		public int getOrder() {
+			return this.order;
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.mock.web.test.MockHttpServletResponse;
+import org.springframework.mock.web.test.MockServletConfig;
+import org.springframework.mock.web.test.MockServletContext;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+/**
+ * Benchmarks for request dispatching through {@link DispatcherServlet},
+ * covering handler lookup, argument resolution and return value handling.
+ *
+ * @author Agent Local
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DispatcherServletBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		public DispatcherServlet servlet;
+
+		public AnnotationConfigWebApplicationContext context;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			MockServletContext servletContext = new MockServletContext();
+			this.context = new AnnotationConfigWebApplicationContext();
+			this.context.setServletContext(servletContext);
+			this.context.register(WebConfig.class, BenchmarkController.class);
+			this.context.refresh();
+			this.servlet = new DispatcherServlet(this.context);
+			this.servlet.init(new MockServletConfig(servletContext));
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.servlet.destroy();
+			this.context.close();
+		}
+	}
+
+
+	@Benchmark
+	public MockHttpServletResponse staticPath(BenchmarkData data) throws Exception {
+		return dispatch(data, new MockHttpServletRequest("GET", "/status"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse pathVariable(BenchmarkData data) throws Exception {
+		return dispatch(data, new MockHttpServletRequest("GET", "/users/42"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse requestParam(BenchmarkData data) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/search");
+		request.addParameter("q", "spring");
+		return dispatch(data, request);
+	}
+
+	@Benchmark
+	public MockHttpServletResponse notFound(BenchmarkData data) throws Exception {
+		return dispatch(data, new MockHttpServletRequest("GET", "/missing"));
+	}
+
+	private static MockHttpServletResponse dispatch(BenchmarkData data, MockHttpServletRequest request)
+			throws Exception {
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		data.servlet.service(request, response);
+		return response;
+	}
+
+
+	@Configuration
+	@EnableWebMvc
+	static class WebConfig {
+	}
+
+
+	@RestController
+	static class BenchmarkController {
+
+		@GetMapping("/status")
+		public String status() {
+			return "ok";
+		}
+
+		@GetMapping("/users/{id}")
+		public String user(@PathVariable long id) {
+			return "user" + id;
+		}
+
+		@GetMapping("/search")
+		public String search(@RequestParam String q) {
+			return q;
+		}
+	}
+
+}
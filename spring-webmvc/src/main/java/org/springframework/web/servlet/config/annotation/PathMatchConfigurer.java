@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -51,6 +51,9 @@ public class PathMatchConfigurer {
 	@Nullable
 	private Boolean registeredSuffixPatternMatch;
 
+	@Nullable
+	private Boolean patternIndex;
+
 	@Nullable
 	private UrlPathHelper urlPathHelper;
 
@@ -96,6 +99,20 @@ public class PathMatchConfigurer {
 		return this;
 	}
 
+	/**
+	 * Whether to index the patterns of request mappings by their leading
+	 * literal path segments, so that only mappings whose patterns may match
+	 * are checked for a request without a direct URL match. Recommended for
+	 * applications with a large number of pattern-based request mappings.
+	 * <p>By default this is set to "false".
+	 * @since 5.2
+	 * @see org.springframework.web.servlet.handler.AbstractHandlerMethodMapping#setUsePatternIndex
+	 */
+	public PathMatchConfigurer setUsePatternIndex(Boolean patternIndex) {
+		this.patternIndex = patternIndex;
+		return this;
+	}
+
 	/**
 	 * Set the UrlPathHelper to use for resolution of lookup paths.
 	 * <p>Use this to override the default UrlPathHelper with a custom subclass,
@@ -152,6 +169,11 @@ public class PathMatchConfigurer {
 		return this.registeredSuffixPatternMatch;
 	}
 
+	@Nullable
+	public Boolean isUsePatternIndex() {
+		return this.patternIndex;
+	}
+
 	@Nullable
 	public UrlPathHelper getUrlPathHelper() {
 		return this.urlPathHelper;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -292,6 +292,10 @@ public class WebMvcConfigurationSupport implements ApplicationContextAware, Serv
 		if (useTrailingSlashMatch != null) {
 			mapping.setUseTrailingSlashMatch(useTrailingSlashMatch);
 		}
+		Boolean usePatternIndex = configurer.isUsePatternIndex();
+		if (usePatternIndex != null) {
+			mapping.setUsePatternIndex(usePatternIndex);
+		}
 
 		UrlPathHelper pathHelper = configurer.getUrlPathHelper();
 		if (pathHelper != null) {
@@ -25,6 +25,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -43,6 +44,7 @@ import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsUtils;
 import org.springframework.web.method.HandlerMethod;
@@ -91,6 +93,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 	private boolean detectHandlerMethodsInAncestorContexts = false;
 
+	private boolean usePatternIndex = false;
+
 	@Nullable
 	private HandlerMethodMappingNamingStrategy<T> namingStrategy;
 
@@ -110,6 +114,37 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		this.detectHandlerMethodsInAncestorContexts = detectHandlerMethodsInAncestorContexts;
 	}
 
+	/**
+	 * Whether to maintain an index of the registered path patterns, organized
+	 * as a tree of their leading literal path segments, for looking up mappings
+	 * that do not match the lookup path directly.
+	 * <p>Default is "false", in which case every mapping is checked against the
+	 * request if there is no direct URL match. Switch this flag on in order to
+	 * only check mappings whose patterns may match the lookup path, with the
+	 * lookup cost depending on the depth of the path rather than on the total
+	 * number of mappings. The best match is selected in the same way.
+	 * <p>The index assumes "/"-separated path patterns, where each segment
+	 * without wildcard characters has to match the corresponding lookup path
+	 * segment (ignoring case and surrounding whitespace, and tolerating a file
+	 * extension in the last segment). This is the case for the default
+	 * {@link org.springframework.util.AntPathMatcher}; do not switch this flag
+	 * on for custom {@link PathMatcher} implementations with other semantics.
+	 * @since 5.2
+	 * @see #getPathMatcher()
+	 */
+	public void setUsePatternIndex(boolean usePatternIndex) {
+		this.usePatternIndex = usePatternIndex;
+		this.mappingRegistry.setPatternIndexEnabled(usePatternIndex);
+	}
+
+	/**
+	 * Whether an index of the registered path patterns is used for lookups.
+	 * @since 5.2
+	 */
+	public boolean usePatternIndex() {
+		return this.usePatternIndex;
+	}
+
 	/**
 	 * Configure the naming strategy to use for assigning a default name to every
 	 * mapped handler method.
@@ -382,8 +417,14 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			List<T> candidates = this.mappingRegistry.getMappingsByPatternIndex(lookupPath);
+			if (candidates != null) {
+				addMatchingMappings(candidates, matches, request);
+			}
+			else {
+				// No choice but to go through all mappings...
+				addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			}
 		}
 
 		if (!matches.isEmpty()) {
@@ -526,6 +567,9 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
 
+		@Nullable
+		private PatternIndex<T> patternIndex;
+
 		private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
 		/**
@@ -545,6 +589,17 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.urlLookup.get(urlPath);
 		}
 
+		/**
+		 * Return the mappings whose patterns may match the given URL path, in
+		 * registration order, or {@code null} if no pattern index is maintained.
+		 * Not thread-safe.
+		 * @see #acquireReadLock()
+		 */
+		@Nullable
+		public List<T> getMappingsByPatternIndex(String urlPath) {
+			return (this.patternIndex != null ? this.patternIndex.getCandidates(urlPath) : null);
+		}
+
 		/**
 		 * Return handler methods by mapping name. Thread-safe for concurrent use.
 		 */
@@ -574,6 +629,28 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			this.readWriteLock.readLock().unlock();
 		}
 
+		/**
+		 * Build or discard the pattern index, including all current mappings.
+		 */
+		public void setPatternIndexEnabled(boolean enabled) {
+			this.readWriteLock.writeLock().lock();
+			try {
+				if (!enabled) {
+					this.patternIndex = null;
+				}
+				else if (this.patternIndex == null) {
+					PatternIndex<T> index = new PatternIndex<>();
+					for (T mapping : this.mappingLookup.keySet()) {
+						index.add(mapping, getMappingPathPatterns(mapping), getPathMatcher());
+					}
+					this.patternIndex = index;
+				}
+			}
+			finally {
+				this.readWriteLock.writeLock().unlock();
+			}
+		}
+
 		public void register(T mapping, Object handler, Method method) {
 			this.readWriteLock.writeLock().lock();
 			try {
@@ -586,6 +663,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					this.urlLookup.add(url, mapping);
 				}
 
+				if (this.patternIndex != null) {
+					this.patternIndex.add(mapping, getMappingPathPatterns(mapping), getPathMatcher());
+				}
+
 				String name = null;
 				if (getNamingStrategy() != null) {
 					name = getNamingStrategy().getName(handlerMethod, mapping);
@@ -662,6 +743,11 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					}
 				}
 
+				if (this.patternIndex != null) {
+					this.patternIndex.remove(definition.getMapping(),
+							getMappingPathPatterns(definition.getMapping()), getPathMatcher());
+				}
+
 				removeMappingName(definition);
 
 				this.corsLookup.remove(definition.getHandlerMethod());
@@ -737,6 +823,155 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	}
 
 
+	/**
+	 * A tree of the leading literal segments of registered path patterns, with
+	 * each node holding the mappings whose patterns continue with a wildcard
+	 * segment (or end) at that point. The candidates for a lookup path are the
+	 * mappings held by all nodes along the path, i.e. a superset of the mappings
+	 * whose patterns actually match, to be checked as usual.
+	 */
+	private static class PatternIndex<T> {
+
+		private final Node<T> root = new Node<>();
+
+		private int sequence;
+
+		public void add(T mapping, Set<String> patterns, PathMatcher pathMatcher) {
+			int order = this.sequence++;
+			if (patterns.isEmpty()) {
+				// Mapping without patterns: candidate for any lookup path
+				this.root.entries.add(new Entry<>(mapping, order));
+				return;
+			}
+			for (String pattern : patterns) {
+				Node<T> node = this.root;
+				for (String segment : getLiteralSegments(pattern, pathMatcher)) {
+					node = node.children.computeIfAbsent(segment, key -> new Node<>());
+				}
+				node.entries.add(new Entry<>(mapping, order));
+			}
+		}
+
+		public void remove(T mapping, Set<String> patterns, PathMatcher pathMatcher) {
+			if (patterns.isEmpty()) {
+				this.root.removeEntries(mapping);
+				return;
+			}
+			for (String pattern : patterns) {
+				this.root.remove(mapping, getLiteralSegments(pattern, pathMatcher), 0);
+			}
+		}
+
+		public List<T> getCandidates(String lookupPath) {
+			List<Entry<T>> entries = new ArrayList<>(this.root.entries);
+			boolean multipleNodes = false;
+			Node<T> node = this.root;
+			int start = 0;
+			int length = lookupPath.length();
+			while (node != null && start < length) {
+				int end = lookupPath.indexOf('/', start);
+				if (end == -1) {
+					end = length;
+				}
+				if (end > start) {
+					String segment = normalize(lookupPath.substring(start, end));
+					Node<T> child = node.children.get(segment);
+					if (end == length) {
+						// Last segment: also consider a pattern matched with a file extension,
+						// which may itself contain dots (e.g. "v1.2" for "v1.2.json")
+						int dotIndex = segment.indexOf('.');
+						while (dotIndex != -1) {
+							Node<T> suffixChild = node.children.get(segment.substring(0, dotIndex));
+							if (suffixChild != null && !suffixChild.entries.isEmpty()) {
+								multipleNodes |= !entries.isEmpty();
+								entries.addAll(suffixChild.entries);
+							}
+							dotIndex = segment.indexOf('.', dotIndex + 1);
+						}
+					}
+					if (child != null && !child.entries.isEmpty()) {
+						multipleNodes |= !entries.isEmpty();
+						entries.addAll(child.entries);
+					}
+					node = child;
+				}
+				start = end + 1;
+			}
+			if (multipleNodes) {
+				entries.sort(Comparator.comparingInt(entry -> entry.order));
+			}
+			List<T> candidates = new ArrayList<>(entries.size());
+			Entry<T> previous = null;
+			for (Entry<T> entry : entries) {
+				// A mapping with several patterns along the path is listed once
+				if (previous == null || previous.order != entry.order) {
+					candidates.add(entry.mapping);
+				}
+				previous = entry;
+			}
+			return candidates;
+		}
+
+		private static List<String> getLiteralSegments(String pattern, PathMatcher pathMatcher) {
+			List<String> segments = new ArrayList<>();
+			for (String segment : pattern.split("/")) {
+				if (segment.isEmpty()) {
+					continue;
+				}
+				if (pathMatcher.isPattern(segment) || segment.indexOf('{') != -1) {
+					break;
+				}
+				segments.add(normalize(segment));
+			}
+			return segments;
+		}
+
+		private static String normalize(String segment) {
+			return segment.trim().toLowerCase(Locale.ENGLISH);
+		}
+
+
+		private static class Node<T> {
+
+			private final Map<String, Node<T>> children = new HashMap<>();
+
+			private final List<Entry<T>> entries = new ArrayList<>(1);
+
+			public void remove(T mapping, List<String> segments, int index) {
+				if (index == segments.size()) {
+					removeEntries(mapping);
+					return;
+				}
+				String segment = segments.get(index);
+				Node<T> child = this.children.get(segment);
+				if (child != null) {
+					child.remove(mapping, segments, index + 1);
+					if (child.entries.isEmpty() && child.children.isEmpty()) {
+						this.children.remove(segment);
+					}
+				}
+			}
+
+			public void removeEntries(T mapping) {
+				this.entries.removeIf(entry -> entry.mapping.equals(mapping));
+			}
+		}
+
+
+		private static class Entry<T> {
+
+			private final T mapping;
+
+			private final int order;
+
+			public Entry(T mapping, int order) {
+				this.mapping = mapping;
+				this.order = order;
+			}
+		}
+	}
+
+
 	/**
 	 * A thin wrapper around a matched HandlerMethod and its mapping, for the purpose of
 	 * comparing the best match with a comparator in the context of the current request.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.web.servlet.handler;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -107,6 +108,61 @@ public class HandlerMethodMappingTests {
 		this.mapping.getHandlerInternal(new MockHttpServletRequest("GET", "/foo"));
 	}
 
+	@Test
+	public void patternIndexMatch() throws Exception {
+		AbstractHandlerMethodMapping<String> mapping = new PatternHandlerMethodMapping();
+		mapping.setUsePatternIndex(true);
+		mapping.registerMapping("/foo/**", this.handler, this.method1);
+		mapping.registerMapping("/foo/{id}", this.handler, this.method2);
+		mapping.registerMapping("/bar/*", this.handler, this.method1);
+
+		assertEquals(Arrays.asList("/foo/**", "/foo/{id}"),
+				mapping.getMappingRegistry().getMappingsByPatternIndex("/foo/1"));
+		assertEquals(Collections.singletonList("/bar/*"),
+				mapping.getMappingRegistry().getMappingsByPatternIndex("/BAR/baz"));
+		assertEquals(Collections.emptyList(),
+				mapping.getMappingRegistry().getMappingsByPatternIndex("/baz/1"));
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo/1");
+		HandlerMethod result = mapping.getHandlerInternal(request);
+		assertEquals(method2, result.getMethod());
+		assertEquals(result, request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE));
+	}
+
+	@Test
+	public void patternIndexCandidates() throws Exception {
+		AbstractHandlerMethodMapping<String> mapping = new PatternHandlerMethodMapping();
+		mapping.registerMapping("/*/bar", this.handler, this.method1);
+		mapping.registerMapping("/foo/bar", this.handler, this.method2);
+		assertNull(mapping.getMappingRegistry().getMappingsByPatternIndex("/foo/bar"));
+
+		// Enabled after registration: existing mappings are indexed in registration order
+		mapping.setUsePatternIndex(true);
+		assertEquals(Arrays.asList("/*/bar", "/foo/bar"),
+				mapping.getMappingRegistry().getMappingsByPatternIndex("/foo/bar.json"));
+		assertEquals(Collections.singletonList("/*/bar"),
+				mapping.getMappingRegistry().getMappingsByPatternIndex("/foo/baz"));
+
+		mapping.unregisterMapping("/foo/bar");
+		assertEquals(Collections.singletonList("/*/bar"),
+				mapping.getMappingRegistry().getMappingsByPatternIndex("/foo/bar"));
+	}
+
+	@Test
+	public void patternIndexCandidatesWithDotsInLastSegment() throws Exception {
+		AbstractHandlerMethodMapping<String> mapping = new PatternHandlerMethodMapping();
+		mapping.setUsePatternIndex(true);
+		mapping.registerMapping("/files/v1", this.handler, this.method1);
+		mapping.registerMapping("/files/v1.2", this.handler, this.method2);
+
+		assertEquals(Arrays.asList("/files/v1", "/files/v1.2"),
+				mapping.getMappingRegistry().getMappingsByPatternIndex("/files/v1.2"));
+		assertEquals(Arrays.asList("/files/v1", "/files/v1.2"),
+				mapping.getMappingRegistry().getMappingsByPatternIndex("/files/v1.2.json"));
+		assertEquals(Collections.singletonList("/files/v1"),
+				mapping.getMappingRegistry().getMappingsByPatternIndex("/files/v1.json"));
+	}
+
 	@Test
 	public void detectHandlerMethodsInAncestorContexts() {
 		StaticApplicationContext cxt = new StaticApplicationContext();
@@ -295,6 +351,14 @@ public class HandlerMethodMappingTests {
 
 	}
 
+	private static class PatternHandlerMethodMapping extends MyHandlerMethodMapping {
+
+		@Override
+		protected Set<String> getMappingPathPatterns(String key) {
+			return Collections.singleton(key);
+		}
+	}
+
 	private static class SimpleMappingNamingStrategy implements HandlerMethodMappingNamingStrategy<String> {
 
 		@Override
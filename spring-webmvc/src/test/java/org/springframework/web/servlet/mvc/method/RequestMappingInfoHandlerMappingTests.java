@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -142,6 +142,24 @@ public class RequestMappingInfoHandlerMappingTests {
 		assertEquals(this.fooParamMethod.getMethod(), handlerMethod.getMethod());
 	}
 
+	@Test
+	public void getHandlerWithPatternIndex() throws Exception {
+		this.handlerMapping.setUsePatternIndex(true);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo.json");
+		assertEquals(this.fooMethod.getMethod(), getHandler(request).getMethod());
+
+		request = new MockHttpServletRequest("GET", "/foo/");
+		request.setParameter("p", "anything");
+		assertEquals(this.fooParamMethod.getMethod(), getHandler(request).getMethod());
+
+		request = new MockHttpServletRequest("GET", "/bar");
+		assertEquals(this.barMethod.getMethod(), getHandler(request).getMethod());
+
+		request = new MockHttpServletRequest("GET", "/");
+		assertEquals(this.emptyMethod.getMethod(), getHandler(request).getMethod());
+	}
+
 	@Test
 	public void getHandlerRequestMethodNotAllowed() throws Exception {
 		try {